@@ -1,55 +1,94 @@
 package com.smartattendance.companion;
 
 import java.io.IOException;
-import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.smartattendance.companion.recognition.RecognitionEvent;
 import com.smartattendance.companion.recognition.RecognitionEventBus;
 import com.smartattendance.companion.recognition.RecognitionEventType;
 
+/**
+ * Forwards dashboard-relevant recognition events to the service in periodic batches, over
+ * the session's {@link CompanionChannel} while it is open and as bulk POSTs otherwise.
+ * Repeated identical rejections of the same track are collapsed into one event with an
+ * occurrence count while they wait, and the queue is bounded: when it is full, low-value
+ * events are dropped first so attendance and review outcomes still get through.
+ */
 final class BackendEventForwarder implements Consumer<RecognitionEvent>, AutoCloseable {
 
     private static final Logger logger = LoggerFactory.getLogger(BackendEventForwarder.class);
-    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration FLUSH_INTERVAL = Duration.ofMillis(500);
+    private static final int MAX_BATCH = 100;
+    private static final int MAX_QUEUED = 1000;
+    /** How long closing waits for the subscription to hand over the session's last events. */
+    private static final Duration FINAL_DRAIN_TIMEOUT = Duration.ofSeconds(1);
 
     private final CompanionSettings settings;
     private final SessionState state;
     private final RecognitionEventBus eventBus;
-    private final HttpClient httpClient;
+    private final CompanionChannel channel;
+    private final CompanionHttpClient http = CompanionHttpClient.shared();
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
         Thread thread = new Thread(r, "companion-event-forwarder");
         thread.setDaemon(true);
         return thread;
     });
-    private final Consumer<RecognitionEvent> subscriber = this::accept;
+    private final RecognitionEventBus.Subscription subscription;
+    private final Object lock = new Object();
+    private final ArrayDeque<PendingEvent> queue = new ArrayDeque<>();
+    private final Map<String, PendingEvent> collapsible = new HashMap<>();
+    private final AtomicLong forwarded = new AtomicLong();
+    private final AtomicLong collapsed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong overChannel = new AtomicLong();
+    private volatile boolean batchSupported = true;
 
-    BackendEventForwarder(CompanionSettings settings, SessionState state, RecognitionEventBus eventBus) {
+    BackendEventForwarder(CompanionSettings settings, SessionState state, RecognitionEventBus eventBus,
+                          CompanionChannel channel) {
         this.settings = Objects.requireNonNull(settings, "settings");
         this.state = Objects.requireNonNull(state, "state");
         this.eventBus = Objects.requireNonNull(eventBus, "eventBus");
-        this.httpClient = HttpClient.newBuilder()
-                .connectTimeout(TIMEOUT)
-                .version(HttpClient.Version.HTTP_1_1)
-                .build();
-        eventBus.subscribe(subscriber);
+        this.channel = channel;
+        executor.scheduleWithFixedDelay(this::flushSafely, FLUSH_INTERVAL.toMillis(), FLUSH_INTERVAL.toMillis(),
+                TimeUnit.MILLISECONDS);
+        this.subscription = eventBus.subscribe("event-forwarder", this, RecognitionEventBus.OverflowPolicy.DROP_OLDEST,
+                MAX_QUEUED);
+    }
+
+    private static final class PendingEvent {
+        private final String collapseKey;
+        private RecognitionEvent latest;
+        private int occurrences = 1;
+
+        private PendingEvent(RecognitionEvent event, String collapseKey) {
+            this.latest = event;
+            this.collapseKey = collapseKey;
+        }
     }
 
     @Override
@@ -57,7 +96,40 @@ final class BackendEventForwarder implements Consumer<RecognitionEvent>, AutoClo
         if (!shouldForward(event)) {
             return;
         }
-        executor.submit(() -> forward(event));
+        String key = collapseKey(event);
+        synchronized (lock) {
+            PendingEvent existing = key != null ? collapsible.get(key) : null;
+            if (existing != null) {
+                existing.latest = event;
+                existing.occurrences++;
+                collapsed.incrementAndGet();
+                return;
+            }
+            if (queue.size() >= MAX_QUEUED && !makeRoomFor(event)) {
+                dropped.incrementAndGet();
+                return;
+            }
+            PendingEvent pending = new PendingEvent(event, key);
+            queue.addLast(pending);
+            if (key != null) {
+                collapsible.put(key, pending);
+            }
+        }
+    }
+
+    /** Returns how many events were forwarded, collapsed, dropped or lost to failed requests. */
+    Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        synchronized (lock) {
+            metrics.put("queued", queue.size());
+        }
+        metrics.put("forwarded", forwarded.get());
+        metrics.put("collapsed", collapsed.get());
+        metrics.put("dropped", dropped.get());
+        metrics.put("failed", failed.get());
+        metrics.put("overChannel", overChannel.get());
+        metrics.put("bulk", batchSupported);
+        return metrics;
     }
 
     private boolean shouldForward(RecognitionEvent event) {
@@ -90,32 +162,135 @@ final class BackendEventForwarder implements Consumer<RecognitionEvent>, AutoClo
         };
     }
 
-    private void forward(RecognitionEvent event) {
+    /** Rejections differing only in time and confidence are folded together per track. */
+    private static String collapseKey(RecognitionEvent event) {
+        if (event.getType() != RecognitionEventType.AUTO_REJECTED) {
+            return null;
+        }
+        return event.getTrackId() + "|" + event.getStudentId() + "|" + event.getMessage();
+    }
+
+    private static boolean isLowPriority(RecognitionEvent event) {
+        return event.getType() == RecognitionEventType.AUTO_REJECTED
+                || event.getType() == RecognitionEventType.ATTENDANCE_SKIPPED;
+    }
+
+    /**
+     * Frees a queue slot for {@code event} by dropping the oldest low-priority event, or the
+     * oldest event of any kind when only important ones are queued. Low-priority arrivals
+     * never displace anything.
+     */
+    private boolean makeRoomFor(RecognitionEvent event) {
+        if (isLowPriority(event)) {
+            return false;
+        }
+        PendingEvent victim = null;
+        for (Iterator<PendingEvent> it = queue.iterator(); it.hasNext(); ) {
+            PendingEvent candidate = it.next();
+            if (isLowPriority(candidate.latest)) {
+                it.remove();
+                victim = candidate;
+                break;
+            }
+        }
+        if (victim == null) {
+            victim = queue.pollFirst();
+        }
+        if (victim != null) {
+            if (victim.collapseKey != null) {
+                collapsible.remove(victim.collapseKey, victim);
+            }
+            dropped.addAndGet(victim.occurrences);
+        }
+        return true;
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException ex) {
+            logger.debug("Recognition event flush failed: {}", ex.getMessage());
+        }
+    }
+
+    private void flush() {
+        while (true) {
+            List<PendingEvent> batch = new ArrayList<>();
+            synchronized (lock) {
+                while (batch.size() < MAX_BATCH && !queue.isEmpty()) {
+                    PendingEvent pending = queue.pollFirst();
+                    if (pending.collapseKey != null) {
+                        collapsible.remove(pending.collapseKey, pending);
+                    }
+                    batch.add(pending);
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            send(batch);
+        }
+    }
+
+    private void send(List<PendingEvent> batch) {
+        int events = batch.stream().mapToInt(pending -> pending.occurrences).sum();
         try {
             String token = resolveToken();
             if (token == null || token.isBlank()) {
+                dropped.addAndGet(events);
+                return;
+            }
+            ArrayNode body = objectMapper.createArrayNode();
+            for (PendingEvent pending : batch) {
+                body.add(serialize(pending));
+            }
+            if (channel != null && channel.sendEvents(body)) {
+                forwarded.addAndGet(events);
+                overChannel.addAndGet(events);
                 return;
             }
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(buildEndpoint()))
-                    .timeout(TIMEOUT)
-                    .header("Content-Type", "application/json")
-                    .header("Accept", "application/json")
-                    .header("Authorization", "Bearer " + token.trim())
-                    .POST(HttpRequest.BodyPublishers.ofString(serialize(event)))
-                    .build();
-            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
-            if (response.statusCode() < 200 || response.statusCode() >= 300) {
-                logger.debug("Backend recognition forward failed: HTTP {}", response.statusCode());
+            if (batchSupported) {
+                int status = post(buildEndpoint() + ":batch", token, objectMapper.writeValueAsString(body));
+                if (status != 404 && status != 405) {
+                    record(status, events);
+                    return;
+                }
+                batchSupported = false;
+                logger.info("Service has no bulk recognition event endpoint; forwarding events individually");
+            }
+            for (PendingEvent pending : batch) {
+                int status = post(buildEndpoint(), token, objectMapper.writeValueAsString(serialize(pending)));
+                record(status, pending.occurrences);
             }
         } catch (IOException ex) {
-            logger.debug("Failed to forward recognition event: {}", ex.getMessage());
+            failed.addAndGet(events);
+            logger.debug("Failed to forward recognition events: {}", ex.getMessage());
         } catch (InterruptedException ex) {
+            failed.addAndGet(events);
             Thread.currentThread().interrupt();
         }
     }
 
-    private String serialize(RecognitionEvent event) throws IOException {
+    private int post(String url, String token, String body) throws IOException, InterruptedException {
+        HttpRequest request = http.request(CompanionHttpClient.Endpoint.EVENTS, url, token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return http.send(CompanionHttpClient.Endpoint.EVENTS, request, HttpResponse.BodyHandlers.discarding())
+                .statusCode();
+    }
+
+    private void record(int status, int events) {
+        if (status >= 200 && status < 300) {
+            forwarded.addAndGet(events);
+        } else {
+            failed.addAndGet(events);
+            logger.debug("Backend recognition forward failed: HTTP {}", status);
+        }
+    }
+
+    private ObjectNode serialize(PendingEvent pending) {
+        RecognitionEvent event = pending.latest;
         ObjectNode node = objectMapper.createObjectNode();
         if (event.getStudentId() != null && !event.getStudentId().isBlank()) {
             node.put("studentId", event.getStudentId());
@@ -134,7 +309,10 @@ final class BackendEventForwarder implements Consumer<RecognitionEvent>, AutoClo
         if (event.getTrackId() != null) {
             node.put("trackId", event.getTrackId());
         }
-        return objectMapper.writeValueAsString(node);
+        if (pending.occurrences > 1) {
+            node.put("occurrences", pending.occurrences);
+        }
+        return node;
     }
 
     private String buildEndpoint() {
@@ -169,7 +347,9 @@ final class BackendEventForwarder implements Consumer<RecognitionEvent>, AutoClo
 
     @Override
     public void close() {
-        eventBus.unsubscribe(subscriber);
+        // The session's final events (last attendance, CAMERA_STOPPED) were published just before.
+        subscription.close(FINAL_DRAIN_TIMEOUT);
+        executor.execute(this::flushSafely);
         executor.shutdown();
         try {
             if (!executor.awaitTermination(2, TimeUnit.SECONDS)) {
@@ -179,5 +359,6 @@ final class BackendEventForwarder implements Consumer<RecognitionEvent>, AutoClo
             Thread.currentThread().interrupt();
             executor.shutdownNow();
         }
+        logger.debug("Recognition event forwarder closed: {}", metrics());
     }
 }
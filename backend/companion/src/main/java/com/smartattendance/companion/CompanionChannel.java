@@ -0,0 +1,437 @@
+package com.smartattendance.companion;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.WebSocket;
+import java.net.http.WebSocketHandshakeException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * The WebSocket a running session keeps open to the service. Attendance batches, recognition
+ * events and heartbeats go out over it and the service pushes attendance changes of the session
+ * back, so a session holds one authenticated connection instead of issuing a request per
+ * submission. Messages are JSON objects with a {@code type}, an optional correlation
+ * {@code id} and a {@code payload}.
+ *
+ * <p>The channel is only a preferred transport: while it is down every call fails fast and
+ * callers fall back to the HTTP endpoints. It reconnects with jittered backoff after a close,
+ * an error or {@link #IDLE_TIMEOUT} without traffic, and stops trying when the service
+ * does not offer it or refuses this session's token or session outright.
+ */
+public final class CompanionChannel implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompanionChannel.class);
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration HEARTBEAT_INTERVAL = Duration.ofSeconds(20);
+    private static final Duration IDLE_TIMEOUT = Duration.ofSeconds(60);
+    private static final Duration REPLY_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration SEND_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration RECONNECT_BASE = Duration.ofSeconds(1);
+    private static final Duration RECONNECT_MAX = Duration.ofMinutes(1);
+    /** Close codes the service uses for an invalid or expired token and for an unknown session. */
+    private static final int CLOSE_POLICY_VIOLATION = 1008;
+    private static final int CLOSE_CANNOT_ACCEPT = 1003;
+
+    private final URI uri;
+    private final String companionToken;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "companion-channel");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicReference<WebSocket> socket = new AtomicReference<>();
+    private final AtomicBoolean connecting = new AtomicBoolean(false);
+    private final Map<String, CompletableFuture<JsonNode>> replies = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final Object sendLock = new Object();
+    private final AtomicLong connects = new AtomicLong();
+    private final AtomicLong disconnects = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private volatile Consumer<JsonNode> rosterListener;
+    private volatile long lastReceivedAt;
+    private volatile long heartbeatSentAt;
+    private volatile double roundTripMillis = Double.NaN;
+    private volatile boolean supported = true;
+    private volatile boolean closed;
+    private int reconnectAttempts;
+
+    private CompanionChannel(URI uri, String companionToken) {
+        this.uri = uri;
+        this.companionToken = companionToken;
+    }
+
+    /**
+     * Opens the channel of {@code state}'s session in the background, or returns {@code null}
+     * when the session authenticates with a service token or lacks the ids the channel needs.
+     */
+    static CompanionChannel open(CompanionSettings settings, SessionState state) {
+        String serviceToken = settings.serviceToken() != null ? settings.serviceToken().trim() : "";
+        String companionToken = state.companionToken() != null ? state.companionToken().trim() : "";
+        if (!serviceToken.isEmpty() || companionToken.isEmpty()
+                || isBlank(state.sectionId()) || isBlank(state.sessionId())) {
+            return null;
+        }
+        String baseUrl = !isBlank(state.backendBaseUrl()) ? state.backendBaseUrl() : settings.backendBaseUrl();
+        if (isBlank(baseUrl)) {
+            return null;
+        }
+        URI uri;
+        try {
+            uri = URI.create(toWebSocketUrl(baseUrl.trim()) + "/companion/sections/" + state.sectionId().trim()
+                    + "/sessions/" + state.sessionId().trim() + "/channel");
+        } catch (IllegalArgumentException ex) {
+            logger.warn("Companion channel disabled; invalid service URL {}", baseUrl);
+            return null;
+        }
+        CompanionChannel channel = new CompanionChannel(uri, companionToken);
+        channel.scheduler.scheduleWithFixedDelay(channel::heartbeat, HEARTBEAT_INTERVAL.toMillis(),
+                HEARTBEAT_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+        channel.scheduler.execute(channel::connect);
+        return channel;
+    }
+
+    public boolean isOpen() {
+        return socket.get() != null;
+    }
+
+    /** Receives the service's attendance change events for the session, on the channel's thread. */
+    public void setRosterListener(Consumer<JsonNode> rosterListener) {
+        this.rosterListener = rosterListener;
+    }
+
+    /**
+     * Submits one attendance batch and waits for the service's per-entry results, in the shape
+     * the bulk HTTP endpoint returns them.
+     *
+     * @throws IOException when the channel is down, the reply times out or the service
+     *                     reports an error; the caller should fall back to HTTP
+     */
+    public JsonNode submitAttendance(List<ObjectNode> payloads) throws IOException, InterruptedException {
+        ArrayNode body = objectMapper.createArrayNode();
+        payloads.forEach(body::add);
+        JsonNode result = request("attendance", body);
+        if (result == null || !result.isArray()) {
+            throw new IOException("Unexpected attendance reply over companion channel");
+        }
+        return result;
+    }
+
+    /** Sends recognition events without waiting for a reply; returns false when the channel is down. */
+    public boolean sendEvents(ArrayNode events) {
+        WebSocket current = socket.get();
+        if (current == null) {
+            return false;
+        }
+        try {
+            send(current, envelope("events", null, events));
+            return true;
+        } catch (IOException ex) {
+            logger.debug("Unable to send recognition events over companion channel: {}", ex.getMessage());
+            return false;
+        }
+    }
+
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("open", isOpen());
+        metrics.put("supported", supported);
+        metrics.put("connects", connects.get());
+        metrics.put("disconnects", disconnects.get());
+        metrics.put("sent", sent.get());
+        metrics.put("received", received.get());
+        metrics.put("awaitingReply", replies.size());
+        metrics.put("roundTripMs", Double.isNaN(roundTripMillis) ? null : roundTripMillis);
+        return metrics;
+    }
+
+    private JsonNode request(String type, JsonNode payload) throws IOException, InterruptedException {
+        WebSocket current = socket.get();
+        if (current == null) {
+            throw new IOException("Companion channel is not connected");
+        }
+        String id = Long.toString(nextId.incrementAndGet());
+        CompletableFuture<JsonNode> reply = new CompletableFuture<>();
+        replies.put(id, reply);
+        try {
+            send(current, envelope(type, id, payload));
+            return reply.get(REPLY_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+            throw cause instanceof IOException io ? io : new IOException(cause.getMessage(), cause);
+        } catch (TimeoutException ex) {
+            // A reply that never comes means the connection is wedged even if it looks open.
+            disconnect(current, "reply timed out");
+            throw new IOException("Companion channel reply timed out");
+        } finally {
+            replies.remove(id);
+        }
+    }
+
+    private ObjectNode envelope(String type, String id, JsonNode payload) {
+        ObjectNode envelope = objectMapper.createObjectNode();
+        envelope.put("type", type);
+        if (id != null) {
+            envelope.put("id", id);
+        }
+        if (payload != null) {
+            envelope.set("payload", payload);
+        }
+        return envelope;
+    }
+
+    private void send(WebSocket current, ObjectNode envelope) throws IOException {
+        String text = objectMapper.writeValueAsString(envelope);
+        // The JDK socket rejects a send while the previous one is still pending.
+        synchronized (sendLock) {
+            try {
+                current.sendText(text, true).get(SEND_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+                sent.incrementAndGet();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while sending over companion channel", ex);
+            } catch (ExecutionException | TimeoutException ex) {
+                disconnect(current, "send failed");
+                throw new IOException("Companion channel send failed", ex);
+            }
+        }
+    }
+
+    private void connect() {
+        if (closed || !supported || socket.get() != null || !connecting.compareAndSet(false, true)) {
+            return;
+        }
+        CompanionHttpClient.shared().newWebSocketBuilder()
+                .connectTimeout(CONNECT_TIMEOUT)
+                .header("Authorization", "Bearer " + companionToken)
+                .header("X-Companion-Token", companionToken)
+                .buildAsync(uri, new Listener())
+                .whenComplete((webSocket, error) -> {
+                    connecting.set(false);
+                    if (error != null) {
+                        onConnectFailed(error);
+                        return;
+                    }
+                    if (closed) {
+                        webSocket.abort();
+                        return;
+                    }
+                    lastReceivedAt = System.nanoTime();
+                    socket.set(webSocket);
+                    connects.incrementAndGet();
+                    scheduler.execute(() -> reconnectAttempts = 0);
+                    logger.info("Companion channel connected to {}", uri);
+                });
+    }
+
+    private void onConnectFailed(Throwable error) {
+        Throwable cause = error;
+        while (cause.getCause() != null && !(cause instanceof WebSocketHandshakeException)) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof WebSocketHandshakeException handshake) {
+            int status = handshake.getResponse().statusCode();
+            if (status == 404 || status == 405) {
+                supported = false;
+                logger.info("Service offers no companion channel; using HTTP endpoints");
+                return;
+            }
+            logger.debug("Companion channel handshake rejected: HTTP {}", status);
+        } else {
+            logger.debug("Companion channel connect failed: {}", cause.getMessage());
+        }
+        scheduleReconnect();
+    }
+
+    private void disconnect(WebSocket webSocket, String reason) {
+        if (!socket.compareAndSet(webSocket, null)) {
+            return;
+        }
+        disconnects.incrementAndGet();
+        webSocket.abort();
+        IOException failure = new IOException("Companion channel closed: " + reason);
+        for (CompletableFuture<JsonNode> reply : new ArrayList<>(replies.values())) {
+            reply.completeExceptionally(failure);
+        }
+        logger.info("Companion channel disconnected ({}); falling back to HTTP until it reconnects", reason);
+        scheduleReconnect();
+    }
+
+    private void scheduleReconnect() {
+        if (closed || !supported) {
+            return;
+        }
+        try {
+            scheduler.execute(() -> {
+                int attempt = ++reconnectAttempts;
+                long ceiling = Math.min(RECONNECT_MAX.toMillis(),
+                        RECONNECT_BASE.toMillis() << Math.min(attempt - 1, 10));
+                long delay = ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+                scheduler.schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+            });
+        } catch (RuntimeException ex) {
+            logger.debug("Companion channel reconnect not scheduled: {}", ex.getMessage());
+        }
+    }
+
+    private void heartbeat() {
+        WebSocket current = socket.get();
+        if (current == null) {
+            return;
+        }
+        if (System.nanoTime() - lastReceivedAt > IDLE_TIMEOUT.toNanos()) {
+            disconnect(current, "no traffic for " + IDLE_TIMEOUT.toSeconds() + "s");
+            return;
+        }
+        try {
+            heartbeatSentAt = System.nanoTime();
+            send(current, envelope("heartbeat", "heartbeat-" + nextId.incrementAndGet(), null));
+        } catch (IOException ex) {
+            logger.debug("Companion channel heartbeat failed: {}", ex.getMessage());
+        }
+    }
+
+    private void onMessage(String text) {
+        lastReceivedAt = System.nanoTime();
+        received.incrementAndGet();
+        JsonNode message;
+        try {
+            message = objectMapper.readTree(text);
+        } catch (IOException ex) {
+            logger.debug("Ignoring unreadable companion channel message: {}", ex.getMessage());
+            return;
+        }
+        String type = message.path("type").asText("");
+        String id = message.hasNonNull("id") ? message.get("id").asText() : null;
+        JsonNode payload = message.get("payload");
+        switch (type) {
+            case "roster" -> {
+                Consumer<JsonNode> listener = rosterListener;
+                if (listener != null && payload != null) {
+                    try {
+                        listener.accept(payload);
+                    } catch (RuntimeException ex) {
+                        logger.debug("Roster listener failed: {}", ex.getMessage());
+                    }
+                }
+            }
+            case "heartbeat" -> roundTripMillis = (System.nanoTime() - heartbeatSentAt) / 1_000_000.0d;
+            case "error" -> {
+                String error = payload != null ? payload.path("message").asText("Request failed") : "Request failed";
+                CompletableFuture<JsonNode> reply = id != null ? replies.get(id) : null;
+                if (reply != null) {
+                    reply.completeExceptionally(new IOException(error));
+                } else {
+                    logger.debug("Companion channel error: {}", error);
+                }
+            }
+            default -> {
+                CompletableFuture<JsonNode> reply = id != null ? replies.get(id) : null;
+                if (reply != null) {
+                    reply.complete(payload);
+                }
+            }
+        }
+    }
+
+    private final class Listener implements WebSocket.Listener {
+        private final StringBuilder partial = new StringBuilder();
+
+        @Override
+        public void onOpen(WebSocket webSocket) {
+            webSocket.request(1);
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            partial.append(data);
+            if (last) {
+                String text = partial.toString();
+                partial.setLength(0);
+                onMessage(text);
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+            if (statusCode == CLOSE_POLICY_VIOLATION || statusCode == CLOSE_CANNOT_ACCEPT) {
+                // Reconnecting with the same token and session would be refused the same way.
+                supported = false;
+                logger.info("Service refused the companion channel ({}); using HTTP endpoints", statusCode);
+            }
+            disconnect(webSocket, "closed by service (" + statusCode + (isBlank(reason) ? "" : ": " + reason) + ")");
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            disconnect(webSocket, error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName());
+        }
+    }
+
+    private static String toWebSocketUrl(String httpUrl) {
+        if (httpUrl.regionMatches(true, 0, "https:", 0, 6)) {
+            return "wss:" + httpUrl.substring(6);
+        }
+        if (httpUrl.regionMatches(true, 0, "http:", 0, 5)) {
+            return "ws:" + httpUrl.substring(5);
+        }
+        return httpUrl;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        scheduler.shutdownNow();
+        WebSocket current = socket.getAndSet(null);
+        if (current != null) {
+            try {
+                current.sendClose(WebSocket.NORMAL_CLOSURE, "session stopped")
+                        .get(SEND_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | TimeoutException ex) {
+                logger.debug("Companion channel close failed: {}", ex.getMessage());
+            } finally {
+                current.abort();
+            }
+        }
+        IOException failure = new IOException("Companion channel closed");
+        for (CompletableFuture<JsonNode> reply : new ArrayList<>(replies.values())) {
+            reply.completeExceptionally(failure);
+        }
+        logger.debug("Companion channel closed: {}", metrics());
+    }
+}
@@ -0,0 +1,340 @@
+package com.smartattendance.companion;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLContextSpi;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+
+/**
+ * The one {@link HttpClient} every companion component talks to the service through. It
+ * prefers HTTP/2, so attendance submissions, event forwarding and session control
+ * multiplex over a single warm connection per host instead of paying for a TLS handshake
+ * each, and idle connections are kept for {@link #KEEP_ALIVE}. Each {@link Endpoint}
+ * carries its own request timeout and retry budget; retries back off exponentially with
+ * jitter and only follow connection failures and 429/502/503/504 responses.
+ *
+ * <p>{@link #metrics()} reports in-flight requests, per-endpoint latency percentiles (time
+ * to response headers) and connection reuse. The JDK client does not expose its pool, so
+ * new connections are counted as TLS engines created through a delegating
+ * {@link SSLContext}; plain-HTTP connections are not counted.
+ *
+ * <p>Uses only the JDK so {@link DependencyBootstrap} can share it before the companion's
+ * libraries are on the class path.
+ */
+public final class CompanionHttpClient {
+
+    /** Idle time before a pooled connection is closed; read by the JDK client at startup. */
+    private static final Duration KEEP_ALIVE = Duration.ofMinutes(2);
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration BACKOFF_BASE = Duration.ofMillis(200);
+    private static final Duration BACKOFF_MAX = Duration.ofSeconds(3);
+    private static final int LATENCY_WINDOW = 512;
+
+    /** Request classes with their timeout and attempt budget. */
+    public enum Endpoint {
+        /** Attendance upserts; the service treats repeats as updates of the same record. */
+        ATTENDANCE(Duration.ofSeconds(5), 3),
+        /** Dashboard event forwarding; not retried, a late event is worth less than a fresh one. */
+        EVENTS(Duration.ofSeconds(5), 1),
+        /** Session stop notifications and roster reads. */
+        SESSION_CONTROL(Duration.ofSeconds(5), 2),
+        /** Model delta negotiation and the upcoming-session listing. */
+        MODEL_SYNC(Duration.ofSeconds(30), 2),
+        /** Streamed asset downloads; {@link ModelDownloader} resumes these itself. */
+        ASSETS(Duration.ofSeconds(30), 1),
+        /** Library downloads during bootstrap. */
+        DEPENDENCIES(Duration.ofMinutes(2), 3);
+
+        private final Duration timeout;
+        private final int maxAttempts;
+
+        Endpoint(Duration timeout, int maxAttempts) {
+            this.timeout = timeout;
+            this.maxAttempts = maxAttempts;
+        }
+
+        public Duration timeout() {
+            return timeout;
+        }
+
+        public int maxAttempts() {
+            return maxAttempts;
+        }
+    }
+
+    private static final class Holder {
+        private static final CompanionHttpClient INSTANCE = new CompanionHttpClient();
+    }
+
+    private final HttpClient client;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final LongAdder tlsConnections = new LongAdder();
+    private final LongAdder http2Responses = new LongAdder();
+    private final Map<Endpoint, EndpointStats> stats = new EnumMap<>(Endpoint.class);
+
+    private CompanionHttpClient() {
+        if (System.getProperty("jdk.httpclient.keepalive.timeout") == null) {
+            System.setProperty("jdk.httpclient.keepalive.timeout", String.valueOf(KEEP_ALIVE.toSeconds()));
+        }
+        for (Endpoint endpoint : Endpoint.values()) {
+            stats.put(endpoint, new EndpointStats());
+        }
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(CONNECT_TIMEOUT);
+        SSLContext counting = countingSslContext();
+        if (counting != null) {
+            builder.sslContext(counting);
+        }
+        this.client = builder.build();
+    }
+
+    public static CompanionHttpClient shared() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Starts a request to {@code url} with the endpoint's timeout, {@code Accept: application/json}
+     * and, when {@code bearerToken} is present, an {@code Authorization} header.
+     */
+    public HttpRequest.Builder request(Endpoint endpoint, String url, String bearerToken) {
+        return request(endpoint, URI.create(url), bearerToken);
+    }
+
+    public HttpRequest.Builder request(Endpoint endpoint, URI uri, String bearerToken) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .timeout(endpoint.timeout())
+                .header("Accept", "application/json");
+        if (bearerToken != null && !bearerToken.isBlank()) {
+            builder.header("Authorization", "Bearer " + bearerToken.trim());
+        }
+        return builder;
+    }
+
+    /** Starts a WebSocket on the shared client, so it reuses its TLS setup and connection counting. */
+    public WebSocket.Builder newWebSocketBuilder() {
+        return client.newWebSocketBuilder();
+    }
+
+    /**
+     * Authenticates a call to the service the way every companion component does: the
+     * configured service token when there is one, otherwise the session's companion token,
+     * which is also sent as {@code X-Companion-Token} for the companion endpoints.
+     */
+    public HttpRequest.Builder authorize(HttpRequest.Builder builder, String serviceToken, String companionToken) {
+        String service = serviceToken != null ? serviceToken.trim() : "";
+        String companion = companionToken != null ? companionToken.trim() : "";
+        if (!service.isEmpty()) {
+            builder.header("Authorization", "Bearer " + service);
+        } else if (!companion.isEmpty()) {
+            builder.header("Authorization", "Bearer " + companion);
+            builder.header("X-Companion-Token", companion);
+        }
+        return builder;
+    }
+
+    /** Whether {@link #authorize} would add any credentials. */
+    public static boolean hasCredentials(String serviceToken, String companionToken) {
+        return (serviceToken != null && !serviceToken.isBlank()) || (companionToken != null && !companionToken.isBlank());
+    }
+
+    /**
+     * Sends {@code request}, retrying within the endpoint's budget. Bodies of responses that
+     * will be retried are discarded; the last response is returned whatever its status.
+     */
+    public <T> HttpResponse<T> send(Endpoint endpoint, HttpRequest request, HttpResponse.BodyHandler<T> handler)
+            throws IOException, InterruptedException {
+        EndpointStats endpointStats = stats.get(endpoint);
+        int maxAttempts = Math.max(1, endpoint.maxAttempts());
+        for (int attempt = 1; ; attempt++) {
+            boolean last = attempt >= maxAttempts;
+            HttpResponse.BodyHandler<T> attemptHandler = last ? handler : info -> isRetryable(info.statusCode())
+                    ? HttpResponse.BodySubscribers.replacing(null)
+                    : handler.apply(info);
+            int current = inFlight.incrementAndGet();
+            peakInFlight.accumulateAndGet(current, Math::max);
+            long started = System.nanoTime();
+            try {
+                HttpResponse<T> response = client.send(request, attemptHandler);
+                endpointStats.record(System.nanoTime() - started);
+                if (response.version() == HttpClient.Version.HTTP_2) {
+                    http2Responses.increment();
+                }
+                if (last || !isRetryable(response.statusCode())) {
+                    if (response.statusCode() >= 500) {
+                        endpointStats.failures.increment();
+                    }
+                    return response;
+                }
+            } catch (IOException ex) {
+                endpointStats.record(System.nanoTime() - started);
+                if (last) {
+                    endpointStats.failures.increment();
+                    throw ex;
+                }
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            endpointStats.retries.increment();
+            Thread.sleep(backoff(attempt));
+        }
+    }
+
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        long requests = 0;
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        for (Map.Entry<Endpoint, EndpointStats> entry : stats.entrySet()) {
+            EndpointStats endpointStats = entry.getValue();
+            long count = endpointStats.requests.get();
+            if (count == 0) {
+                continue;
+            }
+            requests += count;
+            endpoints.put(entry.getKey().name().toLowerCase(), endpointStats.snapshot());
+        }
+        long connections = tlsConnections.sum();
+        metrics.put("requests", requests);
+        metrics.put("inFlight", inFlight.get());
+        metrics.put("peakInFlight", peakInFlight.get());
+        metrics.put("http2Responses", http2Responses.sum());
+        metrics.put("tlsConnections", connections);
+        metrics.put("connectionReuse", requests > 0 && connections > 0
+                ? Math.max(0.0d, 1.0d - connections / (double) requests)
+                : null);
+        metrics.put("endpoints", endpoints);
+        return metrics;
+    }
+
+    private static boolean isRetryable(int status) {
+        return status == 429 || status == 502 || status == 503 || status == 504;
+    }
+
+    private static long backoff(int attempt) {
+        long ceiling = Math.min(BACKOFF_MAX.toMillis(), BACKOFF_BASE.toMillis() << Math.min(attempt - 1, 10));
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+    }
+
+    private static final class EndpointStats {
+        private final AtomicLong requests = new AtomicLong();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final long[] latencies = new long[LATENCY_WINDOW];
+
+        synchronized void record(long nanos) {
+            latencies[(int) (requests.getAndIncrement() % LATENCY_WINDOW)] = nanos;
+        }
+
+        Map<String, Object> snapshot() {
+            long[] window;
+            long count;
+            synchronized (this) {
+                count = requests.get();
+                window = Arrays.copyOf(latencies, (int) Math.min(count, LATENCY_WINDOW));
+            }
+            Arrays.sort(window);
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("requests", count);
+            snapshot.put("retries", retries.sum());
+            snapshot.put("failures", failures.sum());
+            snapshot.put("p50Ms", percentileMillis(window, 0.50d));
+            snapshot.put("p95Ms", percentileMillis(window, 0.95d));
+            snapshot.put("p99Ms", percentileMillis(window, 0.99d));
+            return snapshot;
+        }
+
+        private static double percentileMillis(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0.0d;
+            }
+            int index = (int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1);
+            return sorted[Math.max(0, index)] / 1_000_000.0d;
+        }
+    }
+
+    /** The default TLS context, wrapped to count the engines (one per connection) it creates. */
+    private SSLContext countingSslContext() {
+        SSLContext delegate;
+        try {
+            delegate = SSLContext.getDefault();
+        } catch (NoSuchAlgorithmException ex) {
+            return null;
+        }
+        SSLContextSpi spi = new SSLContextSpi() {
+            @Override
+            protected void engineInit(KeyManager[] km, TrustManager[] tm, SecureRandom sr) throws KeyManagementException {
+                delegate.init(km, tm, sr);
+            }
+
+            @Override
+            protected SSLSocketFactory engineGetSocketFactory() {
+                return delegate.getSocketFactory();
+            }
+
+            @Override
+            protected SSLServerSocketFactory engineGetServerSocketFactory() {
+                return delegate.getServerSocketFactory();
+            }
+
+            @Override
+            protected SSLEngine engineCreateSSLEngine() {
+                tlsConnections.increment();
+                return delegate.createSSLEngine();
+            }
+
+            @Override
+            protected SSLEngine engineCreateSSLEngine(String host, int port) {
+                tlsConnections.increment();
+                return delegate.createSSLEngine(host, port);
+            }
+
+            @Override
+            protected SSLSessionContext engineGetServerSessionContext() {
+                return delegate.getServerSessionContext();
+            }
+
+            @Override
+            protected SSLSessionContext engineGetClientSessionContext() {
+                return delegate.getClientSessionContext();
+            }
+
+            @Override
+            protected SSLParameters engineGetDefaultSSLParameters() {
+                return delegate.getDefaultSSLParameters();
+            }
+
+            @Override
+            protected SSLParameters engineGetSupportedSSLParameters() {
+                return delegate.getSupportedSSLParameters();
+            }
+        };
+        return new SSLContext(spi, delegate.getProvider(), delegate.getProtocol()) {
+        };
+    }
+}
@@ -7,9 +7,7 @@ import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.Map;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sun.net.httpserver.Headers;
@@ -22,6 +20,9 @@ import org.slf4j.LoggerFactory;
 public final class CompanionHttpServer {
 
     private static final String TOKEN_HEADER = "X-Companion-Token";
+    private static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+    /** Set on exchanges a handler has handed to a stream, which then closes them itself. */
+    private static final String STREAMING_ATTRIBUTE = "companion.streaming";
     private static final int BACKLOG = 0;
 
     private static final Logger logger = LoggerFactory.getLogger(CompanionHttpServer.class);
@@ -53,6 +54,7 @@ public final class CompanionHttpServer {
         server.createContext("/handshake", exchange -> handle(exchange, this::handleHandshake));
         server.createContext("/session/start", exchange -> handle(exchange, this::handleSessionStart));
         server.createContext("/session/status", exchange -> handle(exchange, this::handleSessionStatus));
+        server.createContext("/session/metrics", exchange -> handle(exchange, this::handleSessionMetrics));
         server.createContext("/session/stop", exchange -> handle(exchange, this::handleSessionStop));
         server.createContext("/session/events", exchange -> handle(exchange, this::handleSessionEvents));
         server.createContext("/application/shutdown", exchange -> handle(exchange, this::handleShutdown));
@@ -85,7 +87,9 @@ public final class CompanionHttpServer {
                     "message", ex.getMessage() != null ? ex.getMessage() : "Unexpected companion error"
             ));
         } finally {
-            exchange.close();
+            if (exchange.getAttribute(STREAMING_ATTRIBUTE) == null) {
+                exchange.close();
+            }
         }
     }
 
@@ -144,6 +148,12 @@ public final class CompanionHttpServer {
         writeJson(exchange, 200, response);
     }
 
+    private void handleSessionMetrics(HttpExchange exchange) throws IOException {
+        requireMethod(exchange, "GET");
+        String token = requireToken(exchange.getRequestHeaders());
+        writeJson(exchange, 200, sessionManager.sessionMetrics(token));
+    }
+
     private void handleSessionStop(HttpExchange exchange) throws IOException {
         requireMethod(exchange, "POST");
         String token = requireToken(exchange.getRequestHeaders());
@@ -168,40 +178,28 @@ public final class CompanionHttpServer {
             }
             return;
         }
-        var eventBus = runtime.eventBus();
-        OutputStream os = exchange.getResponseBody();
-        CountDownLatch latch = new CountDownLatch(1);
-        var listener = new java.util.function.Consumer<com.smartattendance.companion.recognition.RecognitionEvent>() {
-            @Override
-            public void accept(com.smartattendance.companion.recognition.RecognitionEvent event) {
-                try {
-                    byte[] payload = objectMapper.writeValueAsBytes(mapEvent(event));
-                    synchronized (os) {
-                        os.write("event: recognition\n".getBytes(StandardCharsets.UTF_8));
-                        os.write("data: ".getBytes(StandardCharsets.UTF_8));
-                        os.write(payload);
-                        os.write("\n\n".getBytes(StandardCharsets.UTF_8));
-                        os.flush();
-                    }
-                } catch (IOException ex) {
-                    latch.countDown();
+        exchange.setAttribute(STREAMING_ATTRIBUTE, Boolean.TRUE);
+        runtime.eventStream().open(exchange.getResponseBody(), lastEventId(exchange), exchange::close);
+    }
+
+    /** The id a reconnecting client last saw, from the SSE header or a {@code lastEventId} query parameter. */
+    private Long lastEventId(HttpExchange exchange) {
+        String value = exchange.getRequestHeaders().getFirst(LAST_EVENT_ID_HEADER);
+        String query = exchange.getRequestURI().getRawQuery();
+        if ((value == null || value.isBlank()) && query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith("lastEventId=")) {
+                    value = parameter.substring("lastEventId=".length());
                 }
             }
-        };
-        eventBus.subscribe(listener);
+        }
+        if (value == null || value.isBlank()) {
+            return null;
+        }
         try {
-            for (var event : eventBus.snapshot()) {
-                listener.accept(event);
-            }
-            latch.await(15, TimeUnit.MINUTES);
-        } catch (InterruptedException ignored) {
-            Thread.currentThread().interrupt();
-        } finally {
-            eventBus.unsubscribe(listener);
-            try {
-                os.close();
-            } catch (IOException ignored) {
-            }
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException ex) {
+            return null;
         }
     }
 
@@ -226,7 +224,7 @@ public final class CompanionHttpServer {
         Headers headers = exchange.getResponseHeaders();
         headers.set("Access-Control-Allow-Origin", "*");
         headers.set("Access-Control-Allow-Methods", "GET,POST,OPTIONS");
-        headers.set("Access-Control-Allow-Headers", "Content-Type, " + TOKEN_HEADER);
+        headers.set("Access-Control-Allow-Headers", "Content-Type, " + TOKEN_HEADER + ", " + LAST_EVENT_ID_HEADER);
         headers.set("Access-Control-Max-Age", "3600");
     }
 
@@ -267,20 +265,6 @@ public final class CompanionHttpServer {
         }
     }
 
-    private Map<String, Object> mapEvent(com.smartattendance.companion.recognition.RecognitionEvent event) {
-        return Map.of(
-                "type", event.getType().name().toLowerCase(),
-                "timestamp", event.getTimestamp().toString(),
-                "trackId", event.getTrackId(),
-                "studentId", event.getStudentId(),
-                "studentName", event.getStudentName(),
-                "confidence", event.getConfidence(),
-                "message", event.getMessage(),
-                "success", event.isSuccess(),
-                "manual", event.isManual()
-        );
-    }
-
     @FunctionalInterface
     private interface HttpHandlerFunction {
         void handle(HttpExchange exchange) throws Exception;
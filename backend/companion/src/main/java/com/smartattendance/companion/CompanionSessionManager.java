@@ -1,15 +1,18 @@
 package com.smartattendance.companion;
 
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
 import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicReference;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -18,6 +21,7 @@ import com.fasterxml.jackson.databind.SerializationFeature;
 import com.smartattendance.companion.recognition.LiveRecognitionRuntime;
 import com.smartattendance.companion.recognition.RecognitionEventBus;
 import com.smartattendance.config.AttendanceProperties;
+import com.smartattendance.vision.recognizer.LbphModelFile;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -28,10 +32,14 @@ public final class CompanionSessionManager {
     private static final Logger logger = LoggerFactory.getLogger(CompanionSessionManager.class);
     private static final String TOKEN_KEY = "token";
     private static final String ISSUED_AT_KEY = "issuedAt";
+    private static final String CASCADE_FILE = "haarcascade_frontalface_default.xml";
 
     private final CompanionSettings settings;
     private final ObjectMapper objectMapper;
     private final ModelDownloader downloader;
+    private final ModelCache modelCache;
+    private final SectionModelSync modelSync;
+    private final ModelPrefetcher prefetcher;
     private final Path handshakeFile;
     private final Path sessionsDirectory;
     private final AttendanceProperties attendanceProperties;
@@ -44,10 +52,16 @@ public final class CompanionSessionManager {
                 .findAndRegisterModules()
                 .enable(SerializationFeature.INDENT_OUTPUT);
         this.downloader = new ModelDownloader();
+        this.modelCache = new ModelCache(settings.storageDir().resolve("model-cache"));
+        this.modelSync = new SectionModelSync(downloader, modelCache, objectMapper);
         this.handshakeFile = settings.storageDir().resolve("handshake.json");
         this.sessionsDirectory = settings.storageDir().resolve("sessions");
         this.attendanceProperties = new AttendanceProperties();
+        this.prefetcher = new ModelPrefetcher(modelSync, modelCache, downloader, objectMapper,
+                settings.storageDir().resolve("prefetch"), settings.prefetchInterval(), settings.prefetchHorizonHours(),
+                () -> !javaEngine());
         loadHandshakeToken();
+        prefetcher.start();
     }
 
     public synchronized HandshakeResponse performHandshake(HandshakeRequest request) {
@@ -105,9 +119,25 @@ public final class CompanionSessionManager {
                 StringUtils.isNotBlank(bearerToken),
                 maskedToken);
 
-        ModelDownloader.FileDownloadResult model = downloader.downloadTo(sessionDir, request.modelUrl(), "lbph.yml", bearerToken);
-        ModelDownloader.FileDownloadResult labels = downloader.downloadTo(sessionDir, labelsUrl, "labels.txt", bearerToken);
-        ModelDownloader.FileDownloadResult cascade = downloader.downloadTo(sessionDir, request.cascadeUrl(), "haarcascade_frontalface_default.xml", bearerToken);
+        // The cascade does not depend on the section, so any earlier session can serve as its
+        // conditional-request baseline; model and labels only reuse the same section's files.
+        Path previousSession = previousSessionDirectory(sessionDir, null);
+        Path previousSectionSession = previousSessionDirectory(sessionDir, request.sectionId());
+        CompletableFuture<ModelDownloader.FileDownloadResult> cascadeDownload = downloader.downloadAsync(
+                sessionDir, request.cascadeUrl(), CASCADE_FILE, bearerToken, previousAsset(previousSession, CASCADE_FILE));
+        ModelDownloader.FileDownloadResult model;
+        ModelDownloader.FileDownloadResult labels;
+        ModelCache.Materialized cached = syncCachedModel(request.sectionId(), sessionDir, request.modelUrl(), bearerToken);
+        if (cached != null) {
+            model = cached.model();
+            labels = cached.labels();
+        } else {
+            CompletableFuture<ModelDownloader.FileDownloadResult> labelsDownload = downloader.downloadAsync(
+                    sessionDir, labelsUrl, "labels.txt", bearerToken, previousAsset(previousSectionSession, "labels.txt"));
+            model = downloadModel(sessionDir, request.modelUrl(), bearerToken, previousSectionSession);
+            labels = ModelDownloader.await(labelsDownload);
+        }
+        ModelDownloader.FileDownloadResult cascade = ModelDownloader.await(cascadeDownload);
 
         SessionState state = new SessionState(
                 request.sessionId(),
@@ -140,6 +170,7 @@ public final class CompanionSessionManager {
         }
 
         logger.info("Started companion session {} (section={})", request.sessionId(), request.sectionId());
+        prefetcher.remember(backendBaseUrl, bearerToken);
         return new StartSessionResponse(
                 "session-started",
                 state.sessionId(),
@@ -161,6 +192,15 @@ public final class CompanionSessionManager {
         return runtime.state().toStatusResponse();
     }
 
+    public Map<String, Object> sessionMetrics(String token) {
+        verifyToken(token);
+        SessionRuntime runtime = activeSession.get();
+        if (runtime == null) {
+            return Map.of("active", false);
+        }
+        return runtime.metrics();
+    }
+
     public synchronized StopSessionResponse stopSession(String token) {
         verifyToken(token);
         SessionRuntime runtime = activeSession.getAndSet(null);
@@ -185,6 +225,7 @@ public final class CompanionSessionManager {
         if (runtime != null) {
             runtime.close();
         }
+        prefetcher.close();
         attendanceProperties.shutdown();
     }
 
@@ -260,6 +301,108 @@ public final class CompanionSessionManager {
         }
     }
 
+    /**
+     * Prefers the binary model, which loads without a parse step, when the Java LBPH engine is
+     * configured. Sections trained before the binary format existed have no such artifact, so
+     * a failed binary download falls back to lbph.yml.
+     */
+    private ModelDownloader.FileDownloadResult downloadModel(Path sessionDir,
+                                                            String modelUrl,
+                                                            String bearerToken,
+                                                            Path previousSession) {
+        String binaryUrl = javaEngine() ? SectionModelSync.binaryModelUrl(modelUrl) : null;
+        if (binaryUrl != null) {
+            try {
+                return downloader.downloadTo(sessionDir, binaryUrl, LbphModelFile.FILE_NAME, bearerToken,
+                        previousAsset(previousSession, LbphModelFile.FILE_NAME));
+            } catch (CompanionHttpException ex) {
+                logger.info("Binary model unavailable at {} ({}); falling back to lbph.yml", binaryUrl, ex.getMessage());
+            }
+        }
+        return downloader.downloadTo(sessionDir, modelUrl, "lbph.yml", bearerToken, previousAsset(previousSession, "lbph.yml"));
+    }
+
+    /**
+     * Most recently modified earlier session directory, restricted to {@code sectionId} when
+     * given (read from its {@code session.json}).
+     */
+    private Path previousSessionDirectory(Path currentSession, String sectionId) {
+        Path latest = null;
+        FileTime latestTime = null;
+        try (DirectoryStream<Path> sessions = Files.newDirectoryStream(sessionsDirectory, Files::isDirectory)) {
+            for (Path candidate : sessions) {
+                if (candidate.equals(currentSession)) {
+                    continue;
+                }
+                if (sectionId != null && !sectionId.equals(readSessionSection(candidate))) {
+                    continue;
+                }
+                FileTime modified = Files.getLastModifiedTime(candidate);
+                if (latestTime == null || modified.compareTo(latestTime) > 0) {
+                    latest = candidate;
+                    latestTime = modified;
+                }
+            }
+        } catch (IOException ex) {
+            logger.debug("Unable to scan previous sessions: {}", ex.getMessage());
+        }
+        return latest;
+    }
+
+    private String readSessionSection(Path sessionDir) {
+        Path metadata = sessionDir.resolve("session.json");
+        if (!Files.isRegularFile(metadata)) {
+            return null;
+        }
+        try {
+            Object sectionId = objectMapper.readValue(metadata.toFile(), Map.class).get("sectionId");
+            return sectionId != null ? sectionId.toString() : null;
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    private static Path previousAsset(Path previousSession, String fileName) {
+        if (previousSession == null) {
+            return null;
+        }
+        Path asset = previousSession.resolve(fileName);
+        return Files.isRegularFile(asset) ? asset : null;
+    }
+
+    /**
+     * Brings the content-addressed cache up to date for the section and copies the model and
+     * labels into the session. A cached model is checked against the service's delta
+     * endpoint, which answers unchanged, with the added and removed templates, or with
+     * "full"; without a cached model, or after a full answer, {@code lbph.bin} is downloaded
+     * and cached. The Java engine gets the cached {@code lbph.bin}; the OpenCV engine gets
+     * the {@code lbph.yml} the cache converts from it. Returns {@code null} when the binary
+     * path is unavailable, or the model has no OpenCV form, so the caller falls back to the
+     * YAML downloads.
+     */
+    private ModelCache.Materialized syncCachedModel(String sectionId, Path sessionDir, String modelUrl, String bearerToken) {
+        if (!SectionModelSync.isCacheable(sectionId)) {
+            return null;
+        }
+        ModelCache.Entry entry = modelSync.sync(sectionId, modelUrl, bearerToken, sessionDir,
+                previousAsset(previousSessionDirectory(sessionDir, sectionId), LbphModelFile.FILE_NAME));
+        if (entry == null) {
+            logger.info("No cached binary model for section {}; falling back to lbph.yml", sectionId);
+            return null;
+        }
+        try {
+            return javaEngine() ? modelCache.materialize(entry, sessionDir) : modelCache.materializeYaml(entry, sessionDir);
+        } catch (IOException ex) {
+            logger.warn("Unable to copy cached model for section {}: {}", sectionId, ex.getMessage());
+            return null;
+        }
+    }
+
+    private boolean javaEngine() {
+        AttendanceProperties.Recognition recognition = attendanceProperties.recognition();
+        return recognition != null && recognition.lbph() != null && recognition.lbph().javaEngine();
+    }
+
     private String resolveLabelsUrl(StartSessionRequest request) {
         if (hasText(request.labelsUrl())) {
             return request.labelsUrl().trim();
@@ -5,6 +5,7 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.Locale;
 import java.util.Properties;
 
@@ -16,13 +17,17 @@ public record CompanionSettings(String host,
                                 Path storageDir,
                                 String version,
                                 String backendBaseUrl,
-                                String serviceToken) {
+                                String serviceToken,
+                                Duration prefetchInterval,
+                                int prefetchHorizonHours) {
 
     private static final Logger logger = LoggerFactory.getLogger(CompanionSettings.class);
     private static final String DEFAULT_HOST = "127.0.0.1";
     private static final int DEFAULT_PORT = 4455;
     private static final String VERSION_RESOURCE = "/companion-version.properties";
     private static final String ENV_PREFIX = "SMARTATTENDANCE_COMPANION_";
+    private static final int DEFAULT_PREFETCH_INTERVAL_MINUTES = 10;
+    private static final int DEFAULT_PREFETCH_HORIZON_HOURS = 24;
 
     public static CompanionSettings load() {
         String host = readEnv("HOST", DEFAULT_HOST);
@@ -30,9 +35,13 @@ public record CompanionSettings(String host,
         Path storageDir = resolveStorageDir(readEnv("DATA_DIR", null));
         String backendBaseUrl = sanitizeBackendUrl(readEnv("BACKEND_URL", "http://localhost:18080/api"));
         String serviceToken = readEnv("SERVICE_TOKEN", "");
+        // 0 disables prefetching the models of upcoming sessions.
+        int prefetchMinutes = parseNonNegative("PREFETCH_INTERVAL_MINUTES", DEFAULT_PREFETCH_INTERVAL_MINUTES);
+        int prefetchHorizonHours = Math.max(1, parseNonNegative("PREFETCH_HORIZON_HOURS", DEFAULT_PREFETCH_HORIZON_HOURS));
         ensureDirectory(storageDir);
         String version = readVersion();
-        return new CompanionSettings(host, port, storageDir, version, backendBaseUrl, serviceToken);
+        return new CompanionSettings(host, port, storageDir, version, backendBaseUrl, serviceToken,
+                Duration.ofMinutes(prefetchMinutes), prefetchHorizonHours);
     }
 
     private static String readEnv(String key, String fallback) {
@@ -70,6 +79,16 @@ public record CompanionSettings(String host,
         }
     }
 
+    private static int parseNonNegative(String key, int fallback) {
+        String value = readEnv(key, String.valueOf(fallback));
+        try {
+            return Math.max(0, Integer.parseInt(value));
+        } catch (NumberFormatException ex) {
+            logger.warn("Invalid {} '{}', defaulting to {}", key, value, fallback);
+            return fallback;
+        }
+    }
+
     private static Path resolveStorageDir(String configured) {
         if (configured != null && !configured.isBlank()) {
             return Paths.get(configured).toAbsolutePath();
@@ -3,7 +3,6 @@ package com.smartattendance.companion;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.file.DirectoryStream;
@@ -11,7 +10,6 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
@@ -20,12 +18,8 @@ import java.util.Objects;
 final class DependencyBootstrap {
 
     private static final String MAVEN_BASE = "https://repo1.maven.org/maven2";
-    private static final Duration DOWNLOAD_TIMEOUT = Duration.ofMinutes(2);
 
-    private final HttpClient httpClient = HttpClient.newBuilder()
-            .followRedirects(HttpClient.Redirect.ALWAYS)
-            .connectTimeout(Duration.ofSeconds(30))
-            .build();
+    private final CompanionHttpClient http = CompanionHttpClient.shared();
 
     void launch(String[] args) throws Exception {
         if (Boolean.getBoolean("companion.bootstrap.skip")) {
@@ -107,12 +101,12 @@ final class DependencyBootstrap {
 
         Path temp = Files.createTempFile("companion-", ".jar");
         try {
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(artifact.url()))
-                    .timeout(DOWNLOAD_TIMEOUT)
+            HttpRequest request = http.request(CompanionHttpClient.Endpoint.DEPENDENCIES, artifact.url(), null)
+                    .setHeader("Accept", "*/*")
                     .GET()
                     .build();
-            HttpResponse<Path> response = httpClient.send(request, HttpResponse.BodyHandlers.ofFile(temp));
+            HttpResponse<Path> response = http.send(CompanionHttpClient.Endpoint.DEPENDENCIES, request,
+                    HttpResponse.BodyHandlers.ofFile(temp));
             if (response.statusCode() < 200 || response.statusCode() >= 300) {
                 Files.deleteIfExists(temp);
                 throw new IOException("HTTP " + response.statusCode() + " downloading " + artifact.url());
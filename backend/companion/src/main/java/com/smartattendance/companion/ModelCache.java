@@ -0,0 +1,216 @@
+package com.smartattendance.companion;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.smartattendance.vision.recognizer.LbphModelDelta;
+import com.smartattendance.vision.recognizer.LbphModelFile;
+
+/**
+ * Content-addressed store of binary section models. Each model lives under
+ * {@code objects/<version>/} (see {@link LbphModelDelta}) together with its labels and the
+ * hash of every template, and {@code sections/<sectionId>} names the version last used for
+ * a section. Sessions copy their model out of the cache, so a model that has not changed
+ * since the last session, or only needs a small delta, never crosses the network in full.
+ * Sessions on the OpenCV engine get an {@code lbph.yml} converted once per version.
+ * Versions no section points to are removed when a new one is stored.
+ */
+public final class ModelCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModelCache.class);
+    private static final String TEMPLATES_FILE = "templates.txt";
+    private static final String LABELS_FILE = "labels.txt";
+    private static final String YAML_FILE = "lbph.yml";
+    private static final LbphModelFile.Encoding ENCODING = LbphModelFile.Encoding.UINT16;
+
+    private final Path objects;
+    private final Path sections;
+
+    public ModelCache(Path root) {
+        this.objects = root.resolve("objects");
+        this.sections = root.resolve("sections");
+    }
+
+    /**
+     * @param version   content hash of the model
+     * @param model     cached {@code lbph.bin}
+     * @param templates hash of every template, in file order
+     */
+    public record Entry(String version, Path model, List<String> templates) {
+    }
+
+    /** The version last stored for {@code sectionId}, if its files are still intact. */
+    public synchronized Optional<Entry> lookup(String sectionId) {
+        Path pointer = sections.resolve(sectionId);
+        if (!Files.isRegularFile(pointer)) {
+            return Optional.empty();
+        }
+        try {
+            String version = Files.readString(pointer, StandardCharsets.UTF_8).trim();
+            Path dir = objects.resolve(version);
+            Path model = dir.resolve(LbphModelFile.FILE_NAME);
+            Path templates = dir.resolve(TEMPLATES_FILE);
+            if (version.isEmpty() || !Files.isRegularFile(model) || !Files.isRegularFile(templates)) {
+                return Optional.empty();
+            }
+            return Optional.of(new Entry(version, model, Files.readAllLines(templates, StandardCharsets.UTF_8)));
+        } catch (IOException ex) {
+            logger.warn("Unable to read cached model for section {}: {}", sectionId, ex.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /** Copies a downloaded {@code lbph.bin} into the cache and makes it current for the section. */
+    public synchronized Entry store(String sectionId, Path modelFile) throws IOException {
+        LbphModelFile.Contents contents = LbphModelFile.read(modelFile);
+        LbphModelDelta.Digest digest = LbphModelDelta.digest(contents);
+        Path dir = objects.resolve(digest.version());
+        Files.createDirectories(dir);
+        Path model = dir.resolve(LbphModelFile.FILE_NAME);
+        if (!Files.exists(model)) {
+            Path temp = dir.resolve(LbphModelFile.FILE_NAME + ".tmp");
+            Files.copy(modelFile, temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, model, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        writeSidecars(dir, contents, digest);
+        return publish(sectionId, new Entry(digest.version(), model, digest.templateHashes()));
+    }
+
+    /**
+     * Rebuilds the section's current model from {@code base} and a service delta and stores
+     * it. The result must hash to {@code expectedVersion}; anything else means the cache and
+     * the service disagree, and the caller should fall back to a full download.
+     */
+    public synchronized Entry applyDelta(String sectionId,
+                                         Entry base,
+                                         List<String> removed,
+                                         byte[] addedModel,
+                                         String expectedVersion) throws IOException {
+        Files.createDirectories(objects);
+        Path added = Files.createTempFile(objects, "delta-", ".bin");
+        Path merged = Files.createTempFile(objects, "merged-", ".bin");
+        try {
+            Files.write(added, addedModel);
+            LbphModelDelta.apply(merged, LbphModelFile.read(base.model()), removed, LbphModelFile.read(added), ENCODING);
+            LbphModelFile.Contents contents = LbphModelFile.read(merged);
+            LbphModelDelta.Digest digest = LbphModelDelta.digest(contents);
+            if (!digest.version().equals(expectedVersion)) {
+                throw new IOException("Model rebuilt from delta has version " + digest.version()
+                        + ", expected " + expectedVersion);
+            }
+            Path dir = objects.resolve(digest.version());
+            Files.createDirectories(dir);
+            Path model = dir.resolve(LbphModelFile.FILE_NAME);
+            Files.move(merged, model, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            writeSidecars(dir, contents, digest);
+            return publish(sectionId, new Entry(digest.version(), model, digest.templateHashes()));
+        } finally {
+            Files.deleteIfExists(added);
+            Files.deleteIfExists(merged);
+        }
+    }
+
+    /**
+     * The OpenCV {@code lbph.yml} form of a cached model, written from its {@code lbph.bin}
+     * the first time the version is needed and kept with it until the version is pruned.
+     * Fails for models with uniform patterns, which OpenCV cannot read.
+     */
+    public synchronized Path yaml(Entry entry) throws IOException {
+        Path yaml = entry.model().resolveSibling(YAML_FILE);
+        if (!Files.isRegularFile(yaml)) {
+            LbphModelFile.exportYaml(entry.model().getParent());
+        }
+        return yaml;
+    }
+
+    /** Copies the cached model and its labels into a session directory. */
+    public synchronized Materialized materialize(Entry entry, Path sessionDir) throws IOException {
+        return copy(entry, entry.model(), sessionDir.resolve(LbphModelFile.FILE_NAME), sessionDir);
+    }
+
+    /** Copies the cached model as {@code lbph.yml} (see {@link #yaml}) and its labels into a session directory. */
+    public synchronized Materialized materializeYaml(Entry entry, Path sessionDir) throws IOException {
+        return copy(entry, yaml(entry), sessionDir.resolve(YAML_FILE), sessionDir);
+    }
+
+    public record Materialized(ModelDownloader.FileDownloadResult model, ModelDownloader.FileDownloadResult labels) {
+    }
+
+    private Materialized copy(Entry entry, Path source, Path model, Path sessionDir) throws IOException {
+        Path labels = sessionDir.resolve(LABELS_FILE);
+        Files.copy(source, model, StandardCopyOption.REPLACE_EXISTING);
+        Files.copy(entry.model().resolveSibling(LABELS_FILE), labels, StandardCopyOption.REPLACE_EXISTING);
+        return new Materialized(
+                new ModelDownloader.FileDownloadResult(model, Files.size(model), entry.version()),
+                new ModelDownloader.FileDownloadResult(labels, Files.size(labels), entry.version()));
+    }
+
+    private void writeSidecars(Path dir, LbphModelFile.Contents contents, LbphModelDelta.Digest digest)
+            throws IOException {
+        Files.write(dir.resolve(TEMPLATES_FILE), digest.templateHashes(), StandardCharsets.UTF_8);
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<Integer, String> e : new TreeMap<>(contents.labels()).entrySet()) {
+            lines.add(e.getKey() + "," + e.getValue());
+        }
+        Files.write(dir.resolve(LABELS_FILE), lines, StandardCharsets.UTF_8);
+    }
+
+    private Entry publish(String sectionId, Entry entry) throws IOException {
+        Files.createDirectories(sections);
+        Path pointer = sections.resolve(sectionId);
+        Path temp = sections.resolve(sectionId + ".tmp");
+        Files.writeString(temp, entry.version(), StandardCharsets.UTF_8);
+        Files.move(temp, pointer, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        prune();
+        return entry;
+    }
+
+    private void prune() {
+        Set<String> referenced = new HashSet<>();
+        try (DirectoryStream<Path> pointers = Files.newDirectoryStream(sections)) {
+            for (Path pointer : pointers) {
+                referenced.add(Files.readString(pointer, StandardCharsets.UTF_8).trim());
+            }
+        } catch (IOException ex) {
+            logger.debug("Skipping model cache pruning: {}", ex.getMessage());
+            return;
+        }
+        try (DirectoryStream<Path> versions = Files.newDirectoryStream(objects, Files::isDirectory)) {
+            for (Path version : versions) {
+                if (!referenced.contains(version.getFileName().toString())) {
+                    deleteRecursively(version);
+                }
+            }
+        } catch (IOException ex) {
+            logger.debug("Failed to prune model cache: {}", ex.getMessage());
+        }
+    }
+
+    private void deleteRecursively(Path root) {
+        try (var paths = Files.walk(root)) {
+            paths.sorted((a, b) -> b.compareTo(a)).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException ex) {
+                    logger.debug("Failed to delete {}: {}", path, ex.getMessage());
+                }
+            });
+        } catch (IOException ex) {
+            logger.debug("Failed to traverse {} for deletion: {}", root, ex.getMessage());
+        }
+    }
+}
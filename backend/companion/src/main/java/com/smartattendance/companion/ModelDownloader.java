@@ -1,76 +1,257 @@
 package com.smartattendance.companion;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Downloads session assets. Bodies are streamed to {@code <file>.download} and hashed on
+ * the way through, so large models are never held in memory or read twice. A transfer that
+ * stalls for longer than the timeout is aborted and resumed with an HTTP {@code Range}
+ * request, guarded by {@code If-Range} on the ETag recorded when it started. When a copy
+ * of the same file from an earlier session is supplied, the request carries
+ * {@code If-None-Match} and a 304 reuses that copy.
+ */
 public final class ModelDownloader {
 
     private static final Logger logger = LoggerFactory.getLogger(ModelDownloader.class);
     private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final int MAX_ATTEMPTS = 4;
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final String ETAG_SUFFIX = ".etag";
 
-    private final HttpClient httpClient;
-
-    public ModelDownloader() {
-        this.httpClient = HttpClient.newBuilder()
-                .followRedirects(HttpClient.Redirect.ALWAYS)
-                .connectTimeout(TIMEOUT)
-                .build();
-    }
+    private final CompanionHttpClient http = CompanionHttpClient.shared();
+    private final ExecutorService executor = Executors.newFixedThreadPool(3, runnable -> {
+        Thread thread = new Thread(runnable, "companion-download");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "companion-download-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     public FileDownloadResult downloadTo(Path targetDirectory, String url, String fileName) {
-        return downloadTo(targetDirectory, url, fileName, null);
+        return downloadTo(targetDirectory, url, fileName, null, null);
     }
 
     public FileDownloadResult downloadTo(Path targetDirectory, String url, String fileName, String bearerToken) {
+        return downloadTo(targetDirectory, url, fileName, bearerToken, null);
+    }
+
+    /** Runs {@link #downloadTo(Path, String, String, String, Path)} on the download pool. */
+    public CompletableFuture<FileDownloadResult> downloadAsync(Path targetDirectory,
+                                                               String url,
+                                                               String fileName,
+                                                               String bearerToken,
+                                                               Path previousCopy) {
+        return CompletableFuture.supplyAsync(
+                () -> downloadTo(targetDirectory, url, fileName, bearerToken, previousCopy), executor);
+    }
+
+    /** Waits for an asynchronous download and rethrows its {@link CompanionHttpException}. */
+    public static FileDownloadResult await(CompletableFuture<FileDownloadResult> download) {
+        try {
+            return download.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof CompanionHttpException http) {
+                throw http;
+            }
+            throw new CompanionHttpException(500, "Download failed: " + ex.getCause(), ex.getCause());
+        }
+    }
+
+    /**
+     * @param previousCopy the same asset from an earlier session, used for a conditional
+     *                     request when its ETag was recorded; may be {@code null}
+     */
+    public FileDownloadResult downloadTo(Path targetDirectory,
+                                         String url,
+                                         String fileName,
+                                         String bearerToken,
+                                         Path previousCopy) {
         ensureDirectory(targetDirectory);
         Path destination = targetDirectory.resolve(fileName);
         Path tempFile = destination.getParent().resolve(fileName + ".download");
+        Path tempEtag = destination.getParent().resolve(fileName + ".download" + ETAG_SUFFIX);
+        String previousEtag = previousCopy != null && Files.isRegularFile(previousCopy) ? readEtag(previousCopy) : null;
+        logger.info("Companion attempting download of '{}' from {} (bearerProvided={}, conditional={})",
+                fileName, url, StringUtils.isNotBlank(bearerToken), previousEtag != null);
+        IOException lastFailure = null;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                FileDownloadResult result = attemptDownload(url, bearerToken, destination, tempFile, tempEtag,
+                        previousCopy, previousEtag);
+                logger.info("Downloaded companion asset {} ({} bytes, sha256={})",
+                        destination.getFileName(), result.size(), result.checksum());
+                return result;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new CompanionHttpException(499, "Download interrupted", ex);
+            } catch (IOException ex) {
+                lastFailure = ex;
+                logger.warn("Companion download of '{}' from {} failed on attempt {}/{}: {}",
+                        fileName, url, attempt, MAX_ATTEMPTS, ex.getMessage());
+            } catch (CompanionHttpException ex) {
+                deleteQuietly(tempFile);
+                deleteQuietly(tempEtag);
+                throw ex;
+            }
+        }
+        throw new CompanionHttpException(500, "Failed to download model asset: "
+                + (lastFailure != null ? lastFailure.getMessage() : "unknown error"), lastFailure);
+    }
+
+    private FileDownloadResult attemptDownload(String url,
+                                               String bearerToken,
+                                               Path destination,
+                                               Path tempFile,
+                                               Path tempEtag,
+                                               Path previousCopy,
+                                               String previousEtag) throws IOException, InterruptedException {
+        long offset = Files.exists(tempFile) ? Files.size(tempFile) : 0L;
+        String partialEtag = offset > 0 ? readEtag(tempFile) : null;
+        if (offset > 0 && partialEtag == null) {
+            // Without a validator the server could hand back a different file's tail.
+            deleteQuietly(tempFile);
+            offset = 0L;
+        }
+        HttpRequest.Builder builder = http.request(CompanionHttpClient.Endpoint.ASSETS, resolve(url), bearerToken)
+                .setHeader("Accept", "application/octet-stream");
+        if (offset > 0) {
+            builder.header("Range", "bytes=" + offset + "-").header("If-Range", partialEtag);
+        } else if (previousEtag != null) {
+            builder.header("If-None-Match", previousEtag);
+        }
+        HttpResponse<InputStream> response = http.send(CompanionHttpClient.Endpoint.ASSETS, builder.GET().build(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        int status = response.statusCode();
+        String etag = response.headers().firstValue("ETag").orElse(null);
+        try (InputStream body = response.body()) {
+            if (status == 304 && previousCopy != null) {
+                Files.copy(previousCopy, destination, StandardCopyOption.REPLACE_EXISTING);
+                writeEtag(destination, previousEtag);
+                logger.info("Asset {} unchanged since previous session; reused {}", destination.getFileName(), previousCopy);
+                return new FileDownloadResult(destination, Files.size(destination), checksum(destination));
+            }
+            if (status == 416) {
+                deleteQuietly(tempFile);
+                deleteQuietly(tempEtag);
+                throw new IOException("Partial download no longer matches the remote file");
+            }
+            if (status >= 400 || status == 304) {
+                logger.warn("Companion download from {} failed: HTTP {}", url, status);
+                throw new CompanionHttpException(status, "Failed to download model asset: HTTP " + status);
+            }
+            MessageDigest digest = sha256();
+            boolean resumed = status == 206 && offset > 0;
+            if (resumed && etag != null && !etag.equals(partialEtag)) {
+                deleteQuietly(tempFile);
+                deleteQuietly(tempEtag);
+                throw new IOException("Remote file changed while resuming " + destination.getFileName());
+            }
+            if (resumed) {
+                hashInto(digest, tempFile);
+                logger.info("Resuming download of {} at byte {}", destination.getFileName(), offset);
+            } else {
+                deleteQuietly(tempFile);
+                deleteQuietly(tempEtag);
+                if (etag != null) {
+                    Files.writeString(tempEtag, etag, StandardCharsets.UTF_8);
+                }
+            }
+            copyWithWatchdog(new DigestInputStream(body, digest), tempFile, resumed);
+            Files.move(tempFile, destination, StandardCopyOption.REPLACE_EXISTING);
+            deleteQuietly(tempEtag);
+            writeEtag(destination, etag);
+            return new FileDownloadResult(destination, Files.size(destination), hex(digest.digest()));
+        }
+    }
+
+    /**
+     * Streams {@code in} to {@code target}. A watchdog closes the stream when no bytes have
+     * arrived for {@link #TIMEOUT}, which surfaces as an {@link IOException} and keeps the
+     * partial file for a ranged retry.
+     */
+    private void copyWithWatchdog(InputStream in, Path target, boolean append) throws IOException {
+        AtomicLong lastProgress = new AtomicLong(System.nanoTime());
+        long timeoutNanos = TIMEOUT.toNanos();
+        ScheduledFuture<?> guard = watchdog.scheduleAtFixedRate(() -> {
+            if (System.nanoTime() - lastProgress.get() > timeoutNanos) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                    // the reader sees the failure
+                }
+            }
+        }, 1, 1, TimeUnit.SECONDS);
+        StandardOpenOption mode = append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING;
+        try (OutputStream out = Files.newOutputStream(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode)) {
+            byte[] buffer = new byte[BUFFER_BYTES];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, read);
+                lastProgress.set(System.nanoTime());
+            }
+        } finally {
+            guard.cancel(false);
+        }
+    }
+
+    /** POSTs a JSON body and returns the response body; HTTP errors raise {@link CompanionHttpException}. */
+    public byte[] postJson(String url, byte[] body, String bearerToken) {
+        return exchangeJson(url, HttpRequest.BodyPublishers.ofByteArray(body), bearerToken);
+    }
+
+    public byte[] getJson(String url, String bearerToken) {
+        return exchangeJson(url, null, bearerToken);
+    }
+
+    private byte[] exchangeJson(String url, HttpRequest.BodyPublisher body, String bearerToken) {
         try {
-            HttpRequest.Builder builder = HttpRequest.newBuilder(resolve(url))
-                    .timeout(TIMEOUT)
-                    .header("Accept", "application/octet-stream");
-            if (bearerToken != null && !bearerToken.isBlank()) {
-                builder.header("Authorization", "Bearer " + bearerToken.trim());
+            HttpRequest.Builder builder = http.request(CompanionHttpClient.Endpoint.MODEL_SYNC, resolve(url), bearerToken);
+            if (body != null) {
+                builder.header("Content-Type", "application/json").POST(body);
+            } else {
+                builder.GET();
             }
-            logger.info("Companion attempting download of '{}' from {} (bearerProvided={})",
-                    fileName, url, StringUtils.isNotBlank(bearerToken));
-            HttpResponse<Path> response = httpClient.send(builder.GET().build(), HttpResponse.BodyHandlers.ofFile(tempFile));
+            HttpResponse<byte[]> response = http.send(CompanionHttpClient.Endpoint.MODEL_SYNC, builder.build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
             if (response.statusCode() >= 400) {
-                logger.warn("Companion download of '{}' from {} failed: HTTP {}", fileName, url, response.statusCode());
-                throw new CompanionHttpException(response.statusCode(),
-                        "Failed to download model asset: HTTP " + response.statusCode());
+                throw new CompanionHttpException(response.statusCode(), "Request to " + url + " failed: HTTP " + response.statusCode());
             }
-            Files.move(tempFile, destination, StandardCopyOption.REPLACE_EXISTING);
-            long size = Files.size(destination);
-            String checksum = checksum(destination);
-            logger.info("Downloaded companion asset {} ({} bytes, sha256={})", destination.getFileName(), size, checksum);
-            return new FileDownloadResult(destination, size, checksum);
+            return response.body();
         } catch (InterruptedException ex) {
             Thread.currentThread().interrupt();
-            throw new CompanionHttpException(499, "Download interrupted", ex);
+            throw new CompanionHttpException(499, "Request interrupted", ex);
         } catch (IOException ex) {
-            logger.warn("Companion download of '{}' from {} encountered I/O error: {}", fileName, url, ex.getMessage());
-            throw new CompanionHttpException(500, "Failed to download model asset: " + ex.getMessage(), ex);
-        } finally {
-            try {
-                Files.deleteIfExists(tempFile);
-            } catch (IOException ignored) {
-                // best-effort cleanup
-            }
+            throw new CompanionHttpException(500, "Request to " + url + " failed: " + ex.getMessage(), ex);
         }
     }
 
@@ -90,22 +271,69 @@ public final class ModelDownloader {
         }
     }
 
-    private String checksum(Path file) {
+    /** ETag recorded next to {@code file} by an earlier download, if any. */
+    private static String readEtag(Path file) {
+        Path etagFile = file.resolveSibling(file.getFileName() + ETAG_SUFFIX);
+        try {
+            return Files.isRegularFile(etagFile) ? StringUtils.trimToNull(Files.readString(etagFile, StandardCharsets.UTF_8)) : null;
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    private static void writeEtag(Path file, String etag) {
+        Path etagFile = file.resolveSibling(file.getFileName() + ETAG_SUFFIX);
+        try {
+            if (etag != null) {
+                Files.writeString(etagFile, etag, StandardCharsets.UTF_8);
+            } else {
+                Files.deleteIfExists(etagFile);
+            }
+        } catch (IOException ex) {
+            logger.debug("Unable to record ETag for {}: {}", file, ex.getMessage());
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
         try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] data = Files.readAllBytes(file);
-            byte[] hash = digest.digest(data);
-            StringBuilder builder = new StringBuilder(hash.length * 2);
-            for (byte b : hash) {
-                builder.append(String.format("%02x", b));
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // best-effort cleanup
+        }
+    }
+
+    private static String checksum(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        hashInto(digest, file);
+        return hex(digest.digest());
+    }
+
+    private static void hashInto(MessageDigest digest, Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[BUFFER_BYTES];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                digest.update(buffer, 0, read);
             }
-            return builder.toString();
-        } catch (IOException | NoSuchAlgorithmException ex) {
-            logger.warn("Unable to compute checksum for {}: {}", file, ex.getMessage());
-            return "unknown";
         }
     }
 
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 unavailable", ex);
+        }
+    }
+
+    private static String hex(byte[] hash) {
+        StringBuilder builder = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+
     public record FileDownloadResult(Path path, long size, String checksum) {
     }
 }
@@ -0,0 +1,284 @@
+package com.smartattendance.companion;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pulls the models of the professor's upcoming sessions into the {@link ModelCache} ahead
+ * of time, so starting a session only has to confirm that the cached model is current.
+ * The service lists the sessions with each section's model version and a token that may
+ * only download models; sections whose cached version already matches are skipped, and
+ * every synced model is checked against the listed version. When the OpenCV engine is
+ * configured, the cache's {@code lbph.yml} is converted here too, so both engines start
+ * from a local copy.
+ *
+ * <p>When a session starts, its service token is exchanged for the professor's model
+ * prefetch token, which stays valid for days and is saved next to the prefetch work
+ * directory. Prefetching therefore continues after the session's own token expires,
+ * covers the next day's sessions and resumes after a restart, until the prefetch token
+ * expires or is rejected and the next session start replaces it.
+ */
+public final class ModelPrefetcher implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModelPrefetcher.class);
+    private static final Duration FIRST_RUN_DELAY = Duration.ofMinutes(1);
+    private static final String CREDENTIALS_FILE = "credentials.json";
+
+    private final SectionModelSync modelSync;
+    private final ModelCache modelCache;
+    private final ModelDownloader downloader;
+    private final ObjectMapper objectMapper;
+    private final Path workDir;
+    private final Duration interval;
+    private final int horizonHours;
+    private final BooleanSupplier yamlModels;
+    private final AtomicReference<Credentials> credentials = new AtomicReference<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "companion-model-prefetch");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public ModelPrefetcher(SectionModelSync modelSync,
+                           ModelCache modelCache,
+                           ModelDownloader downloader,
+                           ObjectMapper objectMapper,
+                           Path workDir,
+                           Duration interval,
+                           int horizonHours,
+                           BooleanSupplier yamlModels) {
+        this.modelSync = modelSync;
+        this.modelCache = modelCache;
+        this.downloader = downloader;
+        this.objectMapper = objectMapper;
+        this.workDir = workDir;
+        this.interval = interval;
+        this.horizonHours = horizonHours;
+        this.yamlModels = yamlModels;
+        loadCredentials();
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private record Credentials(String backendBaseUrl, String bearerToken, OffsetDateTime expiresAt) {
+        boolean expired() {
+            return expiresAt != null && expiresAt.isBefore(OffsetDateTime.now());
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private record PrefetchToken(String token, OffsetDateTime expiresAt) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private record UpcomingSession(String sessionId,
+                                   String sectionId,
+                                   OffsetDateTime startTime,
+                                   String modelVersion,
+                                   String modelUrl,
+                                   String accessToken) {
+    }
+
+    public boolean isEnabled() {
+        return interval != null && !interval.isZero() && !interval.isNegative();
+    }
+
+    public void start() {
+        if (!isEnabled()) {
+            logger.info("Model prefetch disabled");
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(this::runSafely, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Exchanges the service token of a session that just started for a prefetch token and
+     * schedules a pass shortly afterwards, once the session's own downloads are done.
+     */
+    public void remember(String backendBaseUrl, String bearerToken) {
+        if (!isEnabled() || backendBaseUrl == null || bearerToken == null || bearerToken.isBlank()) {
+            return;
+        }
+        String sessionToken = bearerToken.trim();
+        scheduler.execute(() -> exchange(backendBaseUrl, sessionToken));
+        scheduler.schedule(this::runSafely, FIRST_RUN_DELAY.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void exchange(String backendBaseUrl, String sessionToken) {
+        try {
+            byte[] body = downloader.postJson(backendBaseUrl + "/companion/prefetch-token",
+                    "{}".getBytes(StandardCharsets.UTF_8), sessionToken);
+            PrefetchToken issued = objectMapper.readValue(body, PrefetchToken.class);
+            if (issued.token() == null || issued.token().isBlank()) {
+                throw new IOException("empty prefetch token");
+            }
+            Credentials next = new Credentials(backendBaseUrl, issued.token(), issued.expiresAt());
+            credentials.set(next);
+            saveCredentials(next);
+            logger.info("Model prefetch token valid until {}", issued.expiresAt());
+        } catch (CompanionHttpException | IOException ex) {
+            // An older service has no prefetch tokens; prefetch with the session token while it lasts.
+            logger.info("Prefetch token unavailable ({}); prefetching with the session token", ex.getMessage());
+            credentials.set(new Credentials(backendBaseUrl, sessionToken, null));
+        }
+    }
+
+    private void runSafely() {
+        try {
+            prefetch();
+        } catch (RuntimeException ex) {
+            logger.warn("Model prefetch failed: {}", ex.getMessage());
+        }
+    }
+
+    void prefetch() {
+        Credentials current = credentials.get();
+        if (current == null) {
+            return;
+        }
+        if (current.expired()) {
+            forget(current, "Prefetch token expired; model prefetch paused until the next session starts");
+            return;
+        }
+        List<UpcomingSession> sessions;
+        try {
+            byte[] body = downloader.getJson(current.backendBaseUrl() + "/companion/sessions/upcoming?horizonHours="
+                    + horizonHours, current.bearerToken());
+            sessions = objectMapper.readValue(body, new TypeReference<List<UpcomingSession>>() { });
+        } catch (CompanionHttpException ex) {
+            if (ex.statusCode() == 401 || ex.statusCode() == 403) {
+                forget(current, "Service token no longer accepted; model prefetch paused until the next session starts");
+            } else {
+                logger.info("Unable to list upcoming sessions: {}", ex.getMessage());
+            }
+            return;
+        } catch (IOException ex) {
+            logger.info("Unable to parse upcoming sessions: {}", ex.getMessage());
+            return;
+        }
+        Map<String, UpcomingSession> bySection = new LinkedHashMap<>();
+        for (UpcomingSession session : sessions) {
+            if (session.modelVersion() != null && session.modelUrl() != null && session.accessToken() != null
+                    && SectionModelSync.isCacheable(session.sectionId())) {
+                bySection.putIfAbsent(session.sectionId(), session);
+            }
+        }
+        int fetched = 0;
+        for (UpcomingSession session : bySection.values()) {
+            String sectionId = session.sectionId();
+            ModelCache.Entry cached = modelCache.lookup(sectionId).orElse(null);
+            if (cached != null && cached.version().equals(session.modelVersion())) {
+                prepareYaml(sectionId, cached);
+                continue;
+            }
+            Path downloadDir = workDir.resolve(sectionId);
+            try {
+                Files.createDirectories(downloadDir);
+                ModelCache.Entry entry = modelSync.sync(sectionId, current.backendBaseUrl() + session.modelUrl(),
+                        session.accessToken(), downloadDir, null);
+                if (entry == null) {
+                    continue;
+                }
+                if (!entry.version().equals(session.modelVersion())) {
+                    logger.warn("Prefetched model for section {} has version {}, service listed {}", sectionId,
+                            entry.version(), session.modelVersion());
+                    continue;
+                }
+                prepareYaml(sectionId, entry);
+                fetched++;
+                logger.info("Prefetched model {} for section {} (session {} at {})", entry.version(), sectionId,
+                        session.sessionId(), session.startTime());
+            } catch (IOException ex) {
+                logger.info("Unable to prepare prefetch directory for section {}: {}", sectionId, ex.getMessage());
+            } finally {
+                deleteDirectory(downloadDir);
+            }
+        }
+        logger.debug("Model prefetch pass: {} upcoming sessions, {} sections, {} updated", sessions.size(),
+                bySection.size(), fetched);
+    }
+
+    /** Converts the cached model to {@code lbph.yml} ahead of the session when the OpenCV engine will read it. */
+    private void prepareYaml(String sectionId, ModelCache.Entry entry) {
+        if (!yamlModels.getAsBoolean()) {
+            return;
+        }
+        try {
+            modelCache.yaml(entry);
+        } catch (IOException ex) {
+            logger.info("Unable to convert prefetched model for section {} to lbph.yml: {}", sectionId, ex.getMessage());
+        }
+    }
+
+    private void forget(Credentials current, String message) {
+        if (credentials.compareAndSet(current, null)) {
+            logger.info(message);
+            try {
+                Files.deleteIfExists(workDir.resolve(CREDENTIALS_FILE));
+            } catch (IOException ex) {
+                logger.debug("Failed to delete prefetch credentials: {}", ex.getMessage());
+            }
+        }
+    }
+
+    private void loadCredentials() {
+        Path file = workDir.resolve(CREDENTIALS_FILE);
+        if (!isEnabled() || !Files.exists(file)) {
+            return;
+        }
+        try {
+            Credentials saved = objectMapper.readValue(file.toFile(), Credentials.class);
+            if (saved.backendBaseUrl() != null && saved.bearerToken() != null && !saved.expired()) {
+                credentials.set(saved);
+            }
+        } catch (IOException ex) {
+            logger.warn("Unable to read prefetch credentials '{}': {}", file, ex.getMessage());
+        }
+    }
+
+    private void saveCredentials(Credentials saved) {
+        try {
+            Files.createDirectories(workDir);
+            objectMapper.writeValue(workDir.resolve(CREDENTIALS_FILE).toFile(), saved);
+        } catch (IOException ex) {
+            logger.warn("Failed to persist prefetch credentials: {}", ex.getMessage());
+        }
+    }
+
+    private void deleteDirectory(Path dir) {
+        try (var paths = Files.walk(dir)) {
+            paths.sorted((a, b) -> b.compareTo(a)).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException ex) {
+                    logger.debug("Failed to delete {}: {}", path, ex.getMessage());
+                }
+            });
+        } catch (IOException ex) {
+            logger.debug("Failed to clean prefetch directory {}: {}", dir, ex.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
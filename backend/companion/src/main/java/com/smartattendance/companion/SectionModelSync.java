@@ -0,0 +1,130 @@
+package com.smartattendance.companion;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import com.smartattendance.vision.recognizer.LbphModelFile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Brings the {@link ModelCache} entry of a section up to date with the service: asks the
+ * delta endpoint what changed since the cached version and applies it, or downloads the
+ * whole binary model when there is nothing cached, the delta is too large or applying it
+ * fails. Used both when a session starts and by the {@link ModelPrefetcher}.
+ */
+public final class SectionModelSync {
+
+    private static final Logger logger = LoggerFactory.getLogger(SectionModelSync.class);
+
+    private final ModelDownloader downloader;
+    private final ModelCache modelCache;
+    private final ObjectMapper objectMapper;
+
+    public SectionModelSync(ModelDownloader downloader, ModelCache modelCache, ObjectMapper objectMapper) {
+        this.downloader = downloader;
+        this.modelCache = modelCache;
+        this.objectMapper = objectMapper;
+    }
+
+    /** Whether {@code sectionId} is usable as a cache key. */
+    public static boolean isCacheable(String sectionId) {
+        return sectionId != null && sectionId.matches("[A-Za-z0-9-]+");
+    }
+
+    /**
+     * @param modelUrl     the section's {@code /models/lbph} (or {@code lbph.yml}) URL
+     * @param downloadDir  where a full download is written before it is copied into the cache
+     * @param previousCopy earlier {@code lbph.bin} to revalidate a full download against; may be {@code null}
+     * @return the current cache entry, or {@code null} when the section has no binary model
+     */
+    public ModelCache.Entry sync(String sectionId,
+                                 String modelUrl,
+                                 String bearerToken,
+                                 Path downloadDir,
+                                 Path previousCopy) {
+        String binaryUrl = binaryModelUrl(modelUrl);
+        if (binaryUrl == null || !isCacheable(sectionId)) {
+            return null;
+        }
+        ModelCache.Entry entry = modelCache.lookup(sectionId).orElse(null);
+        String deltaUrl = deltaUrl(modelUrl);
+        if (entry != null && deltaUrl != null) {
+            try {
+                long t0 = System.nanoTime();
+                Map<String, Object> body = new HashMap<>();
+                body.put("version", entry.version());
+                body.put("templates", entry.templates());
+                ModelDeltaResponse delta = objectMapper.readValue(
+                        downloader.postJson(deltaUrl, objectMapper.writeValueAsBytes(body), bearerToken),
+                        ModelDeltaResponse.class);
+                String status = delta.status() != null ? delta.status() : "";
+                switch (status) {
+                    case "unchanged" -> {
+                        logger.info("Cached model {} for section {} is current", entry.version(), sectionId);
+                        return entry;
+                    }
+                    case "delta" -> {
+                        int removed = delta.removed() != null ? delta.removed().size() : 0;
+                        ModelCache.Entry updated = modelCache.applyDelta(sectionId, entry,
+                                delta.removed() != null ? delta.removed() : List.of(),
+                                delta.addedModel(), delta.version());
+                        logger.info("Updated cached model for section {} to {} via delta (-{} templates, {} bytes) in {}ms",
+                                sectionId, updated.version(), removed,
+                                delta.addedModel() != null ? delta.addedModel().length : 0,
+                                (System.nanoTime() - t0) / 1_000_000L);
+                        return updated;
+                    }
+                    default -> logger.info("Service requested a full model download for section {}", sectionId);
+                }
+            } catch (CompanionHttpException | IOException ex) {
+                logger.info("Model delta sync for section {} failed ({}); downloading full model", sectionId, ex.getMessage());
+            }
+        }
+        try {
+            ModelDownloader.FileDownloadResult full = downloader.downloadTo(downloadDir, binaryUrl,
+                    LbphModelFile.FILE_NAME, bearerToken, previousCopy);
+            ModelCache.Entry stored = modelCache.store(sectionId, full.path());
+            logger.info("Cached model {} for section {}", stored.version(), sectionId);
+            return stored;
+        } catch (CompanionHttpException | IOException ex) {
+            logger.info("Binary model unavailable for section {} ({})", sectionId, ex.getMessage());
+            return null;
+        }
+    }
+
+    /** The {@code lbph.bin} URL next to a section's model URL, or {@code null} if it has none. */
+    public static String binaryModelUrl(String modelUrl) {
+        if (modelUrl == null || modelUrl.isBlank()) {
+            return null;
+        }
+        String url = modelUrl.trim();
+        if (url.endsWith("/models/lbph")) {
+            return url + ".bin";
+        }
+        if (url.endsWith("lbph.yml")) {
+            return url.substring(0, url.length() - "lbph.yml".length()) + LbphModelFile.FILE_NAME;
+        }
+        return null;
+    }
+
+    private static String deltaUrl(String modelUrl) {
+        String url = modelUrl != null ? modelUrl.trim() : "";
+        return url.endsWith("/models/lbph") ? url + "/delta" : null;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private record ModelDeltaResponse(String status,
+                                      String version,
+                                      Integer templates,
+                                      List<String> removed,
+                                      byte[] addedModel) {
+    }
+}
@@ -0,0 +1,310 @@
+package com.smartattendance.companion;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartattendance.companion.recognition.RecognitionEvent;
+import com.smartattendance.companion.recognition.RecognitionEventBus;
+
+/**
+ * Server-sent event streams of a session's recognition events. One bus subscription feeds
+ * every connected client: each event is encoded once, with its bus sequence as the SSE
+ * {@code id}, and offered to every connection's bounded send queue. Queues are drained by
+ * pooled writer threads only while they have frames, so an idle connection holds no
+ * thread. A client whose queue fills up is disconnected instead of delaying anyone else;
+ * it reconnects with {@code Last-Event-ID} and resumes where it left off while the events
+ * are still in the bus's ring. Comment heartbeats keep idle connections alive and detect
+ * dead ones.
+ *
+ * <p>A write that makes no progress for {@link #WRITE_TIMEOUT} is aborted by a watchdog,
+ * which interrupts the writer; the exchange writes to a blocking socket channel, which the
+ * interrupt closes. A client that stops reading while its queue still has room therefore
+ * cannot hold a writer thread, or the final chunk written on close, indefinitely.
+ */
+final class SessionEventStream implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionEventStream.class);
+    private static final Duration HEARTBEAT_INTERVAL = Duration.ofSeconds(15);
+    private static final Duration RECONNECT_DELAY = Duration.ofSeconds(3);
+    private static final Duration WRITE_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration WATCHDOG_INTERVAL = Duration.ofSeconds(1);
+    private static final int QUEUE_CAPACITY = 512;
+    /** Events replayed to a new client, and the most a reconnecting client may be behind to resume. */
+    private static final int REPLAY_EVENTS = 256;
+    private static final byte[] HEARTBEAT = ": heartbeat\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final RecognitionEventBus eventBus;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger writerIds = new AtomicInteger();
+    private final ExecutorService writers = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "companion-sse-writer-" + writerIds.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "companion-sse-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final CopyOnWriteArrayList<Connection> connections = new CopyOnWriteArrayList<>();
+    /** Connections with a writer inside {@code write}, {@code flush} or {@code close}. */
+    private final Set<Connection> writing = ConcurrentHashMap.newKeySet();
+    private final RecognitionEventBus.Subscription subscription;
+    private final AtomicLong resumed = new AtomicLong();
+    private final AtomicLong disconnectedSlow = new AtomicLong();
+    private final AtomicLong writesTimedOut = new AtomicLong();
+
+    SessionEventStream(RecognitionEventBus eventBus) {
+        this.eventBus = eventBus;
+        this.subscription = eventBus.subscribe("sse", this::broadcast, RecognitionEventBus.OverflowPolicy.DROP_OLDEST,
+                Integer.MAX_VALUE);
+        heartbeats.scheduleWithFixedDelay(this::heartbeat, HEARTBEAT_INTERVAL.toMillis(),
+                HEARTBEAT_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+        heartbeats.scheduleWithFixedDelay(this::abortStalledWrites, WATCHDOG_INTERVAL.toMillis(),
+                WATCHDOG_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Takes over {@code out}, whose response headers are already sent, and streams events to
+     * it: those after {@code lastEventId} when the bus can still replay them, otherwise the
+     * recent history. {@code onClose} runs once the connection ends and must release the
+     * exchange.
+     */
+    void open(OutputStream out, Long lastEventId, Runnable onClose) {
+        Connection connection = new Connection(out, onClose);
+        connection.enqueue(("retry: " + RECONNECT_DELAY.toMillis() + "\n\n").getBytes(StandardCharsets.UTF_8));
+        // Replay and registration are atomic with respect to broadcast, so no event falls in between.
+        synchronized (this) {
+            List<RecognitionEventBus.SequencedEvent> replay;
+            if (lastEventId != null && eventBus.canResumeAfter(lastEventId)
+                    && eventBus.nextSequence() - lastEventId <= REPLAY_EVENTS) {
+                replay = eventBus.since(lastEventId, REPLAY_EVENTS);
+                connection.lastSequence = lastEventId;
+                resumed.incrementAndGet();
+            } else {
+                replay = eventBus.since(Long.MIN_VALUE, REPLAY_EVENTS);
+                connection.lastSequence = eventBus.nextSequence() - REPLAY_EVENTS - 1;
+            }
+            for (RecognitionEventBus.SequencedEvent entry : replay) {
+                connection.offer(entry.sequence(), encode(entry.sequence(), entry.event()));
+            }
+            if (connection.isOpen()) {
+                connections.add(connection);
+            }
+        }
+        connection.scheduleDrain();
+    }
+
+    Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("connections", connections.size());
+        metrics.put("resumed", resumed.get());
+        metrics.put("disconnectedSlow", disconnectedSlow.get());
+        metrics.put("writesTimedOut", writesTimedOut.get());
+        return metrics;
+    }
+
+    private synchronized void broadcast(long sequence, RecognitionEvent event) {
+        if (connections.isEmpty()) {
+            return;
+        }
+        byte[] frame = encode(sequence, event);
+        for (Connection connection : connections) {
+            connection.offer(sequence, frame);
+        }
+    }
+
+    private void heartbeat() {
+        for (Connection connection : connections) {
+            connection.enqueue(HEARTBEAT);
+        }
+    }
+
+    private void abortStalledWrites() {
+        long now = System.nanoTime();
+        for (Connection connection : writing) {
+            connection.abortIfStalled(now);
+        }
+    }
+
+    private byte[] encode(long sequence, RecognitionEvent event) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("type", event.getType() != null ? event.getType().name().toLowerCase() : null);
+        payload.put("timestamp", event.getTimestamp() != null ? event.getTimestamp().toString() : null);
+        payload.put("trackId", event.getTrackId());
+        payload.put("studentId", event.getStudentId());
+        payload.put("studentName", event.getStudentName());
+        payload.put("confidence", Double.isFinite(event.getConfidence()) ? event.getConfidence() : null);
+        payload.put("message", event.getMessage());
+        payload.put("success", event.isSuccess());
+        payload.put("manual", event.isManual());
+        String data;
+        try {
+            data = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException ex) {
+            data = "{}";
+        }
+        return ("id: " + sequence + "\nevent: recognition\ndata: " + data + "\n\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** One client: its pending frames and whether a writer is currently draining them. */
+    private final class Connection {
+        private final OutputStream out;
+        private final Runnable onClose;
+        private final ArrayBlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+        private long lastSequence;
+        private Thread writer;
+        private long writeStartedAt;
+
+        private Connection(OutputStream out, Runnable onClose) {
+            this.out = out;
+            this.onClose = onClose;
+        }
+
+        boolean isOpen() {
+            return !closed.get();
+        }
+
+        /** Queues an event frame unless the client has already been sent it. */
+        void offer(long sequence, byte[] frame) {
+            if (sequence <= lastSequence) {
+                return;
+            }
+            lastSequence = sequence;
+            enqueue(frame);
+        }
+
+        void enqueue(byte[] frame) {
+            if (closed.get()) {
+                return;
+            }
+            if (!queue.offer(frame)) {
+                disconnectedSlow.incrementAndGet();
+                logger.info("Disconnecting slow session event client with {} frames pending", queue.size());
+                close();
+                return;
+            }
+            scheduleDrain();
+        }
+
+        void scheduleDrain() {
+            if (closed.get() || queue.isEmpty() || !draining.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                writers.execute(this::drain);
+            } catch (RejectedExecutionException ex) {
+                draining.set(false);
+                close();
+            }
+        }
+
+        private void drain() {
+            try {
+                byte[] frame;
+                while ((frame = queue.poll()) != null) {
+                    beginWrite();
+                    out.write(frame);
+                }
+                beginWrite();
+                out.flush();
+            } catch (IOException ex) {
+                close();
+            } finally {
+                endWrite();
+                draining.set(false);
+            }
+            // A frame queued after the last poll but before draining was cleared still needs a writer.
+            scheduleDrain();
+        }
+
+        /** Starts, or restarts after progress, the deadline of the current thread's write. */
+        private synchronized void beginWrite() {
+            if (writer == null) {
+                writer = Thread.currentThread();
+                writing.add(this);
+            }
+            writeStartedAt = System.nanoTime();
+        }
+
+        private synchronized void endWrite() {
+            writing.remove(this);
+            writer = null;
+            // An abort racing with a completed write must not leave the pooled thread interrupted.
+            Thread.interrupted();
+        }
+
+        synchronized void abortIfStalled(long now) {
+            if (writer == null || now - writeStartedAt < WRITE_TIMEOUT.toNanos()) {
+                return;
+            }
+            writesTimedOut.incrementAndGet();
+            logger.info("Aborting session event client whose write stalled for over {}s",
+                    WRITE_TIMEOUT.toSeconds());
+            writer.interrupt();
+            writer = null;
+            writing.remove(this);
+        }
+
+        void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            connections.remove(this);
+            queue.clear();
+            // Closing writes the final chunk, which can block on a stalled client; keep that off the broadcaster.
+            try {
+                writers.execute(this::release);
+            } catch (RejectedExecutionException ex) {
+                release();
+            }
+        }
+
+        private void release() {
+            try {
+                beginWrite();
+                out.close();
+            } catch (IOException ignored) {
+            } finally {
+                endWrite();
+            }
+            if (onClose != null) {
+                onClose.run();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        subscription.close();
+        heartbeats.shutdownNow();
+        for (Connection connection : connections) {
+            connection.close();
+        }
+        writers.shutdown();
+    }
+}
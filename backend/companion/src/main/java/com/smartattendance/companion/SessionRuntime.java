@@ -1,11 +1,11 @@
 package com.smartattendance.companion;
 
-import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -31,9 +31,10 @@ public final class SessionRuntime implements AutoCloseable {
     private final LiveRecognitionRuntime recognitionRuntime;
     private final RecognitionEventBus eventBus;
     private final BackendEventForwarder backendForwarder;
+    private final CompanionChannel channel;
+    private final SessionEventStream eventStream;
     private final CompanionSettings settings;
     private final CompanionSessionManager manager;
-    private final HttpClient backendClient;
     private final AtomicBoolean autoStopTriggered = new AtomicBoolean(false);
 
     public SessionRuntime(SessionState state,
@@ -46,10 +47,6 @@ public final class SessionRuntime implements AutoCloseable {
         this.eventBus = eventBus;
         this.settings = settings;
         this.manager = manager;
-        this.backendClient = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(5))
-                .version(HttpClient.Version.HTTP_1_1)
-                .build();
         this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
             Thread thread = new Thread(r, "companion-session-heartbeat");
             thread.setDaemon(true);
@@ -59,8 +56,11 @@ public final class SessionRuntime implements AutoCloseable {
                 HEARTBEAT_INTERVAL.toSeconds(),
                 HEARTBEAT_INTERVAL.toSeconds(),
                 TimeUnit.SECONDS);
-        this.backendForwarder = new BackendEventForwarder(settings, state, eventBus);
+        this.channel = CompanionChannel.open(settings, state);
+        this.eventStream = new SessionEventStream(eventBus);
+        this.backendForwarder = new BackendEventForwarder(settings, state, eventBus, channel);
         if (recognitionRuntime != null) {
+            recognitionRuntime.setChannel(channel);
             recognitionRuntime.start();
         }
         scheduleAutoStopIfNecessary();
@@ -74,6 +74,34 @@ public final class SessionRuntime implements AutoCloseable {
         return eventBus;
     }
 
+    SessionEventStream eventStream() {
+        return eventStream;
+    }
+
+    /** Collects runtime counters for the active session. */
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("sessionId", state.sessionId());
+        metrics.put("active", state.isActive());
+        if (recognitionRuntime != null) {
+            metrics.put("pipeline", recognitionRuntime.pipelineMetrics());
+            metrics.put("matPool", recognitionRuntime.matPoolMetrics());
+            metrics.put("motion", recognitionRuntime.motionMetrics());
+            metrics.put("lowPower", recognitionRuntime.isLowPower());
+            metrics.put("autoTune", recognitionRuntime.autoTuneMetrics());
+            metrics.put("recognition", recognitionRuntime.recognitionMetrics());
+            metrics.put("attendance", recognitionRuntime.attendanceMetrics());
+        }
+        metrics.put("events", backendForwarder.metrics());
+        metrics.put("eventBus", eventBus.metrics());
+        metrics.put("eventStream", eventStream.metrics());
+        if (channel != null) {
+            metrics.put("channel", channel.metrics());
+        }
+        metrics.put("http", CompanionHttpClient.shared().metrics());
+        return metrics;
+    }
+
     @Override
     public void close() {
         state.markStopped();
@@ -84,6 +112,10 @@ public final class SessionRuntime implements AutoCloseable {
             recognitionRuntime.close();
         }
         backendForwarder.close();
+        eventStream.close();
+        if (channel != null) {
+            channel.close();
+        }
         logger.info("Stopped companion session {}", state.sessionId());
     }
 
@@ -136,32 +168,13 @@ public final class SessionRuntime implements AutoCloseable {
         if (sessionId == null || sessionId.isBlank()) {
             return;
         }
-        HttpRequest.Builder builder = HttpRequest.newBuilder()
-                .uri(URI.create(baseUrl + "/sessions/" + sessionId + "/stop"))
-                .timeout(Duration.ofSeconds(5))
+        CompanionHttpClient http = CompanionHttpClient.shared();
+        HttpRequest.Builder builder = http.request(CompanionHttpClient.Endpoint.SESSION_CONTROL,
+                        baseUrl + "/sessions/" + sessionId + "/stop", null)
                 .header("Content-Type", "application/json")
-                .header("Accept", "application/json")
                 .POST(HttpRequest.BodyPublishers.ofString("{\"action\":\"stop\"}"));
-        String authToken = resolveAuthorizationToken();
-        if (!authToken.isBlank()) {
-            builder.header("Authorization", "Bearer " + authToken);
-        }
-        String companionToken = state.companionToken();
-        if (companionToken != null && !companionToken.isBlank()) {
-            builder.header("X-Companion-Token", companionToken.trim());
-        }
-        backendClient.send(builder.build(), HttpResponse.BodyHandlers.discarding());
-    }
-
-    private String resolveAuthorizationToken() {
-        if (settings != null) {
-            String serviceToken = settings.serviceToken();
-            if (serviceToken != null && !serviceToken.isBlank()) {
-                return serviceToken.trim();
-            }
-        }
-        String companionToken = state.companionToken();
-        return companionToken != null ? companionToken.trim() : "";
+        http.authorize(builder, settings.serviceToken(), state.companionToken());
+        http.send(CompanionHttpClient.Endpoint.SESSION_CONTROL, builder.build(), HttpResponse.BodyHandlers.discarding());
     }
 
     private void cancelAutoStopTask() {
@@ -0,0 +1,120 @@
+package com.smartattendance.companion.recognition;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Feedback controller that keeps the live pipeline near a target frame rate. Full-frame
+ * detection cost drives the detection downscale between its bounds; when the detector is
+ * already at its floor and frames still overrun the budget, measured end to end from
+ * capture to recognition, the capture interval is lengthened instead, and shortened again
+ * once there is headroom. The detect and recognize stage threads both report frames, so
+ * the recording methods are synchronized; readers may poll from any thread.
+ */
+final class AdaptiveRateController {
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveRateController.class);
+    private static final double SMOOTHING = 0.2d;
+    private static final int ADJUST_EVERY_FRAMES = 15;
+    private static final double OVER_BUDGET = 1.1d;
+    private static final double UNDER_BUDGET = 0.7d;
+
+    private final double budgetMs;
+    private final long minIntervalMs;
+    private final long maxIntervalMs;
+    private final double minScale;
+    private final double maxScale;
+
+    private double frameMs = Double.NaN;
+    private double sweepMs = Double.NaN;
+    private int framesSinceAdjust;
+    private volatile double scale;
+    private volatile long captureIntervalMs;
+
+    /**
+     * @param targetFps     frame rate the controller tries to hold
+     * @param minFps        lowest capture rate it may fall back to
+     * @param minScale      smallest detection downscale allowed
+     * @param maxScale      largest detection downscale allowed
+     * @param initialScale  starting detection downscale
+     */
+    AdaptiveRateController(double targetFps, double minFps, double minScale, double maxScale, double initialScale) {
+        double target = Math.max(1.0d, targetFps);
+        this.budgetMs = 1000.0d / target;
+        this.minIntervalMs = Math.max(1L, Math.round(budgetMs));
+        this.maxIntervalMs = Math.max(minIntervalMs, Math.round(1000.0d / Math.max(0.5d, Math.min(minFps, target))));
+        this.maxScale = Math.min(1.0d, Math.max(0.05d, maxScale));
+        this.minScale = Math.min(this.maxScale, Math.max(0.05d, minScale));
+        this.scale = clampScale(initialScale);
+        this.captureIntervalMs = minIntervalMs;
+    }
+
+    /**
+     * Records a frame's end-to-end latency: from capture until its faces were recognized, or
+     * until detection finished when it had none to recognize.
+     */
+    synchronized void recordFrame(long elapsedNanos) {
+        frameMs = smooth(frameMs, elapsedNanos);
+        if (++framesSinceAdjust >= ADJUST_EVERY_FRAMES) {
+            framesSinceAdjust = 0;
+            adjust();
+        }
+    }
+
+    /** Records the cost of a full-frame detection pass, the work the downscale controls. */
+    synchronized void recordFullSweep(long elapsedNanos) {
+        sweepMs = smooth(sweepMs, elapsedNanos);
+    }
+
+    double scale() {
+        return scale;
+    }
+
+    long captureIntervalMs() {
+        return captureIntervalMs;
+    }
+
+    synchronized Map<String, Object> snapshot() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("targetFps", 1000.0d / budgetMs);
+        metrics.put("detectionScale", scale);
+        metrics.put("captureIntervalMs", captureIntervalMs);
+        metrics.put("frameLatencyMs", Double.isNaN(frameMs) ? 0.0d : frameMs);
+        metrics.put("fullSweepLatencyMs", Double.isNaN(sweepMs) ? 0.0d : sweepMs);
+        return metrics;
+    }
+
+    private void adjust() {
+        double sweep = Double.isNaN(sweepMs) ? frameMs : sweepMs;
+        double previousScale = scale;
+        long previousInterval = captureIntervalMs;
+        if (sweep > budgetMs * OVER_BUDGET && scale > minScale) {
+            scale = clampScale(scale * 0.9d);
+        } else if (frameMs > budgetMs * OVER_BUDGET) {
+            captureIntervalMs = Math.min(maxIntervalMs, Math.round(frameMs * OVER_BUDGET));
+        } else if (frameMs < budgetMs * UNDER_BUDGET && captureIntervalMs > minIntervalMs) {
+            captureIntervalMs = Math.max(minIntervalMs, Math.round(Math.max(frameMs * OVER_BUDGET, captureIntervalMs * 0.8d)));
+        } else if (sweep < budgetMs * UNDER_BUDGET && scale < maxScale) {
+            scale = clampScale(scale * 1.05d);
+        }
+        if (scale != previousScale || captureIntervalMs != previousInterval) {
+            log.debug("Auto-tune: frame {}ms, sweep {}ms -> scale {}, capture interval {}ms",
+                    Math.round(frameMs), Math.round(sweep), String.format("%.2f", scale), captureIntervalMs);
+        }
+    }
+
+    private double clampScale(double value) {
+        if (!Double.isFinite(value) || value <= 0.0d) {
+            return maxScale;
+        }
+        return Math.max(minScale, Math.min(maxScale, value));
+    }
+
+    private static double smooth(double average, long elapsedNanos) {
+        double ms = elapsedNanos / 1_000_000.0d;
+        return Double.isNaN(average) ? ms : average + SMOOTHING * (ms - average);
+    }
+}
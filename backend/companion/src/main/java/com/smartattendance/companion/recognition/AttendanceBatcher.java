@@ -0,0 +1,113 @@
+package com.smartattendance.companion.recognition;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Coalesces attendance submissions into bulk requests. The first submission of a batch
+ * opens a short window; the batch is sent when the window closes or as soon as it holds
+ * {@code maxBatch} entries, whichever comes first. Each submission's future completes with
+ * its own entry of the bulk response, or exceptionally when the whole request failed.
+ * Batches are sent on the supplied single-threaded executor, so at most one is in flight.
+ */
+final class AttendanceBatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(AttendanceBatcher.class);
+
+    /** Sends one batch and returns the per-entry results in submission order. */
+    @FunctionalInterface
+    interface Sender {
+        List<JsonNode> send(List<ObjectNode> payloads) throws Exception;
+    }
+
+    private record Pending(ObjectNode payload, CompletableFuture<JsonNode> result) {
+    }
+
+    private final ScheduledExecutorService executor;
+    private final Sender sender;
+    private final long windowMillis;
+    private final int maxBatch;
+    private final Object lock = new Object();
+    private List<Pending> pending = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    AttendanceBatcher(ScheduledExecutorService executor, Sender sender, Duration window, int maxBatch) {
+        this.executor = executor;
+        this.sender = sender;
+        this.windowMillis = Math.max(0L, window.toMillis());
+        this.maxBatch = Math.max(1, maxBatch);
+    }
+
+    CompletableFuture<JsonNode> submit(ObjectNode payload) {
+        CompletableFuture<JsonNode> result = new CompletableFuture<>();
+        synchronized (lock) {
+            pending.add(new Pending(payload, result));
+            if (pending.size() >= maxBatch) {
+                cancelScheduledFlush();
+                executor.execute(this::flush);
+            } else if (scheduledFlush == null) {
+                scheduledFlush = executor.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        return result;
+    }
+
+    /** Sends everything queued so far, in batches of at most {@code maxBatch}. */
+    void flush() {
+        while (true) {
+            List<Pending> batch;
+            synchronized (lock) {
+                cancelScheduledFlush();
+                if (pending.isEmpty()) {
+                    return;
+                }
+                if (pending.size() <= maxBatch) {
+                    batch = pending;
+                    pending = new ArrayList<>();
+                } else {
+                    batch = new ArrayList<>(pending.subList(0, maxBatch));
+                    pending = new ArrayList<>(pending.subList(maxBatch, pending.size()));
+                }
+            }
+            send(batch);
+        }
+    }
+
+    private void send(List<Pending> batch) {
+        List<ObjectNode> payloads = new ArrayList<>(batch.size());
+        for (Pending entry : batch) {
+            payloads.add(entry.payload());
+        }
+        long t0 = System.nanoTime();
+        try {
+            List<JsonNode> results = sender.send(payloads);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result().complete(i < results.size() ? results.get(i) : null);
+            }
+            log.debug("Submitted {} attendance records in one request ({}ms)", batch.size(),
+                    (System.nanoTime() - t0) / 1_000_000L);
+        } catch (Exception ex) {
+            for (Pending entry : batch) {
+                entry.result().completeExceptionally(ex);
+            }
+        }
+    }
+
+    private void cancelScheduledFlush() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+    }
+}
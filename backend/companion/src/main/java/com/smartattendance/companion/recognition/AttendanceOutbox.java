@@ -0,0 +1,224 @@
+package com.smartattendance.companion.recognition;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Write-ahead log of attendance marks the service has not confirmed yet. Every mark is
+ * appended and forced to disk before it is sent, and stays pending until the service
+ * acknowledges or permanently rejects it; opening the log replays it, so marks queued while
+ * the network was down survive a companion restart. Each line is a JSON object: a
+ * {@code queued} entry carries the submission payload with its idempotency key, an
+ * {@code ack} entry retires one. The log is rewritten with just the pending entries when it
+ * is opened and whenever enough acknowledgements have accumulated.
+ */
+final class AttendanceOutbox implements AutoCloseable {
+
+    static final String FILE_NAME = "attendance-outbox.log";
+
+    private static final Logger log = LoggerFactory.getLogger(AttendanceOutbox.class);
+    private static final int COMPACT_AFTER_ACKS = 256;
+
+    record Entry(String key, ObjectNode payload, Instant queuedAt) {
+
+        String studentId() {
+            JsonNode studentId = payload.get("studentId");
+            return studentId != null && !studentId.isNull() ? studentId.asText() : null;
+        }
+
+        String status() {
+            JsonNode status = payload.get("status");
+            return status != null && !status.isNull() ? status.asText() : null;
+        }
+    }
+
+    private final Path file;
+    private final ObjectMapper objectMapper;
+    private final Map<String, Entry> pending = new LinkedHashMap<>();
+    private FileChannel channel;
+    private int acknowledgedSinceCompaction;
+
+    private AttendanceOutbox(Path file, ObjectMapper objectMapper) {
+        this.file = file;
+        this.objectMapper = objectMapper;
+    }
+
+    /** Opens the outbox in {@code directory}, restoring the entries still pending in it. */
+    static AttendanceOutbox open(Path directory, ObjectMapper objectMapper) throws IOException {
+        AttendanceOutbox outbox = new AttendanceOutbox(directory.resolve(FILE_NAME), objectMapper);
+        outbox.replay();
+        outbox.compact();
+        return outbox;
+    }
+
+    synchronized void append(Entry entry) throws IOException {
+        write(queuedLine(entry), true);
+        pending.put(entry.key(), entry);
+    }
+
+    /**
+     * Retires an entry. The acknowledgement is not forced to disk: losing it in a crash only
+     * means the mark is replayed once more, which the idempotency key makes harmless.
+     */
+    synchronized void acknowledge(String key) {
+        if (key == null || pending.remove(key) == null) {
+            return;
+        }
+        try {
+            ObjectNode line = objectMapper.createObjectNode();
+            line.put("op", "ack");
+            line.put("key", key);
+            write(line, false);
+            if (++acknowledgedSinceCompaction >= COMPACT_AFTER_ACKS || pending.isEmpty()) {
+                compact();
+            }
+        } catch (IOException ex) {
+            log.warn("Unable to record attendance outbox acknowledgement: {}", ex.getMessage());
+        }
+    }
+
+    /** Up to {@code limit} pending entries queued no later than {@code queuedBefore}, oldest first. */
+    synchronized List<Entry> pending(int limit, Instant queuedBefore) {
+        List<Entry> due = new ArrayList<>(Math.min(limit, pending.size()));
+        for (Entry entry : pending.values()) {
+            if (due.size() >= limit) {
+                break;
+            }
+            if (!entry.queuedAt().isAfter(queuedBefore)) {
+                due.add(entry);
+            }
+        }
+        return due;
+    }
+
+    synchronized List<Entry> pending() {
+        return List.copyOf(pending.values());
+    }
+
+    synchronized int size() {
+        return pending.size();
+    }
+
+    private void replay() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        int lineNumber = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode node;
+                try {
+                    node = objectMapper.readTree(line);
+                } catch (IOException ex) {
+                    // A torn final write; everything before it is intact.
+                    log.warn("Skipping unreadable attendance outbox line {} in {}", lineNumber, file);
+                    continue;
+                }
+                String key = node.path("key").asText(null);
+                if (key == null) {
+                    continue;
+                }
+                if ("ack".equals(node.path("op").asText())) {
+                    pending.remove(key);
+                } else if (node.get("payload") instanceof ObjectNode payload) {
+                    Instant queuedAt = parseInstant(node.path("queuedAt").asText(null));
+                    pending.put(key, new Entry(key, payload, queuedAt));
+                }
+            }
+        }
+        if (!pending.isEmpty()) {
+            log.info("Restored {} unconfirmed attendance marks from {}", pending.size(), file);
+        }
+    }
+
+    private void compact() throws IOException {
+        closeChannel();
+        Path temp = file.resolveSibling(FILE_NAME + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Entry entry : pending.values()) {
+                writeFully(out, queuedLine(entry));
+            }
+            out.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        acknowledgedSinceCompaction = 0;
+    }
+
+    private ObjectNode queuedLine(Entry entry) {
+        ObjectNode line = objectMapper.createObjectNode();
+        line.put("op", "queued");
+        line.put("key", entry.key());
+        line.put("queuedAt", entry.queuedAt().toString());
+        line.set("payload", entry.payload());
+        return line;
+    }
+
+    private void write(ObjectNode line, boolean force) throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+        writeFully(channel, line);
+        if (force) {
+            channel.force(false);
+        }
+    }
+
+    private void writeFully(FileChannel target, ObjectNode line) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((objectMapper.writeValueAsString(line) + "\n")
+                .getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+
+    private static Instant parseInstant(String value) {
+        try {
+            return value != null ? Instant.parse(value) : Instant.EPOCH;
+        } catch (RuntimeException ex) {
+            return Instant.EPOCH;
+        }
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                log.debug("Failed to close attendance outbox: {}", ex.getMessage());
+            }
+            channel = null;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closeChannel();
+    }
+}
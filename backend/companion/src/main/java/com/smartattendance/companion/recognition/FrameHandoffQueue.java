@@ -0,0 +1,92 @@
+package com.smartattendance.companion.recognition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Bounded hand-off between two pipeline stages. When the consumer falls behind the
+ * oldest queued item is discarded so the downstream stage always works on recent frames.
+ */
+final class FrameHandoffQueue<T> {
+
+    private final String name;
+    private final int capacity;
+    private final BlockingQueue<T> queue;
+    private final Consumer<T> onDrop;
+    private final AtomicLong offered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    FrameHandoffQueue(String name, int capacity, Consumer<T> onDrop) {
+        this.name = Objects.requireNonNull(name, "name");
+        this.capacity = Math.max(1, capacity);
+        this.queue = new ArrayBlockingQueue<>(this.capacity);
+        this.onDrop = onDrop;
+    }
+
+    /** Enqueues the item, evicting the oldest entries if the queue is full. */
+    void offer(T item) {
+        if (item == null) {
+            return;
+        }
+        offered.incrementAndGet();
+        while (!queue.offer(item)) {
+            T oldest = queue.poll();
+            if (oldest != null) {
+                discard(oldest);
+            }
+        }
+    }
+
+    T take() throws InterruptedException {
+        return queue.take();
+    }
+
+    /** Drains and discards every pending item. */
+    void clear() {
+        List<T> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        for (T item : pending) {
+            release(item);
+        }
+    }
+
+    String name() {
+        return name;
+    }
+
+    int depth() {
+        return queue.size();
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    long offered() {
+        return offered.get();
+    }
+
+    long dropped() {
+        return dropped.get();
+    }
+
+    private void discard(T item) {
+        dropped.incrementAndGet();
+        release(item);
+    }
+
+    private void release(T item) {
+        if (onDrop == null) {
+            return;
+        }
+        try {
+            onDrop.accept(item);
+        } catch (Exception ignored) {
+        }
+    }
+}
@@ -11,46 +11,63 @@ import java.time.Duration;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.github.sarxos.webcam.Webcam;
+import com.smartattendance.companion.CompanionChannel;
+import com.smartattendance.companion.CompanionHttpClient;
+import com.smartattendance.companion.CompanionHttpException;
 import com.smartattendance.companion.CompanionSettings;
 import com.smartattendance.companion.SessionState;
 import com.smartattendance.config.AttendanceProperties;
+import com.smartattendance.util.MatPool;
 import com.smartattendance.util.OpenCVLoader;
 import com.smartattendance.util.OpenCVUtils;
 import com.smartattendance.vision.HaarFaceDetector;
+import com.smartattendance.vision.MotionDetector;
 import com.smartattendance.vision.Recognizer;
 import com.smartattendance.vision.preprocess.ImageQuality;
 import com.smartattendance.vision.preprocess.FaceImageProcessor;
+import com.smartattendance.vision.recognizer.JavaLBPHRecognizer;
 import com.smartattendance.vision.recognizer.LBPHRecognizer;
 import com.smartattendance.vision.tracking.FaceTrack;
 import com.smartattendance.vision.tracking.FaceTrackGroup;
+import com.smartattendance.vision.tracking.TemplateTracker;
 
 import org.apache.commons.lang3.StringUtils;
 import org.opencv.core.Mat;
+import org.opencv.core.MatOfDouble;
 import org.opencv.core.Rect;
 import org.opencv.core.Size;
 import org.opencv.imgproc.Imgproc;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 
@@ -60,12 +77,25 @@ import java.net.http.HttpResponse;
 public final class LiveRecognitionRuntime implements AutoCloseable {
 
     private static final Logger log = LoggerFactory.getLogger(LiveRecognitionRuntime.class);
+    private static final int CAPTURE_QUEUE_CAPACITY = 2;
+    private static final int RECOGNITION_QUEUE_PER_WORKER = 4;
+    private static final int MAX_RECOGNITION_WORKERS = 4;
+    private static final int REVIEW_THUMBNAIL_WIDTH = 72;
+    private static final int MAT_POOL_IDLE_PER_SIZE = 8;
+    private static final Duration ATTENDANCE_BATCH_WINDOW = Duration.ofMillis(100);
+    private static final int ATTENDANCE_BATCH_SIZE = 20;
+    /** The window only shows the latest lines, so a backlog beyond this is skipped rather than rendered. */
+    private static final int WINDOW_EVENT_MAX_LAG = 512;
+    private static final Duration OUTBOX_RETRY_BASE = Duration.ofSeconds(2);
+    private static final Duration OUTBOX_RETRY_MAX = Duration.ofMinutes(2);
+    /** Leaves a freshly queued mark to its own submission before the drainer replays it. */
+    private static final Duration OUTBOX_GRACE = Duration.ofSeconds(5);
 
     private final SessionState state;
     private final AttendanceProperties config;
     private final CompanionSettings settings;
     private final RecognitionEventBus eventBus;
-    private final HttpClient httpClient;
+    private final CompanionHttpClient http = CompanionHttpClient.shared();
     private final ObjectMapper objectMapper = new ObjectMapper();
     private final String companionToken;
     private final Instant scheduledStart;
@@ -73,29 +103,56 @@ public final class LiveRecognitionRuntime implements AutoCloseable {
     private final int lateThresholdMinutes;
 
     private final AtomicBoolean running = new AtomicBoolean(false);
-    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
-        Thread thread = new Thread(r, "companion-recognition-loop");
+    private final ExecutorService captureExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "companion-capture-stage");
         thread.setDaemon(true);
         return thread;
     });
-    private final ExecutorService attendanceExecutor = Executors.newSingleThreadExecutor(r -> {
+    private final ExecutorService detectExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "companion-detect-stage");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ExecutorService recognizeExecutor;
+    private volatile Recognizer primaryRecognizer;
+    private final MatPool matPool = new MatPool(MAT_POOL_IDLE_PER_SIZE);
+    private final FrameHandoffQueue<CapturedFrame> capturedFrames =
+            new FrameHandoffQueue<>("capture->detect", CAPTURE_QUEUE_CAPACITY, null);
+    private FrameHandoffQueue<RecognitionCandidate> recognitionQueue;
+    private final PipelineStageStats captureStats = new PipelineStageStats("capture");
+    private final PipelineStageStats detectStats = new PipelineStageStats("detect");
+    private final PipelineStageStats recognizeStats = new PipelineStageStats("recognize");
+    private final ScheduledExecutorService attendanceExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
         Thread thread = new Thread(r, "companion-attendance-dispatcher");
         thread.setDaemon(true);
         return thread;
     });
+    private final AttendanceBatcher attendanceBatcher = new AttendanceBatcher(attendanceExecutor,
+            this::postAttendanceBatch, ATTENDANCE_BATCH_WINDOW, ATTENDANCE_BATCH_SIZE);
+    private volatile boolean batchAttendanceSupported = true;
+    private volatile CompanionChannel channel;
+    private volatile AttendanceOutbox attendanceOutbox;
+    private final Object outboxDrainLock = new Object();
+    private ScheduledFuture<?> outboxDrain;
+    private volatile int outboxFailures;
+    /** Set once the service rejects the session's credentials; queued marks wait for a new session. */
+    private final AtomicBoolean reauthenticationRequired = new AtomicBoolean(false);
+    private final AtomicLong outboxDelivered = new AtomicLong();
 
     private Webcam webcam;
     private SessionWindow window;
     private HaarFaceDetector detector;
-    private Recognizer recognizer;
     private FaceTrackGroup trackGroup;
+    private TemplateTracker tracker;
+    private MotionDetector motionDetector;
+    private AdaptiveRateController rateController;
     private final Map<String, TrackedFace> trackedFaces = new ConcurrentHashMap<>();
     private final Set<String> recordedStudents = ConcurrentHashMap.newKeySet();
     private final Set<String> missingStudents;
     private final Map<String, String> studentNames;
     private final Map<String, SessionWindow.RosterEntry> rosterEntries = new ConcurrentHashMap<>();
     private final List<String> rosterOrder = Collections.synchronizedList(new ArrayList<>());
-    private Consumer<RecognitionEvent> windowEventListener;
+    private RecognitionEventBus.Subscription windowEvents;
     private Runnable stopSessionAction;
 
     private double autoAcceptMaxDistance;
@@ -104,10 +161,44 @@ public final class LiveRecognitionRuntime implements AutoCloseable {
     private double minMotion;
     private int minFace;
     private int attemptIntervalMs;
+    private int recognitionWorkers = 1;
+    private int lockAfterPredictions = 2;
+    private double reverifyJump = 0.6;
+    private long reverifyGapMs = 1500L;
+    private boolean fusionEnabled;
+    private int fusionMinSamples = 2;
+    private int fusionMaxSamples = 5;
+    private double fusionStrongRatio = 0.75;
+    private int fusionSampleIntervalMs = 400;
+    private final AtomicLong finalizedSkips = new AtomicLong();
+    private final AtomicLong reverifications = new AtomicLong();
     private double blurThreshold;
     private int maxManualPrompts = 3;
     private int preprocessWidth = 200;
     private int preprocessHeight = 200;
+    private int detectEveryFrames = 1;
+    private double trackMinScore = 0.6;
+    private double trackSearchMargin = 0.35;
+    private int framesSinceDetection;
+    private int passesSinceSweep;
+    private boolean detectionRequested = true;
+    private double staticMotionScore = 0.002;
+    private int maxStaticFrames = 45;
+    private double maxMotionCoverage = 0.35;
+    private int staticFrames;
+    private int framesSinceFullSweep;
+    private boolean sceneStatic;
+    private volatile double lastMotionScore = Double.NaN;
+    private String motionTransition;
+    private final AtomicLong staticFramesSkipped = new AtomicLong();
+    private final AtomicLong motionLimitedPasses = new AtomicLong();
+    private final Object captureWakeup = new Object();
+    private boolean idleEnabled;
+    private long idleAfterMs = 30000L;
+    private double idleFps = 3.0;
+    private double idleDetectScale = 0.5;
+    private long lastFaceSeenAt;
+    private volatile boolean lowPower;
 
     public LiveRecognitionRuntime(SessionState state,
                                   AttendanceProperties config,
@@ -117,9 +208,6 @@ public final class LiveRecognitionRuntime implements AutoCloseable {
         this.config = config;
         this.settings = settings;
         this.eventBus = eventBus;
-        this.httpClient = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(5))
-                .build();
         this.missingStudents = Set.copyOf(state.missingStudentIds());
         this.studentNames = state.labelMap();
         this.companionToken = state.companionToken();
@@ -132,10 +220,22 @@ public final class LiveRecognitionRuntime implements AutoCloseable {
         this.stopSessionAction = stopSessionAction;
     }
 
+    /**
+     * Routes attendance batches over the session's WebSocket channel while it is open and
+     * applies the attendance changes the service pushes back to the roster.
+     */
+    public void setChannel(CompanionChannel channel) {
+        this.channel = channel;
+        if (channel != null) {
+            channel.setRosterListener(this::onRosterPushed);
+        }
+    }
+
     public void start() {
         if (!running.compareAndSet(false, true)) {
             return;
         }
+        openAttendanceOutbox();
         if (!OpenCVLoader.loadOrWarn()) {
             log.warn("OpenCV not available; recognition runtime disabled");
             running.set(false);
@@ -144,15 +244,23 @@ public final class LiveRecognitionRuntime implements AutoCloseable {
         configureThresholds();
         try {
             detector = new HaarFaceDetector(resolveCascadePath(), config);
-            recognizer = loadRecognizer();
+            Recognizer primaryRecognizer = loadRecognizer();
             trackGroup = new FaceTrackGroup(TimeUnit.SECONDS.toMillis(4));
+            if (detectEveryFrames > 1) {
+                tracker = new TemplateTracker(trackSearchMargin, trackMinScore);
+            }
+            rateController = createRateController();
+            AttendanceProperties.LiveMotion motion = config.live() != null ? config.live().motion() : null;
+            if (motion != null && motion.enabled()) {
+                motionDetector = new MotionDetector(motion.pixelThreshold());
+            }
             webcam = openCamera();
             window = new SessionWindow(webcam);
             window.open();
             window.setManualMarkListener(this::handleManualRosterMark);
             window.setEndSessionListener(this::handleEndSessionRequest);
-            windowEventListener = window::appendEvent;
-            eventBus.subscribe(windowEventListener);
+            windowEvents = eventBus.subscribe("session-window", window::appendEvent,
+                    RecognitionEventBus.OverflowPolicy.DROP_OLDEST, WINDOW_EVENT_MAX_LAG);
             eventBus.publish(new RecognitionEvent(
                     RecognitionEventType.CAMERA_STARTED,
                     Instant.now(),
@@ -164,7 +272,9 @@ public final class LiveRecognitionRuntime implements AutoCloseable {
                     true,
                     false));
             loadInitialRoster();
-            executor.submit(this::loop);
+            startRecognitionWorkers(primaryRecognizer);
+            detectExecutor.submit(this::detectLoop);
+            captureExecutor.submit(this::captureLoop);
         } catch (Exception ex) {
             log.error("Failed to start recognition runtime: {}", ex.getMessage(), ex);
             running.set(false);
@@ -190,12 +300,55 @@ public final class LiveRecognitionRuntime implements AutoCloseable {
             minMotion = Math.max(20.0, lr.motionThreshold());
             minFace = Math.max(120, lr.minFace());
             attemptIntervalMs = Math.max(750, lr.intervalMs());
+            recognitionWorkers = lr.workers() > 0 ? lr.workers() : defaultRecognitionWorkers();
         } else {
+            recognitionWorkers = defaultRecognitionWorkers();
             minFrames = 6;
             minMotion = 60.0;
             minFace = 160;
             attemptIntervalMs = 1500;
         }
+        if (live != null && live.tracking() != null) {
+            AttendanceProperties.LiveTracking tracking = live.tracking();
+            detectEveryFrames = Math.max(1, tracking.detectEveryFrames());
+            trackMinScore = Double.isFinite(tracking.minMatchScore()) ? tracking.minMatchScore() : 0.6;
+            trackSearchMargin = Double.isFinite(tracking.searchMargin()) ? tracking.searchMargin() : 0.35;
+        } else {
+            detectEveryFrames = 1;
+        }
+        if (live != null && live.finalization() != null) {
+            AttendanceProperties.LiveFinalization finalization = live.finalization();
+            lockAfterPredictions = Math.max(1, finalization.lockAfter());
+            reverifyJump = Double.isFinite(finalization.reverifyJump()) && finalization.reverifyJump() > 0.0d
+                    ? finalization.reverifyJump()
+                    : 0.6;
+            reverifyGapMs = Math.max(100L, finalization.reverifyGapMs());
+        }
+        if (live != null && live.fusion() != null) {
+            AttendanceProperties.LiveFusion fusion = live.fusion();
+            fusionEnabled = fusion.enabled();
+            fusionMinSamples = Math.max(1, fusion.minSamples());
+            fusionMaxSamples = Math.max(fusionMinSamples, fusion.maxSamples());
+            fusionStrongRatio = Double.isFinite(fusion.strongRatio()) ? Math.max(0.0d, fusion.strongRatio()) : 0.75;
+            fusionSampleIntervalMs = Math.max(100, fusion.sampleIntervalMs());
+        } else {
+            fusionEnabled = false;
+        }
+        if (live != null && live.motion() != null) {
+            AttendanceProperties.LiveMotion motion = live.motion();
+            staticMotionScore = Double.isFinite(motion.staticScore()) ? Math.max(0.0d, motion.staticScore()) : 0.002;
+            maxStaticFrames = Math.max(1, motion.maxStaticFrames());
+            maxMotionCoverage = Double.isFinite(motion.maxRegionCoverage()) ? motion.maxRegionCoverage() : 0.35;
+        }
+        if (live != null && live.idle() != null) {
+            AttendanceProperties.LiveIdle idle = live.idle();
+            idleEnabled = idle.enabled();
+            idleAfterMs = Math.max(1000L, idle.idleAfterMs());
+            idleFps = Double.isFinite(idle.fps()) && idle.fps() > 0.0d ? idle.fps() : 3.0;
+            idleDetectScale = Double.isFinite(idle.detectionScale()) ? idle.detectionScale() : 0.5;
+        } else {
+            idleEnabled = false;
+        }
         blurThreshold = live != null ? live.blurVarianceThreshold() : 80.0;
         if (!Double.isFinite(blurThreshold) || blurThreshold <= 0.0d) {
             blurThreshold = 80.0;
@@ -210,6 +363,22 @@ public final class LiveRecognitionRuntime implements AutoCloseable {
         }
     }
 
+    private AdaptiveRateController createRateController() {
+        AttendanceProperties.LiveAutoTune autoTune = config.live() != null ? config.live().autoTune() : null;
+        if (autoTune == null || !autoTune.enabled()) {
+            return null;
+        }
+        int smallestFace = Math.max(minFace, config.detection() != null ? config.detection().minFace() : 0);
+        double faceFloor = autoTune.minScaledFace() / (double) Math.max(1, smallestFace);
+        double targetFps = Math.min(autoTune.targetFps(), Math.max(1.0d, config.camera().fps()));
+        return new AdaptiveRateController(
+                targetFps,
+                autoTune.minFps(),
+                Math.max(autoTune.minScale(), faceFloor),
+                autoTune.maxScale(),
+                detector.currentDownscale());
+    }
+
     private Webcam openCamera() {
         List<Webcam> webcams = Webcam.getWebcams();
         if (webcams.isEmpty()) {
@@ -235,7 +404,11 @@ public final class LiveRecognitionRuntime implements AutoCloseable {
     }
 
     private Recognizer loadRecognizer() throws IOException {
-        LBPHRecognizer lbph = new LBPHRecognizer(new FaceImageProcessor(config.preprocessing())).configureFrom(config);
+        AttendanceProperties.Lbph lbphConfig = config.recognition() != null ? config.recognition().lbph() : null;
+        FaceImageProcessor processor = new FaceImageProcessor(config.preprocessing());
+        Recognizer lbph = lbphConfig != null && lbphConfig.javaEngine()
+                ? new JavaLBPHRecognizer(processor).configureFrom(config)
+                : new LBPHRecognizer(processor).configureFrom(config);
         Path modelPath = state.modelPath();
         if (modelPath == null) {
             throw new IOException("Model path missing from session state");
@@ -254,42 +427,212 @@ public final class LiveRecognitionRuntime implements AutoCloseable {
         return lbph;
     }
 
-    private void loop() {
-        long frameIntervalMs = Math.max(20L, Math.round(1000.0 / Math.max(15.0, config.camera().fps())));
+    private void captureLoop() {
+        long activeIntervalMs = Math.max(20L, Math.round(1000.0 / Math.max(15.0, config.camera().fps())));
+        long idleIntervalMs = Math.max(activeIntervalMs, Math.round(1000.0 / idleFps));
         while (running.get()) {
             try {
+                long tunedIntervalMs = rateController != null ? rateController.captureIntervalMs() : activeIntervalMs;
+                long frameIntervalMs = lowPower ? Math.max(idleIntervalMs, tunedIntervalMs) : tunedIntervalMs;
+                long started = System.nanoTime();
                 BufferedImage image = webcam.getImage();
-                if (image == null) {
-                    continue;
+                if (image != null) {
+                    capturedFrames.offer(new CapturedFrame(image, started));
+                    captureStats.record(started);
+                }
+                long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+                long remainingMs = frameIntervalMs - elapsedMs;
+                if (remainingMs > 0) {
+                    // Waiting on the monitor lets the detect stage cut an idle-rate pause short.
+                    synchronized (captureWakeup) {
+                        captureWakeup.wait(remainingMs);
+                    }
                 }
-                processFrame(image);
-                Thread.sleep(frameIntervalMs);
             } catch (InterruptedException ex) {
                 Thread.currentThread().interrupt();
                 break;
             } catch (Exception ex) {
-                log.warn("Recognition loop error: {}", ex.getMessage(), ex);
-                eventBus.publish(new RecognitionEvent(
-                        RecognitionEventType.ERROR,
-                        Instant.now(),
-                        null,
-                        null,
-                        null,
-                        Double.NaN,
-                        ex.getMessage(),
-                        false,
-                        false));
+                publishLoopError("Capture", ex);
+            }
+        }
+    }
+
+    private void detectLoop() {
+        FrameBuffers buffers = new FrameBuffers();
+        try {
+            while (running.get()) {
+                try {
+                    CapturedFrame frame = capturedFrames.take();
+                    long started = System.nanoTime();
+                    boolean queued = processFrame(frame.image(), frame.capturedAt(), buffers);
+                    detectStats.record(started);
+                    if (rateController != null && !lowPower) {
+                        // A frame that queued faces reports its latency once they are recognized.
+                        if (!queued) {
+                            rateController.recordFrame(System.nanoTime() - frame.capturedAt());
+                        }
+                        detector.setAdaptiveDownscale(rateController.scale());
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (Exception ex) {
+                    publishLoopError("Detection", ex);
+                }
+            }
+        } finally {
+            buffers.release();
+            if (detector != null) {
+                detector.release();
+            }
+            if (tracker != null) {
+                tracker.release();
+            }
+            if (motionDetector != null) {
+                motionDetector.release();
+            }
+        }
+    }
+
+    private static int defaultRecognitionWorkers() {
+        return Math.max(1, Math.min(MAX_RECOGNITION_WORKERS, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    /**
+     * Starts the recognition pool. A thread-safe recognizer is shared by every worker.
+     * OpenCV's LBPH predictor is not thread-safe, so with it every worker owns its own
+     * replica; replicas beyond the first are loaded on the worker thread so start-up is not
+     * serialized behind N model reads.
+     */
+    private void startRecognitionWorkers(Recognizer primary) {
+        primaryRecognizer = primary;
+        AtomicInteger workerIds = new AtomicInteger();
+        recognitionQueue = new FrameHandoffQueue<>("detect->recognize",
+                recognitionWorkers * RECOGNITION_QUEUE_PER_WORKER, candidate -> candidate.discard(matPool));
+        recognizeExecutor = Executors.newFixedThreadPool(recognitionWorkers, r -> {
+            Thread thread = new Thread(r, "companion-recognize-worker-" + workerIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < recognitionWorkers; i++) {
+            Recognizer replica = i == 0 || primary.isThreadSafe() ? primary : null;
+            recognizeExecutor.submit(() -> recognizeLoop(replica));
+        }
+    }
+
+    private void recognizeLoop(Recognizer replica) {
+        Recognizer recognizer = replica;
+        if (recognizer == null) {
+            try {
+                recognizer = loadRecognizer();
+            } catch (Exception ex) {
+                publishLoopError("Recognition", ex);
+                return;
+            }
+        }
+        while (running.get()) {
+            RecognitionCandidate candidate = null;
+            try {
+                candidate = recognitionQueue.take();
+                long started = System.nanoTime();
+                recognizeCandidate(candidate, recognizer);
+                recognizeStats.record(started);
+                AdaptiveRateController controller = rateController;
+                if (controller != null && !lowPower) {
+                    controller.recordFrame(System.nanoTime() - candidate.capturedAt());
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception ex) {
+                publishLoopError("Recognition", ex);
+            } finally {
+                if (candidate != null) {
+                    candidate.discard(matPool);
+                }
             }
         }
     }
 
-    private void processFrame(BufferedImage image) {
-        Mat mat = OpenCVUtils.bufferedImageToMat(image);
+    private void publishLoopError(String stage, Exception ex) {
+        log.warn("{} stage error: {}", stage, ex.getMessage(), ex);
+        eventBus.publish(new RecognitionEvent(
+                RecognitionEventType.ERROR,
+                Instant.now(),
+                null,
+                null,
+                null,
+                Double.NaN,
+                ex.getMessage(),
+                false,
+                false));
+    }
+
+    /** Returns queue depth and latency counters for each pipeline stage. */
+    public List<StageMetrics> pipelineMetrics() {
+        return List.of(
+                captureStats.snapshot(null),
+                detectStats.snapshot(capturedFrames),
+                recognizeStats.snapshot(recognitionQueue));
+    }
+
+    /** Returns native buffer reuse counters for the frame pool. */
+    public Map<String, Long> matPoolMetrics() {
+        return Map.of(
+                "allocations", matPool.allocations(),
+                "reuses", matPool.reuses(),
+                "idle", (long) matPool.idle());
+    }
+
+    /** Returns the auto-tuned detection scale and capture interval, or an empty map when disabled. */
+    public Map<String, Object> autoTuneMetrics() {
+        AdaptiveRateController controller = rateController;
+        return controller != null ? controller.snapshot() : Map.of();
+    }
+
+    /** Returns recognition pool size and how many attempts finalized tracks avoided. */
+    public Map<String, Object> recognitionMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("workers", recognitionWorkers);
+        metrics.put("finalizedTracks", trackedFaces.values().stream().filter(TrackedFace::finalized).count());
+        metrics.put("finalizedSkips", finalizedSkips.get());
+        metrics.put("reverifications", reverifications.get());
+        if (primaryRecognizer instanceof JavaLBPHRecognizer javaRecognizer) {
+            metrics.put("matcher", javaRecognizer.metrics());
+        }
+        return metrics;
+    }
+
+    /** True while the session runs at the reduced idle capture rate. */
+    public boolean isLowPower() {
+        return lowPower;
+    }
+
+    /** Returns the latest frame-difference score and how much detection work it saved. */
+    public Map<String, Object> motionMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", motionDetector != null);
+        metrics.put("score", lastMotionScore);
+        metrics.put("static", sceneStatic);
+        metrics.put("staticFramesSkipped", staticFramesSkipped.get());
+        metrics.put("motionLimitedPasses", motionLimitedPasses.get());
+        return metrics;
+    }
+
+    /**
+     * Runs detection and tracking on one captured frame and queues its recognizable faces.
+     * Returns whether any face was queued for recognition.
+     */
+    private boolean processFrame(BufferedImage image, long capturedAt, FrameBuffers buffers) {
+        Mat mat = OpenCVUtils.bufferedImageToMat(image, matPool);
         if (mat.empty()) {
-            return;
+            matPool.recycle(mat);
+            return false;
         }
         try {
-            double variance = ImageQuality.laplacianVariance(mat);
+            Imgproc.cvtColor(mat, buffers.gray, Imgproc.COLOR_BGR2GRAY);
+            double variance = ImageQuality.laplacianVariance(buffers.gray, buffers.laplacian,
+                    buffers.mean, buffers.stddev);
             if (variance < blurThreshold) {
                 eventBus.publish(new RecognitionEvent(
                         RecognitionEventType.FRAME_PROCESSED,
@@ -301,27 +644,223 @@ public final class LiveRecognitionRuntime implements AutoCloseable {
                         "Frame rejected: too blurry",
                         false,
                         false));
-                return;
+                updatePowerMode(false, false);
+                return false;
             }
-            List<Rectangle> detections = detector.detect(mat);
-            List<Rectangle> filteredDetections = new ArrayList<>(detections.size());
-            for (Rectangle detection : detections) {
-                if (isLikelyFace(detection, mat.width(), mat.height())) {
-                    filteredDetections.add(detection);
+            MotionDetector.Sample motion = motionDetector != null ? motionDetector.measure(buffers.gray) : null;
+            framesSinceFullSweep++;
+            boolean staticScene = isStaticScene(motion);
+            if (motion != null) {
+                lastMotionScore = motion.score();
+                publishMotionTransition(motion.score());
+            }
+            if (staticScene) {
+                // Nothing moved: tracks keep their bounds, flags and lastSeen, so neither a live
+                // face expires nor a lost one is revived; the forced pass after
+                // max_static_frames ages them as usual.
+            } else if (shouldRunDetection()) {
+                List<Rectangle> detections = runDetectionPass(buffers.gray, motion);
+                List<Rectangle> filteredDetections = new ArrayList<>(detections.size());
+                for (Rectangle detection : detections) {
+                    if (isLikelyFace(detection, mat.width(), mat.height())) {
+                        filteredDetections.add(detection);
+                    }
+                }
+                trackGroup.update(filteredDetections);
+                framesSinceDetection = 0;
+                detectionRequested = false;
+                if (tracker != null) {
+                    tracker.refresh(trackGroup.getTracks(), buffers.gray);
+                }
+            } else {
+                TemplateTracker.Propagation propagation = tracker.propagate(trackGroup.getTracks(), buffers.gray);
+                trackGroup.propagate(propagation.bounds());
+                framesSinceDetection++;
+                if (propagation.lost() > 0) {
+                    detectionRequested = true;
+                }
+            }
+            boolean faceSeen = false;
+            for (FaceTrack track : trackGroup.getTracks()) {
+                if (track.wasUpdatedThisFrame()) {
+                    faceSeen = true;
+                    break;
                 }
             }
-            trackGroup.update(filteredDetections);
+            updatePowerMode(faceSeen, motion != null && motion.score() >= staticMotionScore);
             reconcileTrackedFaces();
             List<TrackedFace> snapshot = new ArrayList<>(trackedFaces.values());
+            boolean queued = false;
             for (TrackedFace tracked : snapshot) {
-                evaluateTrack(tracked, mat);
+                RecognitionCandidate candidate = prepareCandidate(tracked, mat, capturedAt);
+                if (candidate != null) {
+                    recognitionQueue.offer(candidate);
+                    queued = true;
+                }
             }
             window.updateTrackedFaces(snapshot);
+            return queued;
         } finally {
-            try { mat.release(); } catch (Exception ignored) {}
+            matPool.recycle(mat);
         }
     }
 
+    /**
+     * Full cascade detection runs every {@code live.detect.every_n_frames} frames, or on the
+     * next frame after the template tracker loses a face; in between, tracks are propagated.
+     */
+    private boolean shouldRunDetection() {
+        if (tracker == null || detectionRequested) {
+            return true;
+        }
+        return framesSinceDetection + 1 >= detectEveryFrames;
+    }
+
+    /**
+     * A frame is static when its motion score stays under {@code live.motion.static_score}.
+     * Static frames skip detection and tracking entirely, except that a pass is forced every
+     * {@code live.motion.max_static_frames} frames or when the tracker asked for one.
+     */
+    private boolean isStaticScene(MotionDetector.Sample motion) {
+        if (motion == null || detectionRequested) {
+            return false;
+        }
+        if (motion.score() >= staticMotionScore || staticFrames + 1 >= maxStaticFrames) {
+            staticFrames = 0;
+            if (sceneStatic && motion.score() >= staticMotionScore) {
+                sceneStatic = false;
+                motionTransition = "Motion detected; detection resumed";
+            }
+            return false;
+        }
+        staticFrames++;
+        staticFramesSkipped.incrementAndGet();
+        if (!sceneStatic) {
+            sceneStatic = true;
+            motionTransition = "Scene static; detection paused";
+        }
+        return true;
+    }
+
+    /**
+     * Drops to the idle capture rate and detection scale once no face has been tracked for
+     * {@code live.idle.after_ms}, and returns to full rate on the first motion or detection.
+     */
+    private void updatePowerMode(boolean faceSeen, boolean moving) {
+        if (!idleEnabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (faceSeen || lastFaceSeenAt == 0L) {
+            lastFaceSeenAt = now;
+        }
+        if (lowPower) {
+            if (faceSeen || moving) {
+                lastFaceSeenAt = now;
+                setLowPower(false, faceSeen ? "Face detected; resuming full frame rate" : "Motion detected; resuming full frame rate");
+            }
+        } else if (now - lastFaceSeenAt >= idleAfterMs) {
+            setLowPower(true, "No faces for " + TimeUnit.MILLISECONDS.toSeconds(idleAfterMs) + "s; entering low-power mode");
+        }
+    }
+
+    private void setLowPower(boolean enabled, String message) {
+        lowPower = enabled;
+        detector.setDownscaleOverride(enabled ? idleDetectScale : 0.0d);
+        if (!enabled) {
+            synchronized (captureWakeup) {
+                captureWakeup.notifyAll();
+            }
+        }
+        window.setLowPowerMode(enabled);
+        eventBus.publish(new RecognitionEvent(
+                RecognitionEventType.POWER_MODE_CHANGED,
+                Instant.now(),
+                null,
+                null,
+                null,
+                Double.NaN,
+                message,
+                true,
+                false));
+    }
+
+    /**
+     * Publishes the pass that starts or ends a static stretch, with its motion score. The
+     * score of every other pass only goes to {@link #motionMetrics()}: an event per frame
+     * would push attendance and review events out of the bus's replay window within seconds.
+     */
+    private void publishMotionTransition(double score) {
+        String message = motionTransition;
+        if (message == null) {
+            return;
+        }
+        motionTransition = null;
+        eventBus.publish(new RecognitionEvent(
+                RecognitionEventType.FRAME_PROCESSED,
+                Instant.now(),
+                null,
+                null,
+                null,
+                score,
+                message,
+                true,
+                false));
+    }
+
+    /**
+     * Scans only the neighbourhood of active tracks when region search is enabled, falling
+     * back to a full-frame sweep every {@code detect.roi.full_sweep_every} passes or when
+     * nothing is being tracked. A sweep is itself narrowed to the changed areas (plus the
+     * tracked faces) when motion is confined to a small part of the frame.
+     */
+    private List<Rectangle> runDetectionPass(Mat gray, MotionDetector.Sample motion) {
+        AttendanceProperties.Detection detection = config.detection();
+        AttendanceProperties.RegionSearch regionSearch = detection != null ? detection.regionSearch() : null;
+        List<Rectangle> regions = new ArrayList<>();
+        if (regionSearch != null && regionSearch.enabled()) {
+            for (FaceTrack track : trackGroup.getTracks()) {
+                if (track.getMatchBounds() != null) {
+                    regions.add(track.getMatchBounds());
+                }
+            }
+        }
+        if (regions.isEmpty() || passesSinceSweep + 1 >= regionSearch.fullSweepEvery()) {
+            passesSinceSweep = 0;
+            if (isMotionConfined(motion, gray.cols(), gray.rows())) {
+                motionLimitedPasses.incrementAndGet();
+                List<Rectangle> windows = new ArrayList<>(motion.regions());
+                for (FaceTrack track : trackGroup.getTracks()) {
+                    if (track.getMatchBounds() != null) {
+                        windows.add(track.getMatchBounds());
+                    }
+                }
+                return detector.detectIn(gray, windows);
+            }
+            framesSinceFullSweep = 0;
+            long started = System.nanoTime();
+            List<Rectangle> detections = detector.detect(gray);
+            if (rateController != null && !lowPower) {
+                rateController.recordFullSweep(System.nanoTime() - started);
+            }
+            return detections;
+        }
+        passesSinceSweep++;
+        return detector.detectAround(gray, regions, regionSearch.margin());
+    }
+
+    private boolean isMotionConfined(MotionDetector.Sample motion, int width, int height) {
+        if (motion == null || motion.regions().isEmpty() || motion.score() < staticMotionScore
+                || framesSinceFullSweep >= maxStaticFrames) {
+            return false;
+        }
+        double area = 0.0d;
+        for (Rectangle region : motion.regions()) {
+            area += (double) region.width * region.height;
+        }
+        return area / Math.max(1.0d, (double) width * height) < maxMotionCoverage;
+    }
+
     private void reconcileTrackedFaces() {
         int warmupFrames = Math.max(2, Math.min(minFrames, 5));
         Set<String> liveTrackIds = new HashSet<>();
@@ -352,65 +891,129 @@ public final class LiveRecognitionRuntime implements AutoCloseable {
         trackedFaces.keySet().removeIf(id -> !liveTrackIds.contains(id));
     }
 
-    private void evaluateTrack(TrackedFace tracked, Mat mat) {
+    /**
+     * Applies the recognition gates on the detect stage and copies the face ROI so the
+     * recognize stage never touches the shared frame.
+     */
+    private RecognitionCandidate prepareCandidate(TrackedFace tracked, Mat mat, long capturedAt) {
         FaceTrack track = tracked.track();
         if (track == null || !track.wasUpdatedThisFrame() || track.getMatchBounds() == null) {
-            return;
+            return null;
         }
         Rectangle bounds = track.getMatchBounds();
+        if (tracked.observe(bounds, System.currentTimeMillis(), reverifyJump, reverifyGapMs)) {
+            reverifications.incrementAndGet();
+        }
+        if (tracked.finalized()) {
+            finalizedSkips.incrementAndGet();
+            return null;
+        }
+        if (tracked.manualPrompted()) {
+            // The professor decides this track; recognizing it meanwhile would only be discarded.
+            return null;
+        }
         if (bounds.width < minFace || bounds.height < minFace) {
-            return;
+            return null;
         }
         if (track.getSeenFrames() < minFrames) {
-            return;
+            return null;
         }
         if (track.getMotionAccum() < minMotion) {
-            return;
+            return null;
         }
-        if (Duration.between(tracked.lastAttempt(), Instant.now()).toMillis() < attemptIntervalMs) {
-            return;
+        int intervalMs = fusionEnabled && tracked.evidence().pending()
+                ? Math.min(attemptIntervalMs, fusionSampleIntervalMs)
+                : attemptIntervalMs;
+        if (Duration.between(tracked.lastAttempt(), Instant.now()).toMillis() < intervalMs) {
+            return null;
         }
         Rect roiRect = clamp(bounds, mat.width(), mat.height());
         if (roiRect.width <= 0 || roiRect.height <= 0) {
-            return;
+            return null;
+        }
+        if (!tracked.beginRecognition()) {
+            return null;
         }
-        Mat face = new Mat(mat, roiRect);
+        Mat roi = new Mat(mat, roiRect);
+        Mat face = matPool.acquire(preprocessHeight, preprocessWidth, mat.type());
         try {
-            Imgproc.resize(face, face, new Size(preprocessWidth, preprocessHeight));
-            Recognizer.Prediction prediction = recognizer.recognize(face);
-            if (prediction == null) {
-                return;
-            }
-            String predictedId = prediction.id();
-            double distance = prediction.confidence();
-            tracked.setLastConfidence(distance);
-            tracked.markAttempt(Instant.now());
+            Imgproc.resize(roi, face, new Size(preprocessWidth, preprocessHeight));
+        } catch (RuntimeException ex) {
+            tracked.endRecognition();
+            matPool.recycle(face);
+            throw ex;
+        } finally {
+            try { roi.release(); } catch (Exception ignored) {}
+        }
+        return new RecognitionCandidate(tracked, face, capturedAt);
+    }
 
-            if (!StringUtils.isNotBlank(predictedId) || "unknown".equalsIgnoreCase(predictedId)) {
-                handleUnknown(tracked, distance);
-                return;
+    private void recognizeCandidate(RecognitionCandidate candidate, Recognizer recognizer) {
+        TrackedFace tracked = candidate.tracked();
+        Recognizer.Prediction prediction = recognizer.recognize(candidate.face());
+        if (prediction == null) {
+            return;
+        }
+        String predictedId = prediction.id();
+        double distance = prediction.confidence();
+        tracked.setLastConfidence(distance);
+        tracked.markAttempt(Instant.now());
+        if (tracked.manualPrompted()) {
+            // A review card is open: a later (fused) decision must not reject or finalize the
+            // track underneath it. The card's outcome, or its expiry, decides what happens next.
+            return;
+        }
+
+        if (!StringUtils.isNotBlank(predictedId) || "unknown".equalsIgnoreCase(predictedId)) {
+            handleUnknown(tracked, distance);
+            return;
+        }
+        if (missingStudents.contains(predictedId)) {
+            handleUnknown(tracked, distance);
+            return;
+        }
+        int streak = tracked.recordPrediction(predictedId);
+        if (tracked.hasTerminalState() && predictedId.equals(tracked.studentId())) {
+            // Re-confirmation of an already decided track: count towards the lock quietly
+            // instead of re-running the decision and re-publishing ATTENDANCE_SKIPPED.
+            if (streak >= lockAfterPredictions) {
+                tracked.setFinalized(true);
             }
-            if (missingStudents.contains(predictedId)) {
-                handleUnknown(tracked, distance);
+            return;
+        }
+        if (fusionEnabled) {
+            TrackEvidence.Verdict verdict = tracked.evidence().add(predictedId, distance,
+                    autoAcceptMaxDistance, manualReviewMaxDistance, autoAcceptMaxDistance * fusionStrongRatio,
+                    fusionMinSamples, fusionMaxSamples);
+            if (!verdict.conclusive()) {
+                tracked.setState(FaceTrackState.RECOGNIZING);
                 return;
             }
-            tracked.setStudentId(predictedId);
-            String friendlyName = studentNames.getOrDefault(predictedId, predictedId);
-            tracked.setStudentName(friendlyName);
-
-            if (distance <= autoAcceptMaxDistance) {
-                tracked.setState(FaceTrackState.AUTO_ACCEPTED);
-                tracked.setOverlayColor(new Color(16, 158, 72));
-                autoMarkAttendance(tracked, friendlyName, distance);
-            } else if (distance <= manualReviewMaxDistance) {
-                tracked.setState(FaceTrackState.MANUAL_REVIEW);
-                tracked.setOverlayColor(new Color(199, 128, 27));
-                requestManualConfirmation(tracked, friendlyName, distance);
-            } else {
-                handleUnknown(tracked, distance);
+            predictedId = verdict.studentId();
+            distance = verdict.distance();
+            tracked.setLastConfidence(distance);
+        }
+        tracked.setStudentId(predictedId);
+        String friendlyName = studentNames.getOrDefault(predictedId, predictedId);
+        tracked.setStudentName(friendlyName);
+
+        if (distance <= autoAcceptMaxDistance) {
+            tracked.setState(FaceTrackState.AUTO_ACCEPTED);
+            tracked.setOverlayColor(new Color(16, 158, 72));
+            autoMarkAttendance(tracked, friendlyName, distance);
+        } else if (distance <= manualReviewMaxDistance) {
+            tracked.setState(FaceTrackState.MANUAL_REVIEW);
+            tracked.setOverlayColor(new Color(199, 128, 27));
+            requestManualConfirmation(tracked, friendlyName, distance, candidate.face());
+        } else {
+            handleUnknown(tracked, distance);
+            if (fusionEnabled) {
+                // A fused rejection is final for this track until it drifts or is occluded.
+                tracked.setFinalized(true);
             }
-        } finally {
-            try { face.release(); } catch (Exception ignored) {}
+        }
+        if (tracked.hasTerminalState() && (fusionEnabled || streak >= lockAfterPredictions)) {
+            tracked.setFinalized(true);
         }
     }
 
@@ -452,13 +1055,18 @@ public final class LiveRecognitionRuntime implements AutoCloseable {
                                 false));
                     } else {
                         recordedStudents.remove(tracked.studentId());
+                        tracked.setFinalized(false);
                         tracked.setOverlayColor(new Color(170, 50, 50));
                         tracked.setState(FaceTrackState.IGNORED);
                     }
                 });
     }
 
-    private void requestManualConfirmation(TrackedFace tracked, String friendlyName, double distance) {
+    /**
+     * Queues a review card in the session window and returns immediately; the professor's
+     * answer arrives later through {@link #resolveManualReview} on the Swing thread.
+     */
+    private void requestManualConfirmation(TrackedFace tracked, String friendlyName, double distance, Mat face) {
         String studentId = tracked.studentId();
         if (studentId == null || studentId.isBlank()) {
             return;
@@ -472,6 +1080,7 @@ public final class LiveRecognitionRuntime implements AutoCloseable {
         }
         if (tracked.manualPromptAttempts() >= maxManualPrompts) {
             tracked.setState(FaceTrackState.MANUAL_REJECTED);
+            tracked.setFinalized(true);
             tracked.setOverlayColor(new Color(170, 50, 50));
             eventBus.publish(new RecognitionEvent(
                     RecognitionEventType.MANUAL_REJECTED,
@@ -486,14 +1095,43 @@ public final class LiveRecognitionRuntime implements AutoCloseable {
             return;
         }
         tracked.setManualPrompted(true);
-        boolean confirmed = window.promptManualConfirmation(friendlyName);
-        if (confirmed) {
+        SessionWindow.ManualReview review = new SessionWindow.ManualReview(
+                tracked.track() != null ? tracked.track().getId() : null,
+                studentId,
+                friendlyName,
+                distance,
+                createThumbnail(face));
+        eventBus.publish(new RecognitionEvent(
+                RecognitionEventType.MANUAL_CONFIRMATION_REQUIRED,
+                Instant.now(),
+                review.trackId(),
+                studentId,
+                friendlyName,
+                distance,
+                "Awaiting manual confirmation",
+                false,
+                true));
+        window.enqueueManualReview(review,
+                outcome -> resolveManualReview(tracked, studentId, friendlyName, distance, outcome));
+    }
+
+    private void resolveManualReview(TrackedFace tracked,
+                                     String studentId,
+                                     String friendlyName,
+                                     double distance,
+                                     SessionWindow.ReviewOutcome outcome) {
+        if (outcome == SessionWindow.ReviewOutcome.EXPIRED) {
+            tracked.setManualPrompted(false);
+            return;
+        }
+        if (outcome == SessionWindow.ReviewOutcome.CONFIRMED) {
             if (!recordedStudents.add(studentId)) {
                 markAttendanceAlreadyRecorded(tracked, friendlyName, distance, true);
                 return;
             }
             tracked.incrementManualPromptAttempts();
             tracked.setState(FaceTrackState.MANUAL_ACCEPTED);
+            tracked.setFinalized(true);
             tracked.setOverlayColor(new Color(16, 158, 72));
             submitAttendance(studentId, distance, true, "Manual confirmation from companion")
                     .thenAccept(record -> {
@@ -531,10 +1169,25 @@ public final class LiveRecognitionRuntime implements AutoCloseable {
         }
     }
 
+    private BufferedImage createThumbnail(Mat face) {
+        if (face == null || face.empty()) {
+            return null;
+        }
+        int width = REVIEW_THUMBNAIL_WIDTH;
+        int height = Math.max(1, (int) Math.round(face.rows() * (width / (double) face.cols())));
+        Mat thumbnail = OpenCVUtils.resize(face, width, height);
+        try {
+            return OpenCVUtils.matToBufferedImage(thumbnail);
+        } finally {
+            try { thumbnail.release(); } catch (Exception ignored) {}
+        }
+    }
+
     private void handleManualSubmissionFailure(TrackedFace tracked, String friendlyName, double distance) {
         if (tracked.manualPromptAttempts() >= maxManualPrompts) {
             tracked.setManualPrompted(false);
             tracked.setState(FaceTrackState.MANUAL_REJECTED);
+            tracked.setFinalized(true);
             tracked.setOverlayColor(new Color(170, 50, 50));
             eventBus.publish(new RecognitionEvent(
                     RecognitionEventType.MANUAL_REJECTED,
@@ -678,21 +1331,12 @@ public final class LiveRecognitionRuntime implements AutoCloseable {
         if (sessionId == null || sessionId.isBlank()) {
             return;
         }
-        HttpRequest.Builder builder = HttpRequest.newBuilder()
-                .uri(URI.create(baseUrl + "/sessions/" + sessionId + "/stop"))
-                .timeout(Duration.ofSeconds(5))
+        HttpRequest.Builder builder = http.request(CompanionHttpClient.Endpoint.SESSION_CONTROL,
+                        baseUrl + "/sessions/" + sessionId + "/stop", null)
                 .header("Content-Type", "application/json")
-                .header("Accept", "application/json")
                 .POST(HttpRequest.BodyPublishers.ofString("{\"action\":\"stop\"}"));
-        String serviceToken = settings.serviceToken() != null ? settings.serviceToken().trim() : "";
-        String resolvedCompanionToken = companionToken != null ? companionToken.trim() : "";
-        if (!serviceToken.isBlank()) {
-            builder.header("Authorization", "Bearer " + serviceToken);
-        } else if (!resolvedCompanionToken.isBlank()) {
-            builder.header("Authorization", "Bearer " + resolvedCompanionToken);
-            builder.header("X-Companion-Token", resolvedCompanionToken);
-        }
-        httpClient.send(builder.build(), HttpResponse.BodyHandlers.discarding());
+        http.authorize(builder, settings.serviceToken(), companionToken);
+        http.send(CompanionHttpClient.Endpoint.SESSION_CONTROL, builder.build(), HttpResponse.BodyHandlers.discarding());
     }
 
     private CompletableFuture<AttendanceRecordView> submitAttendance(String studentId,
@@ -708,90 +1352,518 @@ public final class LiveRecognitionRuntime implements AutoCloseable {
                                                                      boolean manual,
                                                                      String notes,
                                                                      String statusOverride) {
-        final String resolvedCompanionToken = companionToken != null ? companionToken.trim() : "";
-        final String resolvedServiceToken = settings.serviceToken() != null ? settings.serviceToken().trim() : "";
-        final String sessionId = state.sessionId() != null ? state.sessionId().trim() : "";
-        final String sectionId = state.sectionId() != null ? state.sectionId().trim() : "";
         final String backendBaseUrl = resolveBackendBaseUrl();
-        final boolean useCompanionEndpoint = resolvedServiceToken.isBlank()
-                && !resolvedCompanionToken.isBlank()
-                && !sessionId.isBlank()
-                && !sectionId.isBlank();
         if (backendBaseUrl == null || backendBaseUrl.isBlank()) {
             log.warn("Backend base URL missing; unable to submit attendance");
             return CompletableFuture.completedFuture(null);
         }
-        final String targetUrl = useCompanionEndpoint
-                ? backendBaseUrl + "/companion/sections/" + sectionId + "/sessions/" + sessionId
-                        + "/attendance"
-                : backendBaseUrl + "/attendance";
 
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                ObjectNode payload = objectMapper.createObjectNode();
-                payload.put("sessionId", state.sessionId());
-                payload.put("studentId", studentId);
-                String status = statusOverride != null && !statusOverride.isBlank()
-                        ? statusOverride
-                        : determineAttendanceStatus(Instant.now());
-                payload.put("status", status);
-                if (confidence != null && Double.isFinite(confidence)) {
-                    payload.put("confidenceScore", confidence);
-                }
-                payload.put("markingMethod", manual ? "manual" : "auto");
-                if (notes != null && !notes.isBlank()) {
-                    payload.put("notes", notes);
-                }
+        ObjectNode payload = objectMapper.createObjectNode();
+        payload.put("sessionId", state.sessionId());
+        payload.put("studentId", studentId);
+        String status = statusOverride != null && !statusOverride.isBlank()
+                ? statusOverride
+                : determineAttendanceStatus(Instant.now());
+        payload.put("status", status);
+        if (confidence != null && Double.isFinite(confidence)) {
+            payload.put("confidenceScore", confidence);
+        }
+        payload.put("markingMethod", manual ? "manual" : "auto");
+        if (notes != null && !notes.isBlank()) {
+            payload.put("notes", notes);
+        }
+        String key = UUID.randomUUID().toString();
+        payload.put("idempotencyKey", key);
+        AttendanceOutbox.Entry entry = new AttendanceOutbox.Entry(key, payload, Instant.now());
+        boolean durable = persistToOutbox(entry);
+
+        if (durable && (outboxFailures > 0 || reauthenticationRequired.get())) {
+            // The drainer is already backing off; queue behind it instead of adding another attempt.
+            log.info("Service unreachable; queued attendance payload: {}", payload);
+            return CompletableFuture.completedFuture(queueForRetry(entry, manual, confidence));
+        }
+        if (!usesCompanionAttendanceEndpoint() || !batchAttendanceSupported) {
+            return CompletableFuture.supplyAsync(() -> deliverAttendance(entry, durable, manual, confidence),
+                    attendanceExecutor);
+        }
+        log.info("Queueing attendance payload: {}", payload);
+        return attendanceBatcher.submit(payload)
+                .thenApply(result -> handleBatchResult(entry, durable, result, manual, confidence))
+                .exceptionallyCompose(ex -> {
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    if (isBatchEndpointMissing(cause)) {
+                        return CompletableFuture.supplyAsync(() -> deliverAttendance(entry, durable, manual,
+                                confidence), attendanceExecutor);
+                    }
+                    return CompletableFuture.completedFuture(handleSubmissionFailure(entry, durable, cause, manual,
+                            confidence));
+                });
+    }
+
+    private AttendanceRecordView deliverAttendance(AttendanceOutbox.Entry entry,
+                                                   boolean durable,
+                                                   boolean manual,
+                                                   Double confidence) {
+        try {
+            AttendanceRecordView record = postAttendance(entry, manual, confidence);
+            acknowledge(entry);
+            return record;
+        } catch (Exception ex) {
+            return handleSubmissionFailure(entry, durable, ex, manual, confidence);
+        }
+    }
+
+    private AttendanceRecordView handleBatchResult(AttendanceOutbox.Entry entry,
+                                                   boolean durable,
+                                                   JsonNode result,
+                                                   boolean manual,
+                                                   Double confidence) {
+        if (result == null) {
+            return handleSubmissionFailure(entry, durable,
+                    new IOException("Bulk attendance response has no result for " + entry.studentId()), manual,
+                    confidence);
+        }
+        acknowledge(entry);
+        if ("upserted".equals(safeText(result.get("outcome")))) {
+            JsonNode record = result.get("record");
+            return parseAttendanceRecord(record != null ? record.toString() : null, entry.studentId(), entry.status(),
+                    manual, confidence);
+        }
+        String error = safeText(result.get("error"));
+        log.warn("Attendance entry for {} rejected: {}", entry.studentId(), error);
+        publishAttendanceError(entry.studentId(), confidence, manual,
+                error != null ? error : "Attendance API rejected request");
+        return null;
+    }
+
+    /**
+     * Keeps a mark that failed for a transient reason, or because the credentials were
+     * rejected, in the outbox and reports it as provisionally recorded; anything else is
+     * dropped from the outbox and reported failed.
+     */
+    private AttendanceRecordView handleSubmissionFailure(AttendanceOutbox.Entry entry,
+                                                         boolean durable,
+                                                         Throwable cause,
+                                                         boolean manual,
+                                                         Double confidence) {
+        if (durable && isAuthenticationFailure(cause)) {
+            requireReauthentication(cause);
+            return parseAttendanceRecord(null, entry.studentId(), entry.status(), manual, confidence);
+        }
+        if (durable && isTransientFailure(cause)) {
+            log.warn("Attendance for {} not delivered ({}); queued for retry", entry.studentId(), cause.getMessage());
+            return queueForRetry(entry, manual, confidence);
+        }
+        acknowledge(entry);
+        log.warn("Attendance submission error: {}", cause.getMessage());
+        publishAttendanceError(entry.studentId(), confidence, manual,
+                cause instanceof CompanionHttpException ? "Attendance API rejected request" : cause.getMessage());
+        return null;
+    }
+
+    private AttendanceRecordView queueForRetry(AttendanceOutbox.Entry entry, boolean manual, Double confidence) {
+        scheduleOutboxDrain(OUTBOX_RETRY_BASE.toMillis());
+        return parseAttendanceRecord(null, entry.studentId(), entry.status(), manual, confidence);
+    }
+
+    private AttendanceRecordView postAttendance(AttendanceOutbox.Entry entry, boolean manual, Double confidence)
+            throws IOException, InterruptedException {
+        final String serviceToken = settings.serviceToken() != null ? settings.serviceToken().trim() : "";
+        final String resolvedCompanionToken = companionToken != null ? companionToken.trim() : "";
+        final String targetUrl = usesCompanionAttendanceEndpoint()
+                ? resolveBackendBaseUrl() + "/companion/sections/" + state.sectionId().trim() + "/sessions/"
+                        + state.sessionId().trim() + "/attendance"
+                : resolveBackendBaseUrl() + "/attendance";
+        log.info("Submitting attendance payload: {}", entry.payload());
+
+        HttpRequest.Builder builder = http.request(CompanionHttpClient.Endpoint.ATTENDANCE, targetUrl, null)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(entry.payload().toString()));
+        if (!CompanionHttpClient.hasCredentials(serviceToken, resolvedCompanionToken)) {
+            log.warn("Attendance submission missing authorization token; request will likely fail");
+        }
+        http.authorize(builder, serviceToken, resolvedCompanionToken);
+        HttpResponse<String> response = http.send(CompanionHttpClient.Endpoint.ATTENDANCE, builder.build(),
+                HttpResponse.BodyHandlers.ofString());
+        log.info("Attendance submission response (status={}): {}", response.statusCode(), response.body());
+        if (response.statusCode() >= 200 && response.statusCode() < 300) {
+            return parseAttendanceRecord(response.body(), entry.studentId(), entry.status(), manual, confidence);
+        }
+        log.warn("Attendance submission failed: HTTP {} - {}", response.statusCode(), response.body());
+        throw new CompanionHttpException(response.statusCode(), "Attendance submission failed: HTTP "
+                + response.statusCode());
+    }
+
+    private boolean usesCompanionAttendanceEndpoint() {
+        String serviceToken = settings.serviceToken() != null ? settings.serviceToken().trim() : "";
+        return serviceToken.isBlank()
+                && companionToken != null && !companionToken.isBlank()
+                && state.sessionId() != null && !state.sessionId().isBlank()
+                && state.sectionId() != null && !state.sectionId().isBlank();
+    }
+
+    private boolean isBatchEndpointMissing(Throwable cause) {
+        if (cause instanceof BatchEndpointMissingException) {
+            if (batchAttendanceSupported) {
+                batchAttendanceSupported = false;
+                log.info("Service has no bulk attendance endpoint; submitting records individually");
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Connectivity problems, server errors and throttling are worth retrying later; any
+     * other rejection means the mark itself is invalid, except rejected credentials, which
+     * {@link #isAuthenticationFailure} handles.
+     */
+    private static boolean isTransientFailure(Throwable cause) {
+        if (cause instanceof CompanionHttpException httpError) {
+            int status = httpError.statusCode();
+            return status == 408 || status == 425 || status == 429 || status >= 500;
+        }
+        return cause instanceof IOException || cause instanceof InterruptedException;
+    }
+
+    /** Retrying with the same token cannot succeed, but the marks themselves are fine. */
+    private static boolean isAuthenticationFailure(Throwable cause) {
+        return cause instanceof CompanionHttpException httpError
+                && (httpError.statusCode() == 401 || httpError.statusCode() == 403);
+    }
+
+    /**
+     * Stops replaying the outbox, whose marks stay in the session directory until the
+     * session is started again with fresh credentials, and reports the rejection once.
+     */
+    private void requireReauthentication(Throwable cause) {
+        if (!reauthenticationRequired.compareAndSet(false, true)) {
+            return;
+        }
+        synchronized (outboxDrainLock) {
+            if (outboxDrain != null) {
+                outboxDrain.cancel(false);
+                outboxDrain = null;
+            }
+        }
+        AttendanceOutbox outbox = attendanceOutbox;
+        int queued = outbox != null ? outbox.size() : 0;
+        log.warn("Service rejected the session credentials ({}); keeping {} queued attendance marks until the "
+                + "session is started again", cause.getMessage(), queued);
+        eventBus.publish(new RecognitionEvent(
+                RecognitionEventType.ERROR,
+                Instant.now(),
+                null,
+                null,
+                null,
+                Double.NaN,
+                "Sign-in expired: start the session again to deliver queued attendance",
+                false,
+                false));
+    }
+
+    private boolean persistToOutbox(AttendanceOutbox.Entry entry) {
+        AttendanceOutbox outbox = attendanceOutbox;
+        if (outbox == null) {
+            return false;
+        }
+        try {
+            outbox.append(entry);
+            return true;
+        } catch (IOException ex) {
+            log.warn("Unable to persist attendance for {} to the outbox: {}", entry.studentId(), ex.getMessage());
+            return false;
+        }
+    }
+
+    private void acknowledge(AttendanceOutbox.Entry entry) {
+        AttendanceOutbox outbox = attendanceOutbox;
+        if (outbox != null) {
+            outbox.acknowledge(entry.key());
+        }
+    }
+
+    private void openAttendanceOutbox() {
+        try {
+            attendanceOutbox = AttendanceOutbox.open(state.sessionDirectory(), objectMapper);
+        } catch (IOException ex) {
+            log.warn("Attendance outbox unavailable; marks will not survive outages: {}", ex.getMessage());
+            return;
+        }
+        List<AttendanceOutbox.Entry> restored = attendanceOutbox.pending();
+        for (AttendanceOutbox.Entry entry : restored) {
+            if (entry.studentId() != null && isRecordedStatus(entry.status())) {
+                recordedStudents.add(entry.studentId());
+            }
+        }
+        if (!restored.isEmpty()) {
+            scheduleOutboxDrain(OUTBOX_RETRY_BASE.toMillis());
+        }
+    }
+
+    private void scheduleOutboxDrain(long delayMillis) {
+        synchronized (outboxDrainLock) {
+            if (attendanceOutbox == null || attendanceExecutor.isShutdown() || reauthenticationRequired.get()
+                    || (outboxDrain != null && !outboxDrain.isDone())) {
+                return;
+            }
+            outboxDrain = attendanceExecutor.schedule(this::drainOutbox, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Replays one batch of queued marks. A transient failure backs off exponentially with
+     * jitter, so a room full of companions does not retry in lockstep when the network
+     * returns; a success drains the next batch straight away. Rejected credentials end the
+     * replay with the marks still queued.
+     */
+    private void drainOutbox() {
+        synchronized (outboxDrainLock) {
+            outboxDrain = null;
+        }
+        AttendanceOutbox outbox = attendanceOutbox;
+        if (outbox == null || resolveBackendBaseUrl() == null) {
+            return;
+        }
+        List<AttendanceOutbox.Entry> due = outbox.pending(ATTENDANCE_BATCH_SIZE, Instant.now().minus(OUTBOX_GRACE));
+        if (due.isEmpty()) {
+            if (outbox.size() > 0) {
+                scheduleOutboxDrain(OUTBOX_GRACE.toMillis());
+            }
+            return;
+        }
+        try {
+            int delivered = deliverQueued(due);
+            outboxFailures = 0;
+            outboxDelivered.addAndGet(delivered);
+            log.info("Delivered {} queued attendance marks ({} still queued)", delivered, outbox.size());
+            if (outbox.size() > 0) {
+                scheduleOutboxDrain(0L);
+            }
+        } catch (Exception ex) {
+            if (isAuthenticationFailure(ex)) {
+                requireReauthentication(ex);
+                return;
+            }
+            int failures = ++outboxFailures;
+            long ceiling = Math.min(OUTBOX_RETRY_MAX.toMillis(),
+                    OUTBOX_RETRY_BASE.toMillis() << Math.min(failures, 16));
+            long delay = ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+            log.info("Attendance outbox replay failed ({}); {} marks queued, retrying in {}ms", ex.getMessage(),
+                    outbox.size(), delay);
+            scheduleOutboxDrain(delay);
+        }
+    }
 
-                log.info("Submitting attendance payload: {}", payload);
-
-                HttpRequest.Builder builder = HttpRequest.newBuilder()
-                        .uri(URI.create(targetUrl))
-                        .timeout(Duration.ofSeconds(5))
-                        .header("Content-Type", "application/json")
-                        .header("Accept", "application/json")
-                        .POST(HttpRequest.BodyPublishers.ofString(payload.toString()));
-                if (!resolvedServiceToken.isBlank()) {
-                    builder.header("Authorization", "Bearer " + resolvedServiceToken);
-                } else if (!resolvedCompanionToken.isBlank()) {
-                    builder.header("Authorization", "Bearer " + resolvedCompanionToken);
-                    if (useCompanionEndpoint) {
-                        builder.header("X-Companion-Token", resolvedCompanionToken);
+    /**
+     * Sends queued marks, in one bulk request when the service supports it. Marks the
+     * service rejects outright are dropped; a transient or authentication failure is thrown
+     * so the drain backs off or stops.
+     */
+    private int deliverQueued(List<AttendanceOutbox.Entry> due) throws Exception {
+        int delivered = 0;
+        if (usesCompanionAttendanceEndpoint() && batchAttendanceSupported) {
+            List<ObjectNode> payloads = due.stream().map(AttendanceOutbox.Entry::payload).toList();
+            List<JsonNode> results = null;
+            try {
+                results = postAttendanceBatch(payloads);
+            } catch (BatchEndpointMissingException ex) {
+                isBatchEndpointMissing(ex);
+            }
+            if (results != null) {
+                for (int i = 0; i < due.size(); i++) {
+                    JsonNode result = results.get(i);
+                    if (result == null) {
+                        continue;
+                    }
+                    AttendanceOutbox.Entry entry = due.get(i);
+                    acknowledge(entry);
+                    if ("upserted".equals(safeText(result.get("outcome")))) {
+                        JsonNode record = result.get("record");
+                        onQueuedAttendanceDelivered(entry, parseAttendanceRecord(record != null ? record.toString()
+                                : null, entry.studentId(), entry.status(), isManual(entry), null));
+                        delivered++;
+                    } else {
+                        onQueuedAttendanceRejected(entry, safeText(result.get("error")));
                     }
-                } else {
-                    log.warn("Attendance submission missing authorization token; request will likely fail");
                 }
-                HttpResponse<String> response = httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofString());
-                log.info("Attendance submission response (status={}): {}", response.statusCode(), response.body());
-                if (response.statusCode() >= 200 && response.statusCode() < 300) {
-                    return parseAttendanceRecord(response.body(), studentId, status, manual, confidence);
+                return delivered;
+            }
+        }
+        for (AttendanceOutbox.Entry entry : due) {
+            try {
+                AttendanceRecordView record = postAttendance(entry, isManual(entry), null);
+                acknowledge(entry);
+                onQueuedAttendanceDelivered(entry, record);
+                delivered++;
+            } catch (CompanionHttpException ex) {
+                if (isTransientFailure(ex) || isAuthenticationFailure(ex)) {
+                    throw ex;
                 }
-                log.warn("Attendance submission failed: HTTP {} - {}", response.statusCode(), response.body());
-                eventBus.publish(new RecognitionEvent(
-                        RecognitionEventType.ERROR,
-                        Instant.now(),
-                        null,
-                        studentId,
-                        studentNames.getOrDefault(studentId, studentId),
-                        confidence != null && Double.isFinite(confidence) ? confidence : Double.NaN,
-                        "Attendance API rejected request",
-                        false,
-                        manual));
-            } catch (Exception ex) {
-                log.warn("Attendance submission error: {}", ex.getMessage());
-                eventBus.publish(new RecognitionEvent(
-                        RecognitionEventType.ERROR,
-                        Instant.now(),
-                        null,
-                        studentId,
-                        studentNames.getOrDefault(studentId, studentId),
-                        confidence != null && Double.isFinite(confidence) ? confidence : Double.NaN,
-                        ex.getMessage(),
-                        false,
-                        manual));
+                acknowledge(entry);
+                onQueuedAttendanceRejected(entry, ex.getMessage());
             }
-            return null;
-        }, attendanceExecutor);
+        }
+        return delivered;
+    }
+
+    private void onQueuedAttendanceDelivered(AttendanceOutbox.Entry entry, AttendanceRecordView record) {
+        if (window != null) {
+            updateRosterFromRecord(record);
+        }
+        eventBus.publish(new RecognitionEvent(
+                RecognitionEventType.ATTENDANCE_RECORDED,
+                Instant.now(),
+                null,
+                entry.studentId(),
+                studentNames.getOrDefault(entry.studentId(), entry.studentId()),
+                record != null && record.confidence() != null ? record.confidence() : Double.NaN,
+                "Queued attendance delivered",
+                true,
+                isManual(entry)));
+    }
+
+    private void onQueuedAttendanceRejected(AttendanceOutbox.Entry entry, String error) {
+        log.warn("Queued attendance for {} rejected: {}", entry.studentId(), error);
+        if (isRecordedStatus(entry.status())) {
+            recordedStudents.remove(entry.studentId());
+        }
+        publishAttendanceError(entry.studentId(), null, isManual(entry),
+                error != null ? error : "Attendance API rejected queued request");
+    }
+
+    private static boolean isManual(AttendanceOutbox.Entry entry) {
+        return "manual".equals(entry.payload().path("markingMethod").asText());
+    }
+
+    private static boolean isRecordedStatus(String status) {
+        return "present".equalsIgnoreCase(status) || "late".equalsIgnoreCase(status);
+    }
+
+    /** Returns how many attendance marks are waiting in the offline outbox and how many it has delivered. */
+    public Map<String, Object> attendanceMetrics() {
+        AttendanceOutbox outbox = attendanceOutbox;
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("durable", outbox != null);
+        metrics.put("queued", outbox != null ? outbox.size() : 0);
+        metrics.put("delivered", outboxDelivered.get());
+        metrics.put("consecutiveFailures", outboxFailures);
+        metrics.put("reauthenticationRequired", reauthenticationRequired.get());
+        metrics.put("bulk", batchAttendanceSupported);
+        return metrics;
+    }
+
+    /**
+     * Sends one coalesced batch to the companion bulk endpoint and returns the per-entry
+     * results ordered like {@code payloads}.
+     */
+    private List<JsonNode> postAttendanceBatch(List<ObjectNode> payloads) throws IOException, InterruptedException {
+        CompanionChannel current = channel;
+        if (current != null && current.isOpen()) {
+            try {
+                List<JsonNode> results = orderBatchResults(current.submitAttendance(payloads), payloads.size());
+                log.info("Submitted {} attendance records over the companion channel", payloads.size());
+                return results;
+            } catch (IOException ex) {
+                log.debug("Companion channel submission failed, retrying over HTTP: {}", ex.getMessage());
+            }
+        }
+        String sessionId = state.sessionId() != null ? state.sessionId().trim() : "";
+        String sectionId = state.sectionId() != null ? state.sectionId().trim() : "";
+        String url = resolveBackendBaseUrl() + "/companion/sections/" + sectionId + "/sessions/" + sessionId
+                + "/attendance:batch";
+        ArrayNode body = objectMapper.createArrayNode();
+        payloads.forEach(body::add);
+        HttpRequest.Builder builder = http.request(CompanionHttpClient.Endpoint.ATTENDANCE, url, null)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()));
+        http.authorize(builder, null, companionToken);
+        HttpResponse<String> response = http.send(CompanionHttpClient.Endpoint.ATTENDANCE, builder.build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() == 405
+                || (response.statusCode() == 404 && !isServiceError(response.body()))) {
+            throw new BatchEndpointMissingException(response.statusCode());
+        }
+        if (response.statusCode() < 200 || response.statusCode() >= 300) {
+            throw new CompanionHttpException(response.statusCode(),
+                    "Bulk attendance submission failed: HTTP " + response.statusCode() + " - " + response.body());
+        }
+        JsonNode root = objectMapper.readTree(response.body());
+        if (root == null || !root.isArray()) {
+            throw new IOException("Unexpected bulk attendance response");
+        }
+        log.info("Submitted {} attendance records in one request (status={})", payloads.size(),
+                response.statusCode());
+        return orderBatchResults(root, payloads.size());
+    }
+
+    /**
+     * Whether {@code body} is an error answered by the attendance controller itself, such as
+     * an unknown session, rather than the framework's response for an unmapped path.
+     */
+    private boolean isServiceError(String body) {
+        if (body == null || body.isBlank()) {
+            return false;
+        }
+        try {
+            JsonNode node = objectMapper.readTree(body);
+            return node != null && "error".equals(safeText(node.get("status"))) && node.hasNonNull("message");
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    /** The service answered the bulk path as unknown, so it predates the bulk endpoint. */
+    private static final class BatchEndpointMissingException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private BatchEndpointMissingException(int statusCode) {
+            super("Bulk attendance endpoint unavailable: HTTP " + statusCode);
+        }
+    }
+
+    private static List<JsonNode> orderBatchResults(JsonNode results, int size) {
+        JsonNode[] ordered = new JsonNode[size];
+        for (JsonNode result : results) {
+            int index = result.path("index").asInt(-1);
+            if (index >= 0 && index < ordered.length) {
+                ordered[index] = result;
+            }
+        }
+        return Arrays.asList(ordered);
+    }
+
+    /** Applies an attendance change pushed by the service, such as an edit made on the dashboard. */
+    private void onRosterPushed(JsonNode payload) {
+        String studentId = safeText(payload.get("student_id"));
+        if (studentId == null || studentId.isBlank()) {
+            return;
+        }
+        Double confidence = payload.hasNonNull("confidence") ? payload.get("confidence").asDouble() : null;
+        AttendanceRecordView record = new AttendanceRecordView(studentId, safeText(payload.get("status")),
+                parseTimestamp(safeText(payload.get("timestamp"))), null, confidence, null, null);
+        try {
+            attendanceExecutor.execute(() -> {
+                if (window != null) {
+                    updateRosterFromRecord(record);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            log.debug("Ignoring roster change after shutdown: {}", ex.getMessage());
+        }
+    }
+
+    private void publishAttendanceError(String studentId, Double confidence, boolean manual, String message) {
+        eventBus.publish(new RecognitionEvent(
+                RecognitionEventType.ERROR,
+                Instant.now(),
+                null,
+                studentId,
+                studentNames.getOrDefault(studentId, studentId),
+                confidence != null && Double.isFinite(confidence) ? confidence : Double.NaN,
+                message,
+                false,
+                manual));
     }
 
     private void loadInitialRoster() {
@@ -843,22 +1915,13 @@ public final class LiveRecognitionRuntime implements AutoCloseable {
         }
         try {
             String url = baseUrl + "/companion/sections/" + sectionId + "/sessions/" + sessionId + "/roster";
-            HttpRequest.Builder builder = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .timeout(Duration.ofSeconds(5))
-                    .header("Accept", "application/json")
-                    .GET();
-            String serviceToken = settings.serviceToken() != null ? settings.serviceToken().trim() : "";
-            String resolvedCompanionToken = companionToken != null ? companionToken.trim() : "";
-            if (!serviceToken.isBlank()) {
-                builder.header("Authorization", "Bearer " + serviceToken);
-            } else if (!resolvedCompanionToken.isBlank()) {
-                builder.header("Authorization", "Bearer " + resolvedCompanionToken);
-                builder.header("X-Companion-Token", resolvedCompanionToken);
-            } else {
+            HttpRequest.Builder builder = http.request(CompanionHttpClient.Endpoint.SESSION_CONTROL, url, null).GET();
+            if (!CompanionHttpClient.hasCredentials(settings.serviceToken(), companionToken)) {
                 log.warn("Roster fetch missing authorization token; request may fail");
             }
-            HttpResponse<String> response = httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+            http.authorize(builder, settings.serviceToken(), companionToken);
+            HttpResponse<String> response = http.send(CompanionHttpClient.Endpoint.SESSION_CONTROL, builder.build(),
+                    HttpResponse.BodyHandlers.ofString());
             if (response.statusCode() >= 200 && response.statusCode() < 300) {
                 String body = response.body();
                 if (body == null || body.isBlank()) {
@@ -963,6 +2026,7 @@ public final class LiveRecognitionRuntime implements AutoCloseable {
         if (record.status() != null
                 && ("present".equalsIgnoreCase(record.status()) || "late".equalsIgnoreCase(record.status()))) {
             recordedStudents.add(studentId);
+            window.dismissManualReviews(studentId);
         } else {
             recordedStudents.remove(studentId);
         }
@@ -1034,6 +2098,43 @@ public final class LiveRecognitionRuntime implements AutoCloseable {
         return null;
     }
 
+    /** A captured frame and the {@link System#nanoTime()} its capture started. */
+    private record CapturedFrame(BufferedImage image, long capturedAt) {
+    }
+
+    private record RecognitionCandidate(TrackedFace tracked, Mat face, long capturedAt) {
+        void discard(MatPool pool) {
+            tracked.endRecognition();
+            pool.recycle(face);
+        }
+    }
+
+    /** Per-frame scratch Mats owned by the detect stage thread. */
+    private static final class FrameBuffers {
+        private final Mat gray = new Mat();
+        private final Mat laplacian = new Mat();
+        private final MatOfDouble mean = new MatOfDouble();
+        private final MatOfDouble stddev = new MatOfDouble();
+
+        void release() {
+            try { gray.release(); } catch (Exception ignored) {}
+            try { laplacian.release(); } catch (Exception ignored) {}
+            try { mean.release(); } catch (Exception ignored) {}
+            try { stddev.release(); } catch (Exception ignored) {}
+        }
+    }
+
+    /** Point-in-time view of a pipeline stage's hand-off queue and processing latency. */
+    public record StageMetrics(String stage,
+                               int queueDepth,
+                               int queueCapacity,
+                               long processed,
+                               long dropped,
+                               double lastLatencyMs,
+                               double averageLatencyMs,
+                               double maxLatencyMs) {
+    }
+
     private record AttendanceRecordView(String studentId,
                                         String status,
                                         Instant markedAt,
@@ -1084,11 +2185,24 @@ public final class LiveRecognitionRuntime implements AutoCloseable {
     @Override
     public void close() {
         running.set(false);
-        executor.shutdownNow();
+        captureExecutor.shutdownNow();
+        detectExecutor.shutdownNow();
+        if (recognizeExecutor != null) {
+            recognizeExecutor.shutdownNow();
+        }
         attendanceExecutor.shutdownNow();
-        if (windowEventListener != null) {
-            eventBus.unsubscribe(windowEventListener);
-            windowEventListener = null;
+        attendanceBatcher.flush();
+        if (attendanceOutbox != null) {
+            attendanceOutbox.close();
+        }
+        capturedFrames.clear();
+        if (recognitionQueue != null) {
+            recognitionQueue.clear();
+        }
+        matPool.clear();
+        if (windowEvents != null) {
+            windowEvents.close();
+            windowEvents = null;
         }
         if (window != null) {
             window.close();
@@ -0,0 +1,53 @@
+package com.smartattendance.companion.recognition;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency counters for a single stage of the live recognition pipeline.
+ */
+final class PipelineStageStats {
+
+    private static final double SMOOTHING = 0.2d;
+
+    private final String stage;
+    private final AtomicLong processed = new AtomicLong();
+    private volatile long lastNanos;
+    private volatile long maxNanos;
+    private volatile double averageNanos = Double.NaN;
+
+    PipelineStageStats(String stage) {
+        this.stage = stage;
+    }
+
+    /** Records one unit of work that started at {@code startNanos} (from {@link System#nanoTime()}). */
+    void record(long startNanos) {
+        long elapsed = Math.max(0L, System.nanoTime() - startNanos);
+        processed.incrementAndGet();
+        synchronized (this) {
+            lastNanos = elapsed;
+            if (elapsed > maxNanos) {
+                maxNanos = elapsed;
+            }
+            averageNanos = Double.isNaN(averageNanos)
+                    ? elapsed
+                    : averageNanos + SMOOTHING * (elapsed - averageNanos);
+        }
+    }
+
+    double averageMillis() {
+        double avg = averageNanos;
+        return Double.isNaN(avg) ? 0.0d : avg / 1_000_000.0d;
+    }
+
+    LiveRecognitionRuntime.StageMetrics snapshot(FrameHandoffQueue<?> input) {
+        return new LiveRecognitionRuntime.StageMetrics(
+                stage,
+                input != null ? input.depth() : 0,
+                input != null ? input.capacity() : 0,
+                processed.get(),
+                input != null ? input.dropped() : 0L,
+                lastNanos / 1_000_000.0d,
+                averageMillis(),
+                maxNanos / 1_000_000.0d);
+    }
+}
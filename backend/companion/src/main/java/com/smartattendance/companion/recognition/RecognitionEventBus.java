@@ -1,57 +1,308 @@
 package com.smartattendance.companion.recognition;
 
-import java.util.ArrayDeque;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 /**
- * Simple in-memory event bus that stores recent recognition events and allows
- * listeners to subscribe for updates (UI overlays, HTTP streaming, etc.).
+ * In-memory event bus for recognition events (UI overlays, HTTP streaming, forwarding).
+ * Events are written into a fixed ring indexed by a monotonically increasing sequence;
+ * publishing claims a sequence, stores the event and wakes the subscribers, without taking
+ * a lock or running any listener, so a slow listener can never stall the recognition loop.
+ *
+ * <p>Each subscriber reads the ring at its own cursor on its own daemon thread. A
+ * subscriber that falls more than its {@code maxLag} events behind, or is lapped by the
+ * ring, overflows: under {@link OverflowPolicy#DROP_OLDEST} it skips the oldest half of its
+ * backlog and carries on, under {@link OverflowPolicy#DISCONNECT} its subscription ends.
+ * {@link #snapshot()} reads the most recent {@link #MAX_HISTORY} events straight from the
+ * ring.
+ *
+ * <p>Sequences start at the bus's creation time in microseconds, so they keep increasing
+ * across sessions and a client resuming from a sequence of an earlier session is recognised
+ * by {@link #since} as too old rather than replayed from the wrong point.
  */
 public final class RecognitionEventBus {
 
+    private static final Logger log = LoggerFactory.getLogger(RecognitionEventBus.class);
     private static final int MAX_HISTORY = 256;
+    private static final int RING_CAPACITY = 1024;
+    private static final int RING_MASK = RING_CAPACITY - 1;
+    /** Upper bound on a subscriber's sleep; publishers unpark it as soon as there is work. */
+    private static final long IDLE_PARK_NANOS = TimeUnit.SECONDS.toNanos(1);
+    /** How often a closing caller checks whether the subscriber has caught up. */
+    private static final long CLOSE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /** What happens to a subscriber that falls too far behind the publishers. */
+    public enum OverflowPolicy {
+        /** Skip the oldest half of the backlog and keep delivering. */
+        DROP_OLDEST,
+        /** End the subscription; the subscriber learns through {@link Subscription#isActive()}. */
+        DISCONNECT
+    }
+
+    /** Receives each event together with its sequence. */
+    @FunctionalInterface
+    public interface SequencedListener {
+        void accept(long sequence, RecognitionEvent event);
+    }
+
+    /** An event as stored in the ring. */
+    public record SequencedEvent(long sequence, RecognitionEvent event) {
+    }
 
-    private final CopyOnWriteArrayList<Consumer<RecognitionEvent>> listeners = new CopyOnWriteArrayList<>();
-    private final Deque<RecognitionEvent> history = new ArrayDeque<>();
+    private final AtomicReferenceArray<SequencedEvent> ring = new AtomicReferenceArray<>(RING_CAPACITY);
+    private final long firstSequence = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+    private final AtomicLong nextSequence = new AtomicLong(firstSequence);
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final AtomicInteger subscriberIds = new AtomicInteger();
 
     public void publish(RecognitionEvent event) {
         if (event == null) {
             return;
         }
-        synchronized (history) {
-            history.addLast(event);
-            while (history.size() > MAX_HISTORY) {
-                history.removeFirst();
-            }
-        }
-        for (Consumer<RecognitionEvent> listener : listeners) {
-            try {
-                listener.accept(event);
-            } catch (Exception ignored) {
-            }
+        long sequence = nextSequence.getAndIncrement();
+        ring.set(index(sequence), new SequencedEvent(sequence, event));
+        for (Subscription subscription : subscriptions) {
+            LockSupport.unpark(subscription.thread);
         }
     }
 
+    /** The most recent events still in the ring, oldest first. */
     public List<RecognitionEvent> snapshot() {
-        synchronized (history) {
-            return new ArrayList<>(history);
+        List<RecognitionEvent> events = new ArrayList<>(MAX_HISTORY);
+        for (SequencedEvent entry : since(nextSequence.get() - MAX_HISTORY - 1, MAX_HISTORY)) {
+            events.add(entry.event());
         }
+        return events;
+    }
+
+    /** The sequence the next published event will get. */
+    public long nextSequence() {
+        return nextSequence.get();
+    }
+
+    /** Whether every event after {@code sequence} is still in the ring. */
+    public boolean canResumeAfter(long sequence) {
+        long head = nextSequence.get();
+        return sequence >= firstSequence - 1 && sequence < head && head - sequence <= RING_CAPACITY;
     }
 
-    public void subscribe(Consumer<RecognitionEvent> listener) {
-        if (listener != null) {
-            listeners.add(listener);
+    /**
+     * Up to the latest {@code limit} events published after {@code afterSequence}, oldest
+     * first. Stops at the first event whose sequence is claimed but not yet stored, so a
+     * caller can follow on with a subscription without missing it.
+     */
+    public List<SequencedEvent> since(long afterSequence, int limit) {
+        long head = nextSequence.get();
+        long from = Math.max(Math.max(afterSequence + 1, firstSequence), head - Math.min(limit, RING_CAPACITY));
+        List<SequencedEvent> events = new ArrayList<>((int) Math.max(0L, head - from));
+        for (long sequence = from; sequence < head; sequence++) {
+            SequencedEvent entry = ring.get(index(sequence));
+            if (entry == null || entry.sequence() < sequence) {
+                break;
+            }
+            // A newer sequence means the slot was already reused; that event is gone.
+            if (entry.sequence() == sequence) {
+                events.add(entry);
+            }
         }
+        return events;
+    }
+
+    /** Subscribes from the next published event, dropping the oldest events when it falls a ring behind. */
+    public Subscription subscribe(Consumer<RecognitionEvent> listener) {
+        return subscribe("subscriber-" + subscriberIds.incrementAndGet(), listener, OverflowPolicy.DROP_OLDEST,
+                RING_CAPACITY);
+    }
+
+    /**
+     * Subscribes {@code listener} from the next published event. It is called on a dedicated
+     * thread named after {@code name}, and overflows under {@code policy} once it is more than
+     * {@code maxLag} events behind (capped at the ring's capacity).
+     */
+    public Subscription subscribe(String name, Consumer<RecognitionEvent> listener, OverflowPolicy policy,
+                                  int maxLag) {
+        Objects.requireNonNull(listener, "listener");
+        return subscribe(name, listener, (sequence, event) -> listener.accept(event), policy, maxLag);
+    }
+
+    /** Like {@link #subscribe(String, Consumer, OverflowPolicy, int)}, with each event's sequence. */
+    public Subscription subscribe(String name, SequencedListener listener, OverflowPolicy policy, int maxLag) {
+        Objects.requireNonNull(listener, "listener");
+        return subscribe(name, listener, listener, policy, maxLag);
+    }
+
+    private Subscription subscribe(String name, Object key, SequencedListener listener, OverflowPolicy policy,
+                                   int maxLag) {
+        Subscription subscription = new Subscription(name, key, listener,
+                policy != null ? policy : OverflowPolicy.DROP_OLDEST,
+                Math.max(1, Math.min(maxLag, RING_CAPACITY)), nextSequence.get());
+        subscriptions.add(subscription);
+        subscription.thread.start();
+        return subscription;
     }
 
     public void unsubscribe(Consumer<RecognitionEvent> listener) {
-        if (listener != null) {
-            listeners.remove(listener);
+        if (listener == null) {
+            return;
+        }
+        for (Subscription subscription : subscriptions) {
+            if (subscription.key == listener) {
+                subscription.close();
+            }
+        }
+    }
+
+    /** Returns the number of published events and each subscriber's lag and losses. */
+    public Map<String, Object> metrics() {
+        long head = nextSequence.get();
+        List<Map<String, Object>> subscribers = new ArrayList<>();
+        for (Subscription subscription : subscriptions) {
+            subscribers.add(subscription.metrics(head));
+        }
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("published", head - firstSequence);
+        metrics.put("capacity", RING_CAPACITY);
+        metrics.put("subscribers", subscribers);
+        return metrics;
+    }
+
+    private static int index(long sequence) {
+        return (int) (sequence & RING_MASK);
+    }
+
+    /** One subscriber's cursor into the ring and the thread draining it. */
+    public final class Subscription implements AutoCloseable {
+
+        private final String name;
+        private final Object key;
+        private final SequencedListener listener;
+        private final OverflowPolicy policy;
+        private final int maxLag;
+        private final Thread thread;
+        private final AtomicLong delivered = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private volatile long cursor;
+        private volatile boolean active = true;
+
+        private Subscription(String name, Object key, SequencedListener listener, OverflowPolicy policy,
+                             int maxLag, long startSequence) {
+            this.name = name;
+            this.key = key;
+            this.listener = listener;
+            this.policy = policy;
+            this.maxLag = maxLag;
+            this.cursor = startSequence;
+            this.thread = new Thread(this::drain, "recognition-events-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        /** Events published but not yet delivered to this subscriber. */
+        public long lag() {
+            return Math.max(0L, nextSequence.get() - cursor);
+        }
+
+        public long dropped() {
+            return dropped.get();
+        }
+
+        @Override
+        public void close() {
+            active = false;
+            subscriptions.remove(this);
+            LockSupport.unpark(thread);
+        }
+
+        /**
+         * Lets the listener receive every event published before this call, waiting at most
+         * {@code timeout} for it to catch up, then closes the subscription. Returns whether it
+         * caught up; a listener that is stuck or keeps failing only delays the close.
+         */
+        public boolean close(Duration timeout) {
+            long target = nextSequence.get();
+            long deadline = System.nanoTime() + Math.max(0L, timeout.toNanos());
+            if (Thread.currentThread() != thread) {
+                while (active && cursor < target && System.nanoTime() < deadline) {
+                    LockSupport.unpark(thread);
+                    LockSupport.parkNanos(this, CLOSE_POLL_NANOS);
+                }
+            }
+            boolean drained = cursor >= target;
+            close();
+            if (!drained) {
+                log.debug("Recognition event subscriber {} closed {} events short", name, target - cursor);
+            }
+            return drained;
+        }
+
+        private void drain() {
+            while (active) {
+                long position = cursor;
+                long head = nextSequence.get();
+                if (head - position > maxLag) {
+                    overflow(position, head);
+                    continue;
+                }
+                SequencedEvent slot = ring.get(index(position));
+                if (slot != null && slot.sequence() == position) {
+                    deliver(slot);
+                    cursor = position + 1;
+                } else if (slot != null && slot.sequence() > position) {
+                    overflow(position, head);
+                } else {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+            }
+        }
+
+        private void deliver(SequencedEvent entry) {
+            try {
+                listener.accept(entry.sequence(), entry.event());
+                delivered.incrementAndGet();
+            } catch (RuntimeException ex) {
+                log.debug("Recognition event listener {} failed: {}", name, ex.getMessage());
+            }
+        }
+
+        private void overflow(long position, long head) {
+            if (policy == OverflowPolicy.DISCONNECT) {
+                dropped.addAndGet(head - position);
+                log.info("Recognition event subscriber {} disconnected after falling {} events behind", name,
+                        head - position);
+                close();
+                return;
+            }
+            long resume = Math.max(position + 1, head - maxLag / 2);
+            dropped.addAndGet(resume - position);
+            cursor = resume;
+        }
+
+        private Map<String, Object> metrics(long head) {
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            metrics.put("name", name);
+            metrics.put("policy", policy.name().toLowerCase());
+            metrics.put("lag", Math.max(0L, head - cursor));
+            metrics.put("maxLag", maxLag);
+            metrics.put("delivered", delivered.get());
+            metrics.put("dropped", dropped.get());
+            return metrics;
         }
     }
 }
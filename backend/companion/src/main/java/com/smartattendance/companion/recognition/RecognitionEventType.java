@@ -7,6 +7,7 @@ public enum RecognitionEventType {
     CAMERA_STARTED,
     CAMERA_STOPPED,
     FRAME_PROCESSED,
+    POWER_MODE_CHANGED,
     FACE_DETECTED,
     TRACK_LOST,
     AUTO_ACCEPTED,
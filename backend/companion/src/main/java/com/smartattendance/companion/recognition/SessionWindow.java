@@ -16,13 +16,17 @@ import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 
 import javax.swing.DefaultListModel;
+import javax.swing.ImageIcon;
 import javax.swing.BorderFactory;
 import javax.swing.Box;
 import javax.swing.BoxLayout;
@@ -51,6 +55,7 @@ public final class SessionWindow implements AutoCloseable {
 
     private static final DateTimeFormatter TIME_FORMAT =
             DateTimeFormatter.ofPattern("HH:mm:ss").withZone(ZoneId.systemDefault());
+    private static final int MAX_PENDING_REVIEWS = 8;
 
     private final AtomicReference<Collection<TrackedFace>> trackedFaces = new AtomicReference<>(List.of());
     private final DefaultListModel<String> logModel = new DefaultListModel<>();
@@ -65,6 +70,12 @@ public final class SessionWindow implements AutoCloseable {
     private Consumer<RosterAction> manualMarkListener;
     private Runnable endSessionListener;
     private JButton endSessionButton;
+    private JLabel powerModeLabel;
+    // Pending manual reviews keyed by candidate student id; only touched on the EDT.
+    private final Map<String, PendingReview> pendingReviews = new LinkedHashMap<>();
+    private JPanel reviewPanel;
+    private JPanel reviewListPanel;
+    private JLabel reviewLabel;
 
     public SessionWindow(Webcam webcam) {
         this.webcam = Objects.requireNonNull(webcam, "webcam");
@@ -97,6 +108,13 @@ public final class SessionWindow implements AutoCloseable {
                     endSessionListener.run();
                 }
             });
+            powerModeLabel = new JLabel("Low-power mode");
+            powerModeLabel.setOpaque(true);
+            powerModeLabel.setBackground(new Color(20, 24, 31, 200));
+            powerModeLabel.setForeground(new Color(255, 200, 80));
+            powerModeLabel.setBorder(new EmptyBorder(4, 8, 4, 8));
+            powerModeLabel.setVisible(false);
+            buttonRow.add(powerModeLabel);
             buttonRow.add(endSessionButton);
             overlay.add(buttonRow, BorderLayout.NORTH);
             overlay.setAlignmentX(0f);
@@ -161,10 +179,33 @@ public final class SessionWindow implements AutoCloseable {
             rosterPanel.add(rosterHeader, BorderLayout.NORTH);
             rosterPanel.add(rosterScroll, BorderLayout.CENTER);
 
+            reviewListPanel = new JPanel();
+            reviewListPanel.setLayout(new BoxLayout(reviewListPanel, BoxLayout.Y_AXIS));
+            reviewListPanel.setOpaque(false);
+
+            JScrollPane reviewScroll = new JScrollPane(reviewListPanel);
+            reviewScroll.setBorder(BorderFactory.createEmptyBorder());
+
+            reviewPanel = new JPanel(new BorderLayout(0, 6));
+            reviewPanel.setBorder(new EmptyBorder(4, 8, 4, 8));
+            reviewPanel.setOpaque(false);
+            reviewLabel = new JLabel("Needs review");
+            reviewLabel.setFont(reviewLabel.getFont().deriveFont(Font.BOLD));
+            reviewPanel.add(reviewLabel, BorderLayout.NORTH);
+            reviewPanel.add(reviewScroll, BorderLayout.CENTER);
+            reviewPanel.setPreferredSize(new Dimension(360, 200));
+            reviewPanel.setVisible(false);
+
+            JPanel topPanel = new JPanel();
+            topPanel.setLayout(new BoxLayout(topPanel, BoxLayout.Y_AXIS));
+            topPanel.setOpaque(false);
+            topPanel.add(logPanel);
+            topPanel.add(reviewPanel);
+
             JPanel sidePanel = new JPanel(new BorderLayout());
             sidePanel.setPreferredSize(new Dimension(360, 540));
             sidePanel.setOpaque(false);
-            sidePanel.add(logPanel, BorderLayout.NORTH);
+            sidePanel.add(topPanel, BorderLayout.NORTH);
             sidePanel.add(rosterPanel, BorderLayout.CENTER);
 
             frame.add(sidePanel, BorderLayout.EAST);
@@ -192,6 +233,15 @@ public final class SessionWindow implements AutoCloseable {
         });
     }
 
+    /** Shows or hides the low-power badge over the camera feed. */
+    public void setLowPowerMode(boolean lowPower) {
+        SwingUtilities.invokeLater(() -> {
+            if (powerModeLabel != null) {
+                powerModeLabel.setVisible(lowPower);
+            }
+        });
+    }
+
     public void setRosterSubmissionInProgress(String studentId, boolean inProgress) {
         if (studentId == null) {
             return;
@@ -252,6 +302,7 @@ public final class SessionWindow implements AutoCloseable {
             case FRAME_PROCESSED, FACE_DETECTED, TRACK_LOST -> null;
             case CAMERA_STARTED -> "Camera started";
             case CAMERA_STOPPED -> "Camera stopped";
+            case POWER_MODE_CHANGED -> sanitizeMessage(event.getMessage());
             case AUTO_ACCEPTED -> "Marked present automatically for " + describeSubject(event) + '.';
             case AUTO_REJECTED -> formatAutoRejected(event);
             case MANUAL_CONFIRMATION_REQUIRED ->
@@ -309,22 +360,105 @@ public final class SessionWindow implements AutoCloseable {
         return trimmed.isEmpty() ? null : trimmed;
     }
 
-    public boolean promptManualConfirmation(String studentName) {
-        final AtomicReference<Boolean> response = new AtomicReference<>(Boolean.FALSE);
-        try {
-            SwingUtilities.invokeAndWait(() -> {
-                int result = javax.swing.JOptionPane.showConfirmDialog(
-                        frame,
-                        "Is this " + (studentName != null ? studentName : "the correct student") + "?",
-                        "Confirm identity",
-                        javax.swing.JOptionPane.YES_NO_OPTION,
-                        javax.swing.JOptionPane.QUESTION_MESSAGE);
-                response.set(result == javax.swing.JOptionPane.YES_OPTION);
-            });
-        } catch (Exception ignored) {
-            return false;
+    /**
+     * Adds a review card to the side panel and returns immediately. The callback runs on the
+     * Swing event thread once the professor confirms or rejects, or with
+     * {@link ReviewOutcome#EXPIRED} if the card is replaced by a newer review for the same
+     * student, evicted from a full queue, or dismissed via {@link #dismissManualReviews}.
+     */
+    public void enqueueManualReview(ManualReview review, Consumer<ReviewOutcome> callback) {
+        if (review == null || review.studentId() == null) {
+            return;
+        }
+        SwingUtilities.invokeLater(() -> {
+            PendingReview previous = pendingReviews.remove(review.studentId());
+            if (previous != null) {
+                previous.resolve(ReviewOutcome.EXPIRED);
+            }
+            pendingReviews.put(review.studentId(), new PendingReview(review, callback));
+            Iterator<PendingReview> it = pendingReviews.values().iterator();
+            while (pendingReviews.size() > MAX_PENDING_REVIEWS && it.hasNext()) {
+                PendingReview oldest = it.next();
+                it.remove();
+                oldest.resolve(ReviewOutcome.EXPIRED);
+            }
+            refreshReviewList();
+        });
+    }
+
+    /** Removes any pending review for the student, e.g. after they were marked another way. */
+    public void dismissManualReviews(String studentId) {
+        if (studentId == null) {
+            return;
+        }
+        SwingUtilities.invokeLater(() -> {
+            PendingReview pending = pendingReviews.remove(studentId);
+            if (pending != null) {
+                pending.resolve(ReviewOutcome.EXPIRED);
+                refreshReviewList();
+            }
+        });
+    }
+
+    private void resolveReview(String studentId, ReviewOutcome outcome) {
+        PendingReview pending = pendingReviews.remove(studentId);
+        if (pending != null) {
+            pending.resolve(outcome);
+        }
+        refreshReviewList();
+    }
+
+    private void refreshReviewList() {
+        if (reviewListPanel == null) {
+            return;
+        }
+        reviewListPanel.removeAll();
+        for (PendingReview pending : pendingReviews.values()) {
+            reviewListPanel.add(createReviewComponent(pending.review()));
+            reviewListPanel.add(Box.createVerticalStrut(8));
+        }
+        reviewLabel.setText("Needs review (" + pendingReviews.size() + ")");
+        reviewPanel.setVisible(!pendingReviews.isEmpty());
+        reviewPanel.revalidate();
+        reviewListPanel.repaint();
+    }
+
+    private JPanel createReviewComponent(ManualReview review) {
+        JPanel container = new JPanel(new BorderLayout(8, 0));
+        container.setBorder(new EmptyBorder(6, 6, 6, 6));
+        container.setBackground(new Color(48, 40, 24));
+        container.setOpaque(true);
+        container.setMaximumSize(new Dimension(Integer.MAX_VALUE, 96));
+
+        if (review.thumbnail() != null) {
+            container.add(new JLabel(new ImageIcon(review.thumbnail())), BorderLayout.WEST);
+        }
+
+        JPanel textPanel = new JPanel();
+        textPanel.setLayout(new BoxLayout(textPanel, BoxLayout.Y_AXIS));
+        textPanel.setOpaque(false);
+        JLabel nameLabel = new JLabel(review.studentName() != null ? review.studentName() : "ID " + review.studentId());
+        nameLabel.setFont(nameLabel.getFont().deriveFont(Font.BOLD));
+        textPanel.add(nameLabel);
+        if (Double.isFinite(review.distance())) {
+            JLabel distanceLabel = new JLabel(String.format(Locale.ROOT, "Distance: %.1f", review.distance()));
+            distanceLabel.setForeground(new Color(170, 174, 184));
+            textPanel.add(distanceLabel);
         }
-        return Boolean.TRUE.equals(response.get());
+        container.add(textPanel, BorderLayout.CENTER);
+
+        JPanel buttons = new JPanel();
+        buttons.setLayout(new BoxLayout(buttons, BoxLayout.Y_AXIS));
+        buttons.setOpaque(false);
+        JButton confirmButton = new JButton("Confirm");
+        confirmButton.addActionListener(e -> resolveReview(review.studentId(), ReviewOutcome.CONFIRMED));
+        JButton rejectButton = new JButton("Reject");
+        rejectButton.addActionListener(e -> resolveReview(review.studentId(), ReviewOutcome.REJECTED));
+        buttons.add(confirmButton);
+        buttons.add(Box.createVerticalStrut(4));
+        buttons.add(rejectButton);
+        container.add(buttons, BorderLayout.EAST);
+        return container;
     }
 
     @Override
@@ -578,4 +712,26 @@ public final class SessionWindow implements AutoCloseable {
 
     public static final record RosterAction(RosterEntry entry, boolean resetToAbsent) {
     }
+
+    /** A recognition the professor needs to confirm, shown as a card in the review panel. */
+    public static final record ManualReview(String trackId,
+                                            String studentId,
+                                            String studentName,
+                                            double distance,
+                                            BufferedImage thumbnail) {
+    }
+
+    public enum ReviewOutcome {
+        CONFIRMED,
+        REJECTED,
+        EXPIRED
+    }
+
+    private record PendingReview(ManualReview review, Consumer<ReviewOutcome> callback) {
+        void resolve(ReviewOutcome outcome) {
+            if (callback != null) {
+                callback.accept(outcome);
+            }
+        }
+    }
 }
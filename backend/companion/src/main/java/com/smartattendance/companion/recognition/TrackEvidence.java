@@ -0,0 +1,101 @@
+package com.smartattendance.companion.recognition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Accumulates recognition distances for one track across attempts and fuses them with a
+ * running median per predicted identity. A verdict is returned as soon as the evidence is
+ * conclusive: a single very strong match, a median clearly inside the accept band or
+ * clearly outside the review band after enough samples, or the sample budget running out.
+ */
+final class TrackEvidence {
+
+    private final Map<String, List<Double>> samples = new HashMap<>();
+    private int total;
+
+    /**
+     * Fused outcome of the evidence so far.
+     *
+     * @param conclusive whether a decision can be made now
+     * @param studentId  identity with the most support
+     * @param distance   median distance for that identity
+     * @param samples    number of samples supporting it
+     */
+    record Verdict(boolean conclusive, String studentId, double distance, int samples) {
+        static final Verdict PENDING = new Verdict(false, null, Double.NaN, 0);
+    }
+
+    /**
+     * Adds one prediction and evaluates the evidence.
+     *
+     * @param acceptDistance distances at or below this are auto-accept quality
+     * @param rejectDistance distances above this are too weak even for manual review
+     * @param strongDistance a single distance at or below this is conclusive on its own
+     * @param minSamples     samples an identity needs before its median can decide
+     * @param maxSamples     total samples after which the best identity decides regardless
+     */
+    synchronized Verdict add(String studentId,
+                             double distance,
+                             double acceptDistance,
+                             double rejectDistance,
+                             double strongDistance,
+                             int minSamples,
+                             int maxSamples) {
+        if (studentId == null || !Double.isFinite(distance)) {
+            return Verdict.PENDING;
+        }
+        List<Double> values = samples.computeIfAbsent(studentId, id -> new ArrayList<>());
+        values.add(distance);
+        total++;
+        if (distance <= strongDistance) {
+            return conclude(studentId, distance, values.size());
+        }
+        String bestId = null;
+        int bestCount = 0;
+        double bestMedian = Double.POSITIVE_INFINITY;
+        for (Map.Entry<String, List<Double>> entry : samples.entrySet()) {
+            int count = entry.getValue().size();
+            double median = median(entry.getValue());
+            if (count > bestCount || (count == bestCount && median < bestMedian)) {
+                bestId = entry.getKey();
+                bestCount = count;
+                bestMedian = median;
+            }
+        }
+        boolean decisive = bestCount >= minSamples && (bestMedian <= acceptDistance || bestMedian > rejectDistance);
+        if (decisive || total >= maxSamples) {
+            return conclude(bestId, bestMedian, bestCount);
+        }
+        return Verdict.PENDING;
+    }
+
+    /** True while samples have been collected without reaching a verdict. */
+    synchronized boolean pending() {
+        return total > 0;
+    }
+
+    synchronized void reset() {
+        samples.clear();
+        total = 0;
+    }
+
+    private Verdict conclude(String studentId, double distance, int count) {
+        samples.clear();
+        total = 0;
+        return new Verdict(true, studentId, distance, count);
+    }
+
+    private static double median(List<Double> values) {
+        double[] sorted = new double[values.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = values.get(i);
+        }
+        Arrays.sort(sorted);
+        int mid = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[mid] : (sorted[mid - 1] + sorted[mid]) / 2.0d;
+    }
+}
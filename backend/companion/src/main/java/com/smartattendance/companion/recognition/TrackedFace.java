@@ -1,7 +1,9 @@
 package com.smartattendance.companion.recognition;
 
 import java.awt.Color;
+import java.awt.Rectangle;
 import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import com.smartattendance.vision.tracking.FaceTrack;
@@ -20,7 +22,14 @@ public final class TrackedFace {
     private final AtomicInteger attempts = new AtomicInteger();
     private final AtomicInteger manualPromptAttempts = new AtomicInteger();
     private volatile boolean manualPrompted;
+    private final AtomicBoolean recognitionPending = new AtomicBoolean();
     private volatile Color overlayColor = Color.YELLOW;
+    private volatile boolean finalized;
+    private final TrackEvidence evidence = new TrackEvidence();
+    private String streakId;
+    private int streak;
+    private Rectangle lastObservedBounds;
+    private long lastObservedAt;
 
     public TrackedFace(FaceTrack track) {
         this.track = track;
@@ -85,6 +94,82 @@ public final class TrackedFace {
         return manualPromptAttempts.incrementAndGet();
     }
 
+    /** Claims the track for a recognition attempt; returns false if one is already queued. */
+    public boolean beginRecognition() {
+        return recognitionPending.compareAndSet(false, true);
+    }
+
+    public void endRecognition() {
+        recognitionPending.set(false);
+    }
+
+    public boolean recognitionPending() {
+        return recognitionPending.get();
+    }
+
+    /**
+     * Counts consecutive predictions of the same identity; a different identity restarts
+     * the streak. Returns the streak length including this prediction.
+     */
+    public synchronized int recordPrediction(String predictedId) {
+        if (predictedId != null && predictedId.equals(streakId)) {
+            streak++;
+        } else {
+            streakId = predictedId;
+            streak = predictedId != null ? 1 : 0;
+        }
+        return streak;
+    }
+
+    /** Distances collected for this track that have not yet produced a decision. */
+    TrackEvidence evidence() {
+        return evidence;
+    }
+
+    /** True once the track's decision is final and it no longer needs recognition. */
+    public boolean finalized() {
+        return finalized;
+    }
+
+    public void setFinalized(boolean finalized) {
+        this.finalized = finalized;
+    }
+
+    /** True for states in which attendance has already been decided for this track. */
+    public boolean hasTerminalState() {
+        FaceTrackState current = state;
+        return current == FaceTrackState.AUTO_ACCEPTED
+                || current == FaceTrackState.MANUAL_ACCEPTED
+                || current == FaceTrackState.COMPLETED;
+    }
+
+    /**
+     * Records where the track was seen this frame. Returns true, and drops any finalized
+     * decision, when the face jumped by more than {@code maxJump} of its width since the
+     * previous observation or was unseen for longer than {@code maxGapMs}.
+     */
+    public synchronized boolean observe(Rectangle bounds, long now, double maxJump, long maxGapMs) {
+        Rectangle previous = lastObservedBounds;
+        long previousAt = lastObservedAt;
+        lastObservedBounds = bounds != null ? new Rectangle(bounds) : null;
+        lastObservedAt = now;
+        if (!finalized || previous == null || bounds == null) {
+            return false;
+        }
+        double dx = bounds.getCenterX() - previous.getCenterX();
+        double dy = bounds.getCenterY() - previous.getCenterY();
+        boolean jumped = Math.hypot(dx, dy) > maxJump * Math.max(1, previous.width);
+        boolean occluded = now - previousAt > maxGapMs;
+        if (!jumped && !occluded) {
+            return false;
+        }
+        finalized = false;
+        streakId = null;
+        streak = 0;
+        evidence.reset();
+        return true;
+    }
+
     public boolean manualPrompted() {
         return manualPrompted;
     }
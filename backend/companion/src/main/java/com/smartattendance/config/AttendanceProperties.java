@@ -257,21 +257,66 @@ public class AttendanceProperties {
                         getInt(props, "recognition.lbph.radius", 3),
                         getInt(props, "recognition.lbph.neighbors", 8),
                         getInt(props, "recognition.lbph.grid_x", 12),
-                        getInt(props, "recognition.lbph.grid_y", 12)));
+                        getInt(props, "recognition.lbph.grid_y", 12),
+                        getString(props, "recognition.lbph.engine", "opencv"),
+                        getBoolean(props, "recognition.lbph.uniform", false),
+                        getString(props, "recognition.lbph.storage", "sparse")),
+                new RecognitionIndex(
+                        getBoolean(props, "recognition.index.enabled", true),
+                        Math.max(1, getInt(props, "recognition.index.min_labels", 64)),
+                        Math.max(1, getInt(props, "recognition.index.shortlist", 32)),
+                        Math.max(1, getInt(props, "recognition.index.grid", 4))));
 
         Live live = new Live(
                 new LiveRecognition(
                         getInt(props, "live.recognize.min_frames", 8),
                         getDouble(props, "live.recognize.motion_threshold", 80.0),
                         getInt(props, "live.recognize.min_face", 160),
-                        getInt(props, "live.recognize.interval_ms", 1500)),
-                getDouble(props, "live.blur.variance_threshold", 60.0));
+                        getInt(props, "live.recognize.interval_ms", 1500),
+                        Math.max(0, getInt(props, "live.recognize.workers", 0))),
+                getDouble(props, "live.blur.variance_threshold", 60.0),
+                new LiveTracking(
+                        Math.max(1, getInt(props, "live.detect.every_n_frames", 3)),
+                        getDouble(props, "live.track.min_score", 0.6),
+                        getDouble(props, "live.track.search_margin", 0.35)),
+                new LiveMotion(
+                        getBoolean(props, "live.motion.enabled", true),
+                        getDouble(props, "live.motion.pixel_threshold", 18.0),
+                        getDouble(props, "live.motion.static_score", 0.002),
+                        Math.max(1, getInt(props, "live.motion.max_static_frames", 45)),
+                        getDouble(props, "live.motion.max_region_coverage", 0.35)),
+                new LiveIdle(
+                        getBoolean(props, "live.idle.enabled", true),
+                        Math.max(1000, getInt(props, "live.idle.after_ms", 30000)),
+                        getDouble(props, "live.idle.fps", 3.0),
+                        getDouble(props, "live.idle.detect_scale", 0.5)),
+                new LiveAutoTune(
+                        getBoolean(props, "live.autotune.enabled", true),
+                        getDouble(props, "live.autotune.target_fps", 15.0),
+                        getDouble(props, "live.autotune.min_fps", 5.0),
+                        getDouble(props, "live.autotune.min_scale", 0.35),
+                        getDouble(props, "live.autotune.max_scale", 1.0),
+                        Math.max(24, getInt(props, "live.autotune.min_scaled_face", 48))),
+                new LiveFinalization(
+                        Math.max(1, getInt(props, "live.recognize.lock_after", 2)),
+                        getDouble(props, "live.recognize.reverify_jump", 0.6),
+                        Math.max(100, getInt(props, "live.recognize.reverify_gap_ms", 1500))),
+                new LiveFusion(
+                        getBoolean(props, "live.fusion.enabled", true),
+                        Math.max(1, getInt(props, "live.fusion.min_samples", 2)),
+                        Math.max(1, getInt(props, "live.fusion.max_samples", 5)),
+                        getDouble(props, "live.fusion.strong_ratio", 0.75),
+                        Math.max(100, getInt(props, "live.fusion.sample_interval_ms", 400))));
 
         Detection detection = new Detection(
                 getDouble(props, "detect.scale", 1.0),
                 getInt(props, "detect.min_face", 160),
                 getDouble(props, "detect.cascade.scale_factor", 1.2),
-                getInt(props, "detect.cascade.min_neighbors", 8));
+                getInt(props, "detect.cascade.min_neighbors", 8),
+                new RegionSearch(
+                        getBoolean(props, "detect.roi.enabled", true),
+                        getDouble(props, "detect.roi.margin", 0.5),
+                        Math.max(1, getInt(props, "detect.roi.full_sweep_every", 5))));
 
         Preprocessing preprocessing = new Preprocessing(
                 getInt(props, "preproc.width", 256),
@@ -410,7 +455,8 @@ public class AttendanceProperties {
 
     public record Recognition(double autoAcceptMaxDistance,
                               double manualReviewMaxDistance,
-                              Lbph lbph) {
+                              Lbph lbph,
+                              RecognitionIndex index) {
         public double autoAcceptMaxDistance() {
             return Math.max(0.0, autoAcceptMaxDistance);
         }
@@ -419,16 +465,118 @@ public class AttendanceProperties {
         }
     }
 
-    public record Lbph(int radius, int neighbors, int gridX, int gridY) {
-    }
-
-    public record Live(LiveRecognition recognition, double blurVarianceThreshold) {
-    }
-
-    public record LiveRecognition(int minFrames, double motionThreshold, int minFace, int intervalMs) {
+    /**
+     * Candidate shortlist for large models (Java engine). Each label is summarized by the
+     * centroid of its histograms on a coarse {@code grid} x {@code grid} uniform-pattern
+     * layout; a probe is ranked against the centroids and only the {@code shortlist} closest
+     * labels are verified exactly. Models with fewer than {@code minLabels} labels are
+     * scanned in full.
+     */
+    public record RecognitionIndex(boolean enabled, int minLabels, int shortlist, int grid) {
+    }
+
+    /**
+     * LBPH parameters. {@code engine} picks OpenCV's native recognizer ("opencv", the default)
+     * or the in-process Java matcher ("java"). {@code uniformPatterns} folds the Java engine's codes into
+     * uniform-pattern bins, which shrinks templates but changes distances. {@code storage}
+     * selects how the Java engine keeps templates in memory: "float32", "uint16", "uint8"
+     * or "sparse" (non-zero 16-bit bins only).
+     */
+    public record Lbph(int radius,
+                       int neighbors,
+                       int gridX,
+                       int gridY,
+                       String engine,
+                       boolean uniformPatterns,
+                       String storage) {
+        public boolean javaEngine() {
+            return "java".equalsIgnoreCase(engine == null ? "" : engine.trim());
+        }
     }
 
-    public record Detection(double downscale, int minFace, double cascadeScaleFactor, int cascadeMinNeighbors) {
+    public record Live(LiveRecognition recognition,
+                       double blurVarianceThreshold,
+                       LiveTracking tracking,
+                       LiveMotion motion,
+                       LiveIdle idle,
+                       LiveAutoTune autoTune,
+                       LiveFinalization finalization,
+                       LiveFusion fusion) {
+    }
+
+    /**
+     * Multi-attempt score fusion. Distances are combined per identity with a running median;
+     * a decision needs {@code minSamples} agreeing samples unless one distance is within
+     * {@code strongRatio} of the auto-accept limit, and is forced after {@code maxSamples}.
+     * While evidence is pending, attempts are spaced {@code sampleIntervalMs} apart.
+     */
+    public record LiveFusion(boolean enabled, int minSamples, int maxSamples, double strongRatio, int sampleIntervalMs) {
+    }
+
+    /**
+     * Per-track decision locking. A decided track stops being recognized once
+     * {@code lockAfter} consecutive predictions agree, and is re-verified when its box jumps
+     * by more than {@code reverifyJump} of the face width or it goes unseen for
+     * {@code reverifyGapMs}.
+     */
+    public record LiveFinalization(int lockAfter, double reverifyJump, int reverifyGapMs) {
+    }
+
+    /**
+     * Runtime tuning of the detection downscale and capture interval toward {@code targetFps}.
+     * The downscale never drops below {@code minScale}, nor so far that the minimum face size
+     * shrinks under {@code minScaledFace} pixels in the downscaled frame.
+     */
+    public record LiveAutoTune(boolean enabled,
+                               double targetFps,
+                               double minFps,
+                               double minScale,
+                               double maxScale,
+                               int minScaledFace) {
+    }
+
+    /**
+     * Low-power mode for empty rooms. After {@code idleAfterMs} without a tracked face the
+     * capture loop drops to {@code fps} and detection runs at {@code detectionScale}.
+     */
+    public record LiveIdle(boolean enabled, long idleAfterMs, double fps, double detectionScale) {
+    }
+
+    /**
+     * Hybrid detect/track settings. A full cascade pass runs every {@code detectEveryFrames}
+     * frames, or sooner when a tracked face matches its template below {@code minMatchScore}.
+     */
+    public record LiveTracking(int detectEveryFrames, double minMatchScore, double searchMargin) {
+    }
+
+    /**
+     * Frame-difference gating. Detection is skipped while the motion score stays below
+     * {@code staticScore} (forced again after {@code maxStaticFrames}), and limited to the
+     * changed regions when they cover less than {@code maxRegionCoverage} of the frame.
+     */
+    public record LiveMotion(boolean enabled,
+                             double pixelThreshold,
+                             double staticScore,
+                             int maxStaticFrames,
+                             double maxRegionCoverage) {
+    }
+
+    /** Live recognition gates; {@code workers} of zero sizes the recognition pool from the CPU count. */
+    public record LiveRecognition(int minFrames, double motionThreshold, int minFace, int intervalMs, int workers) {
+    }
+
+    public record Detection(double downscale,
+                            int minFace,
+                            double cascadeScaleFactor,
+                            int cascadeMinNeighbors,
+                            RegionSearch regionSearch) {
+    }
+
+    /**
+     * Restricts live detection passes to windows around active tracks. Every
+     * {@code fullSweepEvery}-th pass still scans the whole frame so newcomers are found.
+     */
+    public record RegionSearch(boolean enabled, double margin, int fullSweepEvery) {
     }
 
     public record Preprocessing(int width, int height, double detectionScale) {
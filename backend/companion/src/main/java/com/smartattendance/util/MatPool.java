@@ -0,0 +1,95 @@
+package com.smartattendance.util;
+
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.opencv.core.Mat;
+
+/**
+ * Recycles native {@link Mat} buffers keyed by resolution and element type so per-frame
+ * work can reuse the same native memory instead of allocating and finalizing a new Mat
+ * for every frame. Safe to share between threads.
+ */
+public final class MatPool {
+
+    private final int maxIdlePerKey;
+    private final Map<Key, Deque<Mat>> idle = new ConcurrentHashMap<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicLong allocations = new AtomicLong();
+    private final AtomicLong reuses = new AtomicLong();
+    private volatile boolean closed;
+
+    public MatPool(int maxIdlePerKey) {
+        this.maxIdlePerKey = Math.max(1, maxIdlePerKey);
+    }
+
+    /** Borrows a Mat with the given geometry and type (for example {@code CvType.CV_8UC3}). */
+    public Mat acquire(int rows, int cols, int type) {
+        Deque<Mat> bucket = idle.get(new Key(rows, cols, type));
+        if (bucket != null) {
+            Mat pooled = bucket.pollFirst();
+            if (pooled != null) {
+                idleCount.decrementAndGet();
+                reuses.incrementAndGet();
+                return pooled;
+            }
+        }
+        allocations.incrementAndGet();
+        return new Mat(rows, cols, type);
+    }
+
+    /** Returns a borrowed Mat. Buffers beyond the idle limit, or after {@link #clear()}, are released. */
+    public void recycle(Mat mat) {
+        if (mat == null) {
+            return;
+        }
+        if (closed || mat.empty() || !mat.isContinuous() || mat.dims() > 2) {
+            release(mat);
+            return;
+        }
+        Deque<Mat> bucket = idle.computeIfAbsent(new Key(mat.rows(), mat.cols(), mat.type()),
+                key -> new ConcurrentLinkedDeque<>());
+        if (bucket.size() >= maxIdlePerKey) {
+            release(mat);
+            return;
+        }
+        bucket.addFirst(mat);
+        idleCount.incrementAndGet();
+    }
+
+    /** Releases every idle buffer; Mats recycled afterwards are released immediately. */
+    public void clear() {
+        closed = true;
+        for (Deque<Mat> bucket : idle.values()) {
+            Mat mat;
+            while ((mat = bucket.pollFirst()) != null) {
+                idleCount.decrementAndGet();
+                release(mat);
+            }
+        }
+        idle.clear();
+    }
+
+    public long allocations() {
+        return allocations.get();
+    }
+
+    public long reuses() {
+        return reuses.get();
+    }
+
+    public int idle() {
+        return idleCount.get();
+    }
+
+    private static void release(Mat mat) {
+        try { mat.release(); } catch (Exception ignored) {}
+    }
+
+    private record Key(int rows, int cols, int type) {
+    }
+}
@@ -21,6 +21,49 @@ public final class OpenCVUtils {
         return mat;
     }
 
+    /**
+     * Converts a {@link BufferedImage} into a Mat borrowed from {@code pool}. The pixels are
+     * copied into a pooled staging buffer and colour-converted straight into the returned Mat,
+     * so steady-state conversion performs no native allocation. Recycle the result when done.
+     */
+    public static Mat bufferedImageToMat(BufferedImage bi, MatPool pool) {
+        int rows = bi.getHeight();
+        int cols = bi.getWidth();
+        Mat staging = pool.acquire(rows, cols, CvType.CV_8UC3);
+        try {
+            byte[] data = ((DataBufferByte) bi.getRaster().getDataBuffer()).getData();
+            staging.put(0, 0, data);
+            Mat mat = pool.acquire(rows, cols, CvType.CV_8UC3);
+            Imgproc.cvtColor(staging, mat, Imgproc.COLOR_BGR2RGB);
+            return mat;
+        } finally {
+            pool.recycle(staging);
+        }
+    }
+
+    /**
+     * Converts a Mat produced by {@link #bufferedImageToMat} back into a {@link BufferedImage},
+     * reversing its channel swap. Single-channel Mats become grayscale images.
+     */
+    public static BufferedImage matToBufferedImage(Mat mat) {
+        int type = mat.channels() == 1 ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_3BYTE_BGR;
+        Mat source = mat;
+        if (mat.channels() == 3) {
+            source = new Mat();
+            Imgproc.cvtColor(mat, source, Imgproc.COLOR_RGB2BGR);
+        }
+        try {
+            BufferedImage image = new BufferedImage(source.cols(), source.rows(), type);
+            byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+            source.get(0, 0, data);
+            return image;
+        } finally {
+            if (source != mat) {
+                source.release();
+            }
+        }
+    }
+
     /** Resizes a Mat to the given size. */
     public static Mat resize(Mat src, int width, int height) {
         Mat dst = new Mat();
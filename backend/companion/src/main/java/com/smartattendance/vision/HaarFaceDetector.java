@@ -32,6 +32,13 @@ public class HaarFaceDetector {
     private final CascadeClassifier classifier;
     private final CascadeClassifier fallback;
     private final AttendanceProperties config;
+    // Scratch buffers reused across detect() calls to avoid per-frame native allocations.
+    private final Mat gray = new Mat();
+    private final Mat scaled = new Mat();
+    private final MatOfRect rects = new MatOfRect();
+    private CLAHE clahe;
+    private double downscaleOverride;
+    private double adaptiveDownscale;
 
     public HaarFaceDetector(String cascadePath, AttendanceProperties config) {
         try { Loader.load(opencv_java.class); } catch (UnsatisfiedLinkError e) { }
@@ -98,78 +105,230 @@ public class HaarFaceDetector {
         return classifier;
     }
 
-    /** Detects faces in the given image with basic preprocessing and tuned params. */
-    public List<Rectangle> detect(Mat mat) {
-        Mat gray = new Mat();
-        MatOfRect rects = new MatOfRect();
-        Mat detectionMat = null;
-        try {
-            if (mat.channels() == 1) {
-                mat.copyTo(gray);
-            } else {
-                Imgproc.cvtColor(mat, gray, Imgproc.COLOR_BGR2GRAY);
-            }
-            CLAHE clahe = Imgproc.createCLAHE();
-            clahe.apply(gray, gray);
+    /**
+     * Detects faces in the given image with basic preprocessing and tuned params. Working
+     * buffers are owned by the detector and reused between calls.
+     */
+    public synchronized List<Rectangle> detect(Mat mat) {
+        toEqualizedGray(mat, gray);
+        int min = Math.max(config.detection().minFace(), config.live().recognition().minFace());
+        min = Math.max(min, Math.min(mat.cols(), mat.rows()) / 8);
+        List<Rectangle> raw = new ArrayList<>();
+        runCascades(gray, 0, 0, min, 0, raw);
+        // Non-maximum suppression to reduce duplicates
+        return nonMaxSuppression(raw, 0.35);
+    }
 
-            double scaleFactorConfig = resolveDetectionScale();
-            if (scaleFactorConfig != 1.0d) {
-                detectionMat = new Mat();
-                int interpolation = scaleFactorConfig < 1.0d ? Imgproc.INTER_AREA : Imgproc.INTER_LINEAR;
-                Imgproc.resize(gray, detectionMat, new Size(), scaleFactorConfig, scaleFactorConfig, interpolation);
-            } else {
-                detectionMat = gray;
+    /**
+     * Searches only expanded windows around the supplied regions (typically the match bounds
+     * of active tracks), restricting the cascade's scale range to sizes close to each region.
+     * Results are mapped back to frame coordinates and de-duplicated across windows.
+     *
+     * @param margin fraction of each region's size added on every side of the window
+     */
+    public synchronized List<Rectangle> detectAround(Mat mat, List<Rectangle> regions, double margin) {
+        if (regions == null || regions.isEmpty()) {
+            return List.of();
+        }
+        double pad = Double.isFinite(margin) && margin > 0.0d ? margin : 0.5d;
+        int frameMin = Math.max(config.detection().minFace(), config.live().recognition().minFace());
+        List<Rectangle> raw = new ArrayList<>();
+        for (Rectangle region : regions) {
+            if (region == null || region.width <= 0 || region.height <= 0) {
+                continue;
+            }
+            int side = Math.max(region.width, region.height);
+            int px = (int) Math.round(region.width * pad);
+            int py = (int) Math.round(region.height * pad);
+            int x = Math.max(0, region.x - px);
+            int y = Math.max(0, region.y - py);
+            int w = Math.min(mat.cols(), region.x + region.width + px) - x;
+            int h = Math.min(mat.rows(), region.y + region.height + py) - y;
+            if (w <= 0 || h <= 0) {
+                continue;
+            }
+            int minFace = Math.max(frameMin, (int) Math.round(Math.min(region.width, region.height) * 0.75d));
+            int maxFace = (int) Math.round(side * 1.35d);
+            if (minFace > Math.min(w, h)) {
+                continue;
             }
+            Mat window = mat.submat(new Rect(x, y, w, h));
+            try {
+                toEqualizedGray(window, gray);
+                runCascades(gray, x, y, minFace, maxFace, raw);
+            } finally {
+                try { window.release(); } catch (Exception ignored) {}
+            }
+        }
+        return nonMaxSuppression(raw, 0.35);
+    }
 
-            int min = Math.max(config.detection().minFace(), config.live().recognition().minFace());
-            min = Math.max(min, Math.min(mat.cols(), mat.rows()) / 8);
-            int scaledMin = (int)Math.max(24, Math.round(min * scaleFactorConfig));
-            Size minSize = new Size(scaledMin, scaledMin);
-            double scaleFactor = config.detection().cascadeScaleFactor();
-            int minNeighbors = config.detection().cascadeMinNeighbors();
-            // Primary detector (slightly tuned via config). Guard against missing cascade.
-            if (!classifier.empty()) {
-                try {
-                    classifier.detectMultiScale(detectionMat, rects, scaleFactor, minNeighbors, 0, minSize, new Size());
-                } catch (CvException e) {
-                    log.warn("Primary cascade failed: {}", e.getMessage());
-                }
+    /**
+     * Runs the cascade over arbitrary windows of the frame, such as areas that changed since
+     * the previous frame. Windows smaller than 1.5x the minimum face are grown around their
+     * centre and overlapping windows are merged before scanning.
+     */
+    public synchronized List<Rectangle> detectIn(Mat mat, List<Rectangle> windows) {
+        if (windows == null || windows.isEmpty()) {
+            return List.of();
+        }
+        int min = Math.max(config.detection().minFace(), config.live().recognition().minFace());
+        int grow = (int) Math.round(min * 1.5d);
+        Rectangle frame = new Rectangle(0, 0, mat.cols(), mat.rows());
+        List<Rectangle> merged = new ArrayList<>();
+        for (Rectangle window : windows) {
+            if (window == null || window.width <= 0 || window.height <= 0) {
+                continue;
             }
-            if ((rects.empty() || classifier.empty()) && !fallback.empty()) {
-                // Fallback (significantly more permissive to recover obvious faces)
-                int fallbackNeighbors = Math.max(2, minNeighbors - 2);
-                try {
-                    fallback.detectMultiScale(detectionMat, rects, scaleFactor, fallbackNeighbors, 0, minSize, new Size());
-                } catch (CvException e) {
-                    log.warn("Fallback cascade failed: {}", e.getMessage());
+            int w = Math.max(window.width, grow);
+            int h = Math.max(window.height, grow);
+            Rectangle grown = new Rectangle(window.x + (window.width - w) / 2, window.y + (window.height - h) / 2, w, h)
+                    .intersection(frame);
+            if (!grown.isEmpty()) {
+                merged.add(grown);
+            }
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 0; i < merged.size() && !changed; i++) {
+                for (int j = i + 1; j < merged.size(); j++) {
+                    if (merged.get(i).intersects(merged.get(j))) {
+                        merged.set(i, merged.get(i).union(merged.remove(j)));
+                        changed = true;
+                        break;
+                    }
                 }
             }
+        }
+        List<Rectangle> raw = new ArrayList<>();
+        for (Rectangle window : merged) {
+            if (window.width < min || window.height < min) {
+                continue;
+            }
+            Mat roi = mat.submat(new Rect(window.x, window.y, window.width, window.height));
+            try {
+                toEqualizedGray(roi, gray);
+                runCascades(gray, window.x, window.y, min, 0, raw);
+            } finally {
+                try { roi.release(); } catch (Exception ignored) {}
+            }
+        }
+        return nonMaxSuppression(raw, 0.35);
+    }
 
-            Rect[] arr = rects.toArray();
-            List<Rectangle> raw = new ArrayList<>(arr.length);
-            for (Rect r : arr) {
-                int x = r.x;
-                int y = r.y;
-                int w = r.width;
-                int h = r.height;
-                if (scaleFactorConfig != 1.0d) {
-                    double inv = scaleFactorConfig != 0.0d ? (1.0d / scaleFactorConfig) : 1.0d;
-                    x = (int)Math.round(r.x * inv);
-                    y = (int)Math.round(r.y * inv);
-                    w = (int)Math.round(r.width * inv);
-                    h = (int)Math.round(r.height * inv);
-                }
-                raw.add(new Rectangle(x, y, Math.max(1, w), Math.max(1, h)));
+    /**
+     * Equalizes {@code source} into {@code target}. A grayscale source (the runtime already
+     * converts each frame once) is equalized straight into the buffer rather than copied first.
+     */
+    private void toEqualizedGray(Mat source, Mat target) {
+        if (clahe == null) {
+            clahe = Imgproc.createCLAHE();
+        }
+        if (source.channels() == 1) {
+            clahe.apply(source, target);
+            return;
+        }
+        Imgproc.cvtColor(source, target, Imgproc.COLOR_BGR2GRAY);
+        clahe.apply(target, target);
+    }
+
+    /**
+     * Runs the primary cascade (and the fallback when the primary finds nothing) over
+     * {@code equalized}, appending detections offset by ({@code offsetX}, {@code offsetY}).
+     * A {@code maxFace} of zero leaves the upper size bound open.
+     */
+    private void runCascades(Mat equalized, int offsetX, int offsetY, int minFace, int maxFace, List<Rectangle> out) {
+        double scaleFactorConfig = resolveDetectionScale();
+        Mat detectionMat;
+        if (scaleFactorConfig != 1.0d) {
+            int interpolation = scaleFactorConfig < 1.0d ? Imgproc.INTER_AREA : Imgproc.INTER_LINEAR;
+            Imgproc.resize(equalized, scaled, new Size(), scaleFactorConfig, scaleFactorConfig, interpolation);
+            detectionMat = scaled;
+        } else {
+            detectionMat = equalized;
+        }
+
+        int scaledMin = (int)Math.max(24, Math.round(minFace * scaleFactorConfig));
+        Size minSize = new Size(scaledMin, scaledMin);
+        Size maxSize = new Size();
+        if (maxFace > 0) {
+            int scaledMax = (int)Math.max(scaledMin, Math.round(maxFace * scaleFactorConfig));
+            maxSize = new Size(scaledMax, scaledMax);
+        }
+        double scaleFactor = config.detection().cascadeScaleFactor();
+        int minNeighbors = config.detection().cascadeMinNeighbors();
+        boolean detected = false;
+        // Primary detector (slightly tuned via config). Guard against missing cascade.
+        if (!classifier.empty()) {
+            try {
+                classifier.detectMultiScale(detectionMat, rects, scaleFactor, minNeighbors, 0, minSize, maxSize);
+                detected = !rects.empty();
+            } catch (CvException e) {
+                log.warn("Primary cascade failed: {}", e.getMessage());
             }
-            // Non-maximum suppression to reduce duplicates
-            return nonMaxSuppression(raw, 0.35);
-        } finally {
-            try { gray.release(); } catch (Exception ignored) {}
-            try { rects.release(); } catch (Exception ignored) {}
-            if (detectionMat != null && detectionMat != gray) {
-                try { detectionMat.release(); } catch (Exception ignored) {}
+        }
+        if (!detected && !fallback.empty()) {
+            // Fallback (significantly more permissive to recover obvious faces)
+            int fallbackNeighbors = Math.max(2, minNeighbors - 2);
+            try {
+                fallback.detectMultiScale(detectionMat, rects, scaleFactor, fallbackNeighbors, 0, minSize, maxSize);
+                detected = !rects.empty();
+            } catch (CvException e) {
+                log.warn("Fallback cascade failed: {}", e.getMessage());
+            }
+        }
+        if (!detected) {
+            return;
+        }
+
+        for (Rect r : rects.toArray()) {
+            int x = r.x;
+            int y = r.y;
+            int w = r.width;
+            int h = r.height;
+            if (scaleFactorConfig != 1.0d) {
+                double inv = scaleFactorConfig != 0.0d ? (1.0d / scaleFactorConfig) : 1.0d;
+                x = (int)Math.round(r.x * inv);
+                y = (int)Math.round(r.y * inv);
+                w = (int)Math.round(r.width * inv);
+                h = (int)Math.round(r.height * inv);
             }
+            out.add(new Rectangle(offsetX + x, offsetY + y, Math.max(1, w), Math.max(1, h)));
+        }
+    }
+
+    /**
+     * Overrides the configured detection downscale, for example while the session is idle.
+     * Pass zero to return to the configured value.
+     */
+    public synchronized void setDownscaleOverride(double scale) {
+        this.downscaleOverride = Double.isFinite(scale) && scale > 0.0d ? Math.min(1.0d, scale) : 0.0d;
+    }
+
+    /**
+     * Replaces the configured detection downscale with a value chosen at runtime, for
+     * example by a frame-rate controller. Pass zero to return to the configured value.
+     * An override set through {@link #setDownscaleOverride} still caps the result.
+     */
+    public synchronized void setAdaptiveDownscale(double scale) {
+        this.adaptiveDownscale = Double.isFinite(scale) && scale > 0.0d ? Math.min(1.0d, scale) : 0.0d;
+    }
+
+    /** Returns the downscale the next detection pass will use. */
+    public synchronized double currentDownscale() {
+        return resolveDetectionScale();
+    }
+
+    /** Releases the reusable scratch buffers and the CLAHE's working memory held by this detector. */
+    public synchronized void release() {
+        if (clahe != null) {
+            try { clahe.collectGarbage(); } catch (Exception ignored) {}
+            clahe = null;
         }
+        try { gray.release(); } catch (Exception ignored) {}
+        try { scaled.release(); } catch (Exception ignored) {}
+        try { rects.release(); } catch (Exception ignored) {}
     }
 
     private double resolveDetectionScale() {
@@ -181,6 +340,12 @@ public class HaarFaceDetector {
         if (Double.isFinite(preprocScale) && preprocScale > 0.0d) {
             scale = preprocScale;
         }
+        if (adaptiveDownscale > 0.0d) {
+            scale = adaptiveDownscale;
+        }
+        if (downscaleOverride > 0.0d) {
+            scale = Math.min(scale, downscaleOverride);
+        }
         return scale;
     }
 
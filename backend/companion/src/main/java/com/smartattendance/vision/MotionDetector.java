@@ -0,0 +1,105 @@
+package com.smartattendance.vision;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Rect;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * Cheap scene-change estimator based on differencing a heavily downsampled copy of each
+ * grayscale frame against the previous one. The score is the fraction of downsampled
+ * pixels whose intensity changed by more than the pixel threshold; changed areas are
+ * also reported as bounding boxes in full-frame coordinates. Instances are not thread-safe.
+ */
+public class MotionDetector {
+    private static final int SAMPLE_WIDTH = 160;
+
+    private final double pixelThreshold;
+    private Mat previous = new Mat();
+    private Mat current = new Mat();
+    private final Mat diff = new Mat();
+    private final Mat mask = new Mat();
+    private final Mat hierarchy = new Mat();
+    private final Mat dilateKernel = Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(5, 5));
+
+    /** @param pixelThreshold intensity delta (0..255) for a downsampled pixel to count as changed */
+    public MotionDetector(double pixelThreshold) {
+        this.pixelThreshold = Math.max(1.0d, Math.min(254.0d, pixelThreshold));
+    }
+
+    /**
+     * Compares {@code gray} with the previous frame. The first frame, and any frame whose
+     * resolution differs from its predecessor, reports full motion.
+     */
+    public Sample measure(Mat gray) {
+        if (gray == null || gray.empty()) {
+            return Sample.FULL;
+        }
+        double scale = Math.min(1.0d, SAMPLE_WIDTH / (double) gray.cols());
+        Size size = new Size(Math.max(1, Math.round(gray.cols() * scale)), Math.max(1, Math.round(gray.rows() * scale)));
+        Imgproc.resize(gray, current, size, 0, 0, Imgproc.INTER_AREA);
+        Imgproc.GaussianBlur(current, current, new Size(3, 3), 0);
+        boolean comparable = !previous.empty() && previous.size().equals(current.size());
+        Sample sample = comparable ? compare(scale) : Sample.FULL;
+        Mat swap = previous;
+        previous = current;
+        current = swap;
+        return sample;
+    }
+
+    /** Forgets the reference frame so the next measurement reports full motion. */
+    public void reset() {
+        try { previous.release(); } catch (Exception ignored) {}
+    }
+
+    /** Releases the native scratch buffers. */
+    public void release() {
+        try { previous.release(); } catch (Exception ignored) {}
+        try { current.release(); } catch (Exception ignored) {}
+        try { diff.release(); } catch (Exception ignored) {}
+        try { mask.release(); } catch (Exception ignored) {}
+        try { hierarchy.release(); } catch (Exception ignored) {}
+        try { dilateKernel.release(); } catch (Exception ignored) {}
+    }
+
+    private Sample compare(double scale) {
+        Core.absdiff(current, previous, diff);
+        Imgproc.threshold(diff, mask, pixelThreshold, 255, Imgproc.THRESH_BINARY);
+        int changed = Core.countNonZero(mask);
+        double score = changed / (double) Math.max(1, mask.rows() * mask.cols());
+        if (changed == 0) {
+            return new Sample(0.0d, Collections.emptyList());
+        }
+        Imgproc.dilate(mask, mask, dilateKernel);
+        List<MatOfPoint> contours = new ArrayList<>();
+        Imgproc.findContours(mask, contours, hierarchy, Imgproc.RETR_EXTERNAL, Imgproc.CHAIN_APPROX_SIMPLE);
+        List<Rectangle> regions = new ArrayList<>(contours.size());
+        for (MatOfPoint contour : contours) {
+            Rect r = Imgproc.boundingRect(contour);
+            regions.add(new Rectangle(
+                    (int) Math.floor(r.x / scale),
+                    (int) Math.floor(r.y / scale),
+                    (int) Math.ceil(r.width / scale),
+                    (int) Math.ceil(r.height / scale)));
+            try { contour.release(); } catch (Exception ignored) {}
+        }
+        return new Sample(score, regions);
+    }
+
+    /**
+     * Result of one motion measurement.
+     *
+     * @param score   fraction of sampled pixels that changed, 0..1
+     * @param regions changed areas in full-frame coordinates; empty when nothing changed
+     */
+    public record Sample(double score, List<Rectangle> regions) {
+        static final Sample FULL = new Sample(1.0d, Collections.emptyList());
+    }
+}
@@ -20,6 +20,9 @@ public interface Recognizer {
      */
     Prediction recognize(Mat face);
 
+    /** Returns true if one instance may serve {@link #recognize} calls from several threads. */
+    default boolean isThreadSafe() { return false; }
+
     /** Returns true if this recognizer can be updated incrementally. */
     default boolean supportsIncremental() { return false; }
 
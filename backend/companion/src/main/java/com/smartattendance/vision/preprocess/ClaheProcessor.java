@@ -12,16 +12,20 @@ import org.opencv.imgproc.Imgproc;
 public class ClaheProcessor implements Preprocessor {
     @Override
     public Mat process(Mat image) {
-        Mat gray = new Mat();
-        if (image.channels() == 1) {
-            image.copyTo(gray);
-        } else {
-            Imgproc.cvtColor(image, gray, Imgproc.COLOR_BGR2GRAY);
-        }
         Mat eq = new Mat();
         CLAHE clahe = Imgproc.createCLAHE();
-        clahe.apply(gray, eq);
-        gray.release();
+        try {
+            if (image.channels() == 1) {
+                clahe.apply(image, eq);
+            } else {
+                Mat gray = new Mat();
+                Imgproc.cvtColor(image, gray, Imgproc.COLOR_BGR2GRAY);
+                clahe.apply(gray, eq);
+                gray.release();
+            }
+        } finally {
+            clahe.collectGarbage();
+        }
         return eq;
     }
 }
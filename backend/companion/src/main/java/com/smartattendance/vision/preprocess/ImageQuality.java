@@ -43,6 +43,23 @@ public final class ImageQuality {
         }
     }
 
+    /**
+     * Computes the Laplacian variance of a single-channel image using caller-owned buffers,
+     * so repeated calls on same-sized frames reuse the same native memory.
+     */
+    public static double laplacianVariance(Mat gray, Mat laplacian, MatOfDouble mean, MatOfDouble std) {
+        if (gray == null || gray.empty()) {
+            return 0.0d;
+        }
+        if (gray.channels() != 1) {
+            return laplacianVariance(gray);
+        }
+        Imgproc.Laplacian(gray, laplacian, CvType.CV_64F);
+        org.opencv.core.Core.meanStdDev(laplacian, mean, std);
+        double sigma = std.rows() > 0 ? std.get(0, 0)[0] : 0.0d;
+        return sigma * sigma;
+    }
+
     /** Returns true if the Laplacian variance meets or exceeds the threshold. */
     public static boolean isSharpEnough(Mat image, double threshold) {
         if (threshold <= 0.0d) {
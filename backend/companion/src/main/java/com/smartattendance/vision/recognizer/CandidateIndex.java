@@ -0,0 +1,150 @@
+package com.smartattendance.vision.recognizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Label shortlist placed in front of the exact arena scan. Every label is summarized by
+ * the mean of its templates' coarse signatures ({@link LbpHistogramExtractor#coarsen}),
+ * which are two orders of magnitude smaller than the full histograms. A probe is ranked
+ * against those centroids and only the templates of the closest labels are compared
+ * exactly, so the expensive stage costs the same for 60 or 600 students. Immutable once
+ * built.
+ */
+final class CandidateIndex {
+
+    private final LbpHistogramExtractor extractor;
+    private final int cells;
+    private final int coarseDimensions;
+    private final float[] centroids;
+    private final int[] slotLabels;
+    private final int[] memberStart;
+    private final int[] members;
+
+    private CandidateIndex(LbpHistogramExtractor extractor,
+                           int cells,
+                           float[] centroids,
+                           int[] slotLabels,
+                           int[] memberStart,
+                           int[] members) {
+        this.extractor = extractor;
+        this.cells = cells;
+        this.coarseDimensions = extractor.coarseDimensions(cells, cells);
+        this.centroids = centroids;
+        this.slotLabels = slotLabels;
+        this.memberStart = memberStart;
+        this.members = members;
+    }
+
+    /** Builds centroids for every label in {@code arena} on a {@code cells} x {@code cells} grid. */
+    static CandidateIndex build(TemplateArena<?> arena, LbpHistogramExtractor extractor, int cells) {
+        Map<Integer, List<Integer>> byLabel = new LinkedHashMap<>();
+        for (int i = 0; i < arena.size(); i++) {
+            byLabel.computeIfAbsent(arena.label(i), k -> new ArrayList<>()).add(i);
+        }
+        int dims = extractor.coarseDimensions(cells, cells);
+        float[] centroids = new float[byLabel.size() * dims];
+        int[] slotLabels = new int[byLabel.size()];
+        int[] memberStart = new int[byLabel.size() + 1];
+        int[] members = new int[arena.size()];
+        int slot = 0;
+        int cursor = 0;
+        for (Map.Entry<Integer, List<Integer>> entry : byLabel.entrySet()) {
+            List<Integer> templates = entry.getValue();
+            int base = slot * dims;
+            for (int template : templates) {
+                float[] coarse = extractor.coarsen(arena.histogram(template), cells, cells);
+                for (int k = 0; k < dims; k++) {
+                    centroids[base + k] += coarse[k];
+                }
+                members[cursor++] = template;
+            }
+            float scale = 1.0f / templates.size();
+            for (int k = 0; k < dims; k++) {
+                centroids[base + k] *= scale;
+            }
+            slotLabels[slot] = entry.getKey();
+            memberStart[++slot] = cursor;
+        }
+        return new CandidateIndex(extractor, cells, centroids, slotLabels, memberStart, members);
+    }
+
+    int labels() {
+        return slotLabels.length;
+    }
+
+    int coarseDimensions() {
+        return coarseDimensions;
+    }
+
+    long bytes() {
+        return (long) centroids.length * Float.BYTES
+                + (long) (slotLabels.length + memberStart.length + members.length) * Integer.BYTES;
+    }
+
+    /**
+     * Returns the template indices, ascending, of the {@code shortlist} labels whose
+     * centroids are closest to the probe histogram.
+     */
+    int[] candidates(float[] probe, int shortlist, ChiSquareKernel kernel) {
+        return templatesOf(rank(probe, shortlist, kernel));
+    }
+
+    /** Labels of the {@code shortlist} closest centroids, closest first. */
+    int[] shortlistLabels(float[] probe, int shortlist, ChiSquareKernel kernel) {
+        int[] slots = rank(probe, shortlist, kernel);
+        int[] labels = new int[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            labels[i] = slotLabels[slots[i]];
+        }
+        return labels;
+    }
+
+    private int[] rank(float[] probe, int shortlist, ChiSquareKernel kernel) {
+        float[] coarse = extractor.coarsen(probe, cells, cells);
+        int keep = Math.min(shortlist, slotLabels.length);
+        int[] bestSlots = new int[keep];
+        double[] bestDistances = new double[keep];
+        Arrays.fill(bestDistances, Double.MAX_VALUE);
+        for (int slot = 0; slot < slotLabels.length; slot++) {
+            double worst = bestDistances[keep - 1];
+            double distance = kernel.distance(centroids, slot * coarseDimensions, coarse, coarseDimensions, worst);
+            if (distance >= worst) {
+                continue;
+            }
+            // Insertion into the small sorted top-k buffer.
+            int at = keep - 1;
+            while (at > 0 && bestDistances[at - 1] > distance) {
+                bestDistances[at] = bestDistances[at - 1];
+                bestSlots[at] = bestSlots[at - 1];
+                at--;
+            }
+            bestDistances[at] = distance;
+            bestSlots[at] = slot;
+        }
+        int filled = 0;
+        while (filled < keep && bestDistances[filled] < Double.MAX_VALUE) {
+            filled++;
+        }
+        return filled == keep ? bestSlots : Arrays.copyOf(bestSlots, filled);
+    }
+
+    private int[] templatesOf(int[] slots) {
+        int total = 0;
+        for (int slot : slots) {
+            total += memberStart[slot + 1] - memberStart[slot];
+        }
+        int[] templates = new int[total];
+        int cursor = 0;
+        for (int slot : slots) {
+            int length = memberStart[slot + 1] - memberStart[slot];
+            System.arraycopy(members, memberStart[slot], templates, cursor, length);
+            cursor += length;
+        }
+        Arrays.sort(templates);
+        return templates;
+    }
+}
@@ -0,0 +1,51 @@
+package com.smartattendance.vision.recognizer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Chi-square histogram distance as computed by OpenCV's {@code HISTCMP_CHISQR_ALT}, the
+ * metric LBPH prediction uses: the sum over bins of {@code 2 (a - b)^2 / (a + b)}, skipping
+ * bins where both histograms are empty.
+ */
+interface ChiSquareKernel {
+
+    /**
+     * Compares {@code length} bins of {@code templates} starting at {@code offset} with the
+     * probe. Once the running sum exceeds {@code limit} the kernel may stop early and return
+     * any value greater than {@code limit}.
+     */
+    double distance(float[] templates, int offset, float[] probe, int length, double limit);
+
+    /**
+     * Same metric over unsigned 16-bit templates, read without widening the array. The probe
+     * and the result are in the templates' quantization units.
+     */
+    double distance(short[] templates, int offset, float[] probe, int length, double limit);
+
+    /** Unsigned 8-bit counterpart of {@link #distance(short[], int, float[], int, double)}. */
+    double distance(byte[] templates, int offset, float[] probe, int length, double limit);
+
+    /** Human-readable kernel name for logs and metrics. */
+    String name();
+
+    /**
+     * Returns the SIMD kernel when the {@code jdk.incubator.vector} module has been added to
+     * the boot layer (for example with {@code --add-modules jdk.incubator.vector}), and the
+     * scalar kernel otherwise.
+     */
+    static ChiSquareKernel select() {
+        Logger log = LoggerFactory.getLogger(ChiSquareKernel.class);
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                Class<?> type = Class.forName("com.smartattendance.vision.recognizer.VectorChiSquareKernel");
+                ChiSquareKernel kernel = (ChiSquareKernel) type.getDeclaredConstructor().newInstance();
+                log.info("Using {} chi-square kernel", kernel.name());
+                return kernel;
+            } catch (ReflectiveOperationException | LinkageError ex) {
+                log.warn("Vector API present but unusable, falling back to scalar chi-square: {}", ex.toString());
+            }
+        }
+        return new ScalarChiSquareKernel();
+    }
+}
@@ -0,0 +1,103 @@
+package com.smartattendance.vision.recognizer;
+
+import java.util.Arrays;
+
+/**
+ * Training histograms packed back to back in a single {@code float[]}, with the label of
+ * each template in a parallel {@code int[]}. Keeping the templates contiguous lets the
+ * chi-square scan stream through memory instead of chasing one native {@code Mat} per
+ * template. The arena is filled once while a model is built and only read afterwards, so
+ * concurrent {@link #nearest} calls need no locking once it has been safely published.
+ * It is also the source every other {@link TemplateArena.Storage} is encoded from.
+ */
+final class HistogramArena extends TemplateArena<float[]> {
+
+    private final int dimensions;
+    private float[] data;
+    private int[] labels;
+    private int size;
+
+    HistogramArena(int dimensions, int expectedTemplates) {
+        if (dimensions <= 0) {
+            throw new IllegalArgumentException("Histogram dimensions must be positive");
+        }
+        int capacity = Math.max(1, expectedTemplates);
+        this.dimensions = dimensions;
+        this.data = new float[Math.multiplyExact(capacity, dimensions)];
+        this.labels = new int[capacity];
+    }
+
+    /** Wraps an already packed matrix without copying it. */
+    HistogramArena(int dimensions, float[] data, int[] labels) {
+        if (dimensions <= 0 || (long) labels.length * dimensions != data.length) {
+            throw new IllegalArgumentException("Matrix of " + data.length + " values does not hold "
+                    + labels.length + " templates of " + dimensions + " bins");
+        }
+        this.dimensions = dimensions;
+        this.data = data;
+        this.labels = labels;
+        this.size = labels.length;
+    }
+
+    void add(float[] histogram, int label) {
+        if (histogram.length != dimensions) {
+            throw new IllegalArgumentException("Histogram has " + histogram.length + " bins, expected " + dimensions);
+        }
+        if (size == labels.length) {
+            int capacity = Math.max(size + 1, size + (size >> 1));
+            data = Arrays.copyOf(data, Math.multiplyExact(capacity, dimensions));
+            labels = Arrays.copyOf(labels, capacity);
+        }
+        System.arraycopy(histogram, 0, data, size * dimensions, dimensions);
+        labels[size++] = label;
+    }
+
+    @Override
+    int size() {
+        return size;
+    }
+
+    @Override
+    int dimensions() {
+        return dimensions;
+    }
+
+    @Override
+    int label(int index) {
+        return labels[index];
+    }
+
+    @Override
+    float[] histogram(int index) {
+        return Arrays.copyOfRange(data, index * dimensions, (index + 1) * dimensions);
+    }
+
+    @Override
+    long bytes() {
+        return (long) data.length * Float.BYTES + (long) labels.length * Integer.BYTES;
+    }
+
+    @Override
+    Storage storage() {
+        return Storage.FLOAT32;
+    }
+
+    @Override
+    float[] prepare(float[] probe) {
+        return probe;
+    }
+
+    @Override
+    double distance(int index, float[] probe, double limit, ChiSquareKernel kernel) {
+        return kernel.distance(data, index * dimensions, probe, dimensions, limit);
+    }
+
+    /** Largest value stored in any bin, used to pick a quantization scale. */
+    float max() {
+        float max = 0.0f;
+        for (int i = 0, n = size * dimensions; i < n; i++) {
+            max = Math.max(max, data[i]);
+        }
+        return max;
+    }
+}
@@ -0,0 +1,463 @@
+package com.smartattendance.vision.recognizer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.face.LBPHFaceRecognizer;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.smartattendance.config.AttendanceProperties;
+import com.smartattendance.vision.Recognizer;
+import com.smartattendance.vision.preprocess.Augmenter;
+import com.smartattendance.vision.preprocess.FaceImageProcessor;
+import com.smartattendance.vision.preprocess.ImageQuality;
+
+/**
+ * LBPH recognizer implemented in Java. Feature extraction and matching reproduce OpenCV's
+ * {@code LBPHFaceRecognizer}, so models trained by the service load unchanged and produce
+ * the same distances, either from the binary {@link LbphModelFile} or from {@code lbph.yml}
+ * plus {@code labels.txt}. Templates live in a
+ * single {@link TemplateArena}, kept as floats or, to cut resident memory, as quantized or
+ * sparse bins that are matched without expanding them; the float scan uses the Vector API
+ * when it is available and splits across cores for large sections, and models with many
+ * labels are first narrowed to a shortlist by a {@link CandidateIndex}. The loaded model is immutable and swapped
+ * atomically, so one instance can serve all recognition workers.
+ */
+public class JavaLBPHRecognizer implements Recognizer {
+    private static final Logger log = LoggerFactory.getLogger(JavaLBPHRecognizer.class);
+    private static final String MODEL_FILE = "lbph.yml";
+    private static final String LABELS_FILE = "labels.txt";
+
+    private final FaceImageProcessor processor;
+    private final ChiSquareKernel kernel = ChiSquareKernel.select();
+    private final AtomicLong indexedPredictions = new AtomicLong();
+    private final AtomicLong exhaustivePredictions = new AtomicLong();
+    private AttendanceProperties properties;
+    private int radius = 2;
+    private int neighbors = 16;
+    private int gridX = 10;
+    private int gridY = 10;
+    private boolean uniformPatterns;
+    private TemplateArena.Storage storage = TemplateArena.Storage.SPARSE;
+    private double threshold = Double.MAX_VALUE;
+    private boolean indexEnabled = true;
+    private int indexMinLabels = 64;
+    private int indexShortlist = 12;
+    private int indexGrid = 4;
+    private Path trainingRoot;
+    private volatile Model model;
+
+    public JavaLBPHRecognizer(FaceImageProcessor processor) {
+        this.processor = processor != null ? processor : new FaceImageProcessor();
+    }
+
+    public JavaLBPHRecognizer() { this(new FaceImageProcessor()); }
+
+    public JavaLBPHRecognizer(AttendanceProperties properties) {
+        this(properties != null
+                ? new FaceImageProcessor(properties.preprocessing())
+                : new FaceImageProcessor());
+        configureFrom(properties);
+    }
+
+    /** Applies LBPH parameters, pattern folding and the rejection threshold from configuration. */
+    public JavaLBPHRecognizer configureFrom(AttendanceProperties properties) {
+        if (properties == null) return this;
+        this.properties = properties;
+        try {
+            processor.updatePreprocessingConfig(properties.preprocessing());
+        } catch (Exception ex) {
+            log.warn("Failed to apply preprocessing config: {}", ex.getMessage());
+        }
+        AttendanceProperties.Recognition recognition = properties.recognition();
+        AttendanceProperties.Lbph lbph = recognition != null ? recognition.lbph() : null;
+        if (lbph != null) {
+            this.radius = lbph.radius();
+            this.neighbors = lbph.neighbors();
+            this.gridX = lbph.gridX();
+            this.gridY = lbph.gridY();
+            this.uniformPatterns = lbph.uniformPatterns();
+            this.storage = TemplateArena.Storage.parse(lbph.storage());
+        }
+        AttendanceProperties.RecognitionIndex index = recognition != null ? recognition.index() : null;
+        if (index != null) {
+            this.indexEnabled = index.enabled();
+            this.indexMinLabels = index.minLabels();
+            this.indexShortlist = index.shortlist();
+            this.indexGrid = index.grid();
+        }
+        this.threshold = recognition != null
+                ? Math.max(1.0, recognition.manualReviewMaxDistance())
+                : Double.MAX_VALUE;
+        return this;
+    }
+
+    @Override
+    public boolean isThreadSafe() { return true; }
+
+    @Override
+    public void train(Path root) throws IOException {
+        long t0 = System.nanoTime();
+        this.trainingRoot = root;
+        if (!Files.isDirectory(root)) {
+            log.error("Training directory not found: {}", root.toAbsolutePath());
+            model = null;
+            return;
+        }
+        LbpHistogramExtractor extractor = new LbpHistogramExtractor(radius, neighbors, gridX, gridY, uniformPatterns);
+        List<float[]> histograms = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+        Map<Integer, String> labels = new HashMap<>();
+        int label = 0;
+        try (DirectoryStream<Path> students = Files.newDirectoryStream(root)) {
+            for (Path studentDir : students) {
+                if (!Files.isDirectory(studentDir)) continue;
+                labels.put(label, studentDir.getFileName().toString());
+                extractStudent(studentDir, label, extractor, histograms, ids);
+                label++;
+            }
+        }
+        if (histograms.size() < 2) {
+            log.error("Insufficient training data; recognizer disabled.");
+            model = null;
+            return;
+        }
+        HistogramArena arena = new HistogramArena(extractor.dimensions(), histograms.size());
+        for (int i = 0; i < histograms.size(); i++) {
+            arena.add(histograms.get(i), ids.get(i));
+        }
+        model = newModel(extractor, arena, labels, threshold);
+        long dtMs = (System.nanoTime() - t0) / 1_000_000L;
+        log.info("Java LBPH trained: images={} labels={} took={}ms", histograms.size(), labels.size(), dtMs);
+    }
+
+    @Override
+    public boolean supportsIncremental() { return true; }
+
+    @Override
+    public void updateIncremental(Path studentDir, String studentId) throws IOException {
+        long t0 = System.nanoTime();
+        Model current = model;
+        if (current == null) {
+            Path root = studentDir.getParent();
+            if (root != null) train(root);
+            return;
+        }
+        if (!Files.isDirectory(studentDir)) return;
+        int label = current.labelOf(studentId);
+        Map<Integer, String> labels = new HashMap<>(current.labels());
+        if (label < 0) {
+            label = labels.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1) + 1;
+            labels.put(label, studentId);
+        }
+        List<float[]> histograms = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+        extractStudent(studentDir, label, current.extractor(), histograms, ids);
+        if (histograms.isEmpty()) return;
+        TemplateArena<?> source = current.arena();
+        HistogramArena arena = new HistogramArena(source.dimensions(), source.size() + histograms.size());
+        for (int i = 0; i < source.size(); i++) {
+            arena.add(source.histogram(i), source.label(i));
+        }
+        for (int i = 0; i < histograms.size(); i++) {
+            arena.add(histograms.get(i), ids.get(i));
+        }
+        model = newModel(current.extractor(), arena, labels, current.threshold());
+        long dtMs = (System.nanoTime() - t0) / 1_000_000L;
+        log.info("Java LBPH incremental update: student={} imagesAdded={} label={} took={}ms",
+                studentId, histograms.size(), label, dtMs);
+    }
+
+    @Override
+    public void removeStudent(String studentId) throws IOException {
+        Model current = model;
+        if (current == null) return;
+        int label = current.labelOf(studentId);
+        if (label < 0) return;
+        // Templates are independent of each other, so removal only drops rows.
+        TemplateArena<?> source = current.arena();
+        HistogramArena arena = new HistogramArena(source.dimensions(), source.size());
+        for (int i = 0; i < source.size(); i++) {
+            if (source.label(i) != label) {
+                arena.add(source.histogram(i), source.label(i));
+            }
+        }
+        Map<Integer, String> labels = new HashMap<>(current.labels());
+        labels.remove(label);
+        model = arena.size() > 0 ? newModel(current.extractor(), arena, labels, current.threshold()) : null;
+    }
+
+    @Override
+    public Prediction recognize(Mat face) {
+        Model current = model;
+        if (current == null) return new Prediction("unknown", Double.POSITIVE_INFINITY);
+        float[] probe = histogramOf(face, current.extractor());
+        int[] candidates = null;
+        if (current.index() != null) {
+            candidates = current.index().candidates(probe, indexShortlist, kernel);
+            indexedPredictions.incrementAndGet();
+        } else {
+            exhaustivePredictions.incrementAndGet();
+        }
+        TemplateArena.Match match = current.arena().nearest(probe, candidates, threshold, kernel);
+        String id = match.found() ? current.labels().getOrDefault(match.label(), "unknown") : "unknown";
+        return new Prediction(id, Math.max(0.0, match.distance()));
+    }
+
+    /**
+     * Writes the model as {@code lbph.bin} and, unless it uses uniform patterns (which have no
+     * OpenCV equivalent), also as {@code lbph.yml} in OpenCV's FileStorage layout so it can
+     * still be read by {@link LBPHRecognizer}. {@code labels.txt} is always written.
+     */
+    @Override
+    public void saveModel(Path modelDir) throws IOException {
+        long t0 = System.nanoTime();
+        Model current = model;
+        if (current == null) {
+            throw new IOException("No trained LBPH model to save");
+        }
+        Files.createDirectories(modelDir);
+        LbpHistogramExtractor extractor = current.extractor();
+        TemplateArena<?> arena = current.arena();
+        int[] templateLabels = new int[arena.size()];
+        for (int i = 0; i < templateLabels.length; i++) {
+            templateLabels[i] = arena.label(i);
+        }
+        LbphModelFile.write(modelDir.resolve(LbphModelFile.FILE_NAME), extractor.radius(), extractor.neighbors(),
+                extractor.gridX(), extractor.gridY(), extractor.uniform(), current.threshold(), LbphModelFile.Encoding.FLOAT32,
+                arena.dimensions(), templateLabels, arena::histogram, current.labels());
+        if (!extractor.uniform()) {
+            LbphModelFile.writeYaml(modelDir.resolve(MODEL_FILE), extractor.radius(), extractor.neighbors(),
+                    extractor.gridX(), extractor.gridY(), current.threshold(), templateLabels, arena::histogram);
+        }
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<Integer, String> e : current.labels().entrySet()) {
+            lines.add(e.getKey() + "," + e.getValue());
+        }
+        Files.write(modelDir.resolve(LABELS_FILE), lines, StandardCharsets.UTF_8);
+        long dtMs = (System.nanoTime() - t0) / 1_000_000L;
+        log.info("Java LBPH model saved to {} in {}ms", modelDir, dtMs);
+    }
+
+    /**
+     * Loads {@code lbph.bin} when present, otherwise the OpenCV {@code lbph.yml} +
+     * {@code labels.txt} pair. The LBPH parameters stored in the model take precedence over
+     * configuration so probes are encoded the way the templates were.
+     */
+    @Override
+    public void loadModel(Path modelDir) throws IOException {
+        long t0 = System.nanoTime();
+        Path binaryFile = modelDir.resolve(LbphModelFile.FILE_NAME);
+        Model loaded;
+        String source;
+        if (Files.exists(binaryFile)) {
+            loaded = loadBinary(binaryFile);
+            source = LbphModelFile.FILE_NAME;
+        } else {
+            Path modelFile = modelDir.resolve(MODEL_FILE);
+            Path labelsFile = modelDir.resolve(LABELS_FILE);
+            if (!Files.exists(modelFile) || !Files.exists(labelsFile)) return;
+            loaded = loadYaml(modelFile, labelsFile);
+            source = MODEL_FILE;
+        }
+        model = loaded;
+        TemplateArena<?> arena = loaded.arena();
+        long dtMs = (System.nanoTime() - t0) / 1_000_000L;
+        log.info("Java LBPH model loaded from {}/{} (labels={}, templates={}, bins={}, {} MB {}, {} kernel) in {}ms",
+                modelDir, source, loaded.labels().size(), arena.size(), arena.dimensions(),
+                String.format("%.1f", arena.bytes() / (1024.0 * 1024.0)), arena.storage().name().toLowerCase(),
+                kernel.name(), dtMs);
+    }
+
+    private Model loadBinary(Path file) throws IOException {
+        LbphModelFile.Contents contents = LbphModelFile.read(file);
+        boolean uniform = contents.uniformPatterns() || uniformPatterns;
+        LbpHistogramExtractor extractor = new LbpHistogramExtractor(
+                contents.radius(), contents.neighbors(), contents.gridX(), contents.gridY(), uniform);
+        HistogramArena arena;
+        if (uniform == contents.uniformPatterns()) {
+            arena = new HistogramArena(contents.dimensions(), contents.histograms(), contents.templateLabels());
+        } else {
+            arena = new HistogramArena(extractor.dimensions(), contents.templates());
+            float[] row = new float[contents.dimensions()];
+            for (int i = 0; i < contents.templates(); i++) {
+                System.arraycopy(contents.histograms(), i * row.length, row, 0, row.length);
+                arena.add(extractor.project(row), contents.templateLabels()[i]);
+            }
+        }
+        return newModel(extractor, arena, contents.labels(), contents.threshold());
+    }
+
+    /** The YAML is parsed by OpenCV's own reader and its histograms copied into the arena. */
+    private Model loadYaml(Path modelFile, Path labelsFile) throws IOException {
+        LBPHFaceRecognizer stored = LBPHFaceRecognizer.create();
+        stored.read(modelFile.toString());
+        LbpHistogramExtractor extractor = new LbpHistogramExtractor(
+                stored.getRadius(), stored.getNeighbors(), stored.getGridX(), stored.getGridY(), uniformPatterns);
+        List<Mat> histograms = stored.getHistograms();
+        Mat labelMat = stored.getLabels();
+        HistogramArena arena = new HistogramArena(extractor.dimensions(), histograms.size());
+        try {
+            if (labelMat.total() != histograms.size()) {
+                throw new IOException("Model " + modelFile + " has " + histograms.size()
+                        + " histograms but " + labelMat.total() + " labels");
+            }
+            int[] templateLabels = new int[histograms.size()];
+            if (templateLabels.length > 0) {
+                labelMat.get(0, 0, templateLabels);
+            }
+            for (int i = 0; i < histograms.size(); i++) {
+                Mat histogram = histograms.get(i);
+                float[] values = new float[(int) histogram.total()];
+                histogram.get(0, 0, values);
+                arena.add(extractor.project(values), templateLabels[i]);
+            }
+        } finally {
+            for (Mat histogram : histograms) {
+                try { histogram.release(); } catch (Exception ignored) {}
+            }
+            try { labelMat.release(); } catch (Exception ignored) {}
+        }
+        return newModel(extractor, arena, LbphModelFile.readLabels(labelsFile), stored.getThreshold());
+    }
+
+    /** Template count, histogram width and arena footprint of the loaded model. */
+    public Map<String, Object> metrics() {
+        Model current = model;
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("engine", "java");
+        metrics.put("kernel", kernel.name());
+        metrics.put("templates", current != null ? current.arena().size() : 0);
+        metrics.put("bins", current != null ? current.arena().dimensions() : 0);
+        metrics.put("arenaBytes", current != null ? current.arena().bytes() : 0L);
+        metrics.put("storage", (current != null ? current.arena().storage() : storage).name().toLowerCase());
+        metrics.put("uniformPatterns", current != null && current.extractor().uniform());
+        CandidateIndex index = current != null ? current.index() : null;
+        metrics.put("indexedLabels", index != null ? index.labels() : 0);
+        metrics.put("indexBytes", index != null ? index.bytes() : 0L);
+        metrics.put("shortlist", indexShortlist);
+        metrics.put("indexedPredictions", indexedPredictions.get());
+        metrics.put("exhaustivePredictions", exhaustivePredictions.get());
+        return metrics;
+    }
+
+    private Model newModel(LbpHistogramExtractor extractor,
+                           HistogramArena arena,
+                           Map<Integer, String> labels,
+                           double storedThreshold) {
+        CandidateIndex index = null;
+        if (indexEnabled && labels.size() >= indexMinLabels && labels.size() > indexShortlist) {
+            long t0 = System.nanoTime();
+            index = CandidateIndex.build(arena, extractor, indexGrid);
+            log.info("Built candidate index: labels={} coarseBins={} shortlist={} in {}ms",
+                    index.labels(), index.coarseDimensions(), indexShortlist, (System.nanoTime() - t0) / 1_000_000L);
+        }
+        // Centroids come from the float arena; only the templates themselves are re-encoded.
+        TemplateArena<?> templates = TemplateArena.encode(arena, storage);
+        return new Model(extractor, templates, index, Collections.unmodifiableMap(labels), storedThreshold);
+    }
+
+    private void extractStudent(Path studentDir,
+                                int label,
+                                LbpHistogramExtractor extractor,
+                                List<float[]> histograms,
+                                List<Integer> ids) throws IOException {
+        double blurThreshold = trainingBlurThreshold();
+        try (DirectoryStream<Path> images = Files.newDirectoryStream(studentDir, p -> {
+            String s = p.toString().toLowerCase();
+            return s.endsWith(".png") || s.endsWith(".jpg");
+        })) {
+            for (Path img : images) {
+                Mat m = Imgcodecs.imread(img.toString());
+                if (m.empty()) continue;
+                try {
+                    if (!ImageQuality.isSharpEnough(m, blurThreshold)) {
+                        log.debug("Skipping blurred training image {} variance below {}", img, blurThreshold);
+                        continue;
+                    }
+                    for (Mat variant : Augmenter.augment(m, properties)) {
+                        try {
+                            histograms.add(histogramOf(variant, extractor));
+                            ids.add(label);
+                        } finally {
+                            try { variant.release(); } catch (Exception ignored) {}
+                        }
+                    }
+                } finally {
+                    try { m.release(); } catch (Exception ignored) {}
+                }
+            }
+        }
+    }
+
+    private float[] histogramOf(Mat face, LbpHistogramExtractor extractor) {
+        Mat processed = processor.preprocess(face);
+        Mat gray = processed;
+        try {
+            if (processed.type() != CvType.CV_8UC1) {
+                gray = new Mat();
+                if (processed.channels() == 3) {
+                    Imgproc.cvtColor(processed, gray, Imgproc.COLOR_BGR2GRAY);
+                } else if (processed.channels() == 4) {
+                    Imgproc.cvtColor(processed, gray, Imgproc.COLOR_BGRA2GRAY);
+                } else {
+                    processed.convertTo(gray, CvType.CV_8UC1);
+                }
+            }
+            return extractor.extract(gray);
+        } finally {
+            if (gray != processed) {
+                try { gray.release(); } catch (Exception ignored) {}
+            }
+            if (processed != face) {
+                try { processed.release(); } catch (Exception ignored) {}
+            }
+        }
+    }
+
+    private double trainingBlurThreshold() {
+        if (properties == null || properties.capture() == null) {
+            return 0.0d;
+        }
+        double post = properties.capture().postCaptureBlurVarianceThreshold();
+        if (Double.isFinite(post) && post > 0.0d) {
+            return post;
+        }
+        double pre = properties.capture().blurVarianceThreshold();
+        if (Double.isFinite(pre) && pre > 0.0d) {
+            return pre;
+        }
+        return 0.0d;
+    }
+
+    /** {@code threshold} is the value persisted with the model; matching uses the configured one. */
+    private record Model(LbpHistogramExtractor extractor,
+                         TemplateArena<?> arena,
+                         CandidateIndex index,
+                         Map<Integer, String> labels,
+                         double threshold) {
+        int labelOf(String studentId) {
+            for (Map.Entry<Integer, String> e : labels.entrySet()) {
+                if (e.getValue().equals(studentId)) {
+                    return e.getKey();
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.smartattendance.vision.recognizer;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+/**
+ * Computes LBPH spatial histograms in Java. The circular, bilinearly interpolated local
+ * binary pattern and the per-cell normalization follow OpenCV's {@code LBPHFaceRecognizer}
+ * exactly, so histograms are interchangeable with those stored in {@code lbph.yml}. With
+ * {@code uniform} enabled, the 2^P codes of each cell are folded into P(P-1)+3 bins: one
+ * per uniform pattern plus a shared bin for all non-uniform ones. Instances are immutable
+ * and safe to share between threads.
+ */
+public final class LbpHistogramExtractor {
+
+    private final int radius;
+    private final int neighbors;
+    private final int gridX;
+    private final int gridY;
+    private final boolean uniform;
+    private final int patterns;
+    private final int bins;
+    private final int[] binForCode;
+    private final int[] uniformBinForCode;
+    private final int uniformBins;
+    private final int[] lowX;
+    private final int[] lowY;
+    private final int[] highX;
+    private final int[] highY;
+    private final float[] w1;
+    private final float[] w2;
+    private final float[] w3;
+    private final float[] w4;
+
+    public LbpHistogramExtractor(int radius, int neighbors, int gridX, int gridY, boolean uniform) {
+        if (radius < 1 || neighbors < 1 || neighbors > 16 || gridX < 1 || gridY < 1) {
+            throw new IllegalArgumentException("Invalid LBPH parameters: radius=" + radius + ", neighbors=" + neighbors
+                    + ", grid=" + gridX + "x" + gridY);
+        }
+        this.radius = radius;
+        this.neighbors = neighbors;
+        this.gridX = gridX;
+        this.gridY = gridY;
+        this.uniform = uniform;
+        this.patterns = 1 << neighbors;
+        this.uniformBinForCode = new int[patterns];
+        int next = 0;
+        int nonUniformBin = neighbors * (neighbors - 1) + 2;
+        for (int code = 0; code < patterns; code++) {
+            uniformBinForCode[code] = transitions(code, neighbors) <= 2 ? next++ : nonUniformBin;
+        }
+        this.uniformBins = nonUniformBin + 1;
+        if (uniform) {
+            this.binForCode = uniformBinForCode;
+            this.bins = uniformBins;
+        } else {
+            this.binForCode = new int[patterns];
+            for (int code = 0; code < patterns; code++) {
+                binForCode[code] = code;
+            }
+            this.bins = patterns;
+        }
+        lowX = new int[neighbors];
+        lowY = new int[neighbors];
+        highX = new int[neighbors];
+        highY = new int[neighbors];
+        w1 = new float[neighbors];
+        w2 = new float[neighbors];
+        w3 = new float[neighbors];
+        w4 = new float[neighbors];
+        for (int n = 0; n < neighbors; n++) {
+            // Same single-precision sample positions and weights as OpenCV's elbp_.
+            float x = (float) (radius * Math.cos(2.0 * Math.PI * n / (float) neighbors));
+            float y = (float) (-radius * Math.sin(2.0 * Math.PI * n / (float) neighbors));
+            lowX[n] = (int) Math.floor(x);
+            lowY[n] = (int) Math.floor(y);
+            highX[n] = (int) Math.ceil(x);
+            highY[n] = (int) Math.ceil(y);
+            float ty = y - lowY[n];
+            float tx = x - lowX[n];
+            w1[n] = (1 - tx) * (1 - ty);
+            w2[n] = tx * (1 - ty);
+            w3[n] = (1 - tx) * ty;
+            w4[n] = tx * ty;
+        }
+    }
+
+    public int radius() {
+        return radius;
+    }
+
+    public int neighbors() {
+        return neighbors;
+    }
+
+    public int gridX() {
+        return gridX;
+    }
+
+    public int gridY() {
+        return gridY;
+    }
+
+    public boolean uniform() {
+        return uniform;
+    }
+
+    /** Length of one spatial histogram: cells times bins per cell. */
+    public int dimensions() {
+        return gridX * gridY * bins;
+    }
+
+    /** Computes the spatial histogram of a single-channel 8-bit image. */
+    public float[] extract(Mat gray) {
+        if (gray.type() != CvType.CV_8UC1) {
+            throw new IllegalArgumentException("LBPH expects a CV_8UC1 image, got type " + gray.type());
+        }
+        int rows = gray.rows();
+        int cols = gray.cols();
+        byte[] pixels = new byte[rows * cols];
+        Mat source = gray.isContinuous() ? gray : gray.clone();
+        try {
+            source.get(0, 0, pixels);
+        } finally {
+            if (source != gray) {
+                source.release();
+            }
+        }
+        return extract(pixels, rows, cols);
+    }
+
+    /** Computes the spatial histogram of row-major 8-bit pixels. */
+    public float[] extract(byte[] pixels, int rows, int cols) {
+        float[] histogram = new float[dimensions()];
+        int codeRows = rows - 2 * radius;
+        int codeCols = cols - 2 * radius;
+        if (codeRows <= 0 || codeCols <= 0) {
+            return histogram;
+        }
+        int[] codes = new int[codeRows * codeCols];
+        for (int n = 0; n < neighbors; n++) {
+            int bit = 1 << n;
+            int offA = lowY[n] * cols + lowX[n];
+            int offB = lowY[n] * cols + highX[n];
+            int offC = highY[n] * cols + lowX[n];
+            int offD = highY[n] * cols + highX[n];
+            float a = w1[n];
+            float b = w2[n];
+            float c = w3[n];
+            float d = w4[n];
+            for (int i = radius; i < rows - radius; i++) {
+                int row = i * cols;
+                int out = (i - radius) * codeCols - radius;
+                for (int j = radius; j < cols - radius; j++) {
+                    int p = row + j;
+                    float t = a * (pixels[p + offA] & 0xFF) + b * (pixels[p + offB] & 0xFF)
+                            + c * (pixels[p + offC] & 0xFF) + d * (pixels[p + offD] & 0xFF);
+                    int center = pixels[p] & 0xFF;
+                    if (t > center || Math.abs(t - center) < Math.ulp(1.0f)) {
+                        codes[out + j] |= bit;
+                    }
+                }
+            }
+        }
+        int cellWidth = codeCols / gridX;
+        int cellHeight = codeRows / gridY;
+        if (cellWidth == 0 || cellHeight == 0) {
+            return histogram;
+        }
+        float norm = 1.0f / (cellWidth * cellHeight);
+        int cell = 0;
+        for (int gy = 0; gy < gridY; gy++) {
+            for (int gx = 0; gx < gridX; gx++) {
+                int base = cell * bins;
+                for (int y = gy * cellHeight; y < (gy + 1) * cellHeight; y++) {
+                    int row = y * codeCols;
+                    for (int x = gx * cellWidth; x < (gx + 1) * cellWidth; x++) {
+                        histogram[base + binForCode[codes[row + x]]] += 1.0f;
+                    }
+                }
+                for (int k = 0; k < bins; k++) {
+                    histogram[base + k] *= norm;
+                }
+                cell++;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Folds a full 2^P-bin histogram, as stored by OpenCV, into this extractor's bin layout.
+     * Returns the input unchanged when uniform folding is disabled.
+     */
+    public float[] project(float[] fullHistogram) {
+        if (!uniform) {
+            return fullHistogram;
+        }
+        int cells = gridX * gridY;
+        if (fullHistogram.length != cells * patterns) {
+            throw new IllegalArgumentException("Histogram length " + fullHistogram.length
+                    + " does not match " + cells + " cells of " + patterns + " patterns");
+        }
+        float[] folded = new float[dimensions()];
+        for (int cell = 0; cell < cells; cell++) {
+            int in = cell * patterns;
+            int out = cell * bins;
+            for (int code = 0; code < patterns; code++) {
+                folded[out + uniformBinForCode[code]] += fullHistogram[in + code];
+            }
+        }
+        return folded;
+    }
+
+    /** Length of a {@link #coarsen} signature for the given coarse grid. */
+    public int coarseDimensions(int cellsX, int cellsY) {
+        return Math.min(cellsX, gridX) * Math.min(cellsY, gridY) * uniformBins;
+    }
+
+    /**
+     * Reduces a histogram in this extractor's layout to a low-resolution signature: blocks
+     * of cells are summed into a {@code cellsX} x {@code cellsY} grid and every code is
+     * folded into its uniform-pattern bin. Chi-square between signatures is a cheap proxy
+     * for the full distance, good enough to rank candidates.
+     */
+    public float[] coarsen(float[] histogram, int cellsX, int cellsY) {
+        int outX = Math.min(cellsX, gridX);
+        int outY = Math.min(cellsY, gridY);
+        float[] coarse = new float[outX * outY * uniformBins];
+        int cell = 0;
+        for (int gy = 0; gy < gridY; gy++) {
+            int cy = gy * outY / gridY;
+            for (int gx = 0; gx < gridX; gx++) {
+                int cx = gx * outX / gridX;
+                int in = cell * bins;
+                int out = (cy * outX + cx) * uniformBins;
+                if (uniform) {
+                    for (int k = 0; k < bins; k++) {
+                        coarse[out + k] += histogram[in + k];
+                    }
+                } else {
+                    for (int code = 0; code < patterns; code++) {
+                        coarse[out + uniformBinForCode[code]] += histogram[in + code];
+                    }
+                }
+                cell++;
+            }
+        }
+        return coarse;
+    }
+
+    private static int transitions(int code, int bits) {
+        int rotated = ((code >>> 1) | ((code & 1) << (bits - 1)));
+        return Integer.bitCount(code ^ rotated);
+    }
+}
@@ -0,0 +1,153 @@
+package com.smartattendance.vision.recognizer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Content addressing for {@link LbphModelFile} models. Every template is identified by a
+ * hash of its student id and its bins quantized to 16 bits, so the identity survives label
+ * renumbering and float/uint16 re-encoding. The model version hashes the LBPH parameters
+ * and the sorted template hashes, which makes it independent of template order: a model
+ * rebuilt from a delta has the same version as the one it was computed against. The same
+ * class exists in the service, which computes the deltas this one applies.
+ */
+public final class LbphModelDelta {
+
+    private static final int TEMPLATE_HASH_BYTES = 16;
+
+    /**
+     * @param version        content hash of the whole model
+     * @param templateHashes hash of every template, in file order
+     */
+    public record Digest(String version, List<String> templateHashes) {
+    }
+
+    private LbphModelDelta() {
+    }
+
+    public static Digest digest(LbphModelFile.Contents contents) {
+        List<String> hashes = new ArrayList<>(contents.templates());
+        ByteBuffer row = ByteBuffer.allocate(contents.dimensions() * Short.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        MessageDigest sha = sha256();
+        for (int i = 0; i < contents.templates(); i++) {
+            String studentId = contents.labels().getOrDefault(contents.templateLabels()[i], "");
+            row.clear();
+            int base = i * contents.dimensions();
+            for (int k = 0; k < contents.dimensions(); k++) {
+                float v = Math.max(0.0f, Math.min(1.0f, contents.histograms()[base + k]));
+                row.putShort((short) Math.round(v * 65535.0f));
+            }
+            sha.update(studentId.getBytes(StandardCharsets.UTF_8));
+            sha.update((byte) 0);
+            sha.update(row.array());
+            hashes.add(hex(Arrays.copyOf(sha.digest(), TEMPLATE_HASH_BYTES)));
+        }
+        String[] sorted = hashes.toArray(new String[0]);
+        Arrays.sort(sorted);
+        sha.update((contents.radius() + ":" + contents.neighbors() + ":" + contents.gridX() + ":" + contents.gridY()
+                + ":" + contents.uniformPatterns() + ":" + contents.dimensions()).getBytes(StandardCharsets.UTF_8));
+        for (String hash : sorted) {
+            sha.update(hash.getBytes(StandardCharsets.US_ASCII));
+        }
+        return new Digest(hex(sha.digest()), List.copyOf(hashes));
+    }
+
+    /** Writes the templates at {@code rows} of {@code contents}, keeping its full label table. */
+    public static void writeSubset(Path file,
+                                   LbphModelFile.Contents contents,
+                                   int[] rows,
+                                   LbphModelFile.Encoding encoding) throws IOException {
+        int[] templateLabels = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            templateLabels[i] = contents.templateLabels()[rows[i]];
+        }
+        int dimensions = contents.dimensions();
+        LbphModelFile.write(file, contents.radius(), contents.neighbors(), contents.gridX(), contents.gridY(),
+                contents.uniformPatterns(), contents.threshold(), encoding, dimensions, templateLabels,
+                i -> Arrays.copyOfRange(contents.histograms(), rows[i] * dimensions, (rows[i] + 1) * dimensions),
+                contents.labels());
+    }
+
+    /**
+     * Rebuilds the current model from a cached {@code base}: its templates minus
+     * {@code removed}, followed by the templates in {@code added}. Parameters and the label
+     * table come from {@code added}, which the service always sends in full.
+     *
+     * @throws IOException if a kept template belongs to a student the new label table lacks
+     *                     or the two models were built with different parameters
+     */
+    public static void apply(Path file,
+                             LbphModelFile.Contents base,
+                             Collection<String> removed,
+                             LbphModelFile.Contents added,
+                             LbphModelFile.Encoding encoding) throws IOException {
+        if (base.dimensions() != added.dimensions() || base.radius() != added.radius()
+                || base.neighbors() != added.neighbors() || base.gridX() != added.gridX()
+                || base.gridY() != added.gridY() || base.uniformPatterns() != added.uniformPatterns()) {
+            throw new IOException("Model delta was computed for different LBPH parameters");
+        }
+        Map<String, Integer> labelOf = new HashMap<>();
+        added.labels().forEach((label, studentId) -> labelOf.put(studentId, label));
+        Set<String> drop = new HashSet<>(removed);
+        List<String> baseHashes = digest(base).templateHashes();
+        List<Integer> keptRows = new ArrayList<>();
+        List<Integer> keptLabels = new ArrayList<>();
+        for (int i = 0; i < base.templates(); i++) {
+            if (drop.contains(baseHashes.get(i))) {
+                continue;
+            }
+            String studentId = base.labels().get(base.templateLabels()[i]);
+            Integer label = studentId != null ? labelOf.get(studentId) : null;
+            if (label == null) {
+                throw new IOException("Cached template of student " + studentId + " is not in the current label table");
+            }
+            keptRows.add(i);
+            keptLabels.add(label);
+        }
+        int kept = keptRows.size();
+        int[] templateLabels = new int[kept + added.templates()];
+        for (int i = 0; i < kept; i++) {
+            templateLabels[i] = keptLabels.get(i);
+        }
+        System.arraycopy(added.templateLabels(), 0, templateLabels, kept, added.templates());
+        int dimensions = added.dimensions();
+        LbphModelFile.write(file, added.radius(), added.neighbors(), added.gridX(), added.gridY(),
+                added.uniformPatterns(), added.threshold(), encoding, dimensions, templateLabels, i -> {
+                    if (i < kept) {
+                        int row = keptRows.get(i);
+                        return Arrays.copyOfRange(base.histograms(), row * dimensions, (row + 1) * dimensions);
+                    }
+                    int row = i - kept;
+                    return Arrays.copyOfRange(added.histograms(), row * dimensions, (row + 1) * dimensions);
+                }, added.labels());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 unavailable", ex);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+}
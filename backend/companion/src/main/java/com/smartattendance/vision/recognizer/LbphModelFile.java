@@ -0,0 +1,442 @@
+package com.smartattendance.vision.recognizer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+
+import org.opencv.core.Mat;
+import org.opencv.face.LBPHFaceRecognizer;
+
+/**
+ * Versioned binary LBPH model ({@code lbph.bin}) that replaces the OpenCV YAML on the wire.
+ * All values are little-endian:
+ *
+ * <pre>
+ * 0    magic "LBPHBIN\0"
+ * 8    int version, int encoding (0 = float32, 1 = uint16, 2 = uint8)
+ * 16   int radius, neighbors, gridX, gridY, flags (bit 0: uniform patterns)
+ * 36   int templates, dimensions, labelCount
+ * 48   double threshold
+ * 56   long labelTableOffset, templateLabelsOffset, dataOffset
+ * 80   reserved up to 128
+ *      label table: labelCount x (int label, int utf8Length, utf8 bytes)
+ *      template labels: templates x int
+ *      histogram matrix: templates x dimensions values, 64-byte aligned
+ * </pre>
+ *
+ * Quantized encodings store {@code round(value * max)}; LBPH bins are per-cell frequencies
+ * in [0, 1], so uint16 is lossless for practical purposes. Reading maps the file and bulk
+ * copies the matrix; there is no text parsing. The same class exists in the service, which
+ * writes the files this one reads.
+ */
+public final class LbphModelFile {
+
+    public static final String FILE_NAME = "lbph.bin";
+    public static final int VERSION = 1;
+    private static final byte[] MAGIC = {'L', 'B', 'P', 'H', 'B', 'I', 'N', 0};
+    private static final int HEADER_BYTES = 128;
+    private static final int DATA_ALIGNMENT = 64;
+    private static final int FLAG_UNIFORM = 1;
+    /** Upper bound for one mapped window of the histogram matrix. */
+    private static final long MAX_MAP_BYTES = 1L << 30;
+    private static final int YAML_VALUES_PER_LINE = 8;
+
+    /** Storage type of the histogram matrix. */
+    public enum Encoding {
+        FLOAT32(0, 4, 0.0f),
+        UINT16(1, 2, 65535.0f),
+        UINT8(2, 1, 255.0f);
+
+        private final int id;
+        private final int bytes;
+        private final float max;
+
+        Encoding(int id, int bytes, float max) {
+            this.id = id;
+            this.bytes = bytes;
+            this.max = max;
+        }
+
+        public int bytesPerValue() {
+            return bytes;
+        }
+
+        public static Encoding parse(String value) {
+            if (value == null) {
+                return UINT16;
+            }
+            return switch (value.trim().toLowerCase()) {
+                case "f32", "float", "float32" -> FLOAT32;
+                case "u8", "uint8" -> UINT8;
+                default -> UINT16;
+            };
+        }
+
+        static Encoding of(int id) throws IOException {
+            for (Encoding encoding : values()) {
+                if (encoding.id == id) {
+                    return encoding;
+                }
+            }
+            throw new IOException("Unknown LBPH histogram encoding " + id);
+        }
+    }
+
+    /**
+     * Decoded model.
+     *
+     * @param histograms     templates x dimensions values, row-major
+     * @param templateLabels label of every template
+     * @param labels         label to student id
+     */
+    public record Contents(int radius,
+                           int neighbors,
+                           int gridX,
+                           int gridY,
+                           boolean uniformPatterns,
+                           double threshold,
+                           Encoding encoding,
+                           int dimensions,
+                           float[] histograms,
+                           int[] templateLabels,
+                           Map<Integer, String> labels) {
+        public int templates() {
+            return templateLabels.length;
+        }
+    }
+
+    private LbphModelFile() {
+    }
+
+    /**
+     * Writes a model atomically (temp file + move).
+     *
+     * @param histogram supplies template {@code i}; called once per template in order
+     */
+    public static void write(Path file,
+                             int radius,
+                             int neighbors,
+                             int gridX,
+                             int gridY,
+                             boolean uniformPatterns,
+                             double threshold,
+                             Encoding encoding,
+                             int dimensions,
+                             int[] templateLabels,
+                             IntFunction<float[]> histogram,
+                             Map<Integer, String> labels) throws IOException {
+        List<Map.Entry<Integer, byte[]>> labelTable = new ArrayList<>();
+        long labelTableBytes = 0;
+        for (Map.Entry<Integer, String> entry : new TreeMap<>(labels).entrySet()) {
+            byte[] utf8 = entry.getValue().getBytes(StandardCharsets.UTF_8);
+            labelTable.add(Map.entry(entry.getKey(), utf8));
+            labelTableBytes += 8 + utf8.length;
+        }
+        long labelTableOffset = HEADER_BYTES;
+        long templateLabelsOffset = labelTableOffset + labelTableBytes;
+        long dataOffset = align(templateLabelsOffset + 4L * templateLabels.length);
+
+        ByteBuffer header = ByteBuffer.allocate(Math.toIntExact(dataOffset)).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(MAGIC);
+        header.putInt(VERSION).putInt(encoding.id);
+        header.putInt(radius).putInt(neighbors).putInt(gridX).putInt(gridY);
+        header.putInt(uniformPatterns ? FLAG_UNIFORM : 0);
+        header.putInt(templateLabels.length).putInt(dimensions).putInt(labelTable.size());
+        header.putDouble(threshold);
+        header.putLong(labelTableOffset).putLong(templateLabelsOffset).putLong(dataOffset);
+        header.position(HEADER_BYTES);
+        for (Map.Entry<Integer, byte[]> entry : labelTable) {
+            header.putInt(entry.getKey()).putInt(entry.getValue().length).put(entry.getValue());
+        }
+        for (int label : templateLabels) {
+            header.putInt(label);
+        }
+        header.position(0);
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, header);
+            ByteBuffer row = ByteBuffer.allocate(dimensions * encoding.bytes).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < templateLabels.length; i++) {
+                float[] values = histogram.apply(i);
+                if (values.length != dimensions) {
+                    throw new IOException("Template " + i + " has " + values.length + " bins, expected " + dimensions);
+                }
+                row.clear();
+                encode(values, encoding, row);
+                row.flip();
+                writeFully(channel, row);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Maps {@code file} and decodes it into a contiguous histogram matrix. */
+    public static Contents read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("Not an LBPH binary model (truncated header): " + file);
+            }
+            MappedByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            head.order(ByteOrder.LITTLE_ENDIAN);
+            byte[] magic = new byte[MAGIC.length];
+            head.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Not an LBPH binary model: " + file);
+            }
+            int version = head.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported LBPH binary model version " + version + " in " + file);
+            }
+            Encoding encoding = Encoding.of(head.getInt());
+            int radius = head.getInt();
+            int neighbors = head.getInt();
+            int gridX = head.getInt();
+            int gridY = head.getInt();
+            int flags = head.getInt();
+            int templates = head.getInt();
+            int dimensions = head.getInt();
+            int labelCount = head.getInt();
+            double threshold = head.getDouble();
+            long labelTableOffset = head.getLong();
+            long templateLabelsOffset = head.getLong();
+            long dataOffset = head.getLong();
+            long dataBytes = (long) templates * dimensions * encoding.bytes;
+            if (templates < 0 || dimensions <= 0 || dataOffset + dataBytes > size
+                    || (long) templates * dimensions > Integer.MAX_VALUE - 8) {
+                throw new IOException("Corrupt LBPH binary model header in " + file);
+            }
+
+            MappedByteBuffer meta = channel.map(FileChannel.MapMode.READ_ONLY, labelTableOffset, dataOffset - labelTableOffset);
+            meta.order(ByteOrder.LITTLE_ENDIAN);
+            Map<Integer, String> labels = new HashMap<>();
+            for (int i = 0; i < labelCount; i++) {
+                int label = meta.getInt();
+                byte[] utf8 = new byte[meta.getInt()];
+                meta.get(utf8);
+                labels.put(label, new String(utf8, StandardCharsets.UTF_8));
+            }
+            meta.position((int) (templateLabelsOffset - labelTableOffset));
+            int[] templateLabels = new int[templates];
+            meta.asIntBuffer().get(templateLabels);
+
+            float[] histograms = new float[templates * dimensions];
+            long rowBytes = (long) dimensions * encoding.bytes;
+            int rowsPerWindow = (int) Math.max(1, MAX_MAP_BYTES / rowBytes);
+            for (int first = 0; first < templates; first += rowsPerWindow) {
+                int rows = Math.min(rowsPerWindow, templates - first);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY,
+                        dataOffset + first * rowBytes, rows * rowBytes);
+                window.order(ByteOrder.LITTLE_ENDIAN);
+                decode(window, encoding, histograms, first * dimensions, rows * dimensions);
+            }
+            return new Contents(radius, neighbors, gridX, gridY, (flags & FLAG_UNIFORM) != 0, threshold, encoding,
+                    dimensions, histograms, templateLabels, Collections.unmodifiableMap(labels));
+        }
+    }
+
+    /**
+     * Converts {@code lbph.yml} + {@code labels.txt} in {@code modelDir} into {@code lbph.bin}
+     * next to them, reading the YAML with OpenCV's own parser.
+     */
+    public static Path convertYaml(Path modelDir, Encoding encoding) throws IOException {
+        Path yaml = modelDir.resolve("lbph.yml");
+        Path labelsFile = modelDir.resolve("labels.txt");
+        if (!Files.exists(yaml) || !Files.exists(labelsFile)) {
+            throw new IOException("lbph.yml and labels.txt are required in " + modelDir);
+        }
+        LBPHFaceRecognizer stored = LBPHFaceRecognizer.create();
+        stored.read(yaml.toString());
+        List<Mat> histograms = stored.getHistograms();
+        Mat labelMat = stored.getLabels();
+        try {
+            if (histograms.isEmpty()) {
+                throw new IOException("Model " + yaml + " contains no histograms");
+            }
+            int[] templateLabels = new int[histograms.size()];
+            if (labelMat.total() != templateLabels.length) {
+                throw new IOException("Model " + yaml + " has " + templateLabels.length
+                        + " histograms but " + labelMat.total() + " labels");
+            }
+            labelMat.get(0, 0, templateLabels);
+            int dimensions = (int) histograms.get(0).total();
+            Path target = modelDir.resolve(FILE_NAME);
+            write(target, stored.getRadius(), stored.getNeighbors(), stored.getGridX(), stored.getGridY(), false,
+                    stored.getThreshold(), encoding, dimensions, templateLabels, i -> {
+                        float[] values = new float[dimensions];
+                        histograms.get(i).get(0, 0, values);
+                        return values;
+                    }, readLabels(labelsFile));
+            return target;
+        } finally {
+            for (Mat histogram : histograms) {
+                try { histogram.release(); } catch (Exception ignored) {}
+            }
+            try { labelMat.release(); } catch (Exception ignored) {}
+        }
+    }
+
+    /**
+     * Writes {@code lbph.yml} next to the {@code lbph.bin} in {@code modelDir}, for the OpenCV
+     * recognizer, which reads only the YAML. Models with uniform patterns have no OpenCV form
+     * and are rejected. Quantized models are written with their decoded bins.
+     */
+    public static Path exportYaml(Path modelDir) throws IOException {
+        Contents contents = read(modelDir.resolve(FILE_NAME));
+        if (contents.uniformPatterns()) {
+            throw new IOException("Model in " + modelDir + " uses uniform patterns, which OpenCV cannot read");
+        }
+        Path target = modelDir.resolve("lbph.yml");
+        Path temp = modelDir.resolve("lbph.yml.tmp");
+        float[] histograms = contents.histograms();
+        int dimensions = contents.dimensions();
+        writeYaml(temp, contents.radius(), contents.neighbors(), contents.gridX(), contents.gridY(),
+                contents.threshold(), contents.templateLabels(),
+                i -> Arrays.copyOfRange(histograms, i * dimensions, (i + 1) * dimensions));
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return target;
+    }
+
+    /** Writes templates in OpenCV's FileStorage layout for {@code LBPHFaceRecognizer}. */
+    static void writeYaml(Path file,
+                          int radius,
+                          int neighbors,
+                          int gridX,
+                          int gridY,
+                          double threshold,
+                          int[] templateLabels,
+                          IntFunction<float[]> histogram) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("%YAML:1.0\n---\nopencv_lbphfaces:\n");
+            out.write("   threshold: " + threshold + "\n");
+            out.write("   radius: " + radius + "\n");
+            out.write("   neighbors: " + neighbors + "\n");
+            out.write("   grid_x: " + gridX + "\n");
+            out.write("   grid_y: " + gridY + "\n");
+            out.write("   histograms:\n");
+            for (int i = 0; i < templateLabels.length; i++) {
+                float[] values = histogram.apply(i);
+                out.write("      - !!opencv-matrix\n");
+                out.write("         rows: 1\n");
+                out.write("         cols: " + values.length + "\n");
+                out.write("         dt: f\n");
+                out.write("         data: [");
+                for (int k = 0; k < values.length; k++) {
+                    writeValue(out, k, Float.toString(values[k]), "            ");
+                }
+                out.write(" ]\n");
+            }
+            out.write("   labels: !!opencv-matrix\n");
+            out.write("      rows: " + templateLabels.length + "\n");
+            out.write("      cols: 1\n");
+            out.write("      dt: i\n");
+            out.write("      data: [");
+            for (int i = 0; i < templateLabels.length; i++) {
+                writeValue(out, i, Integer.toString(templateLabels[i]), "         ");
+            }
+            out.write(" ]\n");
+            out.write("   labelsInfo:\n      []\n");
+        }
+    }
+
+    private static void writeValue(BufferedWriter out, int index, String value, String indent) throws IOException {
+        if (index > 0) {
+            out.write(',');
+            if (index % YAML_VALUES_PER_LINE == 0) {
+                out.write('\n');
+                out.write(indent);
+            }
+        }
+        out.write(' ');
+        out.write(value);
+    }
+
+    /** Parses {@code labels.txt} ("label,studentId" per line). */
+    public static Map<Integer, String> readLabels(Path labelsFile) throws IOException {
+        Map<Integer, String> labels = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(labelsFile, StandardCharsets.UTF_8)) {
+            if (line == null || line.isBlank()) continue;
+            String[] parts = line.split(",", 2);
+            if (parts.length != 2) continue;
+            labels.put(Integer.parseInt(parts[0].trim()), parts[1].trim());
+        }
+        return labels;
+    }
+
+    private static void encode(float[] values, Encoding encoding, ByteBuffer out) {
+        switch (encoding) {
+            case FLOAT32 -> out.asFloatBuffer().put(values);
+            case UINT16 -> {
+                ShortBuffer shorts = out.asShortBuffer();
+                for (float v : values) {
+                    shorts.put((short) quantize(v, encoding.max));
+                }
+            }
+            case UINT8 -> {
+                for (float v : values) {
+                    out.put((byte) quantize(v, encoding.max));
+                }
+                return;
+            }
+        }
+        out.position(values.length * encoding.bytes);
+    }
+
+    private static void decode(ByteBuffer in, Encoding encoding, float[] target, int offset, int count) {
+        switch (encoding) {
+            case FLOAT32 -> {
+                FloatBuffer floats = in.asFloatBuffer();
+                floats.get(target, offset, count);
+            }
+            case UINT16 -> {
+                ShortBuffer shorts = in.asShortBuffer();
+                float scale = 1.0f / encoding.max;
+                for (int i = 0; i < count; i++) {
+                    target[offset + i] = (shorts.get(i) & 0xFFFF) * scale;
+                }
+            }
+            case UINT8 -> {
+                float scale = 1.0f / encoding.max;
+                for (int i = 0; i < count; i++) {
+                    target[offset + i] = (in.get(i) & 0xFF) * scale;
+                }
+            }
+        }
+    }
+
+    private static int quantize(float value, float max) {
+        return Math.round(Math.max(0.0f, Math.min(1.0f, value)) * max);
+    }
+
+    private static long align(long offset) {
+        return (offset + DATA_ALIGNMENT - 1) / DATA_ALIGNMENT * DATA_ALIGNMENT;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
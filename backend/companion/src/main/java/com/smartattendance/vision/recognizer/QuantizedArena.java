@@ -0,0 +1,120 @@
+package com.smartattendance.vision.recognizer;
+
+/**
+ * Templates quantized to unsigned 16-bit or 8-bit bins, two or four times smaller than
+ * {@link HistogramArena}. Every bin is stored as {@code round(value / max * levels)} where
+ * {@code max} is the largest value in the source arena. The probe is scaled into the same
+ * units but not rounded, so the {@link ChiSquareKernel} runs on the stored integers and a
+ * single multiplication turns the sum back into a float-domain distance.
+ */
+final class QuantizedArena extends TemplateArena<float[]> {
+
+    private static final float WIDE_LEVELS = 65535.0f;
+    private static final float NARROW_LEVELS = 255.0f;
+
+    private final int dimensions;
+    private final int size;
+    private final int[] labels;
+    private final short[] wide;
+    private final byte[] narrow;
+    /** Value of one quantization step in the float domain. */
+    private final float step;
+
+    private QuantizedArena(int dimensions, int[] labels, short[] wide, byte[] narrow, float levels, float max) {
+        this.dimensions = dimensions;
+        this.size = labels.length;
+        this.labels = labels;
+        this.wide = wide;
+        this.narrow = narrow;
+        this.step = max / levels;
+    }
+
+    static QuantizedArena of(HistogramArena source, boolean eightBit) {
+        int dimensions = source.dimensions();
+        int size = source.size();
+        float max = source.max();
+        if (max <= 0.0f) {
+            max = 1.0f;
+        }
+        float levels = eightBit ? NARROW_LEVELS : WIDE_LEVELS;
+        float scale = levels / max;
+        int[] labels = new int[size];
+        short[] wide = eightBit ? null : new short[Math.multiplyExact(size, dimensions)];
+        byte[] narrow = eightBit ? new byte[Math.multiplyExact(size, dimensions)] : null;
+        for (int i = 0; i < size; i++) {
+            labels[i] = source.label(i);
+            float[] histogram = source.histogram(i);
+            int base = i * dimensions;
+            for (int k = 0; k < dimensions; k++) {
+                int q = Math.min((int) levels, Math.round(histogram[k] * scale));
+                if (eightBit) {
+                    narrow[base + k] = (byte) q;
+                } else {
+                    wide[base + k] = (short) q;
+                }
+            }
+        }
+        return new QuantizedArena(dimensions, labels, wide, narrow, levels, max);
+    }
+
+    @Override
+    int size() {
+        return size;
+    }
+
+    @Override
+    int dimensions() {
+        return dimensions;
+    }
+
+    @Override
+    int label(int index) {
+        return labels[index];
+    }
+
+    @Override
+    float[] histogram(int index) {
+        float[] histogram = new float[dimensions];
+        int base = index * dimensions;
+        for (int k = 0; k < dimensions; k++) {
+            histogram[k] = value(base + k) * step;
+        }
+        return histogram;
+    }
+
+    @Override
+    long bytes() {
+        long values = wide != null ? (long) wide.length * Short.BYTES : narrow.length;
+        return values + (long) labels.length * Integer.BYTES;
+    }
+
+    @Override
+    Storage storage() {
+        return wide != null ? Storage.UINT16 : Storage.UINT8;
+    }
+
+    @Override
+    float[] prepare(float[] probe) {
+        float[] scaled = new float[probe.length];
+        float scale = 1.0f / step;
+        for (int k = 0; k < probe.length; k++) {
+            scaled[k] = probe[k] * scale;
+        }
+        return scaled;
+    }
+
+    @Override
+    double distance(int index, float[] probe, double limit, ChiSquareKernel kernel) {
+        // Chi-square scales linearly with the bin unit, so one multiply maps the result back.
+        double bound = limit / step;
+        int offset = index * dimensions;
+        double sum = wide != null
+                ? kernel.distance(wide, offset, probe, dimensions, bound)
+                : kernel.distance(narrow, offset, probe, dimensions, bound);
+        return sum * step;
+    }
+
+    private int value(int position) {
+        return wide != null ? wide[position] & 0xFFFF : narrow[position] & 0xFF;
+    }
+}
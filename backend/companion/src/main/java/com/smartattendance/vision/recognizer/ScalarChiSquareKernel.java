@@ -0,0 +1,81 @@
+package com.smartattendance.vision.recognizer;
+
+/**
+ * Portable chi-square kernel. Accumulates in double precision like OpenCV and checks the
+ * early-exit limit once per block so the inner loop stays branch-light.
+ */
+final class ScalarChiSquareKernel implements ChiSquareKernel {
+
+    private static final int BLOCK = 256;
+
+    @Override
+    public double distance(float[] templates, int offset, float[] probe, int length, double limit) {
+        double half = limit / 2.0d;
+        double sum = 0.0d;
+        for (int start = 0; start < length; start += BLOCK) {
+            int end = Math.min(length, start + BLOCK);
+            for (int i = start; i < end; i++) {
+                float a = templates[offset + i];
+                float b = probe[i];
+                float s = a + b;
+                if (s > 0.0f) {
+                    double d = a - b;
+                    sum += d * d / s;
+                }
+            }
+            if (sum > half) {
+                break;
+            }
+        }
+        return 2.0d * sum;
+    }
+
+    @Override
+    public double distance(short[] templates, int offset, float[] probe, int length, double limit) {
+        double half = limit / 2.0d;
+        double sum = 0.0d;
+        for (int start = 0; start < length; start += BLOCK) {
+            int end = Math.min(length, start + BLOCK);
+            for (int i = start; i < end; i++) {
+                float a = templates[offset + i] & 0xFFFF;
+                float b = probe[i];
+                float s = a + b;
+                if (s > 0.0f) {
+                    double d = a - b;
+                    sum += d * d / s;
+                }
+            }
+            if (sum > half) {
+                break;
+            }
+        }
+        return 2.0d * sum;
+    }
+
+    @Override
+    public double distance(byte[] templates, int offset, float[] probe, int length, double limit) {
+        double half = limit / 2.0d;
+        double sum = 0.0d;
+        for (int start = 0; start < length; start += BLOCK) {
+            int end = Math.min(length, start + BLOCK);
+            for (int i = start; i < end; i++) {
+                float a = templates[offset + i] & 0xFF;
+                float b = probe[i];
+                float s = a + b;
+                if (s > 0.0f) {
+                    double d = a - b;
+                    sum += d * d / s;
+                }
+            }
+            if (sum > half) {
+                break;
+            }
+        }
+        return 2.0d * sum;
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
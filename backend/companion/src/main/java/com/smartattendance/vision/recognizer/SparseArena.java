@@ -0,0 +1,196 @@
+package com.smartattendance.vision.recognizer;
+
+import java.util.Arrays;
+
+/**
+ * Templates reduced to their non-zero bins, each an unsigned 16-bit value quantized like
+ * {@link QuantizedArena}. A cell of a few hundred pixels touches only a small part of its
+ * 2^P possible codes, so most bins of a full-pattern histogram are zero and dropping them
+ * saves far more than narrowing the type. Rows are stored in CSR form: bin positions and
+ * values for template {@code i} live at {@code rowStart[i]..rowStart[i + 1]}.
+ *
+ * <p>Chi-square over bins where the template is zero reduces to the probe value, so the
+ * distance is the probe total plus, for every stored bin, {@code (a-b)^2/(a+b) - b}. Only
+ * the stored bins are visited. The {@code (a-b)^2/(a+b)} part alone never decreases and
+ * serves as the early-exit bound.
+ */
+final class SparseArena extends TemplateArena<SparseArena.Probe> {
+
+    private static final int BLOCK = 256;
+    private static final float LEVELS = 65535.0f;
+
+    private final int dimensions;
+    private final int size;
+    private final int[] labels;
+    private final int[] rowStart;
+    /** Bin positions when every position fits in 16 bits, otherwise {@code null}. */
+    private final char[] narrowBins;
+    private final int[] wideBins;
+    private final short[] values;
+    private final float step;
+
+    private SparseArena(int dimensions,
+                        int[] labels,
+                        int[] rowStart,
+                        char[] narrowBins,
+                        int[] wideBins,
+                        short[] values,
+                        float step) {
+        this.dimensions = dimensions;
+        this.size = labels.length;
+        this.labels = labels;
+        this.rowStart = rowStart;
+        this.narrowBins = narrowBins;
+        this.wideBins = wideBins;
+        this.values = values;
+        this.step = step;
+    }
+
+    static SparseArena of(HistogramArena source) {
+        int dimensions = source.dimensions();
+        int size = source.size();
+        float max = source.max();
+        if (max <= 0.0f) {
+            max = 1.0f;
+        }
+        float scale = LEVELS / max;
+        boolean narrow = dimensions <= Character.MAX_VALUE + 1;
+        int[] labels = new int[size];
+        int[] rowStart = new int[size + 1];
+        int capacity = Math.max(16, size * 64);
+        int[] bins = new int[capacity];
+        short[] values = new short[capacity];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            labels[i] = source.label(i);
+            float[] histogram = source.histogram(i);
+            for (int k = 0; k < dimensions; k++) {
+                int q = Math.min((int) LEVELS, Math.round(histogram[k] * scale));
+                if (q == 0) {
+                    continue;
+                }
+                if (count == bins.length) {
+                    int grown = Math.max(count + 1, count + (count >> 1));
+                    bins = Arrays.copyOf(bins, grown);
+                    values = Arrays.copyOf(values, grown);
+                }
+                bins[count] = k;
+                values[count] = (short) q;
+                count++;
+            }
+            rowStart[i + 1] = count;
+        }
+        char[] narrowBins = null;
+        int[] wideBins = null;
+        if (narrow) {
+            narrowBins = new char[count];
+            for (int n = 0; n < count; n++) {
+                narrowBins[n] = (char) bins[n];
+            }
+        } else {
+            wideBins = Arrays.copyOf(bins, count);
+        }
+        return new SparseArena(dimensions, labels, rowStart, narrowBins, wideBins,
+                Arrays.copyOf(values, count), max / LEVELS);
+    }
+
+    @Override
+    int size() {
+        return size;
+    }
+
+    @Override
+    int dimensions() {
+        return dimensions;
+    }
+
+    @Override
+    int label(int index) {
+        return labels[index];
+    }
+
+    @Override
+    float[] histogram(int index) {
+        float[] histogram = new float[dimensions];
+        for (int n = rowStart[index]; n < rowStart[index + 1]; n++) {
+            histogram[bin(n)] = (values[n] & 0xFFFF) * step;
+        }
+        return histogram;
+    }
+
+    @Override
+    long bytes() {
+        long binBytes = narrowBins != null ? (long) narrowBins.length * Character.BYTES
+                : (long) wideBins.length * Integer.BYTES;
+        return binBytes + (long) values.length * Short.BYTES
+                + (long) rowStart.length * Integer.BYTES + (long) labels.length * Integer.BYTES;
+    }
+
+    @Override
+    Storage storage() {
+        return Storage.SPARSE;
+    }
+
+    @Override
+    long scanCost(int count) {
+        return size == 0 ? 0L : (long) count * (values.length / size);
+    }
+
+    @Override
+    Probe prepare(float[] probe) {
+        float[] scaled = new float[probe.length];
+        float scale = 1.0f / step;
+        double total = 0.0d;
+        for (int k = 0; k < probe.length; k++) {
+            scaled[k] = probe[k] * scale;
+            total += scaled[k];
+        }
+        return new Probe(scaled, total);
+    }
+
+    @Override
+    double distance(int index, Probe probe, double limit, ChiSquareKernel kernel) {
+        double factor = 2.0d * step;
+        double bound = limit / factor;
+        float[] b = probe.values();
+        double terms = 0.0d;
+        double covered = 0.0d;
+        int end = rowStart[index + 1];
+        for (int start = rowStart[index]; start < end; start += BLOCK) {
+            int blockEnd = Math.min(end, start + BLOCK);
+            if (narrowBins != null) {
+                for (int n = start; n < blockEnd; n++) {
+                    float a = values[n] & 0xFFFF;
+                    float v = b[narrowBins[n]];
+                    double d = a - v;
+                    terms += d * d / (a + v);
+                    covered += v;
+                }
+            } else {
+                for (int n = start; n < blockEnd; n++) {
+                    float a = values[n] & 0xFFFF;
+                    float v = b[wideBins[n]];
+                    double d = a - v;
+                    terms += d * d / (a + v);
+                    covered += v;
+                }
+            }
+            if (terms > bound) {
+                return factor * terms;
+            }
+        }
+        // Bins the template does not store contribute the probe value alone.
+        return factor * (terms + Math.max(0.0d, probe.total() - covered));
+    }
+
+    private int bin(int position) {
+        return narrowBins != null ? narrowBins[position] : wideBins[position];
+    }
+
+    /**
+     * @param values probe bins in quantization units
+     * @param total  sum of {@code values}
+     */
+    record Probe(float[] values, double total) {
+    }
+}
@@ -0,0 +1,162 @@
+package com.smartattendance.vision.recognizer;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Read-only set of labelled templates that can be searched for the nearest chi-square
+ * match. Subclasses decide how the histograms are stored: {@link HistogramArena} keeps
+ * plain floats, {@link QuantizedArena} keeps 8- or 16-bit bins and {@link SparseArena}
+ * keeps only the non-zero bins. Each one computes distances directly on its own layout
+ * after converting the probe once via {@link #prepare}.
+ *
+ * @param <P> probe representation used by {@link #distance}
+ */
+abstract class TemplateArena<P> {
+
+    /** Below this many bins a scan is cheaper than forking it across the common pool. */
+    private static final long PARALLEL_MIN_BINS = 1L << 21;
+    private static final int CHUNKS_PER_CORE = 2;
+
+    /** How templates are held in memory. */
+    enum Storage {
+        FLOAT32, UINT16, UINT8, SPARSE;
+
+        static Storage parse(String value) {
+            if (value == null) {
+                return FLOAT32;
+            }
+            return switch (value.trim().toLowerCase()) {
+                case "u16", "uint16" -> UINT16;
+                case "u8", "uint8" -> UINT8;
+                case "sparse" -> SPARSE;
+                default -> FLOAT32;
+            };
+        }
+    }
+
+    /** Re-encodes a float arena in the requested storage; {@link Storage#FLOAT32} returns it as is. */
+    static TemplateArena<?> encode(HistogramArena source, Storage storage) {
+        return switch (storage) {
+            case FLOAT32 -> source;
+            case UINT16 -> QuantizedArena.of(source, false);
+            case UINT8 -> QuantizedArena.of(source, true);
+            case SPARSE -> SparseArena.of(source);
+        };
+    }
+
+    abstract int size();
+
+    abstract int dimensions();
+
+    abstract int label(int index);
+
+    /** Copies template {@code index} out of the arena as normalized floats. */
+    abstract float[] histogram(int index);
+
+    abstract long bytes();
+
+    abstract Storage storage();
+
+    /** Converts a float histogram into the form {@link #distance} expects. */
+    abstract P prepare(float[] probe);
+
+    /**
+     * Chi-square distance between template {@code index} and a prepared probe. Once the
+     * running sum exceeds {@code limit} the scan may stop and return any value above it.
+     */
+    abstract double distance(int index, P probe, double limit, ChiSquareKernel kernel);
+
+    /** Approximate number of values touched when scanning {@code count} templates. */
+    long scanCost(int count) {
+        return (long) count * dimensions();
+    }
+
+    /**
+     * Finds the closest template whose distance is below {@code threshold}, mirroring
+     * OpenCV's LBPH predict: ties keep the earliest template and no match yields
+     * {@link Match#NONE}. Large arenas are scanned in parallel chunks that share the best
+     * distance found so far as their early-exit bound.
+     */
+    Match nearest(float[] probe, double threshold, ChiSquareKernel kernel) {
+        return nearest(probe, null, threshold, kernel);
+    }
+
+    /**
+     * Same as {@link #nearest(float[], double, ChiSquareKernel)} but only considers the
+     * given template indices, which must be in ascending order for ties to resolve the same
+     * way. {@code null} means every template.
+     */
+    Match nearest(float[] probe, int[] candidates, double threshold, ChiSquareKernel kernel) {
+        int count = candidates != null ? candidates.length : size();
+        if (count == 0) {
+            return Match.NONE;
+        }
+        P prepared = prepare(probe);
+        if (scanCost(count) < PARALLEL_MIN_BINS) {
+            return scan(prepared, candidates, 0, count, threshold, kernel, null);
+        }
+        int chunks = Math.min(count, Runtime.getRuntime().availableProcessors() * CHUNKS_PER_CORE);
+        AtomicLong sharedBest = new AtomicLong(Double.doubleToLongBits(threshold));
+        return IntStream.range(0, chunks)
+                .parallel()
+                .mapToObj(chunk -> scan(prepared, candidates,
+                        (int) ((long) count * chunk / chunks),
+                        (int) ((long) count * (chunk + 1) / chunks),
+                        threshold, kernel, sharedBest))
+                .reduce(Match.NONE, Match::better);
+    }
+
+    private Match scan(P probe,
+                       int[] candidates,
+                       int from,
+                       int to,
+                       double threshold,
+                       ChiSquareKernel kernel,
+                       AtomicLong sharedBest) {
+        int bestIndex = -1;
+        double best = threshold;
+        for (int position = from; position < to; position++) {
+            int i = candidates != null ? candidates[position] : position;
+            double limit = best;
+            if (sharedBest != null) {
+                // Non-negative doubles order the same way as their raw bits.
+                limit = Math.min(limit, Double.longBitsToDouble(sharedBest.get()));
+            }
+            double distance = distance(i, probe, limit, kernel);
+            // Anything above the limit may be a truncated partial sum, so it is never recorded.
+            if (distance < best && (sharedBest == null || distance <= limit)) {
+                best = distance;
+                bestIndex = i;
+                if (sharedBest != null) {
+                    long bits = Double.doubleToLongBits(distance);
+                    sharedBest.accumulateAndGet(bits, Math::min);
+                }
+            }
+        }
+        return bestIndex < 0 ? Match.NONE : new Match(bestIndex, label(bestIndex), best);
+    }
+
+    /**
+     * @param index    template position in the arena, or -1 when nothing matched
+     * @param label    label of the template
+     * @param distance chi-square distance, {@link Double#MAX_VALUE} when nothing matched
+     */
+    record Match(int index, int label, double distance) {
+        static final Match NONE = new Match(-1, -1, Double.MAX_VALUE);
+
+        boolean found() {
+            return index >= 0;
+        }
+
+        Match better(Match other) {
+            if (!other.found()) {
+                return this;
+            }
+            if (!found() || other.distance < distance || (other.distance == distance && other.index < index)) {
+                return other;
+            }
+            return this;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.smartattendance.vision.recognizer;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD chi-square kernel built on the incubating Vector API. Only instantiated reflectively
+ * by {@link ChiSquareKernel#select()} after the module has been found, so the class is
+ * never linked on runtimes started without {@code --add-modules jdk.incubator.vector}.
+ * Lanes accumulate in single precision per block and are folded into a double total.
+ * Quantized templates are loaded at their own width and zero-extended to float lanes, so
+ * the narrower arrays also mean less memory traffic per bin.
+ */
+final class VectorChiSquareKernel implements ChiSquareKernel {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS = SPECIES.withLanes(int.class);
+    private static final VectorSpecies<Short> SHORTS = narrowSpecies(short.class, 2);
+    /** {@code null} when no vector shape is a quarter of the float shape (128-bit floats). */
+    private static final VectorSpecies<Byte> BYTES = narrowSpecies(byte.class, 4);
+    private static final int BLOCK = 512;
+
+    private final ScalarChiSquareKernel scalar = new ScalarChiSquareKernel();
+
+    @Override
+    public double distance(float[] templates, int offset, float[] probe, int length, double limit) {
+        double half = limit / 2.0d;
+        double sum = 0.0d;
+        int lanes = SPECIES.length();
+        for (int start = 0; start < length; start += BLOCK) {
+            int end = Math.min(length, start + BLOCK);
+            int upper = start + SPECIES.loopBound(end - start);
+            FloatVector acc = FloatVector.zero(SPECIES);
+            int i = start;
+            for (; i < upper; i += lanes) {
+                FloatVector a = FloatVector.fromArray(SPECIES, templates, offset + i);
+                FloatVector b = FloatVector.fromArray(SPECIES, probe, i);
+                FloatVector s = a.add(b);
+                VectorMask<Float> occupied = s.compare(VectorOperators.GT, 0.0f);
+                FloatVector d = a.sub(b);
+                acc = acc.add(d.mul(d).div(s), occupied);
+            }
+            double block = acc.reduceLanes(VectorOperators.ADD);
+            for (; i < end; i++) {
+                float a = templates[offset + i];
+                float b = probe[i];
+                float s = a + b;
+                if (s > 0.0f) {
+                    double d = a - b;
+                    block += d * d / s;
+                }
+            }
+            sum += block;
+            if (sum > half) {
+                break;
+            }
+        }
+        return 2.0d * sum;
+    }
+
+    @Override
+    public double distance(short[] templates, int offset, float[] probe, int length, double limit) {
+        if (SHORTS == null) {
+            return scalar.distance(templates, offset, probe, length, limit);
+        }
+        double half = limit / 2.0d;
+        double sum = 0.0d;
+        int lanes = SPECIES.length();
+        for (int start = 0; start < length; start += BLOCK) {
+            int end = Math.min(length, start + BLOCK);
+            int upper = start + SPECIES.loopBound(end - start);
+            FloatVector acc = FloatVector.zero(SPECIES);
+            int i = start;
+            for (; i < upper; i += lanes) {
+                FloatVector a = (FloatVector) ShortVector.fromArray(SHORTS, templates, offset + i)
+                        .convertShape(VectorOperators.ZERO_EXTEND_S2I, INTS, 0)
+                        .convert(VectorOperators.I2F, 0);
+                acc = accumulate(acc, a, FloatVector.fromArray(SPECIES, probe, i));
+            }
+            double block = acc.reduceLanes(VectorOperators.ADD);
+            for (; i < end; i++) {
+                float a = templates[offset + i] & 0xFFFF;
+                float b = probe[i];
+                float s = a + b;
+                if (s > 0.0f) {
+                    double d = a - b;
+                    block += d * d / s;
+                }
+            }
+            sum += block;
+            if (sum > half) {
+                break;
+            }
+        }
+        return 2.0d * sum;
+    }
+
+    @Override
+    public double distance(byte[] templates, int offset, float[] probe, int length, double limit) {
+        if (BYTES == null) {
+            return scalar.distance(templates, offset, probe, length, limit);
+        }
+        double half = limit / 2.0d;
+        double sum = 0.0d;
+        int lanes = SPECIES.length();
+        for (int start = 0; start < length; start += BLOCK) {
+            int end = Math.min(length, start + BLOCK);
+            int upper = start + SPECIES.loopBound(end - start);
+            FloatVector acc = FloatVector.zero(SPECIES);
+            int i = start;
+            for (; i < upper; i += lanes) {
+                FloatVector a = (FloatVector) ByteVector.fromArray(BYTES, templates, offset + i)
+                        .convertShape(VectorOperators.ZERO_EXTEND_B2I, INTS, 0)
+                        .convert(VectorOperators.I2F, 0);
+                acc = accumulate(acc, a, FloatVector.fromArray(SPECIES, probe, i));
+            }
+            double block = acc.reduceLanes(VectorOperators.ADD);
+            for (; i < end; i++) {
+                float a = templates[offset + i] & 0xFF;
+                float b = probe[i];
+                float s = a + b;
+                if (s > 0.0f) {
+                    double d = a - b;
+                    block += d * d / s;
+                }
+            }
+            sum += block;
+            if (sum > half) {
+                break;
+            }
+        }
+        return 2.0d * sum;
+    }
+
+    private static FloatVector accumulate(FloatVector acc, FloatVector a, FloatVector b) {
+        FloatVector s = a.add(b);
+        VectorMask<Float> occupied = s.compare(VectorOperators.GT, 0.0f);
+        FloatVector d = a.sub(b);
+        return acc.add(d.mul(d).div(s), occupied);
+    }
+
+    private static <E> VectorSpecies<E> narrowSpecies(Class<E> type, int ratio) {
+        try {
+            return VectorSpecies.of(type, VectorShape.forBitSize(SPECIES.vectorBitSize() / ratio));
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    @Override
+    public String name() {
+        return "vector-" + SPECIES.vectorBitSize();
+    }
+}
@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Composite managing multiple {@link FaceTrack} instances. Provides a simple
@@ -36,6 +37,25 @@ public class FaceTrackGroup {
                 tracks.add(nt);
             }
         }
+        finishFrame();
+    }
+
+    /**
+     * Moves existing tracks to bounds supplied by an inter-frame tracker on frames where
+     * detection is skipped. Tracks without a propagated box are treated as unseen.
+     */
+    public void propagate(Map<String, Rectangle> propagated) {
+        for (FaceTrack t : tracks) t.setUpdatedThisFrame(false);
+        for (FaceTrack t : tracks) {
+            Rectangle r = propagated.get(t.getId());
+            if (r != null) {
+                t.update(r);
+            }
+        }
+        finishFrame();
+    }
+
+    private void finishFrame() {
         // Hide overlays for tracks that were not refreshed this frame so ghost boxes disappear.
         for (FaceTrack track : tracks) {
             if (!track.wasUpdatedThisFrame()) {
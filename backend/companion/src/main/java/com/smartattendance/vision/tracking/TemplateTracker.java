@@ -0,0 +1,169 @@
+package com.smartattendance.vision.tracking;
+
+import java.awt.Rectangle;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * Cheap inter-frame tracker that follows each {@link FaceTrack} by template matching a
+ * downscaled patch of its last detected face inside a window around its previous bounds.
+ * Templates are only refreshed from full detections, which keeps drift bounded between
+ * detector runs. Instances are not thread-safe.
+ */
+public class TemplateTracker {
+    private static final int TEMPLATE_WIDTH = 48;
+
+    private final double searchMargin;
+    private final double minScore;
+    private final Map<String, Template> templates = new HashMap<>();
+    private final Mat searchScaled = new Mat();
+    private final Mat response = new Mat();
+
+    /**
+     * @param searchMargin fraction of the face size searched on each side of the last bounds
+     * @param minScore     normalized correlation below which a track counts as lost
+     */
+    public TemplateTracker(double searchMargin, double minScore) {
+        this.searchMargin = Math.max(0.05d, searchMargin);
+        this.minScore = minScore;
+    }
+
+    /** Captures fresh templates for every track updated by the latest detection pass. */
+    public void refresh(Collection<FaceTrack> tracks, Mat gray) {
+        Set<String> live = new HashSet<>();
+        for (FaceTrack track : tracks) {
+            live.add(track.getId());
+            Rectangle bounds = track.getMatchBounds();
+            if (!track.wasUpdatedThisFrame() || bounds == null) {
+                continue;
+            }
+            Rect rect = clamp(bounds, gray.cols(), gray.rows());
+            if (rect == null) {
+                continue;
+            }
+            double scale = Math.min(1.0d, TEMPLATE_WIDTH / (double) rect.width);
+            Template template = templates.computeIfAbsent(track.getId(), id -> new Template());
+            Mat roi = gray.submat(rect);
+            try {
+                Imgproc.resize(roi, template.pixels, scaledSize(rect.width, rect.height, scale), 0, 0, Imgproc.INTER_AREA);
+            } finally {
+                try { roi.release(); } catch (Exception ignored) {}
+            }
+            template.scale = scale;
+        }
+        prune(live);
+    }
+
+    /**
+     * Locates each templated track in the new frame. Tracks whose best match scores below
+     * the configured minimum are left out of the result and counted as lost.
+     */
+    public Propagation propagate(Collection<FaceTrack> tracks, Mat gray) {
+        Map<String, Rectangle> moved = new HashMap<>();
+        double worst = Double.NaN;
+        int lost = 0;
+        for (FaceTrack track : tracks) {
+            Template template = templates.get(track.getId());
+            Rectangle bounds = track.getMatchBounds();
+            if (template == null || template.pixels.empty() || bounds == null) {
+                continue;
+            }
+            int mx = (int) Math.round(bounds.width * searchMargin);
+            int my = (int) Math.round(bounds.height * searchMargin);
+            Rect search = clamp(new Rectangle(bounds.x - mx, bounds.y - my,
+                    bounds.width + 2 * mx, bounds.height + 2 * my), gray.cols(), gray.rows());
+            if (search == null) {
+                lost++;
+                continue;
+            }
+            Mat region = gray.submat(search);
+            try {
+                Imgproc.resize(region, searchScaled, scaledSize(search.width, search.height, template.scale),
+                        0, 0, Imgproc.INTER_AREA);
+            } finally {
+                try { region.release(); } catch (Exception ignored) {}
+            }
+            if (searchScaled.cols() < template.pixels.cols() || searchScaled.rows() < template.pixels.rows()) {
+                lost++;
+                continue;
+            }
+            Imgproc.matchTemplate(searchScaled, template.pixels, response, Imgproc.TM_CCOEFF_NORMED);
+            Core.MinMaxLocResult best = Core.minMaxLoc(response);
+            double score = best.maxVal;
+            worst = Double.isNaN(worst) ? score : Math.min(worst, score);
+            if (!Double.isFinite(score) || score < minScore) {
+                lost++;
+                continue;
+            }
+            int x = search.x + (int) Math.round(best.maxLoc.x / template.scale);
+            int y = search.y + (int) Math.round(best.maxLoc.y / template.scale);
+            moved.put(track.getId(), new Rectangle(x, y, bounds.width, bounds.height));
+        }
+        return new Propagation(moved, worst, lost);
+    }
+
+    /** Releases all templates and scratch buffers. */
+    public void release() {
+        for (Template template : templates.values()) {
+            template.release();
+        }
+        templates.clear();
+        try { searchScaled.release(); } catch (Exception ignored) {}
+        try { response.release(); } catch (Exception ignored) {}
+    }
+
+    private void prune(Set<String> live) {
+        Iterator<Map.Entry<String, Template>> it = templates.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Template> entry = it.next();
+            if (!live.contains(entry.getKey())) {
+                entry.getValue().release();
+                it.remove();
+            }
+        }
+    }
+
+    private static Size scaledSize(int width, int height, double scale) {
+        return new Size(Math.max(1, Math.round(width * scale)), Math.max(1, Math.round(height * scale)));
+    }
+
+    private static Rect clamp(Rectangle rect, int width, int height) {
+        int x = Math.max(0, rect.x);
+        int y = Math.max(0, rect.y);
+        int w = Math.min(rect.x + rect.width, width) - x;
+        int h = Math.min(rect.y + rect.height, height) - y;
+        if (w < 8 || h < 8) {
+            return null;
+        }
+        return new Rect(x, y, w, h);
+    }
+
+    /**
+     * Outcome of a propagation pass.
+     *
+     * @param bounds   new match bounds keyed by track id
+     * @param minScore lowest correlation seen this pass, or NaN when nothing was matched
+     * @param lost     number of templated tracks that could not be located
+     */
+    public record Propagation(Map<String, Rectangle> bounds, double minScore, int lost) {
+    }
+
+    private static final class Template {
+        private final Mat pixels = new Mat();
+        private double scale = 1.0d;
+
+        void release() {
+            try { pixels.release(); } catch (Exception ignored) {}
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.smartattendance.vision.recognizer;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Offline benchmark for {@link CandidateIndex}. Builds synthetic sections of increasing
+ * size (smoothed random "faces" blended with a shared base so identities stay close,
+ * several jittered captures each) and, for held-out probes,
+ * compares the shortlisted search against the exhaustive scan: top-1 recall against the
+ * exhaustive answer, how often the exhaustive label survived the shortlist, and mean
+ * latency of both paths. Runs without OpenCV.
+ * Kept with the test sources so it is not shipped in the companion jar; build it with
+ * {@code mvn -pl companion test-compile}.
+ *
+ * <pre>
+ * java [--add-modules jdk.incubator.vector] -cp companion/target/test-classes:companion.jar \
+ *     com.smartattendance.vision.recognizer.CandidateIndexBenchmark labels=100,200,400,800 shortlist=32
+ * </pre>
+ *
+ * The defaults match the shipped recognizer: 256x256 faces, radius 3, 8 neighbours and a
+ * 16x16 grid ({@code preproc.*} and {@code recognition.lbph.*} in config.properties).
+ * Other options: {@code templates}, {@code probes}, {@code grid}, {@code coarse},
+ * {@code radius}, {@code neighbors}, {@code size}, {@code similarity} (0..1 weight of the
+ * shared base), {@code seed}.
+ */
+public final class CandidateIndexBenchmark {
+
+    private CandidateIndexBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("labels", "100,200,400,800");
+        options.put("templates", "4");
+        options.put("probes", "200");
+        options.put("shortlist", "32");
+        options.put("grid", "16");
+        options.put("coarse", "4");
+        options.put("radius", "3");
+        options.put("neighbors", "8");
+        options.put("size", "256");
+        options.put("similarity", "0.5");
+        options.put("seed", "42");
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0 || !options.containsKey(arg.substring(0, eq))) {
+                System.err.println("Unknown option " + arg + "; expected one of " + options.keySet());
+                System.exit(2);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        int templates = Integer.parseInt(options.get("templates"));
+        int probes = Integer.parseInt(options.get("probes"));
+        int shortlist = Integer.parseInt(options.get("shortlist"));
+        int coarse = Integer.parseInt(options.get("coarse"));
+        int size = Integer.parseInt(options.get("size"));
+        int grid = Integer.parseInt(options.get("grid"));
+        double similarity = Double.parseDouble(options.get("similarity"));
+        LbpHistogramExtractor extractor = new LbpHistogramExtractor(
+                Integer.parseInt(options.get("radius")), Integer.parseInt(options.get("neighbors")), grid, grid, false);
+        ChiSquareKernel kernel = ChiSquareKernel.select();
+        System.out.printf("kernel=%s bins=%d coarseBins=%d templates/label=%d shortlist=%d%n",
+                kernel.name(), extractor.dimensions(), extractor.coarseDimensions(coarse, coarse), templates, shortlist);
+        System.out.println("labels  recall@1  shortlistHit  exhaustiveAcc  indexedAcc  exhaustiveMs  indexedMs  speedup");
+        for (String value : options.get("labels").split(",")) {
+            int labels = Integer.parseInt(value.trim());
+            run(extractor, kernel, labels, templates, probes, shortlist, coarse, size, similarity,
+                    Long.parseLong(options.get("seed")));
+        }
+    }
+
+    private static void run(LbpHistogramExtractor extractor,
+                            ChiSquareKernel kernel,
+                            int labels,
+                            int templates,
+                            int probes,
+                            int shortlist,
+                            int coarse,
+                            int size,
+                            double similarity,
+                            long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        float[] base = texture(random, size);
+        byte[][] faces = new byte[labels][];
+        HistogramArena arena = new HistogramArena(extractor.dimensions(), labels * templates);
+        for (int label = 0; label < labels; label++) {
+            faces[label] = syntheticFace(random, base, similarity, size);
+            for (int t = 0; t < templates; t++) {
+                arena.add(extractor.extract(capture(random, faces[label], size), size, size), label);
+            }
+        }
+        CandidateIndex index = CandidateIndex.build(arena, extractor, coarse);
+        int agree = 0;
+        int hits = 0;
+        int exhaustiveCorrect = 0;
+        int indexedCorrect = 0;
+        long exhaustiveNanos = 0;
+        long indexedNanos = 0;
+        for (int p = 0; p < probes; p++) {
+            int truth = random.nextInt(labels);
+            float[] probe = extractor.extract(capture(random, faces[truth], size), size, size);
+            long t0 = System.nanoTime();
+            TemplateArena.Match exhaustive = arena.nearest(probe, Double.MAX_VALUE, kernel);
+            long t1 = System.nanoTime();
+            TemplateArena.Match indexed = arena.nearest(probe, index.candidates(probe, shortlist, kernel),
+                    Double.MAX_VALUE, kernel);
+            long t2 = System.nanoTime();
+            exhaustiveNanos += t1 - t0;
+            indexedNanos += t2 - t1;
+            if (indexed.label() == exhaustive.label()) agree++;
+            if (Arrays.stream(index.shortlistLabels(probe, shortlist, kernel)).anyMatch(l -> l == exhaustive.label())) hits++;
+            if (exhaustive.label() == truth) exhaustiveCorrect++;
+            if (indexed.label() == truth) indexedCorrect++;
+        }
+        double exhaustiveMs = exhaustiveNanos / 1_000_000.0d / probes;
+        double indexedMs = indexedNanos / 1_000_000.0d / probes;
+        System.out.printf("%6d  %8.3f  %12.3f  %13.3f  %10.3f  %12.3f  %9.3f  %6.1fx%n",
+                labels, agree / (double) probes, hits / (double) probes,
+                exhaustiveCorrect / (double) probes, indexedCorrect / (double) probes,
+                exhaustiveMs, indexedMs, exhaustiveMs / Math.max(1e-9, indexedMs));
+    }
+
+    /** An identity: its own texture blended with the shared base. */
+    static byte[] syntheticFace(SplittableRandom random, float[] base, double similarity, int size) {
+        float[] own = texture(random, size);
+        byte[] face = new byte[own.length];
+        for (int i = 0; i < own.length; i++) {
+            double v = similarity * base[i] + (1.0d - similarity) * own[i];
+            face[i] = (byte) Math.max(0, Math.min(255, Math.round(v)));
+        }
+        return face;
+    }
+
+    /** Low-frequency random texture, smooth enough for LBP codes to be stable under noise. */
+    static float[] texture(SplittableRandom random, int size) {
+        float[] image = new float[size * size];
+        for (int i = 0; i < image.length; i++) {
+            image[i] = random.nextInt(256);
+        }
+        for (int pass = 0; pass < 3; pass++) {
+            image = boxBlur(image, size, 2);
+        }
+        return image;
+    }
+
+    /** A fresh capture of {@code face}: one-pixel jitter, a brightness shift and sensor noise. */
+    static byte[] capture(SplittableRandom random, byte[] face, int size) {
+        int dx = random.nextInt(3) - 1;
+        int dy = random.nextInt(3) - 1;
+        int gain = random.nextInt(21) - 10;
+        byte[] out = new byte[face.length];
+        for (int y = 0; y < size; y++) {
+            int sy = Math.max(0, Math.min(size - 1, y + dy));
+            for (int x = 0; x < size; x++) {
+                int sx = Math.max(0, Math.min(size - 1, x + dx));
+                int v = (face[sy * size + sx] & 0xFF) + gain + random.nextInt(13) - 6;
+                out[y * size + x] = (byte) Math.max(0, Math.min(255, v));
+            }
+        }
+        return out;
+    }
+
+    private static float[] boxBlur(float[] image, int size, int radius) {
+        float[] out = new float[image.length];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                float sum = 0;
+                int count = 0;
+                for (int ky = Math.max(0, y - radius); ky <= Math.min(size - 1, y + radius); ky++) {
+                    for (int kx = Math.max(0, x - radius); kx <= Math.min(size - 1, x + radius); kx++) {
+                        sum += image[ky * size + kx];
+                        count++;
+                    }
+                }
+                out[y * size + x] = sum / count;
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,63 @@
+package com.smartattendance.vision.recognizer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import com.smartattendance.util.OpenCVLoader;
+
+/**
+ * Command-line converter between OpenCV's {@code lbph.yml} and the binary
+ * {@link LbphModelFile}. Both directions work in place inside a model directory that also
+ * holds {@code labels.txt}.
+ * Kept with the test sources so it is not shipped in the companion jar; build it with
+ * {@code mvn -pl companion test-compile}.
+ *
+ * <pre>
+ * java -cp companion/target/test-classes:companion.jar com.smartattendance.vision.recognizer.LbphModelConverter to-binary &lt;modelDir&gt; [f32|u16|u8]
+ * java -cp companion/target/test-classes:companion.jar com.smartattendance.vision.recognizer.LbphModelConverter to-yaml &lt;modelDir&gt;
+ * </pre>
+ */
+public final class LbphModelConverter {
+
+    private LbphModelConverter() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: LbphModelConverter to-binary <modelDir> [f32|u16|u8]");
+            System.err.println("       LbphModelConverter to-yaml <modelDir>");
+            System.exit(2);
+        }
+        Path modelDir = Paths.get(args[1]);
+        if (!OpenCVLoader.loadOrWarn()) {
+            System.err.println("OpenCV native libraries are required for conversion");
+            System.exit(1);
+        }
+        switch (args[0]) {
+            case "to-binary" -> {
+                LbphModelFile.Encoding encoding = LbphModelFile.Encoding.parse(args.length > 2 ? args[2] : null);
+                long before = Files.size(modelDir.resolve("lbph.yml"));
+                Path target = LbphModelFile.convertYaml(modelDir, encoding);
+                System.out.printf("Wrote %s (%s): %d bytes, lbph.yml was %d bytes%n",
+                        target, encoding, Files.size(target), before);
+            }
+            case "to-yaml" -> {
+                Path binary = modelDir.resolve(LbphModelFile.FILE_NAME);
+                if (!Files.exists(binary)) {
+                    throw new IOException("No " + LbphModelFile.FILE_NAME + " in " + modelDir);
+                }
+                JavaLBPHRecognizer recognizer = new JavaLBPHRecognizer();
+                recognizer.loadModel(modelDir);
+                recognizer.saveModel(modelDir);
+                System.out.printf("Wrote %s: %d bytes%n", modelDir.resolve("lbph.yml"),
+                        Files.size(modelDir.resolve("lbph.yml")));
+            }
+            default -> {
+                System.err.println("Unknown command " + args[0]);
+                System.exit(2);
+            }
+        }
+    }
+}
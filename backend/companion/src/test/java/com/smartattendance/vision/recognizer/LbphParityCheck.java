@@ -0,0 +1,153 @@
+package com.smartattendance.vision.recognizer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfInt;
+import org.opencv.face.LBPHFaceRecognizer;
+
+import com.smartattendance.util.OpenCVLoader;
+
+/**
+ * Offline check that the pure-Java LBPH engine reproduces OpenCV's
+ * {@code LBPHFaceRecognizer}. Both are trained on the same synthetic section (see
+ * {@link CandidateIndexBenchmark}) and, per probe, OpenCV's predicted label and distance
+ * are compared with the Java exhaustive scan and with the shortlisted search the Java engine
+ * runs by default. Template histograms are compared bin by bin as well. Needs the OpenCV
+ * natives; kept with the test sources like the other offline tools.
+ *
+ * <pre>
+ * java [--add-modules jdk.incubator.vector] -cp companion/target/test-classes:companion.jar \
+ *     com.smartattendance.vision.recognizer.LbphParityCheck labels=50,200 shortlist=32
+ * </pre>
+ *
+ * The defaults match the shipped recognizer ({@code preproc.*} and
+ * {@code recognition.lbph.*} in config.properties). Other options: {@code templates},
+ * {@code probes}, {@code radius}, {@code neighbors}, {@code grid}, {@code size},
+ * {@code similarity}, {@code seed}.
+ */
+public final class LbphParityCheck {
+
+    private LbphParityCheck() {
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("labels", "50,200");
+        options.put("templates", "4");
+        options.put("probes", "200");
+        options.put("shortlist", "32");
+        options.put("radius", "3");
+        options.put("neighbors", "8");
+        options.put("grid", "16");
+        options.put("size", "256");
+        options.put("similarity", "0.8");
+        options.put("seed", "42");
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0 || !options.containsKey(arg.substring(0, eq))) {
+                System.err.println("Unknown option " + arg + "; expected one of " + options.keySet());
+                System.exit(2);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        if (!OpenCVLoader.loadOrWarn()) {
+            System.err.println("OpenCV natives unavailable");
+            System.exit(1);
+        }
+        int radius = Integer.parseInt(options.get("radius"));
+        int neighbors = Integer.parseInt(options.get("neighbors"));
+        int grid = Integer.parseInt(options.get("grid"));
+        LbpHistogramExtractor extractor = new LbpHistogramExtractor(radius, neighbors, grid, grid, false);
+        ChiSquareKernel kernel = ChiSquareKernel.select();
+        System.out.printf("kernel=%s radius=%d neighbors=%d grid=%d bins=%d%n", kernel.name(), radius, neighbors,
+                grid, extractor.dimensions());
+        System.out.println("labels  maxBinDiff  labelAgree  indexedAgree  maxDistRelDiff");
+        for (String value : options.get("labels").split(",")) {
+            run(extractor, kernel, Integer.parseInt(value.trim()), Integer.parseInt(options.get("templates")),
+                    Integer.parseInt(options.get("probes")), Integer.parseInt(options.get("shortlist")),
+                    Integer.parseInt(options.get("size")), Double.parseDouble(options.get("similarity")),
+                    Long.parseLong(options.get("seed")));
+        }
+    }
+
+    private static void run(LbpHistogramExtractor extractor,
+                            ChiSquareKernel kernel,
+                            int labels,
+                            int templates,
+                            int probes,
+                            int shortlist,
+                            int size,
+                            double similarity,
+                            long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        float[] base = CandidateIndexBenchmark.texture(random, size);
+        byte[][] faces = new byte[labels][];
+        List<Mat> images = new ArrayList<>();
+        int[] imageLabels = new int[labels * templates];
+        HistogramArena arena = new HistogramArena(extractor.dimensions(), labels * templates);
+        for (int label = 0; label < labels; label++) {
+            faces[label] = CandidateIndexBenchmark.syntheticFace(random, base, similarity, size);
+            for (int t = 0; t < templates; t++) {
+                byte[] pixels = CandidateIndexBenchmark.capture(random, faces[label], size);
+                imageLabels[images.size()] = label;
+                images.add(toMat(pixels, size));
+                arena.add(extractor.extract(pixels, size, size), label);
+            }
+        }
+        LBPHFaceRecognizer opencv = LBPHFaceRecognizer.create(extractor.radius(), extractor.neighbors(),
+                extractor.gridX(), extractor.gridY(), Double.MAX_VALUE);
+        MatOfInt labelMat = new MatOfInt(imageLabels);
+        opencv.train(images, labelMat);
+
+        double maxBinDiff = 0.0d;
+        List<Mat> histograms = opencv.getHistograms();
+        for (int i = 0; i < histograms.size(); i++) {
+            float[] expected = new float[(int) histograms.get(i).total()];
+            histograms.get(i).get(0, 0, expected);
+            float[] actual = arena.histogram(i);
+            for (int b = 0; b < expected.length; b++) {
+                maxBinDiff = Math.max(maxBinDiff, Math.abs(expected[b] - actual[b]));
+            }
+            histograms.get(i).release();
+        }
+
+        CandidateIndex index = CandidateIndex.build(arena, extractor, 4);
+        int agree = 0;
+        int indexedAgree = 0;
+        double maxRelDiff = 0.0d;
+        int[] predicted = new int[1];
+        double[] distance = new double[1];
+        for (int p = 0; p < probes; p++) {
+            byte[] pixels = CandidateIndexBenchmark.capture(random, faces[random.nextInt(labels)], size);
+            Mat probeMat = toMat(pixels, size);
+            opencv.predict(probeMat, predicted, distance);
+            probeMat.release();
+            float[] probe = extractor.extract(pixels, size, size);
+            TemplateArena.Match exhaustive = arena.nearest(probe, Double.MAX_VALUE, kernel);
+            TemplateArena.Match indexed = arena.nearest(probe, index.candidates(probe, shortlist, kernel),
+                    Double.MAX_VALUE, kernel);
+            if (exhaustive.label() == predicted[0]) agree++;
+            if (indexed.label() == predicted[0]) indexedAgree++;
+            maxRelDiff = Math.max(maxRelDiff, Math.abs(exhaustive.distance() - distance[0])
+                    / Math.max(1e-9, distance[0]));
+        }
+        for (Mat image : images) {
+            image.release();
+        }
+        labelMat.release();
+        System.out.printf("%6d  %10.2e  %10.3f  %12.3f  %14.2e%n", labels, maxBinDiff, agree / (double) probes,
+                indexedAgree / (double) probes, maxRelDiff);
+    }
+
+    private static Mat toMat(byte[] pixels, int size) {
+        Mat mat = new Mat(size, size, CvType.CV_8UC1);
+        mat.put(0, 0, pixels);
+        return mat;
+    }
+}
@@ -0,0 +1,109 @@
+package com.smartattendance.vision.recognizer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Accuracy-versus-size report for the {@link TemplateArena.Storage} options. Builds one
+ * synthetic section (see {@link CandidateIndexBenchmark}), encodes it in every storage and
+ * runs the same held-out probes against each: resident size, how often the top-1 label
+ * agrees with the float arena, accuracy against the true identity, mean relative error of
+ * the winning distance and mean latency. Runs without OpenCV.
+ * Kept with the test sources so it is not shipped in the companion jar; build it with
+ * {@code mvn -pl companion test-compile}.
+ *
+ * <pre>
+ * java [--add-modules jdk.incubator.vector] -cp companion/target/test-classes:companion.jar \
+ *     com.smartattendance.vision.recognizer.TemplateStorageReport labels=200 size=256 grid=16
+ * </pre>
+ *
+ * Other options: {@code templates}, {@code probes}, {@code radius}, {@code neighbors},
+ * {@code uniform}, {@code similarity}, {@code seed}.
+ */
+public final class TemplateStorageReport {
+
+    private TemplateStorageReport() {
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("labels", "200");
+        options.put("templates", "4");
+        options.put("probes", "200");
+        options.put("grid", "16");
+        options.put("radius", "3");
+        options.put("neighbors", "8");
+        options.put("size", "128");
+        options.put("uniform", "false");
+        options.put("similarity", "0.5");
+        options.put("seed", "42");
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0 || !options.containsKey(arg.substring(0, eq))) {
+                System.err.println("Unknown option " + arg + "; expected one of " + options.keySet());
+                System.exit(2);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        int labels = Integer.parseInt(options.get("labels"));
+        int templates = Integer.parseInt(options.get("templates"));
+        int probes = Integer.parseInt(options.get("probes"));
+        int size = Integer.parseInt(options.get("size"));
+        int grid = Integer.parseInt(options.get("grid"));
+        double similarity = Double.parseDouble(options.get("similarity"));
+        LbpHistogramExtractor extractor = new LbpHistogramExtractor(
+                Integer.parseInt(options.get("radius")), Integer.parseInt(options.get("neighbors")), grid, grid,
+                Boolean.parseBoolean(options.get("uniform")));
+        ChiSquareKernel kernel = ChiSquareKernel.select();
+
+        SplittableRandom random = new SplittableRandom(Long.parseLong(options.get("seed")));
+        float[] base = CandidateIndexBenchmark.texture(random, size);
+        byte[][] faces = new byte[labels][];
+        HistogramArena reference = new HistogramArena(extractor.dimensions(), labels * templates);
+        for (int label = 0; label < labels; label++) {
+            faces[label] = CandidateIndexBenchmark.syntheticFace(random, base, similarity, size);
+            for (int t = 0; t < templates; t++) {
+                reference.add(extractor.extract(CandidateIndexBenchmark.capture(random, faces[label], size), size, size),
+                        label);
+            }
+        }
+        int[] truth = new int[probes];
+        float[][] probeHistograms = new float[probes][];
+        for (int p = 0; p < probes; p++) {
+            truth[p] = random.nextInt(labels);
+            probeHistograms[p] = extractor.extract(CandidateIndexBenchmark.capture(random, faces[truth[p]], size),
+                    size, size);
+        }
+        TemplateArena.Match[] expected = new TemplateArena.Match[probes];
+        for (int p = 0; p < probes; p++) {
+            expected[p] = reference.nearest(probeHistograms[p], Double.MAX_VALUE, kernel);
+        }
+
+        System.out.printf("kernel=%s bins=%d labels=%d templates=%d probes=%d%n",
+                kernel.name(), extractor.dimensions(), labels, reference.size(), probes);
+        System.out.println("storage   totalMB  bytes/template  ratio  top1Agree  accuracy  meanRelErr  msPerProbe");
+        for (TemplateArena.Storage storage : TemplateArena.Storage.values()) {
+            TemplateArena<?> arena = TemplateArena.encode(reference, storage);
+            int agree = 0;
+            int correct = 0;
+            double relativeError = 0.0d;
+            long nanos = 0;
+            for (int p = 0; p < probes; p++) {
+                long t0 = System.nanoTime();
+                TemplateArena.Match match = arena.nearest(probeHistograms[p], Double.MAX_VALUE, kernel);
+                nanos += System.nanoTime() - t0;
+                if (match.label() == expected[p].label()) agree++;
+                if (match.label() == truth[p]) correct++;
+                if (expected[p].distance() > 0.0d) {
+                    relativeError += Math.abs(match.distance() - expected[p].distance()) / expected[p].distance();
+                }
+            }
+            System.out.printf("%-8s  %7.2f  %14d  %4.1fx  %9.3f  %8.3f  %10.2e  %10.3f%n",
+                    storage.name().toLowerCase(), arena.bytes() / (1024.0d * 1024.0d),
+                    arena.bytes() / Math.max(1, arena.size()), reference.bytes() / (double) arena.bytes(),
+                    agree / (double) probes, correct / (double) probes, relativeError / probes,
+                    nanos / 1_000_000.0d / probes);
+        }
+    }
+}
@@ -62,7 +62,8 @@ public class SecurityConfiguration {
                 .cors(Customizer.withDefaults())
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers(PublicApiEndpoints.API_PATTERNS).permitAll()
-                        .requestMatchers("/api/companion/assets/**", "/api/companion/sections/**").permitAll()
+                        .requestMatchers("/api/companion/assets/**", "/api/companion/sections/**",
+                                "/api/companion/sessions/upcoming").permitAll()
                         .requestMatchers("/api/companion/releases/latest").permitAll()
                         .anyRequest().authenticated())
                 .csrf(csrf -> csrf.disable())
@@ -0,0 +1,85 @@
+package com.smartattendance.supabase.dto;
+
+import java.util.UUID;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(name = "AttendanceBatchResult", description = "Outcome of one entry in a bulk attendance submission")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AttendanceBatchResult {
+
+    @Schema(description = "Position of the entry in the submitted batch")
+    private int index;
+
+    @Schema(description = "Student the entry was submitted for")
+    private UUID studentId;
+
+    @Schema(description = "Whether the entry was stored", allowableValues = {"upserted", "rejected"})
+    private String outcome;
+
+    @Schema(description = "Stored attendance record; present when the entry was upserted")
+    private SessionAttendanceRecord record;
+
+    @Schema(description = "Reason the entry was rejected")
+    private String error;
+
+    public static AttendanceBatchResult upserted(int index, SessionAttendanceRecord record) {
+        AttendanceBatchResult result = new AttendanceBatchResult();
+        result.setIndex(index);
+        result.setStudentId(record.getStudentId());
+        result.setOutcome("upserted");
+        result.setRecord(record);
+        return result;
+    }
+
+    public static AttendanceBatchResult rejected(int index, UUID studentId, String error) {
+        AttendanceBatchResult result = new AttendanceBatchResult();
+        result.setIndex(index);
+        result.setStudentId(studentId);
+        result.setOutcome("rejected");
+        result.setError(error);
+        return result;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public UUID getStudentId() {
+        return studentId;
+    }
+
+    public void setStudentId(UUID studentId) {
+        this.studentId = studentId;
+    }
+
+    public String getOutcome() {
+        return outcome;
+    }
+
+    public void setOutcome(String outcome) {
+        this.outcome = outcome;
+    }
+
+    public SessionAttendanceRecord getRecord() {
+        return record;
+    }
+
+    public void setRecord(SessionAttendanceRecord record) {
+        this.record = record;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -28,6 +28,9 @@ public class AttendanceUpsertRequest {
     @Schema(description = "Additional notes about the attendance record")
     private String notes;
 
+    @Schema(description = "Client-generated key of the submission; a repeated key is acknowledged without being applied again")
+    private String idempotencyKey;
+
     public UUID getId() {
         return id;
     }
@@ -83,4 +86,12 @@ public class AttendanceUpsertRequest {
     public void setNotes(String notes) {
         this.notes = notes;
     }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
 }
@@ -0,0 +1,68 @@
+package com.smartattendance.supabase.dto;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(name = "CompanionModelDelta", description = "Changes to a section model since the version a companion has cached")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CompanionModelDeltaResponse {
+
+    @Schema(description = "unchanged, delta, or full when the companion should download the whole model")
+    private String status;
+
+    @Schema(description = "Content hash of the current section model")
+    private String version;
+
+    @Schema(description = "Number of templates in the current section model")
+    private Integer templates;
+
+    @Schema(description = "Hashes of cached templates that are no longer part of the model")
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private List<String> removed;
+
+    @Schema(description = "Base64 lbph.bin holding the added templates and the full label table")
+    private byte[] addedModel;
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    public Integer getTemplates() {
+        return templates;
+    }
+
+    public void setTemplates(Integer templates) {
+        this.templates = templates;
+    }
+
+    public List<String> getRemoved() {
+        return removed;
+    }
+
+    public void setRemoved(List<String> removed) {
+        this.removed = removed == null ? null : List.copyOf(removed);
+    }
+
+    public byte[] getAddedModel() {
+        return addedModel;
+    }
+
+    public void setAddedModel(byte[] addedModel) {
+        this.addedModel = addedModel;
+    }
+}
@@ -0,0 +1,101 @@
+package com.smartattendance.supabase.dto;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(name = "CompanionUpcomingSession", description = "A scheduled session whose model the companion can prefetch")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CompanionUpcomingSessionDto {
+
+    @Schema(description = "Scheduled session identifier")
+    private UUID sessionId;
+
+    @Schema(description = "Section the session belongs to")
+    private UUID sectionId;
+
+    @Schema(description = "Scheduled start time")
+    private OffsetDateTime startTime;
+
+    @Schema(description = "Scheduled end time")
+    private OffsetDateTime endTime;
+
+    @Schema(description = "Content hash of the section's current binary model; absent when it has none")
+    private String modelVersion;
+
+    @Schema(description = "Model download path relative to the API base URL")
+    private String modelUrl;
+
+    @Schema(description = "Companion token scoped to the section, for fetching its model ahead of time")
+    private String accessToken;
+
+    @Schema(description = "Expiry of the access token")
+    private OffsetDateTime accessTokenExpiresAt;
+
+    public UUID getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(UUID sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public UUID getSectionId() {
+        return sectionId;
+    }
+
+    public void setSectionId(UUID sectionId) {
+        this.sectionId = sectionId;
+    }
+
+    public OffsetDateTime getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(OffsetDateTime startTime) {
+        this.startTime = startTime;
+    }
+
+    public OffsetDateTime getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(OffsetDateTime endTime) {
+        this.endTime = endTime;
+    }
+
+    public String getModelVersion() {
+        return modelVersion;
+    }
+
+    public void setModelVersion(String modelVersion) {
+        this.modelVersion = modelVersion;
+    }
+
+    public String getModelUrl() {
+        return modelUrl;
+    }
+
+    public void setModelUrl(String modelUrl) {
+        this.modelUrl = modelUrl;
+    }
+
+    public String getAccessToken() {
+        return accessToken;
+    }
+
+    public void setAccessToken(String accessToken) {
+        this.accessToken = accessToken;
+    }
+
+    public OffsetDateTime getAccessTokenExpiresAt() {
+        return accessTokenExpiresAt;
+    }
+
+    public void setAccessTokenExpiresAt(OffsetDateTime accessTokenExpiresAt) {
+        this.accessTokenExpiresAt = accessTokenExpiresAt;
+    }
+}
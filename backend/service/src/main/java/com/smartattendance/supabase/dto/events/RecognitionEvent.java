@@ -41,6 +41,9 @@ public class RecognitionEvent {
     @JsonFormat(shape = JsonFormat.Shape.STRING)
     private OffsetDateTime timestamp;
 
+    @Schema(description = "How many identical events the companion collapsed into this one; absent for a single event")
+    private Integer occurrences;
+
     public RecognitionEvent() {
     }
 
@@ -117,4 +120,12 @@ public class RecognitionEvent {
     public void setTimestamp(OffsetDateTime timestamp) {
         this.timestamp = timestamp;
     }
+
+    public Integer getOccurrences() {
+        return occurrences;
+    }
+
+    public void setOccurrences(Integer occurrences) {
+        this.occurrences = occurrences;
+    }
 }
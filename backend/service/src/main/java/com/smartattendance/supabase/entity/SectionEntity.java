@@ -55,6 +55,9 @@ public class SectionEntity {
     @Column(name = "model_storage_path")
     private String modelStoragePath;
 
+    @Column(name = "model_version")
+    private String modelVersion;
+
     public UUID getId() {
         return id;
     }
@@ -159,6 +162,14 @@ public class SectionEntity {
         this.modelStoragePath = modelStoragePath;
     }
 
+    public String getModelVersion() {
+        return modelVersion;
+    }
+
+    public void setModelVersion(String modelVersion) {
+        this.modelVersion = modelVersion;
+    }
+
     public Integer getLateThresholdMinutes() {
         return lateThresholdMinutes;
     }
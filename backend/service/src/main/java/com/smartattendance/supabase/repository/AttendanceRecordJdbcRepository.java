@@ -0,0 +1,120 @@
+package com.smartattendance.supabase.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import com.smartattendance.supabase.entity.AttendanceRecordEntity;
+
+/**
+ * Set-based access to {@code attendance_records} for bulk submissions, where loading and
+ * saving one entity per student would cost a round trip each.
+ */
+@Repository
+public class AttendanceRecordJdbcRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public AttendanceRecordJdbcRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<AttendanceRecordEntity> findBySessionIdAndStudentIds(UUID sessionId, Collection<UUID> studentIds) {
+        if (sessionId == null || studentIds == null || studentIds.isEmpty()) {
+            return List.of();
+        }
+        SqlParameterSource params = new MapSqlParameterSource()
+                .addValue("session_id", sessionId)
+                .addValue("student_ids", studentIds);
+        return jdbcTemplate.query("""
+                SELECT id,
+                       session_id,
+                       student_id,
+                       status::text AS status,
+                       marked_at,
+                       marking_method::text AS marking_method,
+                       confidence_score,
+                       notes,
+                       last_seen,
+                       created_at,
+                       updated_at
+                  FROM attendance_records
+                 WHERE session_id = :session_id
+                   AND student_id IN (:student_ids)
+                """, params, AttendanceRecordJdbcRepository::mapRecord);
+    }
+
+    /**
+     * Writes every record in a single JDBC batch, inserting new rows and overwriting existing
+     * ones on the {@code (session_id, student_id)} key.
+     */
+    public int[] upsertAll(List<AttendanceRecordEntity> records) {
+        if (records == null || records.isEmpty()) {
+            return new int[0];
+        }
+        SqlParameterSource[] batch = records.stream()
+                .map(AttendanceRecordJdbcRepository::toParameters)
+                .toArray(SqlParameterSource[]::new);
+        return jdbcTemplate.batchUpdate("""
+                INSERT INTO attendance_records (id, session_id, student_id, status, marked_at, marking_method,
+                                                confidence_score, notes, last_seen, created_at, updated_at)
+                VALUES (:id, :session_id, :student_id, CAST(:status AS attendance_status), :marked_at,
+                        CAST(:marking_method AS marking_method), :confidence_score, :notes, :last_seen,
+                        :created_at, :updated_at)
+                ON CONFLICT (session_id, student_id) DO UPDATE
+                   SET status = EXCLUDED.status,
+                       marked_at = EXCLUDED.marked_at,
+                       marking_method = EXCLUDED.marking_method,
+                       confidence_score = EXCLUDED.confidence_score,
+                       notes = EXCLUDED.notes,
+                       last_seen = EXCLUDED.last_seen,
+                       updated_at = EXCLUDED.updated_at
+                """, batch);
+    }
+
+    private static SqlParameterSource toParameters(AttendanceRecordEntity record) {
+        return new MapSqlParameterSource()
+                .addValue("id", record.getId())
+                .addValue("session_id", record.getSessionId())
+                .addValue("student_id", record.getStudentId())
+                .addValue("status", record.getStatus() != null ? record.getStatus().name() : null)
+                .addValue("marked_at", record.getMarkedAt())
+                .addValue("marking_method", record.getMarkingMethod() != null ? record.getMarkingMethod().name() : null)
+                .addValue("confidence_score", record.getConfidenceScore())
+                .addValue("notes", record.getNotes())
+                .addValue("last_seen", record.getLastSeen())
+                .addValue("created_at", record.getCreatedAt())
+                .addValue("updated_at", record.getUpdatedAt());
+    }
+
+    private static AttendanceRecordEntity mapRecord(ResultSet rs, int rowNum) throws SQLException {
+        AttendanceRecordEntity entity = new AttendanceRecordEntity();
+        entity.setId((UUID) rs.getObject("id"));
+        entity.setSessionId((UUID) rs.getObject("session_id"));
+        entity.setStudentId((UUID) rs.getObject("student_id"));
+        String status = rs.getString("status");
+        if (status != null) {
+            entity.setStatus(AttendanceRecordEntity.Status.valueOf(status.toLowerCase(Locale.ROOT)));
+        }
+        entity.setMarkedAt(rs.getObject("marked_at", OffsetDateTime.class));
+        String markingMethod = rs.getString("marking_method");
+        entity.setMarkingMethod(markingMethod != null
+                ? AttendanceRecordEntity.MarkingMethod.valueOf(markingMethod.toLowerCase(Locale.ROOT))
+                : null);
+        entity.setConfidenceScore((Double) rs.getObject("confidence_score"));
+        entity.setNotes(rs.getString("notes"));
+        entity.setLastSeen(rs.getObject("last_seen", OffsetDateTime.class));
+        entity.setCreatedAt(rs.getObject("created_at", OffsetDateTime.class));
+        entity.setUpdatedAt(rs.getObject("updated_at", OffsetDateTime.class));
+        return entity;
+    }
+}
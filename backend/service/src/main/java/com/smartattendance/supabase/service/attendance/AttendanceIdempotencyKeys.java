@@ -0,0 +1,77 @@
+package com.smartattendance.supabase.service.attendance;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records the idempotency keys of applied attendance submissions in
+ * {@code attendance_submission_keys}, so a client replaying a submission it never saw
+ * acknowledged does not overwrite later changes to the record. Keys are claimed in the
+ * caller's transaction: they commit together with the records they guard, a rolled back
+ * submission leaves its keys unclaimed, and a concurrent replay of the same key waits on
+ * the row and then finds it claimed. Keys older than the retention count as unknown and
+ * are pruned now and then; a replay older than that is applied again, which is harmless
+ * for the companion's retry horizon.
+ */
+@Component
+public class AttendanceIdempotencyKeys {
+
+    private static final Duration RETENTION = Duration.ofHours(24);
+    private static final Duration PRUNE_INTERVAL = Duration.ofHours(1);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final AtomicLong lastPrune = new AtomicLong();
+
+    public AttendanceIdempotencyKeys(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Claims {@code keys} in the current transaction and returns those that were not
+     * applied before; the others belong to submissions that already went through.
+     */
+    public Set<String> claim(Collection<String> keys) {
+        Set<String> usable = new LinkedHashSet<>();
+        for (String key : keys) {
+            if (key != null && !key.isBlank()) {
+                usable.add(key);
+            }
+        }
+        if (usable.isEmpty()) {
+            return Set.of();
+        }
+        OffsetDateTime cutoff = OffsetDateTime.now().minus(RETENTION);
+        pruneIfDue(cutoff);
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("keys", List.copyOf(usable))
+                .addValue("cutoff", cutoff);
+        return new HashSet<>(jdbcTemplate.queryForList("""
+                INSERT INTO attendance_submission_keys (idempotency_key, applied_at)
+                SELECT key, now() FROM unnest(CAST(ARRAY[:keys] AS text[])) AS key
+                ON CONFLICT (idempotency_key) DO UPDATE
+                   SET applied_at = EXCLUDED.applied_at
+                 WHERE attendance_submission_keys.applied_at < :cutoff
+                RETURNING idempotency_key
+                """, params, String.class));
+    }
+
+    private void pruneIfDue(OffsetDateTime cutoff) {
+        long now = System.currentTimeMillis();
+        long last = lastPrune.get();
+        if (now - last < PRUNE_INTERVAL.toMillis() || !lastPrune.compareAndSet(last, now)) {
+            return;
+        }
+        jdbcTemplate.update("DELETE FROM attendance_submission_keys WHERE applied_at < :cutoff",
+                new MapSqlParameterSource("cutoff", cutoff));
+    }
+}
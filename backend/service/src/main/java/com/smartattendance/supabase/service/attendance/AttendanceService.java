@@ -2,8 +2,11 @@ package com.smartattendance.supabase.service.attendance;
 
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -24,6 +27,7 @@ import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.smartattendance.supabase.dto.AttendanceBatchResult;
 import com.smartattendance.supabase.dto.AttendanceUpsertRequest;
 import com.smartattendance.supabase.dto.PagedResponse;
 import com.smartattendance.supabase.dto.SessionAttendanceRecord;
@@ -33,6 +37,7 @@ import com.smartattendance.supabase.entity.AttendanceRecordEntity;
 import com.smartattendance.supabase.entity.AttendanceSessionEntity;
 import com.smartattendance.supabase.entity.CourseEntity;
 import com.smartattendance.supabase.entity.SectionEntity;
+import com.smartattendance.supabase.repository.AttendanceRecordJdbcRepository;
 import com.smartattendance.supabase.repository.AttendanceRecordRepository;
 import com.smartattendance.supabase.repository.AttendanceSessionRepository;
 import com.smartattendance.supabase.repository.CourseRepository;
@@ -52,24 +57,30 @@ public class AttendanceService {
     private static final int MAX_PAGE_SIZE = 200;
 
     private final AttendanceRecordRepository attendanceRecordRepository;
+    private final AttendanceRecordJdbcRepository attendanceRecordJdbcRepository;
     private final StudentDirectoryService studentDirectoryService;
     private final SessionEventPublisher eventPublisher;
     private final AttendanceSessionRepository sessionRepository;
     private final SectionRepository sectionRepository;
     private final CourseRepository courseRepository;
+    private final AttendanceIdempotencyKeys idempotencyKeys;
 
     public AttendanceService(AttendanceRecordRepository attendanceRecordRepository,
+            AttendanceRecordJdbcRepository attendanceRecordJdbcRepository,
             StudentDirectoryService studentDirectoryService,
             SessionEventPublisher eventPublisher,
             AttendanceSessionRepository sessionRepository,
             SectionRepository sectionRepository,
-            CourseRepository courseRepository) {
+            CourseRepository courseRepository,
+            AttendanceIdempotencyKeys idempotencyKeys) {
         this.attendanceRecordRepository = attendanceRecordRepository;
+        this.attendanceRecordJdbcRepository = attendanceRecordJdbcRepository;
         this.studentDirectoryService = studentDirectoryService;
         this.eventPublisher = eventPublisher;
         this.sessionRepository = sessionRepository;
         this.sectionRepository = sectionRepository;
         this.courseRepository = courseRepository;
+        this.idempotencyKeys = idempotencyKeys;
     }
 
     @Transactional(readOnly = true)
@@ -148,6 +159,19 @@ public class AttendanceService {
         if (request == null) {
             throw new IllegalArgumentException("request must not be null");
         }
+        String key = request.getIdempotencyKey();
+        boolean replay = key != null && !key.isBlank() && !idempotencyKeys.claim(List.of(key)).contains(key);
+        if (replay && request.getSessionId() != null && request.getStudentId() != null) {
+            Optional<AttendanceRecordEntity> current = attendanceRecordRepository
+                    .findBySessionIdAndStudentId(request.getSessionId(), request.getStudentId());
+            if (current.isPresent()) {
+                log.debug("Attendance submission {} was already applied; returning the current record", key);
+                StudentDto student = studentDirectoryService.findById(current.get().getStudentId()).orElse(null);
+                AttendanceSessionEntity session = resolveSession(current.get().getSessionId());
+                SectionEntity section = resolveSection(session);
+                return toDto(current.get(), student, session, section, resolveCourse(section));
+            }
+        }
         AttendanceRecordEntity entity = resolveTargetRecord(request);
         applyUpdates(entity, request);
         AttendanceRecordEntity saved = attendanceRecordRepository.save(entity);
@@ -160,6 +184,87 @@ public class AttendanceService {
         return toDto(saved, student, session, section, course);
     }
 
+    /**
+     * Upserts several records of one session in a single transaction: existing rows are
+     * loaded with one query and all writes go out as one JDBC batch. As with {@link #upsert},
+     * a student's existing record is updated whether or not the directory still lists the
+     * student; entries without a student, or creating a record for an id that is neither in
+     * the session nor in the directory, are rejected individually instead of failing the
+     * whole batch on the profile foreign key. Repeated
+     * entries for the same student are applied in order to the same record, and entries
+     * whose idempotency key was already applied only report the current record.
+     */
+    @Transactional
+    public List<AttendanceBatchResult> upsertBatch(UUID sessionId, List<AttendanceUpsertRequest> requests) {
+        if (sessionId == null) {
+            throw new IllegalArgumentException("sessionId must not be null");
+        }
+        if (requests == null || requests.isEmpty()) {
+            return List.of();
+        }
+        List<UUID> studentIds = requests.stream()
+                .filter(Objects::nonNull)
+                .map(AttendanceUpsertRequest::getStudentId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        Map<UUID, StudentDto> students = studentDirectoryService.findByIds(studentIds);
+        Map<UUID, AttendanceRecordEntity> records = new LinkedHashMap<>();
+        for (AttendanceRecordEntity existing : attendanceRecordJdbcRepository.findBySessionIdAndStudentIds(sessionId,
+                studentIds)) {
+            records.put(existing.getStudentId(), existing);
+        }
+
+        Set<String> claimed = idempotencyKeys.claim(requests.stream()
+                .filter(request -> request != null && request.getStudentId() != null)
+                .map(AttendanceUpsertRequest::getIdempotencyKey)
+                .toList());
+        Set<String> seenKeys = new HashSet<>();
+        Map<UUID, AttendanceRecordEntity> touched = new LinkedHashMap<>();
+        AttendanceBatchResult[] results = new AttendanceBatchResult[requests.size()];
+        for (int i = 0; i < requests.size(); i++) {
+            AttendanceUpsertRequest request = requests.get(i);
+            UUID studentId = request != null ? request.getStudentId() : null;
+            if (studentId == null) {
+                results[i] = AttendanceBatchResult.rejected(i, null, "studentId is required");
+                continue;
+            }
+            if (!records.containsKey(studentId) && !students.containsKey(studentId)) {
+                results[i] = AttendanceBatchResult.rejected(i, studentId, "Student not found");
+                continue;
+            }
+            String key = request.getIdempotencyKey();
+            boolean replay = key != null && !key.isBlank() && (!claimed.contains(key) || !seenKeys.add(key));
+            if (replay && records.containsKey(studentId)) {
+                continue;
+            }
+            AttendanceRecordEntity entity = records.computeIfAbsent(studentId,
+                    id -> createFreshRecord(null, sessionId, id));
+            request.setSessionId(sessionId);
+            applyUpdates(entity, request);
+            touched.put(studentId, entity);
+        }
+        attendanceRecordJdbcRepository.upsertAll(List.copyOf(touched.values()));
+
+        AttendanceSessionEntity session = resolveSession(sessionId);
+        SectionEntity section = resolveSection(session);
+        CourseEntity course = resolveCourse(section);
+        Map<UUID, SessionAttendanceRecord> dtos = new LinkedHashMap<>();
+        for (AttendanceRecordEntity saved : touched.values()) {
+            publishAttendanceEvent(saved);
+            dtos.put(saved.getStudentId(), toDto(saved, students.get(saved.getStudentId()), session, section, course));
+        }
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                results[i] = AttendanceBatchResult.upserted(i, dtos.computeIfAbsent(requests.get(i).getStudentId(),
+                        id -> toDto(records.get(id), students.get(id), session, section, course)));
+            }
+        }
+        log.debug("Upserted {} attendance records for session {} in one batch ({} rejected)", touched.size(),
+                sessionId, Arrays.stream(results).filter(result -> "rejected".equals(result.getOutcome())).count());
+        return List.of(results);
+    }
+
     @Transactional
     public SessionAttendanceRecord update(UUID recordId, AttendanceUpsertRequest request) {
         if (recordId == null) {
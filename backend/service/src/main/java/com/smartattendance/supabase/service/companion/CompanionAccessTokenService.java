@@ -8,6 +8,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -25,6 +26,11 @@ import com.smartattendance.supabase.auth.OutboundAuth;
  * Issues and validates short-lived bearer tokens that allow the native companion application to
  * download session-specific assets from the backend. Tokens are stored in-memory and expire
  * automatically after a configurable duration.
+ *
+ * <p>Besides the section-bound {@link Scope#SESSION} tokens, each professor has at most one
+ * {@link Scope#MODEL_PREFETCH} token: it may only list upcoming sessions and download the
+ * models of sections granted to it, lives for days rather than an hour, and is handed out
+ * again rather than re-minted while more than half of its lifetime remains.
  */
 @Service
 public class CompanionAccessTokenService {
@@ -32,10 +38,23 @@ public class CompanionAccessTokenService {
     private static final Logger logger = LoggerFactory.getLogger(CompanionAccessTokenService.class);
 
     private final ConcurrentMap<String, CompanionToken> activeTokens = new ConcurrentHashMap<>();
+    private final ConcurrentMap<UUID, String> prefetchTokens = new ConcurrentHashMap<>();
     private final SecureRandom secureRandom = new SecureRandom();
     private final Duration tokenTtl;
-    public CompanionAccessTokenService(@Value("${companion.token.ttl-minutes:60}") long ttlMinutes) {
+    private final Duration prefetchTokenTtl;
+
+    public CompanionAccessTokenService(@Value("${companion.token.ttl-minutes:60}") long ttlMinutes,
+            @Value("${companion.token.prefetch-ttl-hours:168}") long prefetchTtlHours) {
         this.tokenTtl = Duration.ofMinutes(Math.max(ttlMinutes, 1));
+        this.prefetchTokenTtl = Duration.ofHours(Math.max(prefetchTtlHours, 1));
+    }
+
+    /** Which requests a token may authorize. */
+    public enum Scope {
+        /** Everything under its section, for the session it was issued for. */
+        SESSION,
+        /** Listing upcoming sessions and downloading the models of granted sections only. */
+        MODEL_PREFETCH
     }
 
     public IssuedToken issueToken(UUID professorProfileId, UUID sectionId, Jwt supabaseJwt,
@@ -56,12 +75,79 @@ public class CompanionAccessTokenService {
                 sectionId,
                 expiresAt,
                 supabaseJwt,
-                List.copyOf(authorities)));
+                List.copyOf(authorities),
+                Scope.SESSION,
+                Set.of()));
         logger.info("Issued companion token expiring at {} for section {} and professor {}", expiresAt, sectionId,
                 professorProfileId);
         return new IssuedToken(token, expiresAt);
     }
 
+    /**
+     * Returns the professor's model prefetch token with {@code sections} added to its grants.
+     * The current token is reused while more than half of its lifetime remains; otherwise a
+     * new one inheriting the old grants replaces it.
+     */
+    public IssuedToken prefetchToken(UUID professorProfileId, Jwt supabaseJwt,
+            Collection<? extends GrantedAuthority> authorities, Collection<UUID> sections) {
+        Objects.requireNonNull(professorProfileId, "professorProfileId");
+        Objects.requireNonNull(authorities, "authorities");
+        String value = prefetchTokens.compute(professorProfileId, (id, previous) -> {
+            CompanionToken existing = previous != null ? lookup(previous).orElse(null) : null;
+            if (existing != null && existing.expiresAt().isAfter(OffsetDateTime.now().plus(prefetchTokenTtl.dividedBy(2)))) {
+                if (supabaseJwt != null && supabaseJwt != existing.supabaseJwt()) {
+                    // Keep delegating the freshest session so downloads run as the professor while it lasts.
+                    activeTokens.put(previous, new CompanionToken(previous, professorProfileId, null,
+                            existing.expiresAt(), supabaseJwt, List.copyOf(authorities), Scope.MODEL_PREFETCH,
+                            existing.sections()));
+                }
+                return previous;
+            }
+            purgeExpiredTokens();
+            String token = generateToken();
+            Set<UUID> grants = ConcurrentHashMap.newKeySet();
+            if (existing != null) {
+                grants.addAll(existing.sections());
+                activeTokens.remove(previous);
+            }
+            OffsetDateTime expiresAt = OffsetDateTime.now().plus(prefetchTokenTtl);
+            activeTokens.put(token, new CompanionToken(
+                    token,
+                    professorProfileId,
+                    null,
+                    expiresAt,
+                    supabaseJwt,
+                    List.copyOf(authorities),
+                    Scope.MODEL_PREFETCH,
+                    grants));
+            logger.info("Issued model prefetch token expiring at {} for professor {}", expiresAt, professorProfileId);
+            return token;
+        });
+        CompanionToken current = activeTokens.get(value);
+        grant(current, sections);
+        return new IssuedToken(current.value(), current.expiresAt());
+    }
+
+    /** Lets a prefetch token download the models of {@code sections}; no-op for session tokens. */
+    public void grant(CompanionToken token, Collection<UUID> sections) {
+        if (token == null || token.scope() != Scope.MODEL_PREFETCH || sections == null) {
+            return;
+        }
+        for (UUID sectionId : sections) {
+            if (sectionId != null) {
+                token.sections().add(sectionId);
+            }
+        }
+    }
+
+    /** Whether {@code token} may act on {@code sectionId}: its own section, or a granted one. */
+    public static boolean permits(CompanionToken token, UUID sectionId) {
+        if (token.scope() == Scope.MODEL_PREFETCH) {
+            return sectionId != null && token.sections().contains(sectionId);
+        }
+        return sectionId == null || sectionId.equals(token.sectionId());
+    }
+
     public boolean validateToken(String tokenValue, UUID sectionId) {
         if (tokenValue == null || tokenValue.isBlank()) {
             return false;
@@ -106,6 +192,11 @@ public class CompanionAccessTokenService {
             return;
         }
         activeTokens.entrySet().removeIf(entry -> sectionId.equals(entry.getValue().sectionId()));
+        for (CompanionToken token : activeTokens.values()) {
+            if (token.scope() == Scope.MODEL_PREFETCH) {
+                token.sections().remove(sectionId);
+            }
+        }
     }
 
     private String generateToken() {
@@ -125,7 +216,9 @@ public class CompanionAccessTokenService {
             UUID sectionId,
             OffsetDateTime expiresAt,
             Jwt supabaseJwt,
-            List<? extends GrantedAuthority> authorities) {
+            List<? extends GrantedAuthority> authorities,
+            Scope scope,
+            Set<UUID> sections) {
     }
 
     public record IssuedToken(String token, OffsetDateTime expiresAt) {
@@ -333,7 +333,11 @@ public class CompanionInstallerBuilder {
                 "for jar in \"$LIB_DIR\"/*.jar; do\n" +
                 "  CLASSPATH=\"$CLASSPATH:$jar\"\n" +
                 "done\n" +
-                "exec \"$JAVA_CMD\" -cp \"$CLASSPATH\" com.smartattendance.companion.CompanionApplication \"$@\"\n";
+                "VECTOR_OPTS=\"\"\n" +
+                "if \"$JAVA_CMD\" --list-modules 2>/dev/null | grep -q '^jdk.incubator.vector'; then\n" +
+                "  VECTOR_OPTS=\"--add-modules=jdk.incubator.vector\"\n" +
+                "fi\n" +
+                "exec \"$JAVA_CMD\" $VECTOR_OPTS -cp \"$CLASSPATH\" com.smartattendance.companion.CompanionApplication \"$@\"\n";
     }
 
     private String windowsReadme(String version) {
@@ -423,7 +427,11 @@ public class CompanionInstallerBuilder {
                 "  $classpath += (Join-Path $scriptDir 'SmartAttendanceCompanion.jar')\n" +
                 "  Get-ChildItem -Path $libDir -Filter *.jar | ForEach-Object { $classpath += $_.FullName }\n" +
                 "  $classpathString = $classpath -join ';'\n" +
-                "  & \"$javaExe\" -cp $classpathString 'com.smartattendance.companion.CompanionApplication' @Args\n" +
+                "  $javaOpts = @()\n" +
+                "  if ((& \"$javaExe\" --list-modules 2>$null) -match '^jdk\\.incubator\\.vector') {\n" +
+                "    $javaOpts += '--add-modules=jdk.incubator.vector'\n" +
+                "  }\n" +
+                "  & \"$javaExe\" @javaOpts -cp $classpathString 'com.smartattendance.companion.CompanionApplication' @Args\n" +
                 "  exit $LASTEXITCODE\n" +
                 "} catch {\n" +
                 "  Write-Error \"Companion failed to launch: $($_.Exception.Message)\"\n" +
@@ -13,6 +13,7 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -56,6 +57,8 @@ import com.smartattendance.supabase.repository.SectionRepository;
 import com.smartattendance.supabase.repository.StudentEnrollmentRepository;
 import com.smartattendance.vision.ModelManager;
 import com.smartattendance.vision.Recognizer;
+import com.smartattendance.vision.recognizer.LbphModelDelta;
+import com.smartattendance.vision.recognizer.LbphModelFile;
 import com.smartattendance.supabase.dto.StudentDto;
 import com.smartattendance.supabase.service.profile.StudentDirectoryService;
 import com.smartattendance.supabase.service.supabase.SupabaseStorageService.StorageObjectHead;
@@ -75,6 +78,11 @@ public class SectionModelService {
     private static final String COMPANION_CASCADE_ENDPOINT = "/companion/assets/cascade";
     private static final String COMPANION_MODEL_ENDPOINT_TEMPLATE = "/companion/sections/%s/models/lbph";
     private static final String COMPANION_LABELS_ENDPOINT_TEMPLATE = "/companion/sections/%s/models/labels";
+    private static final LbphModelFile.Encoding BINARY_MODEL_ENCODING = LbphModelFile.Encoding.UINT16;
+    /** Above this share of new templates a delta saves little over the full model. */
+    private static final double MAX_DELTA_FRACTION = 0.5;
+    /** Remembered in {@link #modelVersions} for sections whose model has no binary form. */
+    private static final String NO_BINARY_MODEL = "";
 
     private final StudentEnrollmentRepository enrollmentRepository;
     private final SectionRepository sectionRepository;
@@ -93,8 +101,15 @@ public class SectionModelService {
         return thread;
     });
 
-    private final ConcurrentMap<UUID, RecognizerHolder> cache = new ConcurrentHashMap<>();
+    /**
+     * Where each section's model was last materialized on local disk. Only the location is
+     * kept: nothing in the service predicts continuously, and a resident OpenCV recognizer
+     * per section held every template as native float histograms for the process lifetime.
+     */
+    private final ConcurrentMap<UUID, LocalModel> localModels = new ConcurrentHashMap<>();
     private final ConcurrentMap<UUID, ReentrantLock> locks = new ConcurrentHashMap<>();
+    /** {@link LbphModelDelta} version of each section's stored binary model, filled lazily. */
+    private final ConcurrentMap<UUID, String> modelVersions = new ConcurrentHashMap<>();
 
     public SectionModelService(StudentEnrollmentRepository enrollmentRepository,
                                SectionRepository sectionRepository,
@@ -127,8 +142,28 @@ public class SectionModelService {
         this.sectionZipFunctionClient = functionClient;
     }
 
-    /** Resolve a recognizer for the given section, loading it from storage if necessary. */
+    /**
+     * Resolve a recognizer for the given section, downloading its model from storage if the
+     * local copy is missing or stale. Each call loads a new instance that the caller owns;
+     * the service keeps no recognizer resident.
+     */
     public Recognizer resolveRecognizer(UUID sectionId) {
+        LocalModel model = syncLocalModel(sectionId);
+        if (model == null) {
+            return null;
+        }
+        try {
+            Recognizer recognizer = modelManager.createRecognizer();
+            recognizer.loadModel(model.localPath());
+            return recognizer;
+        } catch (IOException ex) {
+            log.error("Failed to load recognizer for section {}: {}", sectionId, ex.getMessage(), ex);
+            return null;
+        }
+    }
+
+    /** Make sure the section's stored model is present on local disk, downloading it if needed. */
+    private LocalModel syncLocalModel(UUID sectionId) {
         if (sectionId == null) {
             return null;
         }
@@ -136,19 +171,19 @@ public class SectionModelService {
                 .map(SectionEntity::getModelStoragePath)
                 .orElse(null));
         if (!StringUtils.hasText(storagePath)) {
-            cache.remove(sectionId);
+            localModels.remove(sectionId);
             return null;
         }
         final String resolvedPath = storagePath;
         return executeWithStorageBearer(() -> {
-            RecognizerHolder holder = cache.get(sectionId);
-            if (holder == null || !resolvedPath.equals(holder.storagePath())) {
-                holder = loadRecognizer(sectionId, resolvedPath);
-                if (holder != null) {
-                    cache.put(sectionId, holder);
+            LocalModel model = localModels.get(sectionId);
+            if (model == null || !resolvedPath.equals(model.storagePath()) || !Files.isDirectory(model.localPath())) {
+                model = downloadModel(sectionId, resolvedPath);
+                if (model != null) {
+                    localModels.put(sectionId, model);
                 }
             }
-            return holder != null ? holder.recognizer() : null;
+            return model;
         });
     }
 
@@ -172,7 +207,7 @@ public class SectionModelService {
             return;
         }
         if (StringUtils.hasText(section.getModelStoragePath())) {
-            resolveRecognizer(sectionId);
+            syncLocalModel(sectionId);
             return;
         }
         ReentrantLock lock = locks.computeIfAbsent(sectionId, id -> new ReentrantLock());
@@ -182,7 +217,7 @@ public class SectionModelService {
                     .map(SectionEntity::getModelStoragePath)
                     .orElse(null));
             if (StringUtils.hasText(existingPath)) {
-                resolveRecognizer(sectionId);
+                syncLocalModel(sectionId);
                 return;
             }
             Path stagingDir = Files.createTempDirectory(attendanceProperties.directories().modelDir(),
@@ -199,12 +234,11 @@ public class SectionModelService {
                     throw new IllegalStateException("Failed to upload bootstrap model for section " + sectionId, ex);
                 }
             });
-            persistSectionStoragePath(sectionId, storagePrefix);
+            persistSectionStoragePath(sectionId, storagePrefix, null);
+            modelVersions.put(sectionId, NO_BINARY_MODEL);
             Path target = resolveLocalModelRoot(sectionId);
             replaceDirectory(stagingDir, target);
-            Recognizer live = modelManager.createRecognizer();
-            live.loadModel(target);
-            cache.put(sectionId, new RecognizerHolder(live, storagePrefix, target));
+            localModels.put(sectionId, new LocalModel(storagePrefix, target));
             log.info("Bootstrapped LBPH model for section {} (storage={})", sectionId, storagePrefix);
         } catch (IOException ex) {
             log.error("Failed to bootstrap section {} model: {}", sectionId, ex.getMessage(), ex);
@@ -312,6 +346,7 @@ public class SectionModelService {
             stagingDir = Files.createTempDirectory(attendanceProperties.directories().modelDir(),
                     sectionId + "-");
             trained.saveModel(stagingDir);
+            String binaryVersion = writeBinaryModel(sectionId, stagingDir);
             log.info("Persisted trained artifacts for section {} to staging directory {}", sectionId, stagingDir);
             Path modelFile = stagingDir.resolve("lbph.yml");
             if (!Files.exists(modelFile)) {
@@ -321,12 +356,11 @@ public class SectionModelService {
             String storagePrefix = resolveStoragePrefix(sectionId);
             log.info("Uploading section {} model artifacts to {}/{}", sectionId, storageProperties.getFaceModelBucket(), storagePrefix);
             uploadModelArtifacts(storagePrefix, stagingDir);
-            persistSectionStoragePath(sectionId, storagePrefix);
+            persistSectionStoragePath(sectionId, storagePrefix, binaryVersion);
+            modelVersions.put(sectionId, binaryVersion != null ? binaryVersion : NO_BINARY_MODEL);
             Path target = resolveLocalModelRoot(sectionId);
             replaceDirectory(stagingDir, target);
-            Recognizer live = modelManager.createRecognizer();
-            live.loadModel(target);
-            cache.put(sectionId, new RecognizerHolder(live, storagePrefix, target));
+            localModels.put(sectionId, new LocalModel(storagePrefix, target));
             log.info("Section {} retrain completed with {} images (storage={})", sectionId, dataset.imageCount(), storagePrefix);
             return new SectionRetrainResult(
                     sectionId,
@@ -688,6 +722,22 @@ public class SectionModelService {
         return baos.toByteArray();
     }
 
+    /**
+     * Adds the binary form of the freshly trained model next to lbph.yml. Companions load it
+     * without parsing; failures only cost them the fallback to the YAML.
+     */
+    private String writeBinaryModel(UUID sectionId, Path stagingDir) {
+        try {
+            Path binary = LbphModelFile.convertYaml(stagingDir, BINARY_MODEL_ENCODING);
+            log.info("Wrote binary model for section {} ({} bytes, lbph.yml {} bytes)", sectionId,
+                    Files.size(binary), Files.size(stagingDir.resolve("lbph.yml")));
+            return LbphModelDelta.digest(LbphModelFile.read(binary)).version();
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Failed to write binary model for section {}: {}", sectionId, ex.getMessage());
+            return null;
+        }
+    }
+
     private void uploadModelArtifacts(String storagePrefix, Path stagingDir) throws IOException {
         String bucket = storageProperties.getFaceModelBucket();
         String folder = storagePrefix.endsWith("/") ? storagePrefix : storagePrefix + "/";
@@ -707,11 +757,12 @@ public class SectionModelService {
         log.info("Uploaded LBPH model archive for prefix {}", folder);
     }
 
-    private void persistSectionStoragePath(UUID sectionId, String storagePrefix) {
+    private void persistSectionStoragePath(UUID sectionId, String storagePrefix, String modelVersion) {
         transactionTemplate.executeWithoutResult(status -> {
             SectionEntity entity = sectionRepository.findById(sectionId)
                     .orElseThrow(() -> new IllegalArgumentException("Section not found: " + sectionId));
             entity.setModelStoragePath(storagePrefix);
+            entity.setModelVersion(modelVersion);
             entity.setUpdatedAt(OffsetDateTime.now());
             sectionRepository.save(entity);
         });
@@ -721,14 +772,14 @@ public class SectionModelService {
         return sectionId + "/" + CURRENT_MODEL_VERSION;
     }
 
-    private RecognizerHolder loadRecognizer(UUID sectionId, String storagePath) {
+    private LocalModel downloadModel(UUID sectionId, String storagePath) {
         ReentrantLock lock = locks.computeIfAbsent(sectionId, id -> new ReentrantLock());
         lock.lock();
         try {
             Path target = resolveLocalModelRoot(sectionId);
             Path staging = Files.createTempDirectory(attendanceProperties.directories().modelDir(),
                     sectionId + "-load-");
-            log.info("Loading recognizer for section {} from storage path {}", sectionId, storagePath);
+            log.info("Downloading model for section {} from storage path {}", sectionId, storagePath);
             byte[] zipBytes = downloadBytes(storageProperties.getFaceModelBucket(), storagePath + "/lbph.zip");
             if (zipBytes == null || zipBytes.length == 0) {
                 deleteRecursively(staging);
@@ -737,11 +788,9 @@ public class SectionModelService {
             }
             extractZipToDirectory(zipBytes, staging);
             replaceDirectory(staging, target);
-            Recognizer recognizer = modelManager.createRecognizer();
-            recognizer.loadModel(target);
-            return new RecognizerHolder(recognizer, storagePath, target);
+            return new LocalModel(storagePath, target);
         } catch (IOException ex) {
-            log.error("Failed to load recognizer for section {}: {}", sectionId, ex.getMessage(), ex);
+            log.error("Failed to download model for section {}: {}", sectionId, ex.getMessage(), ex);
             return null;
         } finally {
             lock.unlock();
@@ -787,7 +836,8 @@ public class SectionModelService {
             return null;
         }
         String normalized = artifactName.trim();
-        if (!normalized.equals("lbph.yml") && !normalized.equals("labels.txt")) {
+        if (!normalized.equals("lbph.yml") && !normalized.equals("labels.txt")
+                && !normalized.equals(LbphModelFile.FILE_NAME)) {
             log.warn("Unsupported model artifact request '{}' for section {}", artifactName, sectionId);
             return null;
         }
@@ -825,6 +875,132 @@ public class SectionModelService {
             return null;
         });
     }
+    /**
+     * Compares the section's current binary model with the one a companion has cached,
+     * identified by its {@link LbphModelDelta} version and template hashes. Returns
+     * {@link ModelDelta#UNCHANGED} when the versions match, otherwise the templates to drop
+     * plus an {@code lbph.bin} holding only the new ones. When most templates are new, or
+     * the companion sent no hashes, the status is {@link ModelDelta#FULL} and the companion
+     * should download the whole model. Returns {@code null} when the section has no binary
+     * model.
+     */
+    public ModelDelta computeModelDelta(UUID sectionId, String baseVersion, Collection<String> baseTemplates) {
+        byte[] binary = fetchModelArtifact(sectionId, LbphModelFile.FILE_NAME);
+        if (binary == null || binary.length == 0) {
+            return null;
+        }
+        Path current = null;
+        Path subset = null;
+        try {
+            Path workDir = attendanceProperties.directories().modelDir();
+            Files.createDirectories(workDir);
+            current = Files.createTempFile(workDir, sectionId + "-delta-", ".bin");
+            Files.write(current, binary);
+            LbphModelFile.Contents contents = LbphModelFile.read(current);
+            LbphModelDelta.Digest digest = LbphModelDelta.digest(contents);
+            modelVersions.put(sectionId, digest.version());
+            if (digest.version().equals(baseVersion)) {
+                return new ModelDelta(ModelDelta.UNCHANGED, digest.version(), contents.templates(), List.of(), null);
+            }
+            Set<String> known = baseTemplates != null ? new HashSet<>(baseTemplates) : Set.of();
+            List<Integer> addedRows = new ArrayList<>();
+            for (int i = 0; i < digest.templateHashes().size(); i++) {
+                if (!known.contains(digest.templateHashes().get(i))) {
+                    addedRows.add(i);
+                }
+            }
+            if (known.isEmpty() || addedRows.size() > contents.templates() * MAX_DELTA_FRACTION) {
+                return new ModelDelta(ModelDelta.FULL, digest.version(), contents.templates(), List.of(), null);
+            }
+            Set<String> present = new HashSet<>(digest.templateHashes());
+            List<String> removed = known.stream().filter(hash -> !present.contains(hash)).toList();
+            subset = Files.createTempFile(workDir, sectionId + "-delta-added-", ".bin");
+            LbphModelDelta.writeSubset(subset, contents, addedRows.stream().mapToInt(Integer::intValue).toArray(),
+                    BINARY_MODEL_ENCODING);
+            byte[] added = Files.readAllBytes(subset);
+            log.info("Model delta for section {}: version={} templates={} added={} removed={} ({} of {} bytes)",
+                    sectionId, digest.version(), contents.templates(), addedRows.size(), removed.size(),
+                    added.length, binary.length);
+            return new ModelDelta(ModelDelta.DELTA, digest.version(), contents.templates(), removed, added);
+        } catch (IOException ex) {
+            log.warn("Failed to compute model delta for section {}: {}", sectionId, ex.getMessage());
+            return null;
+        } finally {
+            deleteQuietly(current);
+            deleteQuietly(subset);
+        }
+    }
+
+    /**
+     * The {@link LbphModelDelta} version of the section's binary model, as companions compute
+     * it for their cache; {@code null} when the section has no binary model. Training stores
+     * it in {@code sections.model_version}, so listing upcoming sessions reads a column rather
+     * than downloading models. Sections trained before the column existed are digested once
+     * and the result is stored.
+     */
+    public String currentModelVersion(UUID sectionId) {
+        if (sectionId == null) {
+            return null;
+        }
+        String known = modelVersions.get(sectionId);
+        if (known != null) {
+            return known.isEmpty() ? null : known;
+        }
+        SectionEntity section = transactionTemplate.execute(status -> sectionRepository.findById(sectionId)
+                .orElse(null));
+        if (section == null || !StringUtils.hasText(section.getModelStoragePath())) {
+            return null;
+        }
+        if (StringUtils.hasText(section.getModelVersion())) {
+            modelVersions.put(sectionId, section.getModelVersion());
+            return section.getModelVersion();
+        }
+        byte[] binary = fetchModelArtifact(sectionId, LbphModelFile.FILE_NAME);
+        if (binary == null || binary.length == 0) {
+            modelVersions.put(sectionId, NO_BINARY_MODEL);
+            return null;
+        }
+        Path current = null;
+        try {
+            Path workDir = attendanceProperties.directories().modelDir();
+            Files.createDirectories(workDir);
+            current = Files.createTempFile(workDir, sectionId + "-version-", ".bin");
+            Files.write(current, binary);
+            String version = LbphModelDelta.digest(LbphModelFile.read(current)).version();
+            modelVersions.put(sectionId, version);
+            String storagePath = section.getModelStoragePath();
+            transactionTemplate.executeWithoutResult(status -> sectionRepository.findById(sectionId)
+                    .filter(entity -> entity.getModelVersion() == null
+                            && storagePath.equals(entity.getModelStoragePath()))
+                    .ifPresent(entity -> {
+                        entity.setModelVersion(version);
+                        sectionRepository.save(entity);
+                    }));
+            return version;
+        } catch (IOException ex) {
+            log.warn("Failed to compute model version for section {}: {}", sectionId, ex.getMessage());
+            return null;
+        } finally {
+            deleteQuietly(current);
+        }
+    }
+
+    /** Path, relative to the API base, a companion downloads the section model from. */
+    public static String companionModelEndpoint(UUID sectionId) {
+        return String.format(COMPANION_MODEL_ENDPOINT_TEMPLATE, sectionId);
+    }
+
+    private void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            log.debug("Failed to delete {}: {}", file, ex.getMessage());
+        }
+    }
+
     @jakarta.annotation.PreDestroy
     void shutdown() {
         executor.shutdown();
@@ -838,7 +1014,7 @@ public class SectionModelService {
         }
     }
 
-    private record RecognizerHolder(Recognizer recognizer, String storagePath, Path localPath) {
+    private record LocalModel(String storagePath, Path localPath) {
     }
 
     private record SectionSnapshot(UUID id, String code, String storagePath, List<UUID> studentIds) {
@@ -861,7 +1037,8 @@ public class SectionModelService {
                     return null;
                 });
             }
-            cache.remove(sectionId);
+            localModels.remove(sectionId);
+            modelVersions.remove(sectionId);
             try {
                 Path local = resolveLocalModelRoot(sectionId);
                 deleteRecursively(local);
@@ -872,6 +1049,7 @@ public class SectionModelService {
                 transactionTemplate.executeWithoutResult(status -> sectionRepository.findById(sectionId)
                         .ifPresent(entity -> {
                             entity.setModelStoragePath(null);
+                            entity.setModelVersion(null);
                             entity.setUpdatedAt(OffsetDateTime.now());
                             sectionRepository.save(entity);
                         }));
@@ -934,6 +1112,23 @@ public class SectionModelService {
         }
     }
 
+    /**
+     * @param status     {@link #UNCHANGED}, {@link #DELTA} or {@link #FULL}
+     * @param version    content hash of the section's current model
+     * @param templates  template count of the current model
+     * @param removed    hashes of cached templates that are no longer part of the model
+     * @param addedModel {@code lbph.bin} with the new templates and the full label table
+     */
+    public record ModelDelta(String status, String version, int templates, List<String> removed, byte[] addedModel) {
+        public static final String UNCHANGED = "unchanged";
+        public static final String DELTA = "delta";
+        public static final String FULL = "full";
+
+        public ModelDelta {
+            removed = removed != null ? List.copyOf(removed) : List.of();
+        }
+    }
+
     private record PreparedDataset(Path root, long imageCount, List<UUID> missingStudentIds) {
         private PreparedDataset {
             missingStudentIds = missingStudentIds != null ? List.copyOf(missingStudentIds) : List.of();
@@ -6,10 +6,13 @@ import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import com.smartattendance.supabase.dto.events.SessionConnectionEvent;
@@ -21,6 +24,7 @@ public class SessionEventPublisher {
     private static final long DEFAULT_TIMEOUT = Duration.ofMinutes(5).toMillis();
 
     private final Map<UUID, CopyOnWriteArrayList<SseEmitter>> emitters = new ConcurrentHashMap<>();
+    private final Map<UUID, CopyOnWriteArrayList<BiConsumer<String, Object>>> listeners = new ConcurrentHashMap<>();
 
     public SseEmitter createEmitter(UUID sessionId) {
         SseEmitter emitter = new SseEmitter(DEFAULT_TIMEOUT);
@@ -35,7 +39,47 @@ public class SessionEventPublisher {
         return emitter;
     }
 
+    /**
+     * Registers an in-process listener for a session's events, such as a companion channel
+     * relaying them; the returned handle removes it again.
+     */
+    public Runnable subscribe(UUID sessionId, BiConsumer<String, Object> listener) {
+        listeners.computeIfAbsent(sessionId, id -> new CopyOnWriteArrayList<>()).add(listener);
+        return () -> listeners.computeIfPresent(sessionId, (id, sessionListeners) -> {
+            sessionListeners.remove(listener);
+            return sessionListeners.isEmpty() ? null : sessionListeners;
+        });
+    }
+
+    /**
+     * Delivers an event to the session's listeners and SSE clients. Inside a transaction the
+     * delivery waits for the commit, so nobody hears of a change that is rolled back and no
+     * client write holds the transaction open; a rolled back transaction publishes nothing.
+     */
     public void publish(UUID sessionId, String eventName, Object payload) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatch(sessionId, eventName, payload);
+                }
+            });
+            return;
+        }
+        dispatch(sessionId, eventName, payload);
+    }
+
+    private void dispatch(UUID sessionId, String eventName, Object payload) {
+        CopyOnWriteArrayList<BiConsumer<String, Object>> sessionListeners = listeners.get(sessionId);
+        if (sessionListeners != null) {
+            for (BiConsumer<String, Object> listener : sessionListeners) {
+                try {
+                    listener.accept(eventName, payload);
+                } catch (RuntimeException ex) {
+                    log.debug("Session event listener failed: {}", ex.getMessage());
+                }
+            }
+        }
         CopyOnWriteArrayList<SseEmitter> sessionEmitters = emitters.get(sessionId);
         if (sessionEmitters == null || sessionEmitters.isEmpty()) {
             return;
@@ -1,6 +1,9 @@
 package com.smartattendance.supabase.web;
 
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.UUID;
 
 import org.slf4j.Logger;
@@ -14,10 +17,16 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import com.smartattendance.supabase.dto.CompanionModelDeltaResponse;
 import com.smartattendance.supabase.service.recognition.SectionModelService;
+import com.smartattendance.supabase.web.companion.CompanionModelDeltaRequest;
+import com.smartattendance.vision.recognizer.LbphModelFile;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -53,34 +62,84 @@ public class CompanionAssetController {
 
     @GetMapping("/sections/{sectionId}/models/lbph")
     @Operation(summary = "Download section LBPH model", description = "Streams the LBPH model for the requested section.")
-    public ResponseEntity<Resource> downloadLbphModel(@PathVariable UUID sectionId) {
+    public ResponseEntity<Resource> downloadLbphModel(@PathVariable UUID sectionId, WebRequest webRequest) {
         log.info("Companion requested LBPH model for section {}", sectionId);
-        return downloadArtifact(sectionId, "lbph.yml", MediaType.APPLICATION_OCTET_STREAM, "lbph.yml");
+        return downloadArtifact(webRequest, sectionId, "lbph.yml", MediaType.APPLICATION_OCTET_STREAM, "lbph.yml");
+    }
+
+    @GetMapping("/sections/{sectionId}/models/lbph.bin")
+    @Operation(summary = "Download section binary LBPH model", description = "Streams the binary LBPH model (histograms and labels) for the requested section.")
+    public ResponseEntity<Resource> downloadBinaryLbphModel(@PathVariable UUID sectionId, WebRequest webRequest) {
+        log.info("Companion requested binary LBPH model for section {}", sectionId);
+        return downloadArtifact(webRequest, sectionId, LbphModelFile.FILE_NAME, MediaType.APPLICATION_OCTET_STREAM, LbphModelFile.FILE_NAME);
+    }
+
+    @PostMapping("/sections/{sectionId}/models/lbph/delta")
+    @Operation(summary = "Sync section LBPH model", description = "Compares the companion's cached model version and template hashes with the current model and returns unchanged, a delta of added and removed templates, or full.")
+    public ResponseEntity<CompanionModelDeltaResponse> syncLbphModel(@PathVariable UUID sectionId,
+                                                                     @RequestBody CompanionModelDeltaRequest request) {
+        String baseVersion = request != null ? request.getVersion() : null;
+        log.info("Companion requested model delta for section {} since version {}", sectionId, baseVersion);
+        SectionModelService.ModelDelta delta = sectionModelService.computeModelDelta(
+                sectionId, baseVersion, request != null ? request.getTemplates() : null);
+        if (delta == null) {
+            return ResponseEntity.notFound().build();
+        }
+        CompanionModelDeltaResponse response = new CompanionModelDeltaResponse();
+        response.setStatus(delta.status());
+        response.setVersion(delta.version());
+        response.setTemplates(delta.templates());
+        response.setRemoved(delta.removed());
+        response.setAddedModel(delta.addedModel());
+        return ResponseEntity.ok(response);
     }
 
     @GetMapping("/sections/{sectionId}/models/labels")
     @Operation(summary = "Download section labels", description = "Streams the labels file associated with the section model.")
-    public ResponseEntity<Resource> downloadLabels(@PathVariable UUID sectionId) {
+    public ResponseEntity<Resource> downloadLabels(@PathVariable UUID sectionId, WebRequest webRequest) {
         log.info("Companion requested labels for section {}", sectionId);
-        return downloadArtifact(sectionId, "labels.txt", MediaType.TEXT_PLAIN, "labels.txt");
+        return downloadArtifact(webRequest, sectionId, "labels.txt", MediaType.TEXT_PLAIN, "labels.txt");
     }
 
-    private ResponseEntity<Resource> downloadArtifact(UUID sectionId, String artifactName, MediaType mediaType, String filename) {
+    /**
+     * Serves a section artifact with a strong ETag over its bytes. A companion that still has
+     * the same file from an earlier session gets {@code 304 Not Modified}; ranged requests
+     * used to resume an interrupted download are answered by Spring's resource handling.
+     */
+    private ResponseEntity<Resource> downloadArtifact(WebRequest webRequest,
+                                                      UUID sectionId,
+                                                      String artifactName,
+                                                      MediaType mediaType,
+                                                      String filename) {
         log.info("Attempting to stream artifact '{}' for section {}", artifactName, sectionId);
         byte[] data = sectionModelService.fetchModelArtifact(sectionId, artifactName);
         if (data == null || data.length == 0) {
             log.warn("Artifact '{}' for section {} is unavailable or empty", artifactName, sectionId);
             return ResponseEntity.notFound().build();
         }
+        String etag = etag(data);
+        if (webRequest.checkNotModified(etag)) {
+            log.info("Artifact '{}' for section {} unchanged ({})", artifactName, sectionId, etag);
+            return null;
+        }
         log.info("Serving artifact '{}' for section {} ({} bytes)", artifactName, sectionId, data.length);
         ByteArrayResource resource = new ByteArrayResource(data);
         return ResponseEntity.ok()
                 .contentType(mediaType)
+                .eTag(etag)
                 .header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition(filename))
                 .contentLength(data.length)
                 .body(resource);
     }
 
+    private static String etag(byte[] data) {
+        try {
+            return "\"" + HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data)) + "\"";
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 unavailable", ex);
+        }
+    }
+
     private String contentDisposition(String filename) {
         ContentDisposition disposition = ContentDisposition.attachment()
                 .filename(filename, StandardCharsets.UTF_8)
@@ -1,8 +1,10 @@
 package com.smartattendance.supabase.web.companion;
 
+import java.util.ArrayList;
 import java.util.UUID;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import java.util.List;
 
 import org.springframework.web.bind.annotation.GetMapping;
@@ -13,6 +15,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.smartattendance.supabase.dto.AttendanceBatchResult;
 import com.smartattendance.supabase.dto.AttendanceUpsertRequest;
 import com.smartattendance.supabase.dto.SessionAttendanceRecord;
 import com.smartattendance.supabase.dto.SessionDetailsDto;
@@ -27,6 +30,8 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 @Tag(name = "Companion Attendance", description = "Record attendance updates submitted by the native companion app")
 public class CompanionAttendanceController {
 
+    static final int MAX_BATCH_SIZE = 200;
+
     private final AttendanceService attendanceService;
     private final SessionQueryService sessionQueryService;
 
@@ -45,14 +50,39 @@ public class CompanionAttendanceController {
         if (request == null || request.studentId() == null) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "studentId is required");
         }
-        AttendanceUpsertRequest upsert = new AttendanceUpsertRequest();
-        upsert.setSessionId(sessionId);
-        upsert.setStudentId(request.studentId());
-        upsert.setStatus(request.status());
-        upsert.setConfidenceScore(request.confidenceScore());
-        upsert.setMarkingMethod(request.markingMethod());
-        upsert.setNotes(request.notes());
-        return attendanceService.upsert(upsert);
+        return attendanceService.upsert(toUpsert(sessionId, request));
+    }
+
+    @PostMapping("/sections/{sectionId}/sessions/{sessionId}/attendance:batch")
+    @Operation(summary = "Submit several attendance updates from the companion app",
+            description = "Creates or updates the attendance records of several students in one transaction and returns the outcome of each entry in submission order.")
+    public ResponseEntity<?> upsertAttendanceBatch(@PathVariable("sectionId") UUID sectionId,
+                                                             @PathVariable("sessionId") UUID sessionId,
+                                                             @RequestBody List<CompanionAttendanceRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At least one attendance entry is required");
+        }
+        if (requests.size() > MAX_BATCH_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + MAX_BATCH_SIZE + " attendance entries may be submitted at once");
+        }
+        SessionDetailsDto session;
+        try {
+            session = sessionQueryService.loadSession(sessionId);
+        } catch (IllegalArgumentException ex) {
+            // Answered with a body so the companion can tell a missing session from a missing endpoint.
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new CompanionAccessController.ErrorResponse("error", "Session not found"));
+        }
+        if (session.getSectionId() != null && !session.getSectionId().equals(sectionId)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Session does not belong to section");
+        }
+        List<AttendanceUpsertRequest> upserts = new ArrayList<>(requests.size());
+        for (CompanionAttendanceRequest request : requests) {
+            upserts.add(toUpsert(sessionId, request));
+        }
+        List<AttendanceBatchResult> results = attendanceService.upsertBatch(sessionId, upserts);
+        return ResponseEntity.ok(results);
     }
 
     @GetMapping("/sections/{sectionId}/sessions/{sessionId}/roster")
@@ -67,11 +97,26 @@ public class CompanionAttendanceController {
         return sessionQueryService.loadAttendance(sessionId);
     }
 
+    static AttendanceUpsertRequest toUpsert(UUID sessionId, CompanionAttendanceRequest request) {
+        AttendanceUpsertRequest upsert = new AttendanceUpsertRequest();
+        upsert.setSessionId(sessionId);
+        if (request != null) {
+            upsert.setStudentId(request.studentId());
+            upsert.setStatus(request.status());
+            upsert.setConfidenceScore(request.confidenceScore());
+            upsert.setMarkingMethod(request.markingMethod());
+            upsert.setNotes(request.notes());
+            upsert.setIdempotencyKey(request.idempotencyKey());
+        }
+        return upsert;
+    }
+
     public record CompanionAttendanceRequest(
             UUID studentId,
             String status,
             Double confidenceScore,
             String markingMethod,
-            String notes) {
+            String notes,
+            String idempotencyKey) {
     }
 }
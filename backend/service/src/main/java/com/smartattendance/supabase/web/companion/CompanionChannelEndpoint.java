@@ -0,0 +1,394 @@
+package com.smartattendance.supabase.web.companion;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.smartattendance.supabase.dto.AttendanceUpsertRequest;
+import com.smartattendance.supabase.dto.SessionDetailsDto;
+import com.smartattendance.supabase.service.attendance.AttendanceService;
+import com.smartattendance.supabase.service.companion.CompanionAccessTokenService;
+import com.smartattendance.supabase.service.companion.CompanionAccessTokenService.CompanionToken;
+import com.smartattendance.supabase.service.session.SessionEventPublisher;
+import com.smartattendance.supabase.service.session.SessionQueryService;
+import com.smartattendance.supabase.web.companion.CompanionAttendanceController.CompanionAttendanceRequest;
+
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Endpoint;
+import jakarta.websocket.EndpointConfig;
+import jakarta.websocket.HandshakeResponse;
+import jakarta.websocket.MessageHandler;
+import jakarta.websocket.Session;
+import jakarta.websocket.server.HandshakeRequest;
+import jakarta.websocket.server.ServerEndpointConfig;
+
+/**
+ * WebSocket channel a running companion session keeps open to the service. It carries
+ * attendance batches and recognition events from the companion, pushes the session's
+ * attendance changes back to it and answers heartbeats, so a session needs one
+ * authenticated connection instead of a filtered request per submission. Messages are JSON
+ * objects with a {@code type}, an optional correlation {@code id} and a {@code payload};
+ * the HTTP endpoints remain for companions that cannot hold the channel open.
+ *
+ * <p>Outgoing messages are queued per connection and written by pooled sender threads,
+ * so neither a request thread publishing a roster change nor a message handler ever waits
+ * on a slow companion. A connection whose queue fills up is closed; the companion
+ * reconnects and refetches the roster.
+ */
+@Component
+public class CompanionChannelEndpoint extends Endpoint {
+
+    static final String PATH = "/api/companion/sections/{sectionId}/sessions/{sessionId}/channel";
+
+    private static final Logger log = LoggerFactory.getLogger(CompanionChannelEndpoint.class);
+    private static final String CONTEXT_PROPERTY = "com.smartattendance.companion.channel";
+    private static final String TOKEN_PROPERTY = "com.smartattendance.companion.channel.token";
+    /** Tomcat's per-session limit on how long a blocking send may wait for a slow client. */
+    private static final String BLOCKING_SEND_TIMEOUT_PROPERTY = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+    private static final long SEND_TIMEOUT_MILLIS = 5_000L;
+    private static final Duration MAX_IDLE = Duration.ofSeconds(90);
+    private static final int MAX_EVENT_BATCH_SIZE = 500;
+    private static final int MAX_PENDING_SENDS = 256;
+
+    private final CompanionAccessTokenService tokenService;
+    private final AttendanceService attendanceService;
+    private final SessionQueryService sessionQueryService;
+    private final CompanionRecognitionEventRelay eventRelay;
+    private final SessionEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final Map<String, Runnable> subscriptions = new ConcurrentHashMap<>();
+    private final Map<String, Outbound> outbound = new ConcurrentHashMap<>();
+    private final AtomicInteger senderIds = new AtomicInteger();
+    private final ExecutorService senders = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "companion-channel-sender-" + senderIds.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CompanionChannelEndpoint(CompanionAccessTokenService tokenService,
+                                    AttendanceService attendanceService,
+                                    SessionQueryService sessionQueryService,
+                                    CompanionRecognitionEventRelay eventRelay,
+                                    SessionEventPublisher eventPublisher,
+                                    ObjectMapper objectMapper) {
+        this.tokenService = tokenService;
+        this.attendanceService = attendanceService;
+        this.sessionQueryService = sessionQueryService;
+        this.eventRelay = eventRelay;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+    }
+
+    private record ChannelContext(UUID sectionId, UUID sessionId, CompanionToken token) {
+    }
+
+    /** Endpoint registration that authenticates the handshake and hands out this bean. */
+    ServerEndpointConfig endpointConfig() {
+        return ServerEndpointConfig.Builder.create(CompanionChannelEndpoint.class, PATH)
+                .configurator(new ServerEndpointConfig.Configurator() {
+                    @Override
+                    public void modifyHandshake(ServerEndpointConfig config,
+                                                HandshakeRequest request,
+                                                HandshakeResponse response) {
+                        tokenService.lookup(resolveToken(request.getHeaders()))
+                                .filter(token -> token.scope() == CompanionAccessTokenService.Scope.SESSION)
+                                .ifPresent(token -> config.getUserProperties().put(TOKEN_PROPERTY, token));
+                    }
+
+                    @Override
+                    public <T> T getEndpointInstance(Class<T> endpointClass) {
+                        return endpointClass.cast(CompanionChannelEndpoint.this);
+                    }
+                })
+                .build();
+    }
+
+    @Override
+    public void onOpen(Session session, EndpointConfig config) {
+        UUID sectionId = parseUuid(session.getPathParameters().get("sectionId"));
+        UUID sessionId = parseUuid(session.getPathParameters().get("sessionId"));
+        CompanionToken token = (CompanionToken) session.getUserProperties().get(TOKEN_PROPERTY);
+        if (sectionId == null || sessionId == null || token == null || !sectionId.equals(token.sectionId())
+                || isExpired(token)) {
+            close(session, CloseReason.CloseCodes.VIOLATED_POLICY, "Invalid or expired companion access token");
+            return;
+        }
+        try {
+            SessionDetailsDto details = sessionQueryService.loadSession(sessionId);
+            if (details.getSectionId() != null && !details.getSectionId().equals(sectionId)) {
+                close(session, CloseReason.CloseCodes.CANNOT_ACCEPT, "Session does not belong to section");
+                return;
+            }
+        } catch (RuntimeException ex) {
+            close(session, CloseReason.CloseCodes.CANNOT_ACCEPT, "Session not found");
+            return;
+        }
+        ChannelContext context = new ChannelContext(sectionId, sessionId, token);
+        session.getUserProperties().put(CONTEXT_PROPERTY, context);
+        session.getUserProperties().put(BLOCKING_SEND_TIMEOUT_PROPERTY, SEND_TIMEOUT_MILLIS);
+        session.setMaxIdleTimeout(MAX_IDLE.toMillis());
+        outbound.put(session.getId(), new Outbound(session));
+        session.addMessageHandler(String.class, (MessageHandler.Whole<String>) message -> handle(session, context, message));
+        subscriptions.put(session.getId(), eventPublisher.subscribe(sessionId, (eventName, payload) -> {
+            if ("attendance".equals(eventName)) {
+                send(session, "roster", null, payload);
+            }
+        }));
+        log.info("Companion channel opened for session {} (section {})", sessionId, sectionId);
+    }
+
+    @Override
+    public void onClose(Session session, CloseReason closeReason) {
+        Runnable unsubscribe = subscriptions.remove(session.getId());
+        if (unsubscribe != null) {
+            unsubscribe.run();
+        }
+        Outbound pending = outbound.remove(session.getId());
+        if (pending != null) {
+            pending.queue.clear();
+        }
+        Object context = session.getUserProperties().get(CONTEXT_PROPERTY);
+        if (context instanceof ChannelContext channel) {
+            log.info("Companion channel closed for session {}: {}", channel.sessionId(), closeReason.getReasonPhrase());
+        }
+    }
+
+    @Override
+    public void onError(Session session, Throwable error) {
+        log.debug("Companion channel error on {}: {}", session.getId(), error.getMessage());
+    }
+
+    private void handle(Session session, ChannelContext context, String message) {
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(message);
+        } catch (IOException ex) {
+            sendError(session, null, "Malformed message");
+            return;
+        }
+        String type = root.path("type").asText("");
+        String id = root.hasNonNull("id") ? root.get("id").asText() : null;
+        JsonNode payload = root.get("payload");
+        if (isExpired(context.token())) {
+            close(session, CloseReason.CloseCodes.VIOLATED_POLICY, "Companion access token expired");
+            return;
+        }
+        SecurityContext originalContext = SecurityContextHolder.getContext();
+        SecurityContext delegatedContext = SecurityContextHolder.createEmptyContext();
+        delegatedContext.setAuthentication(new JwtAuthenticationToken(context.token().supabaseJwt(),
+                context.token().authorities()));
+        SecurityContextHolder.setContext(delegatedContext);
+        try {
+            switch (type) {
+                case "attendance" -> handleAttendance(session, context, id, payload);
+                case "events" -> handleEvents(session, context, id, payload);
+                case "heartbeat" -> send(session, "heartbeat", id, Map.of("serverTime", OffsetDateTime.now()));
+                default -> sendError(session, id, "Unsupported message type: " + type);
+            }
+        } catch (IllegalArgumentException ex) {
+            sendError(session, id, ex.getMessage());
+        } catch (RuntimeException ex) {
+            log.warn("Companion channel message {} for session {} failed: {}", type, context.sessionId(),
+                    ex.getMessage());
+            sendError(session, id, "Unable to process " + type + " message");
+        } finally {
+            SecurityContextHolder.setContext(originalContext);
+        }
+    }
+
+    private void handleAttendance(Session session, ChannelContext context, String id, JsonNode payload) {
+        List<CompanionAttendanceRequest> requests = readList(payload, new TypeReference<>() { });
+        if (requests.isEmpty()) {
+            throw new IllegalArgumentException("At least one attendance entry is required");
+        }
+        if (requests.size() > CompanionAttendanceController.MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("At most " + CompanionAttendanceController.MAX_BATCH_SIZE
+                    + " attendance entries may be submitted at once");
+        }
+        List<AttendanceUpsertRequest> upserts = requests.stream()
+                .map(request -> CompanionAttendanceController.toUpsert(context.sessionId(), request))
+                .toList();
+        send(session, "attendance.result", id, attendanceService.upsertBatch(context.sessionId(), upserts));
+    }
+
+    private void handleEvents(Session session, ChannelContext context, String id, JsonNode payload) {
+        List<CompanionRecognitionEventRequest> events = readList(payload, new TypeReference<>() { });
+        if (events.size() > MAX_EVENT_BATCH_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_EVENT_BATCH_SIZE
+                    + " recognition events may be submitted at once");
+        }
+        for (CompanionRecognitionEventRequest event : events) {
+            if (event != null) {
+                eventRelay.publish(context.sessionId(), event);
+            }
+        }
+        if (id != null) {
+            send(session, "events.result", id, Map.of("accepted", events.size()));
+        }
+    }
+
+    private <T> List<T> readList(JsonNode payload, TypeReference<List<T>> type) {
+        if (payload == null || !payload.isArray()) {
+            throw new IllegalArgumentException("payload must be an array");
+        }
+        List<T> values = objectMapper.convertValue(payload, type);
+        return values != null ? values : List.of();
+    }
+
+    private void send(Session session, String type, String id, Object payload) {
+        Outbound target = outbound.get(session.getId());
+        if (target == null) {
+            return;
+        }
+        String text;
+        try {
+            ObjectNode envelope = objectMapper.createObjectNode();
+            envelope.put("type", type);
+            if (id != null) {
+                envelope.put("id", id);
+            }
+            envelope.set("payload", objectMapper.valueToTree(payload));
+            text = objectMapper.writeValueAsString(envelope);
+        } catch (IOException | IllegalArgumentException ex) {
+            log.debug("Unable to encode {} for companion channel {}: {}", type, session.getId(), ex.getMessage());
+            return;
+        }
+        target.enqueue(type, text);
+    }
+
+    private void sendError(Session session, String id, String message) {
+        send(session, "error", id, Map.of("message", message != null ? message : "Request failed"));
+    }
+
+    private void close(Session session, CloseReason.CloseCodes code, String reason) {
+        try {
+            session.close(new CloseReason(code, reason));
+        } catch (IOException ex) {
+            log.debug("Failed to close companion channel {}: {}", session.getId(), ex.getMessage());
+        }
+    }
+
+    @jakarta.annotation.PreDestroy
+    void shutdown() {
+        senders.shutdownNow();
+    }
+
+    /** One connection's pending messages and whether a sender is currently writing them. */
+    private final class Outbound {
+        private final Session session;
+        private final ArrayBlockingQueue<String> queue = new ArrayBlockingQueue<>(MAX_PENDING_SENDS);
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+
+        private Outbound(Session session) {
+            this.session = session;
+        }
+
+        void enqueue(String type, String text) {
+            if (!queue.offer(text)) {
+                log.info("Closing companion channel {}: {} messages pending, dropping {}", session.getId(),
+                        queue.size(), type);
+                outbound.remove(session.getId(), this);
+                queue.clear();
+                senders.execute(() -> close(session, CloseReason.CloseCodes.TRY_AGAIN_LATER, "Client too slow"));
+                return;
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (queue.isEmpty() || !draining.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                senders.execute(this::drain);
+            } catch (RejectedExecutionException ex) {
+                draining.set(false);
+                queue.clear();
+            }
+        }
+
+        private void drain() {
+            try {
+                String text;
+                while ((text = queue.poll()) != null) {
+                    if (!session.isOpen()) {
+                        queue.clear();
+                        break;
+                    }
+                    // Bounded by the session's blocking send timeout; a stalled client only holds this sender.
+                    session.getBasicRemote().sendText(text);
+                }
+            } catch (IOException | IllegalStateException ex) {
+                log.debug("Unable to send over companion channel {}: {}", session.getId(), ex.getMessage());
+                queue.clear();
+            } finally {
+                draining.set(false);
+            }
+            // A message queued after the last poll but before draining was cleared still needs a sender.
+            scheduleDrain();
+        }
+    }
+
+    private static boolean isExpired(CompanionToken token) {
+        if (token.expiresAt() != null && token.expiresAt().isBefore(OffsetDateTime.now())) {
+            return true;
+        }
+        if (token.supabaseJwt() == null) {
+            return true;
+        }
+        Instant jwtExpiry = token.supabaseJwt().getExpiresAt();
+        return jwtExpiry != null && jwtExpiry.isBefore(Instant.now());
+    }
+
+    private static String resolveToken(Map<String, List<String>> headers) {
+        String companionHeader = firstHeader(headers, "X-Companion-Token");
+        if (companionHeader != null && !companionHeader.isBlank()) {
+            return companionHeader.trim();
+        }
+        String authorization = firstHeader(headers, HttpHeaders.AUTHORIZATION);
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            return authorization.substring(7).trim();
+        }
+        return null;
+    }
+
+    private static String firstHeader(Map<String, List<String>> headers, String name) {
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if (name.equalsIgnoreCase(entry.getKey()) && entry.getValue() != null && !entry.getValue().isEmpty()) {
+                return entry.getValue().get(0);
+            }
+        }
+        return null;
+    }
+
+    private static UUID parseUuid(String value) {
+        try {
+            return value != null ? UUID.fromString(value) : null;
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.smartattendance.supabase.web.companion;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.ServletContextAware;
+
+import jakarta.servlet.ServletContext;
+import jakarta.websocket.DeploymentException;
+import jakarta.websocket.server.ServerContainer;
+
+/**
+ * Registers {@link CompanionChannelEndpoint} with the servlet container's WebSocket support.
+ * Without a container (for example when the context starts without a web server) the channel
+ * is simply not offered and companions keep using the HTTP endpoints.
+ */
+@Component
+public class CompanionChannelRegistrar implements ServletContextAware, SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(CompanionChannelRegistrar.class);
+
+    private final CompanionChannelEndpoint endpoint;
+    private ServletContext servletContext;
+
+    public CompanionChannelRegistrar(CompanionChannelEndpoint endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    @Override
+    public void setServletContext(ServletContext servletContext) {
+        this.servletContext = servletContext;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        Object container = servletContext != null
+                ? servletContext.getAttribute(ServerContainer.class.getName())
+                : null;
+        if (!(container instanceof ServerContainer serverContainer)) {
+            log.info("No WebSocket container available; companion channel disabled");
+            return;
+        }
+        try {
+            serverContainer.addEndpoint(endpoint.endpointConfig());
+            log.info("Companion channel available at {}", CompanionChannelEndpoint.PATH);
+        } catch (DeploymentException ex) {
+            log.warn("Unable to register companion channel: {}", ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.smartattendance.supabase.web.companion;
+
+import java.util.List;
+
+public class CompanionModelDeltaRequest {
+
+    private String version;
+    private List<String> templates;
+
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    public List<String> getTemplates() {
+        return templates;
+    }
+
+    public void setTemplates(List<String> templates) {
+        this.templates = templates;
+    }
+}
@@ -0,0 +1,79 @@
+package com.smartattendance.supabase.web.companion;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+import org.springframework.stereotype.Component;
+
+import com.smartattendance.supabase.dto.events.RecognitionEvent;
+import com.smartattendance.supabase.service.session.SessionEventPublisher;
+import com.smartattendance.supabase.service.system.SystemLogService;
+
+/**
+ * Turns recognition events reported by the companion, over HTTP or its channel, into
+ * session events for live subscribers and recognition log entries.
+ */
+@Component
+public class CompanionRecognitionEventRelay {
+
+    private final SessionEventPublisher eventPublisher;
+    private final SystemLogService systemLogService;
+
+    public CompanionRecognitionEventRelay(SessionEventPublisher eventPublisher,
+                                          SystemLogService systemLogService) {
+        this.eventPublisher = eventPublisher;
+        this.systemLogService = systemLogService;
+    }
+
+    public void publish(UUID sessionId, CompanionRecognitionEventRequest request) {
+        RecognitionEvent event = new RecognitionEvent();
+        UUID studentUuid = null;
+        String studentId = request.getStudentId();
+        if (studentId != null && !studentId.isBlank()) {
+            try {
+                studentUuid = UUID.fromString(studentId.trim());
+                event.setStudentId(studentUuid);
+            } catch (IllegalArgumentException ignored) {
+                // leave null if not a UUID
+            }
+        }
+        Double confidence = request.getConfidence();
+        event.setConfidence(confidence);
+        boolean success = request.isSuccess();
+        boolean requiresManual = request.isRequiresManualConfirmation();
+        event.setSuccess(success);
+        event.setRequiresManualConfirmation(requiresManual);
+        String type = request.getType();
+        if (type != null && type.isBlank()) {
+            type = null;
+        }
+        event.setType(type);
+        String message = request.getMessage();
+        if (message == null || message.isBlank()) {
+            message = success
+                    ? (requiresManual ? "Manual confirmation accepted" : "Recognition succeeded")
+                    : "Recognition failed";
+        }
+        event.setMessage(message);
+        String trackId = request.getTrackId();
+        if (trackId != null && trackId.isBlank()) {
+            trackId = null;
+        }
+        event.setTrackId(trackId);
+        OffsetDateTime timestamp = request.getTimestamp() != null ? request.getTimestamp() : OffsetDateTime.now();
+        event.setTimestamp(timestamp);
+        if (request.getOccurrences() != null && request.getOccurrences() > 1) {
+            event.setOccurrences(request.getOccurrences());
+        }
+        eventPublisher.publish(sessionId, "recognition", event);
+        systemLogService.recordRecognition(
+                sessionId,
+                studentUuid,
+                confidence,
+                success,
+                requiresManual,
+                type,
+                message,
+                trackId);
+    }
+}
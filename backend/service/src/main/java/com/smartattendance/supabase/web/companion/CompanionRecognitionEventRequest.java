@@ -18,6 +18,7 @@ public class CompanionRecognitionEventRequest {
     private String type;
     private String message;
     private String trackId;
+    private Integer occurrences;
 
     public String getStudentId() {
         return studentId;
@@ -82,4 +83,12 @@ public class CompanionRecognitionEventRequest {
     public void setTrackId(String trackId) {
         this.trackId = trackId;
     }
+
+    public Integer getOccurrences() {
+        return occurrences;
+    }
+
+    public void setOccurrences(Integer occurrences) {
+        this.occurrences = occurrences;
+    }
 }
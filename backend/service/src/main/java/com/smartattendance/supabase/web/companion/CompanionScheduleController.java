@@ -0,0 +1,132 @@
+package com.smartattendance.supabase.web.companion;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.smartattendance.supabase.dto.CompanionUpcomingSessionDto;
+import com.smartattendance.supabase.dto.SessionSummaryDto;
+import com.smartattendance.supabase.service.companion.CompanionAccessTokenService;
+import com.smartattendance.supabase.service.companion.CompanionAccessTokenService.CompanionToken;
+import com.smartattendance.supabase.service.companion.CompanionAccessTokenService.IssuedToken;
+import com.smartattendance.supabase.service.companion.CompanionAccessTokenService.Scope;
+import com.smartattendance.supabase.service.recognition.SectionModelService;
+import com.smartattendance.supabase.service.reporting.TeachingManagementService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@RestController
+@RequestMapping("/api/companion")
+@Tag(name = "Companion Schedule", description = "Upcoming sessions the native companion app can prepare for")
+public class CompanionScheduleController {
+
+    private static final Logger log = LoggerFactory.getLogger(CompanionScheduleController.class);
+    private static final int MAX_HORIZON_HOURS = 72;
+    private static final int MAX_SESSIONS = 20;
+    /** Sessions that started a little while ago may still be about to run. */
+    private static final Duration RECENT_START = Duration.ofMinutes(30);
+
+    private final TeachingManagementService teachingManagementService;
+    private final SectionModelService sectionModelService;
+    private final CompanionAccessTokenService tokenService;
+
+    public CompanionScheduleController(TeachingManagementService teachingManagementService,
+                                       SectionModelService sectionModelService,
+                                       CompanionAccessTokenService tokenService) {
+        this.teachingManagementService = teachingManagementService;
+        this.sectionModelService = sectionModelService;
+        this.tokenService = tokenService;
+    }
+
+    @PostMapping("/prefetch-token")
+    @Operation(summary = "Issue a model prefetch token",
+            description = "Exchanges a session token for the professor's model prefetch token, which lists upcoming sessions and downloads their models for days after the session ends. The same token is returned until half of its lifetime has passed.")
+    public ResponseEntity<?> issuePrefetchToken(
+            @RequestAttribute(CompanionTokenFilter.TOKEN_ATTRIBUTE) CompanionToken token) {
+        if (token.scope() != Scope.SESSION) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(new CompanionAccessController.ErrorResponse("error", "A session token is required to issue a prefetch token"));
+        }
+        IssuedToken issued = tokenService.prefetchToken(token.professorProfileId(), token.supabaseJwt(),
+                token.authorities(), List.of(token.sectionId()));
+        return ResponseEntity.ok(new PrefetchTokenResponse(issued.token(), issued.expiresAt()));
+    }
+
+    @GetMapping("/sessions/upcoming")
+    @Operation(summary = "List upcoming sessions for the companion",
+            description = "Returns the token owner's scheduled sessions within the horizon, each with its section's current model version and the professor's model prefetch token, which may only download the listed sections' models.")
+    public List<CompanionUpcomingSessionDto> listUpcomingSessions(
+            @RequestAttribute(CompanionTokenFilter.TOKEN_ATTRIBUTE) CompanionToken token,
+            @RequestParam(name = "horizonHours", defaultValue = "24") int horizonHours) {
+        int hours = Math.max(1, Math.min(horizonHours, MAX_HORIZON_HOURS));
+        OffsetDateTime now = OffsetDateTime.now();
+        OffsetDateTime from = now.minus(RECENT_START);
+        OffsetDateTime until = now.plusHours(hours);
+        List<SessionSummaryDto> upcoming = teachingManagementService.findSessionsForProfessor(token.professorProfileId())
+                .stream()
+                .filter(session -> "scheduled".equalsIgnoreCase(session.getStatus()))
+                .filter(session -> session.getStartTime() != null
+                        && session.getStartTime().isAfter(from)
+                        && session.getStartTime().isBefore(until))
+                .sorted((a, b) -> a.getStartTime().compareTo(b.getStartTime()))
+                .limit(MAX_SESSIONS)
+                .toList();
+        Map<UUID, String> versions = new HashMap<>();
+        List<UUID> sections = upcoming.stream()
+                .map(SessionSummaryDto::getSectionId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        // Never a full session token for another section: the prefetch token can only download models.
+        IssuedToken prefetch;
+        if (token.scope() == Scope.MODEL_PREFETCH) {
+            tokenService.grant(token, sections);
+            prefetch = new IssuedToken(token.value(), token.expiresAt());
+        } else {
+            prefetch = tokenService.prefetchToken(token.professorProfileId(), token.supabaseJwt(),
+                    token.authorities(), sections);
+        }
+        List<CompanionUpcomingSessionDto> response = new ArrayList<>(upcoming.size());
+        for (SessionSummaryDto session : upcoming) {
+            UUID sectionId = session.getSectionId();
+            CompanionUpcomingSessionDto dto = new CompanionUpcomingSessionDto();
+            dto.setSessionId(session.getId());
+            dto.setSectionId(sectionId);
+            dto.setStartTime(session.getStartTime());
+            dto.setEndTime(session.getEndTime());
+            if (sectionId != null) {
+                String version = versions.computeIfAbsent(sectionId, sectionModelService::currentModelVersion);
+                dto.setModelVersion(version);
+                dto.setModelUrl(SectionModelService.companionModelEndpoint(sectionId));
+                if (version != null) {
+                    dto.setAccessToken(prefetch.token());
+                    dto.setAccessTokenExpiresAt(prefetch.expiresAt());
+                }
+            }
+            response.add(dto);
+        }
+        log.info("Listed {} upcoming sessions ({} sections) within {}h for professor {}", response.size(),
+                versions.size(), hours, token.professorProfileId());
+        return response;
+    }
+
+    public record PrefetchTokenResponse(String token, OffsetDateTime expiresAt) {
+    }
+}
@@ -1,18 +1,16 @@
 package com.smartattendance.supabase.web.companion;
 
-import java.time.OffsetDateTime;
+import java.util.List;
 import java.util.UUID;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-
-import com.smartattendance.supabase.dto.events.RecognitionEvent;
-import com.smartattendance.supabase.service.session.SessionEventPublisher;
-import com.smartattendance.supabase.service.system.SystemLogService;
+import org.springframework.web.server.ResponseStatusException;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -22,13 +20,12 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 @Tag(name = "Companion Session Events", description = "Forward recognition events from the native companion app")
 public class CompanionSessionEventController {
 
-    private final SessionEventPublisher eventPublisher;
-    private final SystemLogService systemLogService;
+    private static final int MAX_BATCH_SIZE = 500;
+
+    private final CompanionRecognitionEventRelay eventRelay;
 
-    public CompanionSessionEventController(SessionEventPublisher eventPublisher,
-                                           SystemLogService systemLogService) {
-        this.eventPublisher = eventPublisher;
-        this.systemLogService = systemLogService;
+    public CompanionSessionEventController(CompanionRecognitionEventRelay eventRelay) {
+        this.eventRelay = eventRelay;
     }
 
     @PostMapping("/sections/{sectionId}/sessions/{sessionId}/recognition-events")
@@ -36,52 +33,28 @@ public class CompanionSessionEventController {
     public ResponseEntity<Void> publishRecognitionEvent(@PathVariable("sectionId") UUID sectionId,
                                                         @PathVariable("sessionId") UUID sessionId,
                                                         @RequestBody CompanionRecognitionEventRequest request) {
-        RecognitionEvent event = new RecognitionEvent();
-        UUID studentUuid = null;
-        String studentId = request.getStudentId();
-        if (studentId != null && !studentId.isBlank()) {
-            try {
-                studentUuid = UUID.fromString(studentId.trim());
-                event.setStudentId(studentUuid);
-            } catch (IllegalArgumentException ignored) {
-                // leave null if not a UUID
-            }
-        }
-        Double confidence = request.getConfidence();
-        event.setConfidence(confidence);
-        boolean success = request.isSuccess();
-        boolean requiresManual = request.isRequiresManualConfirmation();
-        event.setSuccess(success);
-        event.setRequiresManualConfirmation(requiresManual);
-        String type = request.getType();
-        if (type != null && type.isBlank()) {
-            type = null;
+        eventRelay.publish(sessionId, request);
+        return ResponseEntity.accepted().build();
+    }
+
+    @PostMapping("/sections/{sectionId}/sessions/{sessionId}/recognition-events:batch")
+    @Operation(summary = "Forward recognition events in bulk",
+            description = "Publishes several recognition events from the companion app, in order, to live SSE subscribers.")
+    public ResponseEntity<Void> publishRecognitionEvents(@PathVariable("sectionId") UUID sectionId,
+                                                         @PathVariable("sessionId") UUID sessionId,
+                                                         @RequestBody List<CompanionRecognitionEventRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            return ResponseEntity.accepted().build();
         }
-        event.setType(type);
-        String message = request.getMessage();
-        if (message == null || message.isBlank()) {
-            message = success
-                    ? (requiresManual ? "Manual confirmation accepted" : "Recognition succeeded")
-                    : "Recognition failed";
+        if (requests.size() > MAX_BATCH_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + MAX_BATCH_SIZE + " recognition events may be submitted at once");
         }
-        event.setMessage(message);
-        String trackId = request.getTrackId();
-        if (trackId != null && trackId.isBlank()) {
-            trackId = null;
+        for (CompanionRecognitionEventRequest request : requests) {
+            if (request != null) {
+                eventRelay.publish(sessionId, request);
+            }
         }
-        event.setTrackId(trackId);
-        OffsetDateTime timestamp = request.getTimestamp() != null ? request.getTimestamp() : OffsetDateTime.now();
-        event.setTimestamp(timestamp);
-        eventPublisher.publish(sessionId, "recognition", event);
-        systemLogService.recordRecognition(
-                sessionId,
-                studentUuid,
-                confidence,
-                success,
-                requiresManual,
-                type,
-                message,
-                trackId);
         return ResponseEntity.accepted().build();
     }
 }
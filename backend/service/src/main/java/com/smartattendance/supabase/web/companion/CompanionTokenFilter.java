@@ -20,6 +20,7 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import com.smartattendance.supabase.service.companion.CompanionAccessTokenService;
 import com.smartattendance.supabase.service.companion.CompanionAccessTokenService.CompanionToken;
+import com.smartattendance.supabase.service.companion.CompanionAccessTokenService.Scope;
 
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -29,6 +30,9 @@ import jakarta.servlet.http.HttpServletRequestWrapper;
 
 public class CompanionTokenFilter extends OncePerRequestFilter {
 
+    /** Request attribute holding the validated {@link CompanionToken} for downstream controllers. */
+    public static final String TOKEN_ATTRIBUTE = "com.smartattendance.companion.token";
+
     private static final Logger log = LoggerFactory.getLogger(CompanionTokenFilter.class);
 
     private final CompanionAccessTokenService tokenService;
@@ -53,7 +57,7 @@ public class CompanionTokenFilter extends OncePerRequestFilter {
         UUID sectionId = resolveSectionId(path);
 
         CompanionToken token = tokenService.lookup(tokenValue)
-                .filter(stored -> sectionId == null || sectionId.equals(stored.sectionId()))
+                .filter(stored -> sectionId == null || CompanionAccessTokenService.permits(stored, sectionId))
                 .orElse(null);
 
         if (token == null) {
@@ -65,6 +69,26 @@ public class CompanionTokenFilter extends OncePerRequestFilter {
             log.info("Rejected companion request for path {} due to missing/expired token", path);
             return;
         }
+        if (token.scope() == Scope.MODEL_PREFETCH) {
+            if (!isPrefetchPath(path, sectionId)) {
+                response.setStatus(HttpStatus.FORBIDDEN.value());
+                response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                response.getWriter().write("""
+                        {"status":"error","message":"Companion prefetch token only permits listing sessions and downloading models"}
+                        """);
+                log.info("Rejected companion prefetch token on path {}", path);
+                return;
+            }
+            Instant expiry = token.supabaseJwt() != null ? token.supabaseJwt().getExpiresAt() : null;
+            if (token.supabaseJwt() == null || (expiry != null && expiry.isBefore(Instant.now()))) {
+                // The professor's session is gone; model downloads fall back to the service's storage credentials.
+                HttpServletRequest sanitized = new AuthorizationHeaderStrippingRequest(request);
+                sanitized.setAttribute(TOKEN_ATTRIBUTE, token);
+                log.info("Validated companion prefetch token for professor {} on path {}", token.professorProfileId(), path);
+                filterChain.doFilter(sanitized, response);
+                return;
+            }
+        }
         Jwt supabaseJwt = token.supabaseJwt();
         if (supabaseJwt == null) {
             response.setStatus(HttpStatus.UNAUTHORIZED.value());
@@ -90,6 +114,7 @@ public class CompanionTokenFilter extends OncePerRequestFilter {
         }
 
         HttpServletRequest sanitized = new AuthorizationHeaderStrippingRequest(request);
+        sanitized.setAttribute(TOKEN_ATTRIBUTE, token);
         log.info("Validated companion token for section {} on path {}", token.sectionId(), path);
         SecurityContext originalContext = SecurityContextHolder.getContext();
         SecurityContext delegatedContext = SecurityContextHolder.createEmptyContext();
@@ -123,6 +148,14 @@ public class CompanionTokenFilter extends OncePerRequestFilter {
         return StringUtils.hasText(fallback) ? fallback.trim() : null;
     }
 
+    /** Upcoming session listing and the section model endpoints, the only paths a prefetch token may use. */
+    private boolean isPrefetchPath(String path, UUID sectionId) {
+        if (path.equals("/api/companion/sessions/upcoming")) {
+            return true;
+        }
+        return sectionId != null && path.startsWith("/api/companion/sections/" + sectionId + "/models/");
+    }
+
     private UUID resolveSectionId(String path) {
         if (!path.startsWith("/api/companion/sections/")) {
             return null;
@@ -0,0 +1,6 @@
+-- Records the version of each section's binary LBPH model so companions can check it without a download.
+ALTER TABLE public.sections
+    ADD COLUMN IF NOT EXISTS model_version text;
+
+COMMENT ON COLUMN public.sections.model_version
+    IS 'LbphModelDelta version of the binary model under model_storage_path; null when the section has no binary model.';
@@ -0,0 +1,14 @@
+-- Idempotency keys of applied attendance submissions, written in the same transaction as the record.
+CREATE TABLE IF NOT EXISTS public.attendance_submission_keys (
+    idempotency_key text PRIMARY KEY,
+    applied_at timestamptz NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS idx_attendance_submission_keys_applied_at
+    ON public.attendance_submission_keys(applied_at);
+
+-- Only the service writes here; no client-facing policies.
+ALTER TABLE public.attendance_submission_keys ENABLE ROW LEVEL SECURITY;
+
+COMMENT ON TABLE public.attendance_submission_keys
+    IS 'Idempotency keys of attendance submissions already applied, so replays from the companion outbox do not overwrite later changes.';